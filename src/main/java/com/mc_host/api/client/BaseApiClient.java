@@ -1,25 +1,46 @@
 package com.mc_host.api.client;
 
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mc_host.api.metrics.HttpClientMetrics;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import java.util.logging.Logger;
 
 public abstract class BaseApiClient {
     private static final Logger LOGGER = Logger.getLogger(BaseApiClient.class.getName());
-    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "PUT", "DELETE");
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(502, 503, 504);
+    private static final Pattern ID_SEGMENT = Pattern.compile("(?=.*\\d)[0-9a-fA-F-]{8,}|\\d+");
 
+    protected final UpstreamTransport transport;
     protected final HttpClient httpClient;
     protected final ObjectMapper objectMapper;
+    private final HttpClientMetrics httpClientMetrics;
 
-    protected BaseApiClient(HttpClient httpClient, ObjectMapper objectMapper) {
-        this.httpClient = httpClient;
+    protected BaseApiClient(UpstreamTransport transport, HttpClientMetrics httpClientMetrics, ObjectMapper objectMapper) {
+        this.transport = transport;
+        this.httpClient = transport.httpClient();
+        this.httpClientMetrics = httpClientMetrics;
         this.objectMapper = objectMapper;
     }
 
@@ -27,47 +48,252 @@ public abstract class BaseApiClient {
     protected abstract String getAuthorizationHeader();
 
     protected String sendRequest(String method, String path) {
-        return sendRequest(method, path, null);
+        return sendRequest(method, path, (Object) null);
     }
 
     protected String sendRequest(String method, String path, Object body) {
-        try {
-            var builder = HttpRequest.newBuilder()
-                .uri(URI.create(getApiBase() + path))
-                .header("Authorization", getAuthorizationHeader())
-                .header("Accept", "application/json")
-                .timeout(REQUEST_TIMEOUT);
-
-            String requestBody;
-            if (body instanceof String) {
-                requestBody = (String) body;
-            } else {
-                requestBody = body != null ? objectMapper.writeValueAsString(body) : "";
-                builder.header("Content-Type", "application/json");
-            }
+        return exchange(method, path, body, transport.requestTimeout(), BaseApiClient::readBody);
+    }
 
-            var request = (switch (method) {
-                case "GET" -> builder.GET();
-                case "DELETE" -> builder.DELETE();
-                case "POST" -> builder.POST(HttpRequest.BodyPublishers.ofString(requestBody));
-                case "PUT" -> builder.PUT(HttpRequest.BodyPublishers.ofString(requestBody));
-                case "PATCH" -> builder.method("PATCH", HttpRequest.BodyPublishers.ofString(requestBody));
-                default -> throw new IllegalArgumentException("unsupported HTTP method: " + method);
-            }).build();
-            
-            var response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    protected <T> T sendRequest(String method, String path, Class<T> responseType) {
+        return sendRequest(method, path, null, objectMapper.constructType(responseType));
+    }
 
-            if (response.statusCode() == 409) {
-                throw new ResponseStatusException(HttpStatusCode.valueOf(409), response.body());
-            }
-            
+    protected <T> T sendRequest(String method, String path, Object body, Class<T> responseType) {
+        return sendRequest(method, path, body, objectMapper.constructType(responseType));
+    }
+
+    protected <T> T sendRequest(String method, String path, JavaType responseType) {
+        return sendRequest(method, path, null, responseType);
+    }
+
+    // parses straight off the socket instead of buffering the whole body as a string first
+    protected <T> T sendRequest(String method, String path, Object body, JavaType responseType) {
+        return exchange(method, path, body, transport.requestTimeout(), stream -> objectMapper.readValue(stream, responseType));
+    }
+
+    // for calls the upstream itself holds open for minutes, e.g. archive operations proxied to a node
+    protected <T> T sendRequest(String method, String path, Object body, Class<T> responseType, Duration timeout) {
+        var type = objectMapper.constructType(responseType);
+        return exchange(method, path, body, timeout, stream -> objectMapper.readValue(stream, type));
+    }
+
+    protected String sendRequest(String method, String path, Object body, Duration timeout) {
+        return exchange(method, path, body, timeout, BaseApiClient::readBody);
+    }
+
+    // signed urls carry their own auth and point at a node rather than the api host, so they skip the
+    // upstream's rate limiter, breaker and permits, but still share its pooled client and get timed
+    protected void sendToSignedUrl(HttpRequest request, String uriTemplate) throws IOException, InterruptedException {
+        var start = System.nanoTime();
+        var status = "IO_ERROR";
+        try {
+            var response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            status = String.valueOf(response.statusCode());
             if (response.statusCode() >= 400) {
-                throw new RuntimeException("API error: %d %s".formatted(response.statusCode(), response.body()));
+                throw new RuntimeException("Signed url request failed: %d %s".formatted(response.statusCode(), response.body()));
             }
+        } finally {
+            httpClientMetrics.recordRequest(transport.name(), request.method(), uriTemplate, status, Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
 
-            return response.body();
+    private <T> T exchange(String method, String path, Object body, Duration timeout, ResponseReader<T> reader) {
+        var uri = pathTemplate(path);
+        try {
+            var request = buildRequest(method, path, body, timeout);
+            for (int attempt = 0; ; attempt++) {
+                var outcome = attempt(request, method, uri, attempt, reader);
+                if (outcome.retryDelay() == null) {
+                    return outcome.value();
+                }
+                httpClientMetrics.recordRetry(transport.name(), uri, outcome.retryReason());
+                Thread.sleep(outcome.retryDelay());
+            }
         } catch (Exception e) {
             throw new RuntimeException("API request failed for %s %s".formatted(method, path), e);
         }
     }
-}
\ No newline at end of file
+
+    private <T> Attempt<T> attempt(
+        HttpRequest request,
+        String method,
+        String uri,
+        int attempt,
+        ResponseReader<T> reader
+    ) throws Exception {
+        awaitRateLimit();
+        if (!transport.permits().tryAcquire(transport.requestTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+            httpClientMetrics.recordRejection(transport.name(), "permit_timeout");
+            throw new IllegalStateException("upstream %s saturated".formatted(transport.name()));
+        }
+        var start = System.nanoTime();
+        String status = null;
+        // acquired without an outcome recorded means the breaker's probe, if this was one, is still held
+        boolean breakerAcquired = false;
+        boolean breakerSettled = false;
+        try {
+            if (!transport.circuitBreaker().tryAcquire()) {
+                httpClientMetrics.recordRejection(transport.name(), "circuit_open");
+                throw new IllegalStateException("circuit open for upstream %s".formatted(transport.name()));
+            }
+            breakerAcquired = true;
+
+            status = "IO_ERROR";
+            HttpResponse<InputStream> response;
+            try {
+                response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            } catch (IOException e) {
+                breakerSettled = true;
+                transport.circuitBreaker().onFailure();
+                if (IDEMPOTENT_METHODS.contains(method) && attempt < transport.settings().getMaxRetries()) {
+                    return Attempt.retry(backoff(attempt), "io_error");
+                }
+                throw e;
+            }
+
+            var statusCode = response.statusCode();
+            status = String.valueOf(statusCode);
+            try (var stream = response.body()) {
+                breakerSettled = true;
+                if (statusCode >= 500) {
+                    transport.circuitBreaker().onFailure();
+                } else {
+                    transport.circuitBreaker().onSuccess();
+                }
+
+                if (attempt < transport.settings().getMaxRetries() && isRetryable(method, statusCode)) {
+                    var delay = retryDelay(response, attempt);
+                    if (delay != null) {
+                        return Attempt.retry(delay, status);
+                    }
+                }
+
+                if (statusCode == 409) {
+                    throw new ResponseStatusException(HttpStatusCode.valueOf(409), readBody(stream));
+                }
+
+                if (statusCode >= 400) {
+                    throw new RuntimeException("API error: %d %s".formatted(statusCode, readBody(stream)));
+                }
+
+                return Attempt.done(reader.read(stream));
+            }
+        } finally {
+            if (breakerAcquired && !breakerSettled) {
+                transport.circuitBreaker().onAbandoned();
+            }
+            transport.permits().release();
+            if (status != null) {
+                httpClientMetrics.recordRequest(transport.name(), request.method(), uri, status, Duration.ofNanos(System.nanoTime() - start));
+            }
+        }
+    }
+
+    private void awaitRateLimit() throws InterruptedException {
+        var wait = transport.rateLimiter().reserve(transport.requestTimeout());
+        if (wait == null) {
+            httpClientMetrics.recordRejection(transport.name(), "rate_limited");
+            throw new IllegalStateException("rate limit for upstream %s exceeded the request timeout".formatted(transport.name()));
+        }
+        httpClientMetrics.recordRateLimitWait(transport.name(), wait);
+        if (wait.isPositive()) {
+            Thread.sleep(wait);
+        }
+    }
+
+    // a 429 means the request was rejected before any side effect, so it is safe to resend for every verb
+    private static boolean isRetryable(String method, int statusCode) {
+        return statusCode == 429
+            || (IDEMPOTENT_METHODS.contains(method) && RETRYABLE_STATUSES.contains(statusCode));
+    }
+
+    private Duration retryDelay(HttpResponse<?> response, int attempt) {
+        var retryAfter = response.headers().firstValue("Retry-After").map(BaseApiClient::parseRetryAfter).orElse(null);
+        if (retryAfter == null) {
+            return backoff(attempt);
+        }
+        if (retryAfter.compareTo(transport.settings().maxRetryAfter()) > 0) {
+            return null;
+        }
+        if (response.statusCode() == 429) {
+            // everyone sharing this upstream backs off, not just the caller that got throttled
+            transport.rateLimiter().pauseFor(retryAfter);
+            return Duration.ZERO;
+        }
+        return retryAfter;
+    }
+
+    // full jitter, so a burst of failed jobs does not come back in lockstep
+    private Duration backoff(int attempt) {
+        var settings = transport.settings();
+        var ceiling = Math.min(settings.getRetryMaxDelayMs(), settings.getRetryBaseDelayMs() << Math.min(attempt, 20));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+
+    static Duration parseRetryAfter(String value) {
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                var until = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+                var delay = Duration.between(Instant.now(), until);
+                return delay.isNegative() ? Duration.ZERO : delay;
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    private HttpRequest buildRequest(String method, String path, Object body, Duration timeout) throws IOException {
+        var builder = HttpRequest.newBuilder()
+            .uri(URI.create(getApiBase() + path))
+            .header("Authorization", getAuthorizationHeader())
+            .header("Accept", "application/json")
+            .timeout(timeout);
+
+        String requestBody;
+        if (body instanceof String) {
+            requestBody = (String) body;
+        } else {
+            requestBody = body != null ? objectMapper.writeValueAsString(body) : "";
+            builder.header("Content-Type", "application/json");
+        }
+
+        return (switch (method) {
+            case "GET" -> builder.GET();
+            case "DELETE" -> builder.DELETE();
+            case "POST" -> builder.POST(HttpRequest.BodyPublishers.ofString(requestBody));
+            case "PUT" -> builder.PUT(HttpRequest.BodyPublishers.ofString(requestBody));
+            case "PATCH" -> builder.method("PATCH", HttpRequest.BodyPublishers.ofString(requestBody));
+            default -> throw new IllegalArgumentException("unsupported HTTP method: " + method);
+        }).build();
+    }
+
+    private static String readBody(InputStream stream) throws IOException {
+        return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    // collapses ids and query strings so "/servers/1a2b3c4d/files/list?directory=%2F" becomes "/servers/{id}/files/list"
+    static String pathTemplate(String path) {
+        var withoutQuery = path.split("\\?", 2)[0];
+        return Arrays.stream(withoutQuery.split("/", -1))
+            .map(segment -> ID_SEGMENT.matcher(segment).matches() ? "{id}" : segment)
+            .collect(Collectors.joining("/"));
+    }
+
+    private record Attempt<T>(T value, Duration retryDelay, String retryReason) {
+        static <T> Attempt<T> done(T value) {
+            return new Attempt<>(value, null, null);
+        }
+
+        static <T> Attempt<T> retry(Duration delay, String reason) {
+            return new Attempt<>(null, delay, reason);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ResponseReader<T> {
+        T read(InputStream stream) throws IOException;
+    }
+}
@@ -1,13 +1,14 @@
 package com.mc_host.api.client;
 
-import java.net.http.HttpClient;
 import java.util.List;
 import java.util.Map;
 
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mc_host.api.configuration.CloudflareConfiguration;
+import com.mc_host.api.metrics.HttpClientMetrics;
 
 @Service
 public class CloudflareClient extends BaseApiClient{
@@ -17,10 +18,11 @@ public class CloudflareClient extends BaseApiClient{
 
     public CloudflareClient(
         CloudflareConfiguration cloudflareConfiguration,
-        HttpClient httpClient,
+        UpstreamTransportFactory transports,
+        HttpClientMetrics httpClientMetrics,
         ObjectMapper objectMapper
     ) {
-        super(httpClient, objectMapper);
+        super(transports.forUpstream("cloudflare"), httpClientMetrics, objectMapper);
         this.cloudflareConfiguration = cloudflareConfiguration;
     }
 
@@ -48,12 +50,12 @@ public class CloudflareClient extends BaseApiClient{
             "ttl", RECORD_TTL
         );
 
-        String response = sendRequest(
+        SingleRecordResponse<DNSRecordResponse> record = sendRequest(
             "POST",
             "/zones/" + zoneId + "/dns_records",
-            recordData
+            recordData,
+            singleRecordType(DNSRecordResponse.class)
         );
-        SingleRecordResponse<DNSRecordResponse> record = objectMapper.readValue(response, objectMapper.getTypeFactory().constructParametricType(SingleRecordResponse.class, DNSRecordResponse.class));
         return record.result;
     }
 
@@ -71,12 +73,12 @@ public class CloudflareClient extends BaseApiClient{
             "ttl", RECORD_TTL
         );
 
-        String response = sendRequest(
+        SingleRecordResponse<DNSRecordResponse> record = sendRequest(
             "POST",
             "/zones/" + zoneId + "/dns_records",
-            recordData
+            recordData,
+            singleRecordType(DNSRecordResponse.class)
         );
-        SingleRecordResponse<DNSRecordResponse> record = objectMapper.readValue(response, objectMapper.getTypeFactory().constructParametricType(SingleRecordResponse.class, DNSRecordResponse.class));
         return record.result;
     }
 
@@ -95,12 +97,12 @@ public class CloudflareClient extends BaseApiClient{
             "ttl", RECORD_TTL
         );
 
-        String response = sendRequest(
+        SingleRecordResponse<DNSRecordResponse> record = sendRequest(
             "PUT",
             "/zones/" + zoneId + "/dns_records/" + recordId,
-            recordData
+            recordData,
+            singleRecordType(DNSRecordResponse.class)
         );
-        SingleRecordResponse<DNSRecordResponse> record = objectMapper.readValue(response, objectMapper.getTypeFactory().constructParametricType(SingleRecordResponse.class, DNSRecordResponse.class));
         return record.result;
     }
 
@@ -110,10 +112,7 @@ public class CloudflareClient extends BaseApiClient{
 
     public List<DNSRecordResponse> getDNSRecords(String zoneName) throws Exception {
         String zoneId = getZoneId(zoneName);
-        String response = sendRequest("GET", "/zones/" + zoneId + "/dns_records");
-        PaginatedResponse<DNSRecordResponse> records = objectMapper.readValue(response,
-            objectMapper.getTypeFactory().constructParametricType(
-                PaginatedResponse.class, DNSRecordResponse.class));
+        PaginatedResponse<DNSRecordResponse> records = sendRequest("GET", "/zones/" + zoneId + "/dns_records", paginatedType(DNSRecordResponse.class));
         return records.result;
     }
 
@@ -126,20 +125,14 @@ public class CloudflareClient extends BaseApiClient{
     }
     
     public List<String> getAllZones() throws Exception {
-        String response = sendRequest("GET", "/zones?per_page=50");
-        PaginatedResponse<Zone> zones = objectMapper.readValue(response,
-            objectMapper.getTypeFactory().constructParametricType(
-                PaginatedResponse.class, Zone.class));
+        PaginatedResponse<Zone> zones = sendRequest("GET", "/zones?per_page=50", paginatedType(Zone.class));
                 
         // If there are more pages, fetch them
         List<Zone> allZones = new java.util.ArrayList<>(zones.result);
         int totalPages = zones.result_info.total_pages;
         
         for (int page = 2; page <= totalPages; page++) {
-            String pageResponse = sendRequest("GET", "/zones?per_page=50&page=" + page);
-            PaginatedResponse<Zone> pageZones = objectMapper.readValue(pageResponse,
-                objectMapper.getTypeFactory().constructParametricType(
-                    PaginatedResponse.class, Zone.class));
+            PaginatedResponse<Zone> pageZones = sendRequest("GET", "/zones?per_page=50&page=" + page, paginatedType(Zone.class));
             allZones.addAll(pageZones.result);
         }
         
@@ -148,20 +141,14 @@ public class CloudflareClient extends BaseApiClient{
     
     private List<DNSRecordResponse> getDNSRecordsForZoneIdAndType(String recordType, String zoneId) throws Exception {
         String typeParam = recordType != null ? "&type=" + recordType : "";
-        String response = sendRequest("GET", "/zones/" + zoneId + "/dns_records?per_page=100" + typeParam);
-        PaginatedResponse<DNSRecordResponse> records = objectMapper.readValue(response,
-            objectMapper.getTypeFactory().constructParametricType(
-                PaginatedResponse.class, DNSRecordResponse.class));
+        PaginatedResponse<DNSRecordResponse> records = sendRequest("GET", "/zones/" + zoneId + "/dns_records?per_page=100" + typeParam, paginatedType(DNSRecordResponse.class));
                 
         // If there are more pages, fetch them
         List<DNSRecordResponse> allRecords = new java.util.ArrayList<>(records.result);
         int totalPages = records.result_info.total_pages;
         
         for (int page = 2; page <= totalPages; page++) {
-            String pageResponse = sendRequest("GET", "/zones/" + zoneId + "/dns_records?per_page=100&page=" + page + typeParam);
-            PaginatedResponse<DNSRecordResponse> pageRecords = objectMapper.readValue(pageResponse,
-                objectMapper.getTypeFactory().constructParametricType(
-                    PaginatedResponse.class, DNSRecordResponse.class));
+            PaginatedResponse<DNSRecordResponse> pageRecords = sendRequest("GET", "/zones/" + zoneId + "/dns_records?per_page=100&page=" + page + typeParam, paginatedType(DNSRecordResponse.class));
             allRecords.addAll(pageRecords.result);
         }
         
@@ -169,13 +156,11 @@ public class CloudflareClient extends BaseApiClient{
     }
     
     public String getZoneId(String zoneName) throws Exception {
-        String response = sendRequest(
+        PaginatedResponse<Zone> zones = sendRequest(
             "GET",
-            "/zones?name=" + zoneName
+            "/zones?name=" + zoneName,
+            paginatedType(Zone.class)
         );
-        PaginatedResponse<Zone> zones = objectMapper.readValue(response,
-            objectMapper.getTypeFactory().constructParametricType(
-                PaginatedResponse.class, Zone.class));
         
         if (zones.result.isEmpty()) {
             throw new RuntimeException("Zone not found: " + zoneName);
@@ -183,6 +168,14 @@ public class CloudflareClient extends BaseApiClient{
         return zones.result.get(0).id;
     }
 
+    private JavaType paginatedType(Class<?> clazz) {
+        return objectMapper.getTypeFactory().constructParametricType(PaginatedResponse.class, clazz);
+    }
+
+    private JavaType singleRecordType(Class<?> clazz) {
+        return objectMapper.getTypeFactory().constructParametricType(SingleRecordResponse.class, clazz);
+    }
+
     public record Zone(String id, String name) {}
     public record DNSRecordResponse(
         String id,
@@ -2,33 +2,30 @@ package com.mc_host.api.client;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mc_host.api.configuration.HetznerCloudConfiguration;
+import com.mc_host.api.metrics.HttpClientMetrics;
 import com.mc_host.api.model.resource.hetzner.HetznerServerResponse;
 import com.mc_host.api.model.resource.hetzner.HetznerServerResponse.Server;
 import com.mc_host.api.model.resource.hetzner.HetznerServersResponse;
 import org.springframework.stereotype.Service;
 
-import java.net.http.HttpClient;
-import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 
 @Service
 public class HetznerCloudClient extends BaseApiClient{
     private static final Logger LOGGER = Logger.getLogger(HetznerCloudClient.class.getName());
 
-    private static final Duration POLL_INTERVAL = Duration.ofSeconds(10);
-    private static final Duration MAX_WAIT_TIME = Duration.ofMinutes(2);
-
     private final HetznerCloudConfiguration hetznerCloudConfiguration;
 
     public HetznerCloudClient(
         HetznerCloudConfiguration hetznerCloudConfiguration,
-        HttpClient httpClient,
+        UpstreamTransportFactory transports,
+        HttpClientMetrics httpClientMetrics,
         ObjectMapper objectMapper
     ) {
-        super(httpClient, objectMapper);
+        super(transports.forUpstream("hetzner-cloud"), httpClientMetrics, objectMapper);
         this.hetznerCloudConfiguration = hetznerCloudConfiguration;
     }
 
@@ -44,16 +41,23 @@ public class HetznerCloudClient extends BaseApiClient{
     }
 
     public HetznerServerResponse createServer(String name, String serverType, String location, String image) throws Exception {
-        var requestBody = Map.of(
+        return createServer(name, serverType, location, image, null);
+    }
+
+    // image takes a name or a snapshot id, user data is handed to cloud-init on first boot
+    public HetznerServerResponse createServer(String name, String serverType, String location, String image, String userData) throws Exception {
+        var requestBody = new HashMap<String, Object>(Map.of(
             "name", name,
             "server_type", serverType,
             "location", location,
             "image", image,
             "ssh_keys", List.of("default")
-        );
+        ));
+        if (userData != null) {
+            requestBody.put("user_data", userData);
+        }
 
-        String response = sendRequest("POST", "/servers", requestBody);
-        return objectMapper.readValue(response, HetznerServerResponse.class);
+        return sendRequest("POST", "/servers", requestBody, HetznerServerResponse.class);
     }
 
     public void deleteServer(long serverId) throws Exception {
@@ -61,13 +65,11 @@ public class HetznerCloudClient extends BaseApiClient{
     }
 
     public HetznerServerResponse getServer(long serverId) throws Exception {
-        String response = sendRequest("GET", "/servers/" + serverId);
-        return objectMapper.readValue(response, HetznerServerResponse.class);
+        return sendRequest("GET", "/servers/" + serverId, HetznerServerResponse.class);
     }
 
     public List<Server> getAllServers() throws Exception {
-        String response = sendRequest("GET", "/servers");
-        HetznerServersResponse hetznerResponse = objectMapper.readValue(response, HetznerServersResponse.class);
+        HetznerServersResponse hetznerResponse = sendRequest("GET", "/servers", HetznerServersResponse.class);
         return hetznerResponse.servers();
     }
 
@@ -86,20 +88,4 @@ public class HetznerCloudClient extends BaseApiClient{
         sendRequest("POST", "/servers/" + serverId + "/actions", action);
     }
 
-    public Boolean waitForServerStatus(Long hetznerId, String expectedStatus) throws Exception {
-        long startTime = System.currentTimeMillis();
-        while (System.currentTimeMillis() - startTime < MAX_WAIT_TIME.toMillis()) {
-            try {
-                Thread.sleep(POLL_INTERVAL.toMillis());
-                HetznerServerResponse response = getServer(hetznerId);
-                if (response != null && expectedStatus.equals(response.server.status)) {
-                    return true;
-                }
-            } catch (Exception e) {
-                LOGGER.log(Level.WARNING, "Failed to poll server status: " + hetznerId, e);
-            }
-        }
-        return false;
-    }
-
 }
@@ -1,9 +1,8 @@
 package com.mc_host.api.client;
 
-import java.net.http.HttpClient;
-
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mc_host.api.configuration.HetznerRobotConfiguration;
+import com.mc_host.api.metrics.HttpClientMetrics;
 import com.mc_host.api.model.resource.hetzner.HetznerServerResponse;
 import com.mc_host.api.model.resource.hetzner.HetznerServersResponse;
 import com.mc_host.api.model.resource.hetzner.HetznerServerResponse.Server;
@@ -18,10 +17,11 @@ public class HetznerRobotClient extends BaseApiClient{
 
     public HetznerRobotClient(
         HetznerRobotConfiguration hetznerRobotConfiguration,
-        HttpClient httpClient,
+        UpstreamTransportFactory transports,
+        HttpClientMetrics httpClientMetrics,
         ObjectMapper objectMapper
     ) {
-        super(httpClient, objectMapper);
+        super(transports.forUpstream("hetzner-robot"), httpClientMetrics, objectMapper);
         this.hetznerRobotConfiguration = hetznerRobotConfiguration;
     }
 
@@ -37,13 +37,11 @@ public class HetznerRobotClient extends BaseApiClient{
     }
 
     public HetznerServerResponse getServer(long serverId) throws Exception {
-        String response = sendRequest("GET", "/server/" + serverId);
-        return objectMapper.readValue(response, HetznerServerResponse.class);
+        return sendRequest("GET", "/server/" + serverId, HetznerServerResponse.class);
     }
 
     public List<Server> getAllServers() throws Exception {
-        String response = sendRequest("GET", "/server");
-        HetznerServersResponse hetznerResponse = objectMapper.readValue(response, HetznerServersResponse.class);
+        HetznerServersResponse hetznerResponse = sendRequest("GET", "/server", HetznerServersResponse.class);
         return hetznerResponse.servers();
     }
 
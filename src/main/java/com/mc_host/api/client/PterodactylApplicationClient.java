@@ -1,13 +1,14 @@
 package com.mc_host.api.client;
 
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mc_host.api.configuration.PterodactylConfiguration;
+import com.mc_host.api.metrics.HttpClientMetrics;
 import com.mc_host.api.model.resource.pterodactyl.request.PterodactylCreateNodeRequest;
 import com.mc_host.api.model.resource.pterodactyl.response.PaginatedResponse;
 import com.mc_host.api.model.resource.pterodactyl.response.PterodactylNodeResponse;
 import org.springframework.stereotype.Service;
 
-import java.net.http.HttpClient;
 import java.util.List;
 import java.util.Map;
 
@@ -18,10 +19,11 @@ public class PterodactylApplicationClient extends BaseApiClient {
 
     PterodactylApplicationClient(
         PterodactylConfiguration config,
-        HttpClient httpClient,
+        UpstreamTransportFactory transports,
+        HttpClientMetrics httpClientMetrics,
         ObjectMapper objectMapper
     ) {
-        super(httpClient, objectMapper);
+        super(transports.forUpstream("pterodactyl"), httpClientMetrics, objectMapper);
         this.config = config;
     }
 
@@ -37,19 +39,16 @@ public class PterodactylApplicationClient extends BaseApiClient {
 
     // SERVERS
     public PterodactylServerResponse getServer(Long serverId) {
-        var response = sendRequest("GET", "/api/application/servers/" + serverId);
-        return deserialize(response, PterodactylServerResponse.class);
+        return sendRequest("GET", "/api/application/servers/" + serverId, PterodactylServerResponse.class);
     }
 
     public List<PterodactylServerResponse> getAllServers() {
-        var response = sendRequest("GET", "/api/application/servers");
-        var paginated = deserializePaginated(response, PterodactylServerResponse.class);
+        PaginatedResponse<PterodactylServerResponse> paginated = sendRequest("GET", "/api/application/servers", paginatedType(PterodactylServerResponse.class));
         return paginated.data();
     }
 
     public PterodactylServerResponse createServer(Map<String, Object> serverDetails) {
-        var response = sendRequest("POST", "/api/application/servers", serverDetails);
-        return deserialize(response, PterodactylServerResponse.class);
+        return sendRequest("POST", "/api/application/servers", serverDetails, PterodactylServerResponse.class);
     }
 
     public void deleteServer(Long serverId) {
@@ -62,18 +61,15 @@ public class PterodactylApplicationClient extends BaseApiClient {
 
     // NODES
     public PterodactylNodeResponse createNode(PterodactylCreateNodeRequest nodeDetails) {
-        var response = sendRequest("POST", "/api/application/nodes", nodeDetails);
-        return deserialize(response, PterodactylNodeResponse.class);
+        return sendRequest("POST", "/api/application/nodes", nodeDetails, PterodactylNodeResponse.class);
     }
     
     public PterodactylNodeResponse getNode(String nodeId) {
-        var response = sendRequest("GET", "/api/application/nodes/" + nodeId);
-        return deserialize(response, PterodactylNodeResponse.class);
+        return sendRequest("GET", "/api/application/nodes/" + nodeId, PterodactylNodeResponse.class);
     }
     
     public List<PterodactylNodeResponse> getAllNodes() {
-        var response = sendRequest("GET", "/api/application/nodes");
-        var paginated = deserializePaginated(response, PterodactylNodeResponse.class);
+        PaginatedResponse<PterodactylNodeResponse> paginated = sendRequest("GET", "/api/application/nodes", paginatedType(PterodactylNodeResponse.class));
         return paginated.data();
     }
     
@@ -82,8 +78,7 @@ public class PterodactylApplicationClient extends BaseApiClient {
     }
     
     public PterodactylNodeResponse updateNode(String nodeId, PterodactylCreateNodeRequest nodeDetails) {
-        var response = sendRequest("PATCH", "/api/application/nodes/" + nodeId, nodeDetails);
-        return deserialize(response, PterodactylNodeResponse.class);
+        return sendRequest("PATCH", "/api/application/nodes/" + nodeId, nodeDetails, PterodactylNodeResponse.class);
     }
 
     public String getNodeConfiguration(Long nodeId) { 
@@ -92,8 +87,7 @@ public class PterodactylApplicationClient extends BaseApiClient {
 
     // ALLOCATIONS
     public List<AllocationResponse> getNodeAllocations(Long nodeId) {
-        var response = sendRequest("GET", "/api/application/nodes/" + nodeId + "/allocations");
-        var paginated = deserializePaginated(response, AllocationResponse.class);
+        PaginatedResponse<AllocationResponse> paginated = sendRequest("GET", "/api/application/nodes/" + nodeId + "/allocations", paginatedType(AllocationResponse.class));
         return paginated.data();
     }
 
@@ -104,8 +98,7 @@ public class PterodactylApplicationClient extends BaseApiClient {
             "alias", alias != null ? alias : ""
         );
         
-        var response = sendRequest("POST", "/api/application/nodes/" + nodeId + "/allocations", request);
-        return deserialize(response, AllocationResponse.class);
+        return sendRequest("POST", "/api/application/nodes/" + nodeId + "/allocations", request, AllocationResponse.class);
     }
 
     public void createMultipleAllocations(Long nodeId, String ip, List<Integer> ports, String alias) {
@@ -125,24 +118,20 @@ public class PterodactylApplicationClient extends BaseApiClient {
 
     // USERS
     public PterodactylUserResponse getUser(String userId) {
-        var response = sendRequest("GET", "/api/application/users/" + userId);
-        return deserialize(response, PterodactylUserResponse.class);
+        return sendRequest("GET", "/api/application/users/" + userId, PterodactylUserResponse.class);
     }
 
     public List<PterodactylUserResponse> getAllUsers() {
-        var response = sendRequest("GET", "/api/application/users");
-        var paginated = deserializePaginated(response, PterodactylUserResponse.class);
+        PaginatedResponse<PterodactylUserResponse> paginated = sendRequest("GET", "/api/application/users", paginatedType(PterodactylUserResponse.class));
         return paginated.data();
     }
 
     public PterodactylUserResponse createUser(PterodactylCreateUserRequest userDetails) {
-        var response = sendRequest("POST", "/api/application/users", userDetails);
-        return deserialize(response, PterodactylUserResponse.class);
+        return sendRequest("POST", "/api/application/users", userDetails, PterodactylUserResponse.class);
     }
 
     public PterodactylUserResponse updateUser(String userId, PterodactylUpdateUserRequest userDetails) {
-        var response = sendRequest("PATCH", "/api/application/users/" + userId, userDetails);
-        return deserialize(response, PterodactylUserResponse.class);
+        return sendRequest("PATCH", "/api/application/users/" + userId, userDetails, PterodactylUserResponse.class);
     }
 
     public void deleteUser(Long userId) {
@@ -158,25 +147,11 @@ public class PterodactylApplicationClient extends BaseApiClient {
 
     //STARTUP
     public PterodactylServerResponse updateServerStartup(Long serverId, PterodactylUpdateStartupRequest startupDetails) {
-        var response = sendRequest("PATCH", "/api/application/servers/" + serverId + "/startup", startupDetails);
-        return deserialize(response, PterodactylServerResponse.class);
+        return sendRequest("PATCH", "/api/application/servers/" + serverId + "/startup", startupDetails, PterodactylServerResponse.class);
     }
 
-    private <T> T deserialize(String json, Class<T> clazz) {
-        try {
-            return objectMapper.readValue(json, clazz);
-        } catch (Exception e) {
-            throw new RuntimeException("failed to deserialize response", e);
-        }
-    }
-
-    private <T> PaginatedResponse<T> deserializePaginated(String json, Class<T> clazz) {
-        try {
-            return objectMapper.readValue(json, 
-                objectMapper.getTypeFactory().constructParametricType(PaginatedResponse.class, clazz));
-        } catch (Exception e) {
-            throw new RuntimeException("failed to deserialize paginated response", e);
-        }
+    private JavaType paginatedType(Class<?> clazz) {
+        return objectMapper.getTypeFactory().constructParametricType(PaginatedResponse.class, clazz);
     }
 
     public record AllocationResponse(AllocationAttributes attributes) {}
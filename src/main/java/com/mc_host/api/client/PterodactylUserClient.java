@@ -3,6 +3,8 @@ package com.mc_host.api.client;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mc_host.api.configuration.PterodactylConfiguration;
 import com.mc_host.api.controller.api.subscriptions.panel.FileController.RenameItem;
+import com.mc_host.api.metrics.HttpClientMetrics;
+import com.mc_host.api.model.panel.transfer.TempFileMultipartFile;
 import com.mc_host.api.model.resource.pterodactyl.PowerState;
 import com.mc_host.api.model.resource.pterodactyl.file.FileObject;
 import com.mc_host.api.model.resource.pterodactyl.file.SignedUrl;
@@ -10,28 +12,33 @@ import com.mc_host.api.model.resource.pterodactyl.panel.WebsocketCredentials;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URLEncoder;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 @Service
 public class PterodactylUserClient extends BaseApiClient {
+    // the panel gives wings 15 minutes for compress and decompress, match it. these calls hold one of the
+    // pterodactyl upstream's max-concurrent-requests permits for that whole time, so the limit is sized
+    // with a transfer's compress and decompress in mind
+    private static final Duration ARCHIVE_TIMEOUT = Duration.ofMinutes(15);
 
     private final PterodactylConfiguration config;
 
     PterodactylUserClient(
         PterodactylConfiguration config,
-        HttpClient httpClient,
+        UpstreamTransportFactory transports,
+        HttpClientMetrics httpClientMetrics,
         ObjectMapper objectMapper
     ) {
-        super(httpClient, objectMapper);
+        super(transports.forUpstream("pterodactyl"), httpClientMetrics, objectMapper);
         this.config = config;
     }
 
@@ -61,13 +68,11 @@ public class PterodactylUserClient extends BaseApiClient {
     }
 
     public ServerResourcesResponse getServerResources(String serverUid) {
-        var response = sendRequest("GET", "/api/client/servers/" + serverUid + "/resources");
-        return deserialize(response, ServerResourcesResponse.class);
+        return sendRequest("GET", "/api/client/servers/" + serverUid + "/resources", ServerResourcesResponse.class);
     }
 
     public WebsocketCredentialsResponse getWebsocketCredentials(String serverUid) {
-        var response = sendRequest("GET", "/api/client/servers/" + serverUid + "/websocket");
-        return deserialize(response, WebsocketCredentialsResponse.class);
+        return sendRequest("GET", "/api/client/servers/" + serverUid + "/websocket", WebsocketCredentialsResponse.class);
     }
 
     public void sendConsoleCommand(String serverUid, String command) {
@@ -78,8 +83,7 @@ public class PterodactylUserClient extends BaseApiClient {
     // FILE MANAGEMENT
     public List<FileObject> listFiles(String serverUid, String directory) {
         var encodedDirectory = encodeFilePath(directory);
-        var response = sendRequest("GET", "/api/client/servers/" + serverUid + "/files/list?directory=" + encodedDirectory);
-        var listResponse = deserialize(response, FileListResponse.class);
+        var listResponse = sendRequest("GET", "/api/client/servers/" + serverUid + "/files/list?directory=" + encodedDirectory, FileListResponse.class);
         return listResponse.data().stream().toList();
     }
 
@@ -90,52 +94,53 @@ public class PterodactylUserClient extends BaseApiClient {
 
     public SignedUrl getFileDownloadLink(String serverUid, String file) {
         var encodedFile = encodeFilePath(file);
-        var response = sendRequest("GET", "/api/client/servers/" + serverUid + "/files/download?file=" + encodedFile);
-        return deserialize(response, SignedUrl.class);
+        return sendRequest("GET", "/api/client/servers/" + serverUid + "/files/download?file=" + encodedFile, SignedUrl.class);
     }
 
     public SignedUrl getFileUploadLink(String serverUid) {
-        var response = sendRequest("GET", "/api/client/servers/" + serverUid + "/files/upload");
-        return deserialize(response, SignedUrl.class);
+        return sendRequest("GET", "/api/client/servers/" + serverUid + "/files/upload", SignedUrl.class);
     }
 
     public void uploadFile(String serverUid, MultipartFile file) throws IOException, InterruptedException {
-        // Get the signed upload URL
         var signedUrl = getFileUploadLink(serverUid);
 
-        // Create multipart request to forward to Pterodactyl
-        var httpClient = HttpClient.newHttpClient();
+        // the body is streamed straight from the source, never held in memory
+        var boundary = "----McHostBoundary" + UUID.randomUUID().toString().replace("-", "");
+        var contentType = file.getContentType() != null ? file.getContentType() : "application/octet-stream";
+        var head = ("--" + boundary + "\r\n"
+            + "Content-Disposition: form-data; name=\"files\"; filename=\"" + file.getOriginalFilename() + "\"\r\n"
+            + "Content-Type: " + contentType + "\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        var tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
 
-        // Build multipart body
-        var boundary = "----WebKitFormBoundary" + System.currentTimeMillis();
-        var bodyBuilder = new StringBuilder();
-
-        bodyBuilder.append("--").append(boundary).append("\r\n");
-        bodyBuilder.append("Content-Disposition: form-data; name=\"files\"; filename=\"")
-            .append(file.getOriginalFilename()).append("\"\r\n");
-        bodyBuilder.append("Content-Type: ").append(file.getContentType()).append("\r\n\r\n");
-
-        var fileBytes = file.getBytes();
-        var endBoundary = "\r\n--" + boundary + "--\r\n";
-
-        // Combine parts
-        var bodyBytes = new ByteArrayOutputStream();
-        bodyBytes.write(bodyBuilder.toString().getBytes(StandardCharsets.UTF_8));
-        bodyBytes.write(fileBytes);
-        bodyBytes.write(endBoundary.getBytes(StandardCharsets.UTF_8));
-
-        // Forward to Pterodactyl
         var request = HttpRequest.newBuilder()
             .uri(URI.create(signedUrl.attributes().url()))
             .header("Content-Type", "multipart/form-data; boundary=" + boundary)
-            .POST(HttpRequest.BodyPublishers.ofByteArray(bodyBytes.toByteArray()))
+            .POST(HttpRequest.BodyPublishers.concat(
+                HttpRequest.BodyPublishers.ofByteArray(head),
+                filePublisher(file),
+                HttpRequest.BodyPublishers.ofByteArray(tail)
+            ))
             .build();
 
-        var response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        sendToSignedUrl(request, "/upload/file");
+    }
 
-        if (response.statusCode() >= 400) {
-            throw new RuntimeException("Upload failed: " + response.statusCode());
+    // a temp file goes through the file channel publisher; anything else is read off its input stream,
+    // with the declared size so the request keeps a fixed content length
+    private HttpRequest.BodyPublisher filePublisher(MultipartFile file) throws IOException {
+        if (file instanceof TempFileMultipartFile tempFile) {
+            return HttpRequest.BodyPublishers.ofFile(tempFile.getPath());
         }
+        return HttpRequest.BodyPublishers.fromPublisher(
+            HttpRequest.BodyPublishers.ofInputStream(() -> {
+                try {
+                    return file.getInputStream();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }),
+            file.getSize()
+        );
     }
 
     public void renameFiles(String serverUid, String root, List<RenameItem> files) {
@@ -155,13 +160,18 @@ public class PterodactylUserClient extends BaseApiClient {
 
     public FileObject compressFiles(String serverUid, String root, List<String> files) {
         var payload = Map.of("root", root, "files", files);
-        var response = sendRequest("POST", "/api/client/servers/" + serverUid + "/files/compress", payload);
-        return deserialize(response, FileObject.class);
+        return sendRequest("POST", "/api/client/servers/" + serverUid + "/files/compress", payload, FileObject.class, ARCHIVE_TIMEOUT);
     }
 
     public void decompressFile(String serverUid, String root, String file) {
         var payload = Map.of("root", root, "file", file);
-        sendRequest("POST", "/api/client/servers/" + serverUid + "/files/decompress", payload);
+        sendRequest("POST", "/api/client/servers/" + serverUid + "/files/decompress", payload, ARCHIVE_TIMEOUT);
+    }
+
+    // wings downloads in the background; poll the directory listing to see when it lands
+    public void pullFile(String serverUid, String url, String directory, String filename) {
+        var payload = Map.of("url", url, "directory", directory, "filename", filename);
+        sendRequest("POST", "/api/client/servers/" + serverUid + "/files/pull", payload);
     }
 
     public void deleteFiles(String serverUid, String root, List<String> files) {
@@ -180,14 +190,12 @@ public class PterodactylUserClient extends BaseApiClient {
 
     // BACKUP MANAGEMENT
     public BackupListResponse listBackups(String serverUid) {
-        var response = sendRequest("GET", "/api/client/servers/" + serverUid + "/backups");
-        return deserialize(response, BackupListResponse.class);
+        return sendRequest("GET", "/api/client/servers/" + serverUid + "/backups", BackupListResponse.class);
     }
 
     public BackupResponse createBackup(String serverUid, String name) {
         var payload = name != null ? Map.of("name", name) : Map.of();
-        var response = sendRequest("POST", "/api/client/servers/" + serverUid + "/backups", payload);
-        return deserialize(response, BackupResponse.class);
+        return sendRequest("POST", "/api/client/servers/" + serverUid + "/backups", payload, BackupResponse.class);
     }
 
     public BackupResponse createBackup(String serverUid) {
@@ -195,13 +203,11 @@ public class PterodactylUserClient extends BaseApiClient {
     }
 
     public BackupResponse getBackupDetails(String serverUid, String backupUuid) {
-        var response = sendRequest("GET", "/api/client/servers/" + serverUid + "/backups/" + backupUuid);
-        return deserialize(response, BackupResponse.class);
+        return sendRequest("GET", "/api/client/servers/" + serverUid + "/backups/" + backupUuid, BackupResponse.class);
     }
 
     public SignedUrl getBackupDownloadLink(String serverUid, String backupUuid) {
-        var response = sendRequest("GET", "/api/client/servers/" + serverUid + "/backups/" + backupUuid + "/download");
-        return deserialize(response, SignedUrl.class);
+        return sendRequest("GET", "/api/client/servers/" + serverUid + "/backups/" + backupUuid + "/download", SignedUrl.class);
     }
 
     public void restoreBackup(String serverUid, String backupUuid) {
@@ -215,8 +221,7 @@ public class PterodactylUserClient extends BaseApiClient {
 
     // USER MANAGEMENT
     public UserListResponse listUsers(String serverUid) {
-        var response = sendRequest("GET", "/api/client/servers/" + serverUid + "/users");
-        return deserialize(response, UserListResponse.class);
+        return sendRequest("GET", "/api/client/servers/" + serverUid + "/users", UserListResponse.class);
     }
 
     public UserResponse createUser(String serverUid, String email, List<String> permissions) {
@@ -224,33 +229,22 @@ public class PterodactylUserClient extends BaseApiClient {
             "email", email,
             "permissions", permissions
         );
-        var response = sendRequest("POST", "/api/client/servers/" + serverUid + "/users", payload);
-        return deserialize(response, UserResponse.class);
+        return sendRequest("POST", "/api/client/servers/" + serverUid + "/users", payload, UserResponse.class);
     }
 
     public UserResponse getUserDetails(String serverUid, String subuserUuid) {
-        var response = sendRequest("GET", "/api/client/servers/" + serverUid + "/users/" + subuserUuid);
-        return deserialize(response, UserResponse.class);
+        return sendRequest("GET", "/api/client/servers/" + serverUid + "/users/" + subuserUuid, UserResponse.class);
     }
 
     public UserResponse updateUser(String serverUid, String subuserUuid, List<String> permissions) {
         var payload = Map.of("permissions", permissions);
-        var response = sendRequest("POST", "/api/client/servers/" + serverUid + "/users/" + subuserUuid, payload);
-        return deserialize(response, UserResponse.class);
+        return sendRequest("POST", "/api/client/servers/" + serverUid + "/users/" + subuserUuid, payload, UserResponse.class);
     }
 
     public void deleteUser(String serverUid, String subuserUuid) {
         sendRequest("DELETE", "/api/client/servers/" + serverUid + "/users/" + subuserUuid);
     }
 
-    private <T> T deserialize(String json, Class<T> clazz) {
-        try {
-            return objectMapper.readValue(json, clazz);
-        } catch (Exception e) {
-            throw new RuntimeException("failed to deserialize response", e);
-        }
-    }
-
     public enum ServerStatus {
         RUNNING, STARTING, STOPPING, STOPPED, OFFLINE
     }
@@ -0,0 +1,57 @@
+package com.mc_host.api.client;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Reservation style token bucket: callers take a token up front and are told how long
+ * to sleep before using it, so the lock is never held while waiting.
+ */
+public class TokenBucket {
+    private final double permitsPerSecond;
+    private final double capacity;
+    private final LongSupplier nanoClock;
+
+    private double tokens;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+
+    public TokenBucket(double permitsPerSecond, int capacity) {
+        this(permitsPerSecond, capacity, System::nanoTime);
+    }
+
+    TokenBucket(double permitsPerSecond, int capacity, LongSupplier nanoClock) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.capacity = capacity;
+        this.nanoClock = nanoClock;
+        this.tokens = capacity;
+        this.lastRefillNanos = nanoClock.getAsLong();
+        this.pausedUntilNanos = lastRefillNanos;
+    }
+
+    // returns the wait before the reserved token may be used, or null if that would exceed maxWait
+    public synchronized Duration reserve(Duration maxWait) {
+        var now = nanoClock.getAsLong();
+        refill(now);
+        var pauseNanos = Math.max(0, pausedUntilNanos - now);
+        var deficitNanos = tokens >= 1 ? 0 : (long) ((1 - tokens) / permitsPerSecond * 1_000_000_000L);
+        var waitNanos = Math.max(pauseNanos, deficitNanos);
+        if (waitNanos > maxWait.toNanos()) {
+            return null;
+        }
+        tokens -= 1;
+        return Duration.ofNanos(waitNanos);
+    }
+
+    // upstream told us to back off (429 + Retry-After), hold every caller until then
+    public synchronized void pauseFor(Duration duration) {
+        var until = nanoClock.getAsLong() + duration.toNanos();
+        pausedUntilNanos = Math.max(pausedUntilNanos, until);
+    }
+
+    private void refill(long now) {
+        var elapsedSeconds = (now - lastRefillNanos) / 1_000_000_000.0;
+        tokens = Math.min(capacity, tokens + elapsedSeconds * permitsPerSecond);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,32 @@
+package com.mc_host.api.client;
+
+import com.mc_host.api.configuration.HttpClientConfiguration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Connection settings shared by every client that talks to the same upstream host.
+ * The semaphore caps in-flight requests so one slow upstream cannot pile up
+ * work on the callers' threads; the bucket and breaker keep us inside the
+ * upstream's rate limit and stop us hammering it while it is down.
+ */
+public record UpstreamTransport(
+    String name,
+    HttpClient httpClient,
+    ExecutorService executor,
+    Semaphore permits,
+    TokenBucket rateLimiter,
+    CircuitBreaker circuitBreaker,
+    HttpClientConfiguration.Upstream settings
+) {
+    public int inFlight() {
+        return settings.getMaxConcurrentRequests() - permits.availablePermits();
+    }
+
+    public Duration requestTimeout() {
+        return settings.requestTimeout();
+    }
+}
@@ -0,0 +1,77 @@
+package com.mc_host.api.client;
+
+import java.net.http.HttpClient;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.stereotype.Component;
+
+import com.mc_host.api.configuration.HttpClientConfiguration;
+import com.mc_host.api.metrics.HttpClientMetrics;
+
+import jakarta.annotation.PreDestroy;
+
+@Component
+public class UpstreamTransportFactory {
+
+    private final HttpClientConfiguration httpClientConfiguration;
+    private final HttpClientMetrics httpClientMetrics;
+    private final Map<String, UpstreamTransport> transports = new ConcurrentHashMap<>();
+
+    public UpstreamTransportFactory(
+        HttpClientConfiguration httpClientConfiguration,
+        HttpClientMetrics httpClientMetrics
+    ) {
+        this.httpClientConfiguration = httpClientConfiguration;
+        this.httpClientMetrics = httpClientMetrics;
+    }
+
+    // clients hitting the same host share one transport, so the concurrency cap is per host rather than per client
+    public UpstreamTransport forUpstream(String name) {
+        return transports.computeIfAbsent(name, this::create);
+    }
+
+    private UpstreamTransport create(String name) {
+        var settings = httpClientConfiguration.upstream(name);
+        var executor = Executors.newFixedThreadPool(settings.getExecutorThreads(), threadFactory(name));
+        var httpClient = HttpClient.newBuilder()
+            .version(settings.getHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+            .connectTimeout(settings.connectTimeout())
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .executor(executor)
+            .build();
+        var transport = new UpstreamTransport(
+            name,
+            httpClient,
+            executor,
+            new Semaphore(settings.getMaxConcurrentRequests(), true),
+            new TokenBucket(settings.getRequestsPerSecond(), settings.getBurst()),
+            new CircuitBreaker(settings.getCircuitFailureThreshold(), settings.circuitOpenDuration()),
+            settings
+        );
+        httpClientMetrics.registerUpstream(transport);
+        return transport;
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        var counter = new AtomicInteger();
+        return runnable -> {
+            var thread = new Thread(runnable, "http-%s-%d".formatted(name, counter.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        transports.values().forEach(transport -> {
+            transport.httpClient().shutdownNow();
+            transport.executor().shutdownNow();
+        });
+    }
+}
@@ -16,6 +16,8 @@ public class ClerkConfiguration {
     private String signingKey;
     private List<String> validEvents;
     private String jwtUrl;
+    // clerk user ids allowed onto operator only endpoints such as /actuator/provisioning, nobody when empty
+    private List<String> adminUserIds = List.of();
 
     @Bean
     public Clerk getClient() {
@@ -0,0 +1,31 @@
+package com.mc_host.api.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Data;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "cloud-node-allocation")
+public class CloudNodeAllocationConfiguration {
+    // off: walk the region/product matrix one create at a time
+    private Boolean raceEnabled = false;
+    private Integer parallelism = 3;
+    // once a node is running, how long a more preferred attempt still in flight may take to catch up
+    private Long preferenceGraceMs = 5000L;
+    private Long pollIntervalMs = 2000L;
+    private Long runningTimeoutMs = 120000L;
+    // weight of the newest result in each region/product capacity score
+    private Double capacitySmoothing = 0.3;
+
+    public Duration preferenceGrace() {
+        return Duration.ofMillis(preferenceGraceMs);
+    }
+
+    public Duration runningTimeout() {
+        return Duration.ofMillis(runningTimeoutMs);
+    }
+}
@@ -0,0 +1,93 @@
+package com.mc_host.api.configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Data;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "http-client")
+public class HttpClientConfiguration {
+    private Upstream defaults = Upstream.builtIn();
+    private Map<String, Upstream> upstreams = new HashMap<>();
+
+    // per upstream blocks only override what they set, everything else comes from defaults
+    public Upstream upstream(String name) {
+        Upstream overrides = upstreams.get(name);
+        return overrides == null ? defaults : overrides.merged(defaults);
+    }
+
+    @Data
+    public static class Upstream {
+        private Boolean http2;
+        private Integer maxConcurrentRequests;
+        private Integer executorThreads;
+        private Long connectTimeoutMs;
+        private Long requestTimeoutMs;
+        private Double requestsPerSecond;
+        private Integer burst;
+        private Integer maxRetries;
+        private Long retryBaseDelayMs;
+        private Long retryMaxDelayMs;
+        private Long maxRetryAfterMs;
+        private Integer circuitFailureThreshold;
+        private Long circuitOpenMs;
+
+        static Upstream builtIn() {
+            Upstream upstream = new Upstream();
+            upstream.setHttp2(true);
+            upstream.setMaxConcurrentRequests(16);
+            upstream.setExecutorThreads(4);
+            upstream.setConnectTimeoutMs(30000L);
+            upstream.setRequestTimeoutMs(30000L);
+            upstream.setRequestsPerSecond(10.0);
+            upstream.setBurst(20);
+            upstream.setMaxRetries(3);
+            upstream.setRetryBaseDelayMs(200L);
+            upstream.setRetryMaxDelayMs(5000L);
+            upstream.setMaxRetryAfterMs(30000L);
+            upstream.setCircuitFailureThreshold(5);
+            upstream.setCircuitOpenMs(30000L);
+            return upstream;
+        }
+
+        public Upstream merged(Upstream defaults) {
+            Upstream merged = new Upstream();
+            merged.setHttp2(http2 != null ? http2 : defaults.getHttp2());
+            merged.setMaxConcurrentRequests(maxConcurrentRequests != null ? maxConcurrentRequests : defaults.getMaxConcurrentRequests());
+            merged.setExecutorThreads(executorThreads != null ? executorThreads : defaults.getExecutorThreads());
+            merged.setConnectTimeoutMs(connectTimeoutMs != null ? connectTimeoutMs : defaults.getConnectTimeoutMs());
+            merged.setRequestTimeoutMs(requestTimeoutMs != null ? requestTimeoutMs : defaults.getRequestTimeoutMs());
+            merged.setRequestsPerSecond(requestsPerSecond != null ? requestsPerSecond : defaults.getRequestsPerSecond());
+            merged.setBurst(burst != null ? burst : defaults.getBurst());
+            merged.setMaxRetries(maxRetries != null ? maxRetries : defaults.getMaxRetries());
+            merged.setRetryBaseDelayMs(retryBaseDelayMs != null ? retryBaseDelayMs : defaults.getRetryBaseDelayMs());
+            merged.setRetryMaxDelayMs(retryMaxDelayMs != null ? retryMaxDelayMs : defaults.getRetryMaxDelayMs());
+            merged.setMaxRetryAfterMs(maxRetryAfterMs != null ? maxRetryAfterMs : defaults.getMaxRetryAfterMs());
+            merged.setCircuitFailureThreshold(circuitFailureThreshold != null ? circuitFailureThreshold : defaults.getCircuitFailureThreshold());
+            merged.setCircuitOpenMs(circuitOpenMs != null ? circuitOpenMs : defaults.getCircuitOpenMs());
+            return merged;
+        }
+
+        public Duration connectTimeout() {
+            return Duration.ofMillis(connectTimeoutMs);
+        }
+
+        public Duration requestTimeout() {
+            return Duration.ofMillis(requestTimeoutMs);
+        }
+
+        public Duration maxRetryAfter() {
+            return Duration.ofMillis(maxRetryAfterMs);
+        }
+
+        public Duration circuitOpenDuration() {
+            return Duration.ofMillis(circuitOpenMs);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.mc_host.api.configuration;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import com.mc_host.api.model.queue.JobExecutorMode;
+import com.mc_host.api.model.queue.JobType;
+
+import lombok.Data;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "job-queue")
+public class JobQueueConfiguration {
+    private Long pollIntervalMs = 15000L;
+    private JobExecutorMode executorMode = JobExecutorMode.PLATFORM;
+    private Integer defaultConcurrency = 10;
+    private Map<JobType, Integer> concurrency = new EnumMap<>(JobType.class);
+    // cap across all types, keep it below spring.datasource.hikari.maximum-pool-size
+    private Integer maxConcurrency = 20;
+    private Long leaseDurationMs = 120000L;
+    private Long heartbeatIntervalMs = 30000L;
+    private Long reaperIntervalMs = 60000L;
+    private Integer archiveBatchSize = 1000;
+    private Integer archiveMaxBatchesPerRun = 50;
+    private Integer auditRetentionMonths = 6;
+    private Long auditPartitionIntervalMs = 3600000L;
+
+    public int concurrencyFor(JobType jobType) {
+        return concurrency.getOrDefault(jobType, defaultConcurrency);
+    }
+
+    public Duration leaseDuration() {
+        return Duration.ofMillis(leaseDurationMs);
+    }
+}
@@ -1,8 +1,5 @@
 package com.mc_host.api.configuration;
 
-import java.net.http.HttpClient;
-import java.time.Duration;
-
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -15,14 +12,6 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 @Configuration
 public class MiscConfiguration {
 
-    @Bean
-    public HttpClient httpClient() {
-        return HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(30))
-            .followRedirects(HttpClient.Redirect.NORMAL)
-            .build();
-    }
-
     @Bean
     public ObjectMapper objectMapper() {
         return new ObjectMapper()
@@ -0,0 +1,36 @@
+package com.mc_host.api.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Data;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "node-bootstrap")
+public class NodeBootstrapConfiguration {
+    private Mode mode = Mode.SSH;
+    private String baseImage = "ubuntu-24.04";
+    // hetzner snapshot id of a node that already ran scripts/wings-install.sh
+    private String snapshotImage;
+    private Long cloudInitTimeoutSeconds = 900L;
+
+    public enum Mode {
+        // install docker and wings over ssh during ConfigureNodeStep
+        SSH,
+        // hand the install script to hetzner as user-data, it runs while the rest of provisioning carries on
+        CLOUD_INIT,
+        // boot from a snapshot with docker and wings already installed
+        SNAPSHOT
+    }
+
+    public String image() {
+        if (mode != Mode.SNAPSHOT) {
+            return baseImage;
+        }
+        if (snapshotImage == null || snapshotImage.isBlank()) {
+            throw new IllegalStateException("node-bootstrap.snapshot-image must be set in SNAPSHOT mode");
+        }
+        return snapshotImage;
+    }
+}
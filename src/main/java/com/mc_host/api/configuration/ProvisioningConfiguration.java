@@ -0,0 +1,21 @@
+package com.mc_host.api.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Data;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "provisioning")
+public class ProvisioningConfiguration {
+    // detached steps one execution may run alongside its chain, 0 runs everything in order
+    private Integer parallelism = 2;
+    private Integer historyRetentionDays = 90;
+
+    public Duration historyRetention() {
+        return Duration.ofDays(historyRetentionDays);
+    }
+}
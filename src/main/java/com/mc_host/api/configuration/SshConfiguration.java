@@ -11,4 +11,10 @@ import lombok.Data;
 public class SshConfiguration {
     private String privateKey;
     private String publicKey;
+    private Integer connectAttempts = 15;
+    private Long connectInitialDelayMs = 500L;
+    private Double connectBackoffMultiplier = 1.2;
+    private Integer keepAliveIntervalSeconds = 30;
+    private Long idleTimeoutMs = 300000L;
+    private Long evictionIntervalMs = 60000L;
 }
@@ -1,5 +1,6 @@
 package com.mc_host.api.configuration;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.function.Predicate;
 
@@ -20,6 +21,10 @@ public class StripeConfiguration {
     private String activeJavaProductId;
     private Long eventDebounceTtlMs;
     private Long subscriptionSyncTimeoutMinutes;
+    // how long incremental syncs may run off webhook objects before a customer is re-listed in full
+    private Long fullSyncIntervalMinutes = 1440L;
+    // applied webhook objects are kept this long to stop older redeliveries moving an object backwards
+    private Long appliedChangeRetentionHours = 96L;
     private List<String> subscriptionEvents;
     private List<String> priceEvents;
     private List<String> invoiceEvents;
@@ -30,6 +35,16 @@ public class StripeConfiguration {
         Stripe.apiKey = this.getApiKey();
     }
 
+    public Duration fullSyncInterval() {
+        return Duration.ofMinutes(fullSyncIntervalMinutes);
+    }
+
+    // never shorter than the full sync interval, past it the next listing covers anything a pruned row guarded
+    public Duration appliedChangeRetention() {
+        var retention = Duration.ofHours(appliedChangeRetentionHours);
+        return retention.compareTo(fullSyncInterval()) > 0 ? retention : fullSyncInterval();
+    }
+
     public Predicate<String> isSubscriptionEvent() {
         return (eventType) -> subscriptionEvents.contains(eventType);
     }
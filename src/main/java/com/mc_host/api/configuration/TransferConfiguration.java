@@ -0,0 +1,22 @@
+package com.mc_host.api.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Data;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "transfer")
+public class TransferConfiguration {
+    private Integer parallelism = 8;
+    private Integer readAheadRequests = 16;
+    private Integer unconfirmedWrites = 16;
+    private Long progressLogIntervalMs = 10000L;
+    private Boolean preCopy = true;
+    private Long stopTimeoutMs = 120000L;
+    private Boolean archiveEnabled = true;
+    private Long archiveThresholdFiles = 5000L;
+    private Long archivePullTimeoutMs = 1800000L;
+    private Long archivePollIntervalMs = 5000L;
+}
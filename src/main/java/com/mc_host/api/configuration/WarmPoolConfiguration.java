@@ -0,0 +1,53 @@
+package com.mc_host.api.configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import com.mc_host.api.model.resource.hetzner.HetznerCloudProduct;
+import com.mc_host.api.model.resource.hetzner.HetznerRegion;
+import com.mc_host.api.model.resource.hetzner.node.WarmPoolKey;
+
+import lombok.Data;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "warm-pool")
+public class WarmPoolConfiguration {
+    private Boolean enabled = false;
+    private Long refillIntervalMs = 30000L;
+    // checkouts counted over this window give the demand rate
+    private Long rateWindowMs = 3600000L;
+    // roughly how long one node takes to build, the pool should cover the demand expected in that time
+    private Long leadTimeMs = 600000L;
+    private Double headroom = 1.5;
+    private Long provisionTimeoutMs = 1800000L;
+    private List<Pool> pools = new ArrayList<>();
+
+    public Duration rateWindow() {
+        return Duration.ofMillis(rateWindowMs);
+    }
+
+    public Duration leadTime() {
+        return Duration.ofMillis(leadTimeMs);
+    }
+
+    public Duration provisionTimeout() {
+        return Duration.ofMillis(provisionTimeoutMs);
+    }
+
+    @Data
+    public static class Pool {
+        private HetznerCloudProduct product;
+        private HetznerRegion region;
+        private Integer minSize = 0;
+        private Integer maxSize = 3;
+
+        public WarmPoolKey key() {
+            return new WarmPoolKey(product, region);
+        }
+    }
+}
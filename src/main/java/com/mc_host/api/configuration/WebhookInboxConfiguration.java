@@ -0,0 +1,28 @@
+package com.mc_host.api.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Data;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "webhook-inbox")
+public class WebhookInboxConfiguration {
+    private Long drainIntervalMs = 500L;
+    // the inbox is only drained once its oldest pending event is this old, bursts inside it become one job per key
+    private Long coalesceWindowMs = 2000L;
+    private Integer batchSize = 500;
+    // stripe redelivers for up to three days, processed rows are kept a little longer to drop those duplicates
+    private Long retentionHours = 96L;
+
+    public Duration coalesceWindow() {
+        return Duration.ofMillis(coalesceWindowMs);
+    }
+
+    public Duration retention() {
+        return Duration.ofHours(retentionHours);
+    }
+}
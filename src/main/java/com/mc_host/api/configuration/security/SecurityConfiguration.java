@@ -4,12 +4,15 @@ import com.mc_host.api.configuration.ClerkConfiguration;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 
 @Configuration
 @RequiredArgsConstructor
@@ -25,6 +28,8 @@ public class SecurityConfiguration {
 		http.csrf(AbstractHttpConfigurer::disable)
 			.authorizeHttpRequests(authz -> authz
 				.requestMatchers("/api/**").authenticated()
+				// lists every customer's subscriptions and step errors, a customer's own token is not enough
+				.requestMatchers("/actuator/provisioning").access(adminOnly())
 				.anyRequest().permitAll()
 			)
 			.oauth2ResourceServer(oauth2 ->
@@ -35,6 +40,16 @@ public class SecurityConfiguration {
 		return http.build();
 	}
 
+	// the jwt subject is the clerk user id
+	private AuthorizationManager<RequestAuthorizationContext> adminOnly() {
+		return (authentication, context) -> {
+			var current = authentication.get();
+			return new AuthorizationDecision(current != null
+				&& current.isAuthenticated()
+				&& clerkConfiguration.getAdminUserIds().contains(current.getName()));
+		};
+	}
+
 	@Bean
 	public JwtDecoder jwtDecoder() {
 		return NimbusJwtDecoder
@@ -0,0 +1,35 @@
+package com.mc_host.api.metrics;
+
+import java.time.Duration;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@Component
+public class AwaitMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public AwaitMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void recordAwait(String name, String outcome, int checks, Duration duration) {
+        Timer.builder("await.duration")
+                .description("Time from starting to wait on a condition until it was met, timed out or was cancelled")
+                .tag("name", name)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(duration);
+        DistributionSummary.builder("await.checks")
+                .description("Probe calls made per wait")
+                .tag("name", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(checks);
+    }
+}
@@ -0,0 +1,54 @@
+package com.mc_host.api.metrics;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.mc_host.api.model.resource.hetzner.HetznerCloudProduct;
+import com.mc_host.api.model.resource.hetzner.HetznerRegion;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@Component
+public class CloudCapacityMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public CloudCapacityMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void registerCapacityScore(HetznerRegion region, HetznerCloudProduct product, Supplier<Number> score) {
+        Gauge.builder("hetzner.cloud.capacity.score", score)
+                .description("Smoothed share of recent create attempts that reached running, 1 when nothing has failed yet")
+                .tag("region", region.toString())
+                .tag("product", product.toString())
+                .register(meterRegistry);
+    }
+
+    // unavailable is hetzner refusing the create, timeout is a server that never reached running
+    public void recordAttempt(HetznerRegion region, HetznerCloudProduct product, String outcome, Duration duration) {
+        Timer.builder("hetzner.cloud.create.attempts")
+                .description("Cloud server create attempts, from the create call to running or failure")
+                .tag("region", region.toString())
+                .tag("product", product.toString())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(duration);
+    }
+
+    public void recordAllocation(String strategy, String outcome, int attempts, Duration duration) {
+        Timer.builder("hetzner.cloud.allocation.duration")
+                .description("Time to get one running cloud node for a subscription")
+                .tag("strategy", strategy)
+                .tag("outcome", outcome)
+                .tag("attempts", attempts > 3 ? "gt_3" : String.valueOf(attempts))
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(duration);
+    }
+}
@@ -0,0 +1,74 @@
+package com.mc_host.api.metrics;
+
+import java.time.Duration;
+
+import org.springframework.stereotype.Component;
+
+import com.mc_host.api.client.UpstreamTransport;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@Component
+public class HttpClientMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public HttpClientMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void registerUpstream(UpstreamTransport transport) {
+        Gauge.builder("http.client.upstream.in.flight", transport, UpstreamTransport::inFlight)
+                .description("Requests currently holding a concurrency permit for this upstream")
+                .tag("upstream", transport.name())
+                .register(meterRegistry);
+
+        Gauge.builder("http.client.upstream.circuit.state", transport, t -> t.circuitBreaker().getState().ordinal())
+                .description("Circuit breaker state for this upstream: 0 closed, 1 half open, 2 open")
+                .tag("upstream", transport.name())
+                .register(meterRegistry);
+    }
+
+    // uri is the templated path, never the raw one, so ids do not blow up the series count
+    public void recordRequest(String upstream, String method, String uri, String status, Duration duration) {
+        Timer.builder("http.client.upstream.requests")
+                .description("Round trip time of requests to an upstream api, including body parsing")
+                .tag("upstream", upstream)
+                .tag("method", method)
+                .tag("uri", uri)
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(duration);
+    }
+
+    public void recordRetry(String upstream, String uri, String reason) {
+        Counter.builder("http.client.upstream.retries")
+                .description("Requests re-sent after a retryable failure")
+                .tag("upstream", upstream)
+                .tag("uri", uri)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void recordRateLimitWait(String upstream, Duration wait) {
+        Timer.builder("http.client.upstream.rate.limit.wait")
+                .description("Time spent waiting on the client side token bucket")
+                .tag("upstream", upstream)
+                .register(meterRegistry)
+                .record(wait);
+    }
+
+    public void recordRejection(String upstream, String reason) {
+        Counter.builder("http.client.upstream.rejections")
+                .description("Requests failed fast without reaching the upstream")
+                .tag("upstream", upstream)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,107 @@
+package com.mc_host.api.metrics;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+import com.mc_host.api.model.queue.Job;
+import com.mc_host.api.model.queue.JobType;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@Component
+public class JobQueueMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final AtomicLong archivalLagSeconds = new AtomicLong();
+
+    public JobQueueMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("job.audit.lag.seconds", archivalLagSeconds, AtomicLong::get)
+                .description("Age of the oldest finished job still waiting in job_queue_")
+                .register(meterRegistry);
+    }
+
+    // queue wait: time between a job becoming eligible (delayed_until) and a replica claiming it
+    public void recordClaimLatency(Job job, Instant claimedAt) {
+        if (job.delayedUntil() == null) {
+            return;
+        }
+        Duration latency = Duration.between(job.delayedUntil(), claimedAt);
+        Timer.builder("job.queue.claim.latency")
+                .description("Time between a job becoming eligible and being claimed")
+                .tag("type", job.type().name())
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(latency.isNegative() ? Duration.ZERO : latency);
+    }
+
+    // claimed / offered per type is the batch fill, a low ratio with a deep queue points at the dedup guard
+    public void recordClaim(Map<JobType, Integer> available, List<Job> claimed) {
+        available.forEach((type, slots) -> Counter.builder("job.queue.claim.slots")
+                .description("Free executor slots offered to the claim query")
+                .tag("type", type.name())
+                .register(meterRegistry)
+                .increment(slots));
+        claimed.forEach(job -> Counter.builder("job.queue.claim.claimed")
+                .description("Jobs returned by the claim query")
+                .tag("type", job.type().name())
+                .register(meterRegistry)
+                .increment());
+    }
+
+    public void recordExecution(JobType jobType, Duration duration, boolean succeeded) {
+        Timer.builder("job.execution")
+                .description("Time spent inside the job processor")
+                .tag("type", jobType.name())
+                .tag("outcome", succeeded ? "completed" : "failed")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(duration);
+    }
+
+    public void recordRetry(JobType jobType) {
+        increment("job.retries", "Jobs scheduled for another attempt", jobType);
+    }
+
+    public void recordDeadLetter(JobType jobType) {
+        increment("job.dead.letters", "Jobs moved to dead letter", jobType);
+    }
+
+    public void recordDuplicateMerge(JobType jobType) {
+        increment("job.duplicate.merges", "Enqueues merged into an existing pending job", jobType);
+    }
+
+    public void recordLeasesReaped(int reaped) {
+        Counter.builder("job.lease.reaped")
+                .description("Processing jobs returned to the queue after their lease expired")
+                .register(meterRegistry)
+                .increment(reaped);
+    }
+
+    public void recordArchived(int archived) {
+        Counter.builder("job.audit.archived")
+                .description("Finished jobs moved from job_queue_ to job_audit_")
+                .register(meterRegistry)
+                .increment(archived);
+    }
+
+    public void recordArchivalLag(Duration lag) {
+        archivalLagSeconds.set(lag.toSeconds());
+    }
+
+    private void increment(String name, String description, JobType jobType) {
+        Counter.builder(name)
+                .description(description)
+                .tag("type", jobType.name())
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,29 @@
+package com.mc_host.api.metrics;
+
+import java.time.Duration;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@Component
+public class NodeBootstrapMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public NodeBootstrapMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // tagged with the configured mode so ssh installs and pre-baked nodes can be compared phase by phase
+    public void recordPhase(String mode, String phase, Duration duration) {
+        Timer.builder("node.bootstrap.phase.duration")
+                .description("Wall time of one phase of bringing up a cloud node")
+                .tag("mode", mode)
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(duration);
+    }
+}
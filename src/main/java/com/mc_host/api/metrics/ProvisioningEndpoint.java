@@ -0,0 +1,46 @@
+package com.mc_host.api.metrics;
+
+import java.time.Duration;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import com.mc_host.api.model.provisioning.Mode;
+import com.mc_host.api.model.provisioning.ProvisioningReport;
+import com.mc_host.api.model.provisioning.StepType;
+import com.mc_host.api.service.provisioning.StepHistoryService;
+
+/**
+ * /actuator/provisioning: per step percentiles and the slowest step executions from the step history,
+ * e.g. ?step=CONFIGURE_NODE&days=7 for this week's configure runs.
+ */
+@Component
+@Endpoint(id = "provisioning")
+public class ProvisioningEndpoint {
+    private static final int DEFAULT_DAYS = 7;
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 500;
+
+    private final StepHistoryService stepHistoryService;
+
+    public ProvisioningEndpoint(StepHistoryService stepHistoryService) {
+        this.stepHistoryService = stepHistoryService;
+    }
+
+    @ReadOperation
+    public ProvisioningReport report(
+        @Nullable Integer days,
+        @Nullable StepType step,
+        @Nullable Mode mode,
+        @Nullable Integer limit
+    ) {
+        return stepHistoryService.report(
+            Duration.ofDays(days != null ? days : DEFAULT_DAYS),
+            step,
+            mode,
+            Math.min(limit != null ? limit : DEFAULT_LIMIT, MAX_LIMIT)
+        );
+    }
+}
@@ -0,0 +1,62 @@
+package com.mc_host.api.metrics;
+
+import java.time.Duration;
+
+import org.springframework.stereotype.Component;
+
+import com.mc_host.api.model.provisioning.Mode;
+import com.mc_host.api.model.provisioning.StepExecution;
+import com.mc_host.api.model.provisioning.StepType;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@Component
+public class ProvisioningMetrics {
+    private static final Duration MINIMUM_EXPECTED = Duration.ofMillis(10);
+    private static final Duration MAXIMUM_EXPECTED = Duration.ofMinutes(30);
+
+    private final MeterRegistry meterRegistry;
+
+    public ProvisioningMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // lane is chain for steps run in order, ahead for detached steps run alongside it
+    public void recordStep(StepExecution execution) {
+        Timer.builder("provisioning.step.duration")
+                .description("Time spent executing one provisioning step")
+                .tag("step", execution.stepType().name())
+                .tag("mode", execution.mode().name())
+                .tag("lane", execution.lane().name().toLowerCase())
+                .tag("outcome", execution.outcome().name().toLowerCase())
+                .publishPercentileHistogram()
+                // steps run from milliseconds to many minutes, the default histogram range stops at 30s
+                .minimumExpectedValue(MINIMUM_EXPECTED)
+                .maximumExpectedValue(MAXIMUM_EXPECTED)
+                .register(meterRegistry)
+                .record(execution.duration());
+    }
+
+    // how long the chain sat waiting for a detached step it had caught up with
+    public void recordJoinWait(StepType step, Mode mode, Duration duration) {
+        Timer.builder("provisioning.step.join.wait")
+                .description("Time the chain waited on a detached step when it reached it")
+                .tag("step", step.name())
+                .tag("mode", mode.name())
+                .register(meterRegistry)
+                .record(duration);
+    }
+
+    public void recordExecution(Mode mode, String outcome, Duration duration) {
+        Timer.builder("provisioning.execution.duration")
+                .description("Time for one executor run, from the starting step to completion or failure")
+                .tag("mode", mode.name())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MINIMUM_EXPECTED)
+                .maximumExpectedValue(MAXIMUM_EXPECTED)
+                .register(meterRegistry)
+                .record(duration);
+    }
+}
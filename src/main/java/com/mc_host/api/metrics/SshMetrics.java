@@ -0,0 +1,57 @@
+package com.mc_host.api.metrics;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@Component
+public class SshMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public SshMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void registerPool(Supplier<Number> openConnections) {
+        Gauge.builder("ssh.connections.open", openConnections)
+                .description("Pooled ssh connections currently held open")
+                .register(meterRegistry);
+    }
+
+    // includes every retry, so this is how long a caller actually waited for a usable transport
+    public void recordConnect(String outcome, int attempts, Duration duration) {
+        Timer.builder("ssh.connect.latency")
+                .description("Time to connect and authenticate a pooled ssh connection")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(duration);
+        Counter.builder("ssh.connect.attempts")
+                .description("Connection attempts made, including retries")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment(attempts);
+    }
+
+    public void recordReuse() {
+        Counter.builder("ssh.connections.reused")
+                .description("Leases served from an already open connection")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void recordEviction(String reason) {
+        Counter.builder("ssh.connections.evicted")
+                .description("Pooled connections closed by the manager")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,46 @@
+package com.mc_host.api.metrics;
+
+import org.springframework.stereotype.Component;
+
+import com.mc_host.api.util.RowDiff;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Component
+public class StripeSyncMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public StripeSyncMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // mode is full when stripe was listed, incremental when only the objects webhooks carried were applied
+    public void recordSync(String resource, String mode) {
+        Counter.builder("stripe.sync.runs")
+                .description("Stripe syncs run for one customer and resource")
+                .tag("resource", resource)
+                .tag("mode", mode)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // outcome is inserted, updated, deleted or unchanged, unchanged rows are the writes a sync saved
+    public void recordRows(String resource, String outcome, int count) {
+        Counter.builder("stripe.sync.rows")
+                .description("Rows a stripe sync compared against our tables, by what it did with them")
+                .tag("resource", resource)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment(count);
+    }
+
+    // for syncs that see the customer's whole set, so deleted means stripe no longer has the row
+    public void recordRows(String resource, RowDiff<?> diff) {
+        recordRows(resource, "inserted", diff.inserted().size());
+        recordRows(resource, "updated", diff.updated().size());
+        recordRows(resource, "deleted", diff.deleted().size());
+        recordRows(resource, "unchanged", diff.unchanged());
+    }
+}
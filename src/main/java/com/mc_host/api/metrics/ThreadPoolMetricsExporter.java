@@ -1,10 +1,13 @@
 package com.mc_host.api.metrics;
 
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import org.springframework.stereotype.Component;
 
+import com.mc_host.api.model.queue.JobType;
+import com.mc_host.api.queue.JobExecutor;
+
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
@@ -12,40 +15,65 @@ import jakarta.annotation.PostConstruct;
 @Component
 public class ThreadPoolMetricsExporter {
     
-    private final ScheduledThreadPoolExecutor threadPool;
+    private final ThreadPoolExecutor delayedTaskScheduler;
+    private final ThreadPoolExecutor threadPoolExecutor;
+    private final JobExecutor jobExecutor;
     private final MeterRegistry meterRegistry;
     
-    public ThreadPoolMetricsExporter(ScheduledExecutorService delayedTaskScheduler, MeterRegistry meterRegistry) {
-        this.threadPool = (ScheduledThreadPoolExecutor) delayedTaskScheduler;
+    public ThreadPoolMetricsExporter(
+        ScheduledExecutorService delayedTaskScheduler,
+        ThreadPoolExecutor threadPoolExecutor,
+        JobExecutor jobExecutor,
+        MeterRegistry meterRegistry
+    ) {
+        this.delayedTaskScheduler = (ThreadPoolExecutor) delayedTaskScheduler;
+        this.threadPoolExecutor = threadPoolExecutor;
+        this.jobExecutor = jobExecutor;
         this.meterRegistry = meterRegistry;
     }
     
     @PostConstruct
     public void registerMetrics() {
-        Gauge.builder("thread.pool.active.count", threadPool, ScheduledThreadPoolExecutor::getActiveCount)
+        registerPool("delayedTaskScheduler", delayedTaskScheduler);
+        registerPool("threadPoolExecutor", threadPoolExecutor);
+
+        for (JobType jobType : JobType.values()) {
+            Gauge.builder("job.executor.permits.available", jobExecutor,
+                          executor -> executor.freeTypePermits(jobType))
+                    .description("Free job slots for this type, before the total cap")
+                    .tag("type", jobType.name())
+                    .register(meterRegistry);
+        }
+        Gauge.builder("job.executor.permits.total.available", jobExecutor, JobExecutor::freeTotalPermits)
+                .description("Free job slots under the cap across all types")
+                .register(meterRegistry);
+    }
+
+    private void registerPool(String name, ThreadPoolExecutor threadPool) {
+        Gauge.builder("thread.pool.active.count", threadPool, ThreadPoolExecutor::getActiveCount)
                 .description("The approximate number of threads executing tasks")
-                .tag("pool", "delayedTaskScheduler")
+                .tag("pool", name)
                 .register(meterRegistry);
                 
-        Gauge.builder("thread.pool.size", threadPool, ScheduledThreadPoolExecutor::getPoolSize)
+        Gauge.builder("thread.pool.size", threadPool, ThreadPoolExecutor::getPoolSize)
                 .description("The current number of threads in the pool")
-                .tag("pool", "delayedTaskScheduler")
+                .tag("pool", name)
                 .register(meterRegistry);
                 
         Gauge.builder("thread.pool.queue.size", threadPool, tp -> tp.getQueue().size())
                 .description("The number of tasks waiting in the queue")
-                .tag("pool", "delayedTaskScheduler")
+                .tag("pool", name)
                 .register(meterRegistry);
                 
         Gauge.builder("thread.pool.available.threads", threadPool, 
                       tp -> tp.getCorePoolSize() - tp.getActiveCount())
                 .description("The number of available threads")
-                .tag("pool", "delayedTaskScheduler")
+                .tag("pool", name)
                 .register(meterRegistry);
                 
-        Gauge.builder("thread.pool.completed.tasks", threadPool, ScheduledThreadPoolExecutor::getCompletedTaskCount)
+        Gauge.builder("thread.pool.completed.tasks", threadPool, ThreadPoolExecutor::getCompletedTaskCount)
                 .description("The number of completed tasks")
-                .tag("pool", "delayedTaskScheduler")
+                .tag("pool", name)
                 .register(meterRegistry);
     }
 }
@@ -0,0 +1,68 @@
+package com.mc_host.api.metrics;
+
+import java.time.Duration;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@Component
+public class TransferMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public TransferMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void recordBytes(String phase, long bytes) {
+        Counter.builder("transfer.bytes")
+                .description("Bytes piped between game servers during a migration")
+                .tag("phase", phase)
+                .register(meterRegistry)
+                .increment(bytes);
+    }
+
+    public void recordFiles(String phase, long files) {
+        Counter.builder("transfer.files")
+                .description("Files copied or removed during a migration")
+                .tag("phase", phase)
+                .register(meterRegistry)
+                .increment(files);
+    }
+
+    // same file-count buckets for both modes, so the two timers can be compared side by side
+    public void recordBulkCopy(String mode, long fileCount, Duration duration) {
+        Timer.builder("transfer.bulk.duration")
+                .description("Wall time of the bulk copy of a migration by transfer mode")
+                .tag("mode", mode)
+                .tag("files", fileCountBucket(fileCount))
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(duration);
+    }
+
+    public void recordPhase(String phase, Duration duration) {
+        Timer.builder("transfer.phase.duration")
+                .description("Wall time of one migration phase")
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(duration);
+    }
+
+    private static String fileCountBucket(long fileCount) {
+        if (fileCount < 1_000) {
+            return "lt_1k";
+        }
+        if (fileCount < 10_000) {
+            return "1k_10k";
+        }
+        if (fileCount < 100_000) {
+            return "10k_100k";
+        }
+        return "gte_100k";
+    }
+}
@@ -0,0 +1,68 @@
+package com.mc_host.api.metrics;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.mc_host.api.model.resource.hetzner.node.WarmPoolKey;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@Component
+public class WarmPoolMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public WarmPoolMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void registerPool(WarmPoolKey key, Supplier<Number> ready, Supplier<Number> target) {
+        Gauge.builder("warm.pool.ready", ready)
+                .description("Warm nodes ready to be claimed")
+                .tag("product", key.cloudProduct().toString())
+                .tag("region", key.hetznerRegion().toString())
+                .register(meterRegistry);
+        Gauge.builder("warm.pool.target", target)
+                .description("Pool size the refill is currently aiming for")
+                .tag("product", key.cloudProduct().toString())
+                .tag("region", key.hetznerRegion().toString())
+                .register(meterRegistry);
+    }
+
+    // hit / (hit + miss) is the share of subscriptions that skipped node provisioning entirely
+    public void recordCheckout(WarmPoolKey key, boolean hit) {
+        Counter.builder("warm.pool.checkouts")
+                .description("Cloud node allocations, by whether a warm node served them")
+                .tag("product", key.cloudProduct().toString())
+                .tag("region", key.hetznerRegion().toString())
+                .tag("outcome", hit ? "hit" : "miss")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void recordProvision(WarmPoolKey key, String outcome, Duration duration) {
+        Timer.builder("warm.pool.provision.duration")
+                .description("Time to build one warm node from server create to wings running")
+                .tag("product", key.cloudProduct().toString())
+                .tag("region", key.hetznerRegion().toString())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(duration);
+    }
+
+    public void recordDiscard(WarmPoolKey key, String reason) {
+        Counter.builder("warm.pool.discards")
+                .description("Warm nodes torn down before being claimed")
+                .tag("product", key.cloudProduct().toString())
+                .tag("region", key.hetznerRegion().toString())
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,71 @@
+package com.mc_host.api.metrics;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.mc_host.api.model.webhook.WebhookSource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@Component
+public class WebhookMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public WebhookMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // outcome is appended, duplicate, ignored, rejected or error, only appended and duplicate are safe to lose the pod after
+    public void recordAck(WebhookSource source, String outcome, Duration duration) {
+        Timer.builder("webhook.ack.duration")
+                .description("Time from a webhook arriving to it being acknowledged")
+                .tag("source", source.name().toLowerCase())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(duration);
+    }
+
+    public void registerInboxLag(Supplier<Number> lagSeconds) {
+        Gauge.builder("webhook.inbox.lag", lagSeconds)
+                .description("Age of the oldest event still waiting in the inbox, seen at the last drain")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    // events / jobs is how much the drain coalesced
+    public void recordDrain(int events, int jobs, int failed, Duration duration) {
+        DistributionSummary.builder("webhook.inbox.drain.events")
+                .description("Inbox events taken by one drain batch")
+                .register(meterRegistry)
+                .record(events);
+        DistributionSummary.builder("webhook.inbox.drain.jobs")
+                .description("Jobs scheduled by one drain batch after coalescing")
+                .register(meterRegistry)
+                .record(jobs);
+        Counter.builder("webhook.inbox.failed")
+                .description("Inbox events that could not be turned into jobs")
+                .register(meterRegistry)
+                .increment(failed);
+        Timer.builder("webhook.inbox.drain.duration")
+                .description("Time to drain one batch of the inbox into the job queue")
+                .register(meterRegistry)
+                .record(duration);
+    }
+
+    public void recordDelay(WebhookSource source, Duration delay) {
+        Timer.builder("webhook.inbox.delay")
+                .description("Time from a webhook being appended to its job being scheduled")
+                .tag("source", source.name().toLowerCase())
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(delay);
+    }
+}
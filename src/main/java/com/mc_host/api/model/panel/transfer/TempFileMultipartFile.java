@@ -54,6 +54,10 @@ public class TempFileMultipartFile implements MultipartFile {
 		}
 	}
 
+	public Path getPath() {
+		return tempFile;
+	}
+
 	@Override
 	public byte[] getBytes() throws IOException {
 		// avoid this for large files - defeats the purpose of streaming
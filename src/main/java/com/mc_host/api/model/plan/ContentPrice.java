@@ -8,14 +8,4 @@ public record ContentPrice(
     Boolean active,
     Map<AcceptedCurrency, Long> minorAmounts
 ) {
-
-    public Boolean isAlike(ContentPrice newPrice) {
-        if (newPrice == null) {
-            return false;
-        }
-        if (this.priceId().equals(newPrice.priceId())) {
-            return true;
-        }
-        return false;
-    }
 }
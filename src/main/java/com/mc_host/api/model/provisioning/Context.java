@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.With;
 
+import java.util.Objects;
 import java.util.UUID;
 
 @Getter
@@ -95,6 +96,35 @@ public class Context {
             !this.isTerminal();
     }
 
+    // Applies what changed between before and after on top of this context, fields the writer didn't touch keep their value here
+    public Context mergeChanges(Context before, Context after) {
+        return new Context(
+            subscriptionId,
+            pick(stepType, before.stepType, after.stepType),
+            pick(mode, before.mode, after.mode),
+            pick(status, before.status, after.status),
+            pick(title, before.title, after.title),
+            pick(caption, before.caption, after.caption),
+            pick(serverKey, before.serverKey, after.serverKey),
+            pick(nodeId, before.nodeId, after.nodeId),
+            pick(aRecordId, before.aRecordId, after.aRecordId),
+            pick(pterodactylNodeId, before.pterodactylNodeId, after.pterodactylNodeId),
+            pick(allocationId, before.allocationId, after.allocationId),
+            pick(pterodactylServerId, before.pterodactylServerId, after.pterodactylServerId),
+            pick(cNameRecordId, before.cNameRecordId, after.cNameRecordId),
+            pick(newNodeId, before.newNodeId, after.newNodeId),
+            pick(newARecordId, before.newARecordId, after.newARecordId),
+            pick(newPterodactylNodeId, before.newPterodactylNodeId, after.newPterodactylNodeId),
+            pick(newAllocationId, before.newAllocationId, after.newAllocationId),
+            pick(newPterodactylServerId, before.newPterodactylServerId, after.newPterodactylServerId),
+            pick(newCNameRecordId, before.newCNameRecordId, after.newCNameRecordId)
+        );
+    }
+
+    private static <T> T pick(T current, T before, T after) {
+        return Objects.equals(before, after) ? current : after;
+    }
+
     // Resource promotion methods
     public Context promoteNewNodeId() {
         return this.withNodeId(this.newNodeId).withNewNodeId(null);
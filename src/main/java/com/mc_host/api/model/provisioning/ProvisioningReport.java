@@ -0,0 +1,10 @@
+package com.mc_host.api.model.provisioning;
+
+import java.time.Instant;
+import java.util.List;
+
+public record ProvisioningReport(
+    Instant since,
+    List<StepStatistics> steps,
+    List<StepExecution> slowest
+) {}
@@ -0,0 +1,25 @@
+package com.mc_host.api.model.provisioning;
+
+import java.time.Duration;
+import java.time.Instant;
+
+public record StepExecution(
+    String subscriptionId,
+    StepType stepType,
+    Mode mode,
+    Lane lane,
+    Outcome outcome,
+    String errorMessage,
+    Instant startedAt,
+    Duration duration
+) {
+    public enum Lane {
+        CHAIN,
+        AHEAD
+    }
+
+    public enum Outcome {
+        SUCCESS,
+        FAILURE
+    }
+}
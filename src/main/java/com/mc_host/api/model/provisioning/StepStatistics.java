@@ -0,0 +1,11 @@
+package com.mc_host.api.model.provisioning;
+
+public record StepStatistics(
+    StepType stepType,
+    Mode mode,
+    long executions,
+    long failures,
+    long p50Ms,
+    long p95Ms,
+    long maxMs
+) {}
@@ -0,0 +1,14 @@
+package com.mc_host.api.model.queue;
+
+import java.time.Instant;
+
+public record EnqueueRequest(
+		JobType type,
+		String payload,
+		Instant delayedUntil,
+		Integer maxRetries
+) {
+	public static EnqueueRequest of(JobType type, String payload) {
+		return new EnqueueRequest(type, payload, Instant.now(), 3);
+	}
+}
@@ -0,0 +1,7 @@
+package com.mc_host.api.model.queue;
+
+public record EnqueueResult(
+		Job job,
+		boolean merged
+) {
+}
@@ -11,6 +11,7 @@ public record Job(
 		Integer retryCount,
 		Integer maximumRetries,
 		String errorMessage,
-		Instant delayedUntil
+		Instant delayedUntil,
+		String leaseToken
 ) {
 }
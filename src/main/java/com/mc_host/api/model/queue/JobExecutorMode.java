@@ -0,0 +1,6 @@
+package com.mc_host.api.model.queue;
+
+public enum JobExecutorMode {
+	PLATFORM,
+	VIRTUAL
+}
@@ -12,7 +12,11 @@ public enum JobType {
 
 	CUSTOMER_INVOICE_SYNC,
 
+	CLERK_USER_SYNC,
+
 	NODE_ROUTE_SYNC,
 
+	WARM_NODE_PROVISION,
+
 	RECONCILE_RESOURCE_TYPE
 }
@@ -0,0 +1,36 @@
+package com.mc_host.api.model.resource.hetzner.node;
+
+import com.mc_host.api.model.resource.dns.DnsARecord;
+import com.mc_host.api.model.resource.hetzner.HetznerCloudProduct;
+import com.mc_host.api.model.resource.hetzner.HetznerRegion;
+
+import java.time.Instant;
+
+// resource ids stay null until the matching provisioning phase has finished
+public record WarmNode(
+	Long id,
+	HetznerCloudProduct cloudProduct,
+	HetznerRegion hetznerRegion,
+	Status status,
+	Long hetznerNodeId,
+	String aRecordId,
+	String zoneId,
+	String zoneName,
+	String recordName,
+	String content,
+	Long pterodactylNodeId,
+	Instant createdAt
+) {
+	public enum Status {
+		PROVISIONING,
+		READY
+	}
+
+	public WarmPoolKey poolKey() {
+		return new WarmPoolKey(cloudProduct, hetznerRegion);
+	}
+
+	public DnsARecord dnsARecord(String subscriptionId) {
+		return new DnsARecord(subscriptionId, aRecordId, zoneId, zoneName, recordName, content);
+	}
+}
@@ -0,0 +1,27 @@
+package com.mc_host.api.model.resource.hetzner.node;
+
+import com.mc_host.api.model.resource.hetzner.HetznerCloudProduct;
+import com.mc_host.api.model.resource.hetzner.HetznerRegion;
+
+// job payloads carry the pool as "product/region", e.g. "cx22/nbg1", and a build slot after a '#' so each
+// node being built for the pool is its own dedup key, e.g. "cx22/nbg1#2"
+public record WarmPoolKey(
+	HetznerCloudProduct cloudProduct,
+	HetznerRegion hetznerRegion
+) {
+	public String toPayload() {
+		return cloudProduct + "/" + hetznerRegion;
+	}
+
+	public String toSlotPayload(int slot) {
+		return toPayload() + "#" + slot;
+	}
+
+	public static WarmPoolKey fromPayload(String payload) {
+		var parts = payload.split("#", 2)[0].split("/", 2);
+		if (parts.length != 2) {
+			throw new IllegalArgumentException("Invalid warm pool key: " + payload);
+		}
+		return new WarmPoolKey(HetznerCloudProduct.lookup(parts[0]), HetznerRegion.lookup(parts[1]));
+	}
+}
@@ -0,0 +1,13 @@
+package com.mc_host.api.model.stripe;
+
+import java.time.Instant;
+
+// the state of one stripe object as embedded in a webhook, eventCreated is when stripe produced that state
+public record StripeObjectChange(
+    StripeSyncResource resource,
+    String objectId,
+    String customerId,
+    Instant eventCreated,
+    String eventPayload
+) {
+}
@@ -0,0 +1,16 @@
+package com.mc_host.api.model.stripe;
+
+import java.time.Duration;
+import java.time.Instant;
+
+// appliedThrough: every change stripe produced before it is already in our tables
+public record StripeSyncCursor(
+    String customerId,
+    StripeSyncResource resource,
+    Instant appliedThrough,
+    Instant fullSyncedAt
+) {
+    public boolean fullSyncDue(Instant now, Duration interval) {
+        return fullSyncedAt.plus(interval).isBefore(now);
+    }
+}
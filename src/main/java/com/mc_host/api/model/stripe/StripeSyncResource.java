@@ -0,0 +1,30 @@
+package com.mc_host.api.model.stripe;
+
+import com.mc_host.api.model.queue.JobType;
+import lombok.Getter;
+
+import java.util.Optional;
+
+// per customer stripe data that can be synced from the objects webhooks carry instead of re-listing it
+@Getter
+public enum StripeSyncResource {
+    SUBSCRIPTION("subscription", JobType.CUSTOMER_SUBSCRIPTION_SYNC),
+    INVOICE("invoice", JobType.CUSTOMER_INVOICE_SYNC);
+
+    private final String objectType;
+    private final JobType jobType;
+
+    StripeSyncResource(String objectType, JobType jobType) {
+        this.objectType = objectType;
+        this.jobType = jobType;
+    }
+
+    public static Optional<StripeSyncResource> fromObjectType(String objectType) {
+        for (StripeSyncResource resource : values()) {
+            if (resource.objectType.equals(objectType)) {
+                return Optional.of(resource);
+            }
+        }
+        return Optional.empty();
+    }
+}
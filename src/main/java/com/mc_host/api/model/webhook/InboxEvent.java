@@ -0,0 +1,17 @@
+package com.mc_host.api.model.webhook;
+
+import java.time.Instant;
+
+// id and receivedAt are assigned by the inbox table, both are null before the event is appended
+public record InboxEvent(
+    Long id,
+    WebhookSource source,
+    String eventId,
+    String eventType,
+    String payload,
+    Instant receivedAt
+) {
+    public static InboxEvent received(WebhookSource source, String eventId, String eventType, String payload) {
+        return new InboxEvent(null, source, eventId, eventType, payload, null);
+    }
+}
@@ -0,0 +1,6 @@
+package com.mc_host.api.model.webhook;
+
+public enum WebhookSource {
+    STRIPE,
+    CLERK
+}
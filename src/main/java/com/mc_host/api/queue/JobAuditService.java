@@ -1,42 +1,90 @@
 package com.mc_host.api.queue;
 
+import com.mc_host.api.configuration.JobQueueConfiguration;
+import com.mc_host.api.metrics.JobQueueMetrics;
+import com.mc_host.api.util.PersistenceContext;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 @Service
 public class JobAuditService {
 	private static final Logger LOGGER = Logger.getLogger(JobAuditService.class.getName());
 
+	private static final int PARTITION_MONTHS_AHEAD = 2;
+
 	private final JobRepository jobRepository;
+	private final PersistenceContext persistenceContext;
+	private final JobQueueConfiguration jobQueueConfiguration;
+	private final JobQueueMetrics jobQueueMetrics;
 
-	public JobAuditService(JobRepository jobRepository) {
+	public JobAuditService(
+		JobRepository jobRepository,
+		PersistenceContext persistenceContext,
+		JobQueueConfiguration jobQueueConfiguration,
+		JobQueueMetrics jobQueueMetrics
+	) {
 		this.jobRepository = jobRepository;
+		this.persistenceContext = persistenceContext;
+		this.jobQueueConfiguration = jobQueueConfiguration;
+		this.jobQueueMetrics = jobQueueMetrics;
 	}
 
 	@Scheduled(fixedRate = 60000)
-	@Transactional
 	public void archiveCompletedJobs() {
 		try {
-			boolean lockAcquired = jobRepository.tryAcquireCleanupLock();
-			if (!lockAcquired) {
-				return;
+			int batchSize = jobQueueConfiguration.getArchiveBatchSize();
+			int processed = 0;
+			for (int batch = 0; batch < jobQueueConfiguration.getArchiveMaxBatchesPerRun(); batch++) {
+				// one short transaction per chunk, the lock is released with each commit
+				Integer archived = persistenceContext.inTransaction(status ->
+					jobRepository.tryAcquireArchivalLock()
+						? jobRepository.archiveCompletedJobs(batchSize)
+						: null);
+				if (archived == null) {
+					break;
+				}
+				processed += archived;
+				jobQueueMetrics.recordArchived(archived);
+				if (archived < batchSize) {
+					break;
+				}
 			}
 
-			try {
-				int processed = jobRepository.archiveAndDeleteCompletedJobs();
+			Duration lag = jobRepository.selectOldestArchivableProcessedAt()
+				.map(oldest -> Duration.between(oldest, Instant.now()))
+				.orElse(Duration.ZERO);
+			jobQueueMetrics.recordArchivalLag(lag);
 
-				if (processed > 0) {
-					LOGGER.info("Archived and deleted %d completed jobs".formatted(processed));
-				}
-			} finally {
-				jobRepository.releaseCleanupLock();
+			if (processed > 0) {
+				LOGGER.info("Archived and deleted %d completed jobs, archival lag %ds".formatted(processed, lag.toSeconds()));
 			}
-
 		} catch (Exception e) {
 			LOGGER.severe("failed to archive jobs: " + e.getMessage());
 		}
 	}
-}
\ No newline at end of file
+
+	// partitions are created ahead of time so archival never has to, and expired months are dropped whole,
+	// anything archived into a month that was missed lands in the default partition until this catches up
+	@Scheduled(initialDelay = 0, fixedDelayString = "${job-queue.audit-partition-interval-ms:3600000}")
+	public void maintainAuditPartitions() {
+		try {
+			Integer dropped = persistenceContext.inTransaction(status -> {
+				if (!jobRepository.tryAcquireArchivalLock()) {
+					return null;
+				}
+				jobRepository.ensureAuditPartitions(PARTITION_MONTHS_AHEAD);
+				return jobRepository.dropAuditPartitionsOlderThan(jobQueueConfiguration.getAuditRetentionMonths());
+			});
+			if (dropped != null && dropped > 0) {
+				LOGGER.info("Dropped %d expired job audit partitions".formatted(dropped));
+			}
+		} catch (Exception e) {
+			LOGGER.log(Level.SEVERE, "failed to maintain job audit partitions", e);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.mc_host.api.queue;
+
+import com.mc_host.api.configuration.JobQueueConfiguration;
+import com.mc_host.api.model.queue.JobExecutorMode;
+import com.mc_host.api.model.queue.JobType;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.logging.Logger;
+
+@Component
+public class JobExecutor {
+	private static final Logger LOGGER = Logger.getLogger(JobExecutor.class.getName());
+
+	private final JobExecutorMode mode;
+	private final ThreadPoolExecutor threadPoolExecutor;
+	private final ExecutorService virtualThreadExecutor;
+	private final Map<JobType, Semaphore> permits = new EnumMap<>(JobType.class);
+	// every running job may hold a pooled connection, so the total across types is capped as well
+	private final Semaphore totalPermits;
+
+	public JobExecutor(
+		JobQueueConfiguration jobQueueConfiguration,
+		ThreadPoolExecutor threadPoolExecutor
+	) {
+		this.mode = jobQueueConfiguration.getExecutorMode();
+		this.threadPoolExecutor = threadPoolExecutor;
+		this.virtualThreadExecutor = mode == JobExecutorMode.VIRTUAL
+			? Executors.newVirtualThreadPerTaskExecutor()
+			: null;
+		Arrays.stream(JobType.values())
+			.forEach(type -> permits.put(type, new Semaphore(jobQueueConfiguration.concurrencyFor(type))));
+		this.totalPermits = new Semaphore(jobQueueConfiguration.getMaxConcurrency());
+		LOGGER.info("job executor running in %s mode".formatted(mode));
+	}
+
+	// free slots per type, drawn from one shared budget of free total slots (and idle pool threads in
+	// platform mode) handed out a slot per type per round so one busy type can't take all of it
+	public Map<JobType, Integer> availablePermits() {
+		int budget = totalPermits.availablePermits();
+		if (mode == JobExecutorMode.PLATFORM) {
+			budget = Math.min(budget, threadPoolExecutor.getMaximumPoolSize() - threadPoolExecutor.getActiveCount());
+		}
+
+		Map<JobType, Integer> free = new EnumMap<>(JobType.class);
+		Map<JobType, Integer> available = new EnumMap<>(JobType.class);
+		permits.forEach((type, semaphore) -> {
+			free.put(type, semaphore.availablePermits());
+			available.put(type, 0);
+		});
+
+		boolean granted = true;
+		while (budget > 0 && granted) {
+			granted = false;
+			for (JobType type : free.keySet()) {
+				if (budget > 0 && available.get(type) < free.get(type)) {
+					available.merge(type, 1, Integer::sum);
+					budget--;
+					granted = true;
+				}
+			}
+		}
+		return available;
+	}
+
+	// raw semaphore counts for metrics, unlike availablePermits these are not shared out under the total cap
+	public int freeTypePermits(JobType jobType) {
+		return permits.get(jobType).availablePermits();
+	}
+
+	public int freeTotalPermits() {
+		return totalPermits.availablePermits();
+	}
+
+	public void submit(JobType jobType, Runnable task) {
+		submit(jobType, task, () -> {});
+	}
+
+	// onRelease runs on the job's thread once both permits are back, so it sees the freed slot
+	public void submit(JobType jobType, Runnable task, Runnable onRelease) {
+		Semaphore semaphore = permits.get(jobType);
+		semaphore.acquireUninterruptibly();
+		totalPermits.acquireUninterruptibly();
+		Runnable permitted = () -> {
+			try {
+				task.run();
+			} finally {
+				totalPermits.release();
+				semaphore.release();
+				onRelease.run();
+			}
+		};
+
+		try {
+			if (mode == JobExecutorMode.VIRTUAL) {
+				virtualThreadExecutor.execute(permitted);
+			} else {
+				threadPoolExecutor.execute(permitted);
+			}
+		} catch (RuntimeException e) {
+			totalPermits.release();
+			semaphore.release();
+			throw e;
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if (virtualThreadExecutor != null) {
+			virtualThreadExecutor.shutdown();
+		}
+	}
+}
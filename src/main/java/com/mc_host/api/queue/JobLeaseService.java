@@ -0,0 +1,60 @@
+package com.mc_host.api.queue;
+
+import com.mc_host.api.configuration.JobQueueConfiguration;
+import com.mc_host.api.metrics.JobQueueMetrics;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@Service
+public class JobLeaseService {
+	private static final Logger LOGGER = Logger.getLogger(JobLeaseService.class.getName());
+
+	private final JobRepository jobRepository;
+	private final JobPoolService jobPoolService;
+	private final JobQueueConfiguration jobQueueConfiguration;
+	private final JobQueueMetrics jobQueueMetrics;
+
+	public JobLeaseService(
+		JobRepository jobRepository,
+		JobPoolService jobPoolService,
+		JobQueueConfiguration jobQueueConfiguration,
+		JobQueueMetrics jobQueueMetrics
+	) {
+		this.jobRepository = jobRepository;
+		this.jobPoolService = jobPoolService;
+		this.jobQueueConfiguration = jobQueueConfiguration;
+		this.jobQueueMetrics = jobQueueMetrics;
+	}
+
+	@Scheduled(fixedDelayString = "${job-queue.heartbeat-interval-ms:30000}")
+	public void heartbeat() {
+		try {
+			Set<String> running = jobPoolService.getRunningLeaseTokens();
+			int extended = jobRepository.extendLeases(running, jobQueueConfiguration.leaseDuration());
+			if (extended < running.size()) {
+				LOGGER.log(Level.FINE, "extended %d of %d job leases, the rest were reaped or already finished"
+					.formatted(extended, running.size()));
+			}
+		} catch (Exception e) {
+			LOGGER.log(Level.SEVERE, "failed to heartbeat job leases", e);
+		}
+	}
+
+	// safe on every replica: each expired row is returned by exactly one UPDATE
+	@Scheduled(fixedDelayString = "${job-queue.reaper-interval-ms:60000}")
+	public void reapExpiredLeases() {
+		try {
+			int reaped = jobRepository.reapExpiredLeases(jobQueueConfiguration.leaseDuration());
+			if (reaped > 0) {
+				jobQueueMetrics.recordLeasesReaped(reaped);
+				LOGGER.warning("reclaimed %d jobs with expired leases".formatted(reaped));
+			}
+		} catch (Exception e) {
+			LOGGER.log(Level.SEVERE, "failed to reap expired job leases", e);
+		}
+	}
+}
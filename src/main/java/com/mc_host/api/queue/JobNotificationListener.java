@@ -0,0 +1,95 @@
+package com.mc_host.api.queue;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@Component
+public class JobNotificationListener implements SmartLifecycle {
+	private static final Logger LOGGER = Logger.getLogger(JobNotificationListener.class.getName());
+
+	private static final int NOTIFICATION_TIMEOUT_MS = 5000;
+	private static final long RECONNECT_BACKOFF_MS = 5000;
+
+	private final DataSourceProperties dataSourceProperties;
+	private final JobPoolService jobPoolService;
+
+	private volatile boolean running = false;
+	private Thread listenerThread;
+
+	public JobNotificationListener(
+		DataSourceProperties dataSourceProperties,
+		JobPoolService jobPoolService
+	) {
+		this.dataSourceProperties = dataSourceProperties;
+		this.jobPoolService = jobPoolService;
+	}
+
+	@Override
+	public void start() {
+		running = true;
+		listenerThread = Thread.ofPlatform()
+			.name("job-notification-listener")
+			.daemon()
+			.start(this::listen);
+	}
+
+	@Override
+	public void stop() {
+		running = false;
+		if (listenerThread != null) {
+			listenerThread.interrupt();
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	private void listen() {
+		while (running) {
+			// dedicated connection outside hikari: it is held for the lifetime of the app
+			try (Connection connection = DriverManager.getConnection(
+					dataSourceProperties.determineUrl(),
+					dataSourceProperties.determineUsername(),
+					dataSourceProperties.determinePassword());
+				 Statement statement = connection.createStatement()) {
+
+				statement.execute("LISTEN " + JobRepository.NOTIFY_CHANNEL);
+				PGConnection pgConnection = connection.unwrap(PGConnection.class);
+				LOGGER.info("listening for job notifications on channel: " + JobRepository.NOTIFY_CHANNEL);
+
+				// catch anything enqueued while we were disconnected
+				jobPoolService.processJobs();
+
+				while (running) {
+					PGNotification[] notifications = pgConnection.getNotifications(NOTIFICATION_TIMEOUT_MS);
+					if (notifications != null && notifications.length > 0) {
+						jobPoolService.processJobs();
+					}
+				}
+			} catch (SQLException e) {
+				if (!running) {
+					return;
+				}
+				LOGGER.log(Level.WARNING, "job notification listener disconnected, reconnecting", e);
+				try {
+					Thread.sleep(RECONNECT_BACKOFF_MS);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+}
@@ -17,7 +17,8 @@ public class JobPoolConsumer {
 		this.jobPoolService = jobPoolService;
 	}
 
-	@Scheduled(fixedDelay = 2000) // every 2 seconds
+	// safety net only, new jobs are dispatched by JobNotificationListener and delayed jobs are picked up here
+	@Scheduled(fixedDelayString = "${job-queue.poll-interval-ms:15000}")
 	public void processJobs() {
 		jobPoolService.processJobs();
 	}
@@ -1,5 +1,9 @@
 package com.mc_host.api.queue;
 
+import com.mc_host.api.configuration.JobQueueConfiguration;
+import com.mc_host.api.metrics.JobQueueMetrics;
+import com.mc_host.api.model.queue.EnqueueRequest;
+import com.mc_host.api.model.queue.EnqueueResult;
 import com.mc_host.api.model.queue.Job;
 import com.mc_host.api.model.queue.JobStatus;
 import com.mc_host.api.model.queue.JobType;
@@ -11,29 +15,53 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Stream;
+import java.util.stream.Collectors;
 
 @Service
 public class JobPoolService {
 	private static final Logger LOGGER = Logger.getLogger(JobPoolService.class.getName());
+	private static final Comparator<Instant> EARLIEST_DELAY = Comparator.nullsFirst(Comparator.naturalOrder());
 
 	private final JobRepository jobRepository;
 	private final JobProcessorFactory processorFactory;
-	private final ThreadPoolExecutor threadPoolExecutor;
+	private final JobExecutor jobExecutor;
+	private final JobQueueMetrics jobQueueMetrics;
+	private final JobQueueConfiguration jobQueueConfiguration;
+
+	// lease tokens of the claims this replica is running, heartbeated by JobLeaseService; per claim rather
+	// than per job id so a stalled run finishing can't stop the heartbeat for a later claim of the same job
+	private final Set<String> runningLeaseTokens = ConcurrentHashMap.newKeySet();
+
+	// set when the last claim filled every free slot, so finishing jobs should pull the next batch
+	private volatile boolean saturated = false;
+
+	// one claim at a time per replica, callers that find it busy leave a request for the holder to pick up
+	private final ReentrantLock claimLock = new ReentrantLock();
+	private final AtomicBoolean claimRequested = new AtomicBoolean();
 
 	public JobPoolService(
 		JobRepository jobRepository,
 		JobProcessorFactory processorFactory,
-		ThreadPoolExecutor threadPoolExecutor
+		JobExecutor jobExecutor,
+		JobQueueMetrics jobQueueMetrics,
+		JobQueueConfiguration jobQueueConfiguration
 	) {
 		this.jobRepository = jobRepository;
 		this.processorFactory = processorFactory;
-		this.threadPoolExecutor = threadPoolExecutor;
+		this.jobExecutor = jobExecutor;
+		this.jobQueueMetrics = jobQueueMetrics;
+		this.jobQueueConfiguration = jobQueueConfiguration;
 	}
 
 	public Job enqueue(JobType type, String payload) {
@@ -45,58 +73,144 @@ public class JobPoolService {
 	}
 
 	public Job enqueue(JobType type, String payload, Instant delayedUntil, Integer maxRetries) {
+		requireProcessor(type);
+		Job job = newJob(type, payload, delayedUntil, maxRetries);
+
+		Job resultJob = jobRepository.upsertJob(job);
+
+		boolean wasNewJob = resultJob.jobId().equals(job.jobId());
+		if (wasNewJob) {
+			LOGGER.info("enqueued new job: %s of type: %s".formatted(job.jobId(), type));
+		} else {
+			jobQueueMetrics.recordDuplicateMerge(type);
+			LOGGER.log(Level.FINE, "merged duplicate job: %s (original: %s) of type: %s"
+				.formatted(job.jobId(), resultJob.jobId(), type));
+		}
+
+		return resultJob;
+	}
+
+	// one round trip for the whole batch, results are returned in request order
+	public List<EnqueueResult> enqueueAll(List<EnqueueRequest> requests) {
+		requests.stream()
+			.map(EnqueueRequest::type)
+			.distinct()
+			.forEach(this::requireProcessor);
+
+		List<Job> requested = requests.stream()
+			.map(request -> newJob(request.type(), request.payload(), request.delayedUntil(), request.maxRetries()))
+			.toList();
+
+		// duplicates within the batch collapse onto the first occurrence, keeping the earliest delay,
+		// a null delay means run immediately so it sorts before any timestamp
+		Map<String, Job> unique = new LinkedHashMap<>();
+		requested.forEach(job -> unique.merge(job.dedupKey(), job, (first, duplicate) ->
+			EARLIEST_DELAY.compare(duplicate.delayedUntil(), first.delayedUntil()) < 0
+				? new Job(first.jobId(), first.dedupKey(), first.type(), first.status(), first.payload(),
+					first.retryCount(), first.maximumRetries(), first.errorMessage(), duplicate.delayedUntil(), null)
+				: first));
+
+		Map<String, Job> upserted = jobRepository.upsertJobs(List.copyOf(unique.values())).stream()
+			.collect(Collectors.toMap(Job::dedupKey, job -> job));
+
+		List<EnqueueResult> results = requested.stream()
+			.map(job -> {
+				Job resultJob = upserted.get(job.dedupKey());
+				return new EnqueueResult(resultJob, !resultJob.jobId().equals(job.jobId()));
+			})
+			.toList();
+
+		long merged = results.stream().filter(EnqueueResult::merged).count();
+		results.stream()
+			.filter(EnqueueResult::merged)
+			.forEach(result -> jobQueueMetrics.recordDuplicateMerge(result.job().type()));
+		LOGGER.info("enqueued batch of %s jobs, %s new and %s merged"
+			.formatted(results.size(), results.size() - merged, merged));
+
+		return results;
+	}
+
+	private void requireProcessor(JobType type) {
 		try {
 			processorFactory.getProcessor(type);
 		} catch (IllegalArgumentException e) {
 			throw new IllegalArgumentException("no processor found for job type: " + type);
 		}
+	}
 
-		String dedupKey = String.join("::", type.name(), payload);
-		String jobId = UUID.randomUUID().toString();
-
-		Job job = new Job(
-			jobId,
-			dedupKey,
+	private Job newJob(JobType type, String payload, Instant delayedUntil, Integer maxRetries) {
+		return new Job(
+			UUID.randomUUID().toString(),
+			String.join("::", type.name(), payload),
 			type,
 			JobStatus.PENDING,
 			payload,
 			0,
 			maxRetries,
 			null,
-			delayedUntil
+			delayedUntil,
+			null
 		);
+	}
 
-		Job resultJob = jobRepository.upsertJob(job);
-
-		boolean wasNewJob = resultJob.jobId().equals(jobId);
-		if (wasNewJob) {
-			LOGGER.info("enqueued new job: %s of type: %s".formatted(jobId, type));
-		} else {
-			LOGGER.log(Level.FINE, "merged duplicate job: %s (original: %s) of type: %s"
-				.formatted(jobId, resultJob.jobId(), type));
+	// called by the notification listener, the safety-net poll and finishing jobs, never blocks on a
+	// claim already in progress since the holder runs another one for any request made meanwhile
+	public void processJobs() {
+		claimRequested.set(true);
+		while (claimRequested.get() && claimLock.tryLock()) {
+			try {
+				claimRequested.set(false);
+				claim();
+			} finally {
+				claimLock.unlock();
+			}
 		}
-
-		return resultJob;
 	}
 
-	public void processJobs() {
+	private void claim() {
 		try {
-			int available = threadPoolExecutor.getMaximumPoolSize() - threadPoolExecutor.getActiveCount();
-			List<Job> pendingJobs = jobRepository.claimJobsByStatus((int) Math.ceil(available * 0.8), JobStatus.PENDING);
-			List<Job> retryingJobs = jobRepository.claimJobsByStatus((int) Math.ceil(available * 0.3), JobStatus.RETRYING);
+			Map<JobType, Integer> available = jobExecutor.availablePermits();
+			List<Job> claimedJobs = jobRepository.claimJobs(available, jobQueueConfiguration.leaseDuration());
+			Instant claimedAt = Instant.now();
+			jobQueueMetrics.recordClaim(available, claimedJobs);
 
-			int claimed = pendingJobs.size() + retryingJobs.size();
-			if (claimed > 0) {
-				LOGGER.info("Claimed %s jobs to process".formatted(pendingJobs.size() + retryingJobs.size()));
+			if (!claimedJobs.isEmpty()) {
+				LOGGER.info("Claimed %s jobs to process".formatted(claimedJobs.size()));
 			}
+			Map<JobType, Long> claimedByType = claimedJobs.stream()
+				.collect(Collectors.groupingBy(Job::type, Collectors.counting()));
+			saturated = available.entrySet().stream()
+				.anyMatch(entry -> entry.getValue() > 0
+					&& claimedByType.getOrDefault(entry.getKey(), 0L) >= entry.getValue());
 
-			Stream.concat(pendingJobs.stream(), retryingJobs.stream())
-				.forEach(job -> threadPoolExecutor.submit(() -> processJob(job)));
+			claimedJobs.forEach(job -> {
+				runningLeaseTokens.add(job.leaseToken());
+				jobQueueMetrics.recordClaimLatency(job, claimedAt);
+				jobExecutor.submit(job.type(), () -> processAndForget(job), this::onSlotFreed);
+			});
 		} catch (Exception e) {
 			LOGGER.log(Level.SEVERE, "error claiming jobs", e);
 		}
 	}
 
+	public Set<String> getRunningLeaseTokens() {
+		return Set.copyOf(runningLeaseTokens);
+	}
+
+	private void processAndForget(Job job) {
+		try {
+			processJob(job);
+		} finally {
+			runningLeaseTokens.remove(job.leaseToken());
+		}
+	}
+
+	private void onSlotFreed() {
+		if (saturated) {
+			processJobs();
+		}
+	}
+
 	void processJob(Job job) {
 		JobProcessor processor;
 		try {
@@ -107,10 +221,17 @@ public class JobPoolService {
 			return;
 		}
 
+		long startNanos = System.nanoTime();
+		boolean processed = false;
 		try {
 			processor.process(job);
-			jobRepository.updateJobStatus(job.jobId(), JobStatus.COMPLETED, null);
+			processed = true;
+			jobQueueMetrics.recordExecution(job.type(), Duration.ofNanos(System.nanoTime() - startNanos), true);
+			jobRepository.updateJobStatus(job.jobId(), job.leaseToken(), JobStatus.COMPLETED, null);
 		} catch (Exception e) {
+			if (!processed) {
+				jobQueueMetrics.recordExecution(job.type(), Duration.ofNanos(System.nanoTime() - startNanos), false);
+			}
 			handleJobFailure(job, e);
 		}
 	}
@@ -126,13 +247,15 @@ public class JobPoolService {
 		LOGGER.severe("job %s failed: %s".formatted(job.jobId(), fullTrace));
 
 		if (newRetryCount >= job.maximumRetries()) {
-			jobRepository.moveToDeadLetter(job.jobId(), fullTrace);
+			jobRepository.moveToDeadLetter(job.jobId(), job.leaseToken(), fullTrace);
+			jobQueueMetrics.recordDeadLetter(job.type());
 			LOGGER.log(Level.SEVERE, "job moved to dead letter: %s after %s attempts".formatted(job.jobId(), newRetryCount));
 		} else {
 			long delaySeconds = (long) Math.max(Math.pow(2, newRetryCount), 30);
 			Instant retryAt = Instant.now().plus(Duration.ofSeconds(delaySeconds));
 
-			jobRepository.updateJobForRetry(job.jobId(), newRetryCount, retryAt, fullTrace);
+			jobRepository.updateJobForRetry(job.jobId(), job.leaseToken(), newRetryCount, retryAt, fullTrace);
+			jobQueueMetrics.recordRetry(job.type());
 			LOGGER.log(Level.SEVERE, "job scheduled for retry: %s attempt %s in %s seconds"
 				.formatted(job.jobId(), newRetryCount, delaySeconds));
 		}
@@ -8,12 +8,22 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Repository
 public class JobRepository extends BaseRepository {
+	public static final String NOTIFY_CHANNEL = "job_queue_";
+
+	// identifies the replica holding a lease, the per-claim lease_token is what fences status writes
+	private final String leaseOwner = UUID.randomUUID().toString();
 
 	public JobRepository(JdbcTemplate jdbc) {
 		super(jdbc);
@@ -29,7 +39,8 @@ public class JobRepository extends BaseRepository {
 		rs.getInt("maximum_retries"),
 		rs.getString("error_message"),
 		rs.getTimestamp("delayed_until") != null ?
-			rs.getTimestamp("delayed_until").toInstant() : null
+			rs.getTimestamp("delayed_until").toInstant() : null,
+		rs.getString("lease_token")
 	);
 
 	public Optional<Job> findById(String jobId) {
@@ -40,38 +51,72 @@ public class JobRepository extends BaseRepository {
 		);
 	}
 
-	public List<Job> claimJobsByStatus(int batchSize, JobStatus status) {
+	public List<Job> claimJobs(Map<JobType, Integer> limits, Duration lease) {
+		Map<JobType, Integer> claimable = limits.entrySet().stream()
+			.filter(entry -> entry.getValue() > 0)
+			.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+		if (claimable.isEmpty()) {
+			return List.of();
+		}
+
+		List<JobType> types = List.copyOf(claimable.keySet());
 		return selectMany(
 			"""
+			WITH limits AS (
+				SELECT * FROM unnest(?::text[], ?::int[]) AS l(type, cap)
+			),
+			candidates AS (
+				SELECT claimable.job_id, claimable.type, claimable.dedup_key, claimable.delayed_until
+				FROM limits
+				CROSS JOIN LATERAL (
+					SELECT q.job_id, q.type, q.dedup_key, q.delayed_until
+					FROM job_queue_ q
+					-- dedup guard: the same anti-join the planner makes of NOT EXISTS, the win is the per-type index walk
+					LEFT JOIN job_queue_ processing
+						ON processing.type = q.type
+						AND processing.dedup_key = q.dedup_key
+						AND processing.status = 'PROCESSING'
+					WHERE q.type = limits.type
+					AND q.status IN ('PENDING', 'RETRYING')
+					AND q.delayed_until <= NOW()
+					AND processing.job_id IS NULL
+					ORDER BY q.delayed_until ASC, q.job_id ASC
+					LIMIT limits.cap
+					FOR UPDATE OF q SKIP LOCKED
+				) claimable
+			),
+			-- a PENDING and a RETRYING row can share a dedup key, only one may become PROCESSING
+			deduped AS (
+				SELECT DISTINCT ON (type, dedup_key) job_id
+				FROM candidates
+				ORDER BY type, dedup_key, delayed_until ASC, job_id ASC
+			)
 			UPDATE job_queue_
 			SET
-				status = 'PROCESSING'
-			WHERE job_id IN (
-				SELECT job_id FROM job_queue_
-				WHERE status = ?
-				AND delayed_until <= NOW()
-				-- additional safety: ensure no other job with same dedup is already processing
-				AND NOT EXISTS (
-					SELECT 1 FROM job_queue_ j2 
-					WHERE j2.type = job_queue_.type 
-					AND j2.dedup_key = job_queue_.dedup_key 
-					AND j2.status = 'PROCESSING'
-				)
-			ORDER BY delayed_until ASC, job_id ASC
-			LIMIT ?
-			FOR UPDATE SKIP LOCKED
-			)
-			RETURNING *;
+				status = 'PROCESSING',
+				lease_owner = ?,
+				lease_token = gen_random_uuid()::text,
+				lease_expires_at = NOW() + ? * INTERVAL '1 millisecond'
+			FROM deduped
+			WHERE job_queue_.job_id = deduped.job_id
+			RETURNING job_queue_.*;
 			""",
 			jobMapper,
-			status.name(),
-			batchSize
+			toArrayLiteral(types.stream().map(JobType::name).toList()),
+			toArrayLiteral(types.stream().map(type -> claimable.get(type).toString()).toList()),
+			leaseOwner,
+			lease.toMillis()
 		);
 	}
 
 	public Job upsertJob(Job job) {
+		// wake listening replicas on commit for jobs that are claimable now or within a few seconds,
+		// clock_timestamp() rather than NOW() since NOW() is frozen at transaction start and the
+		// tolerance covers app clocks running ahead of the database when delayed_until is stamped in java.
+		// a null delay means run now, the column is NOT NULL so it's stamped here the same as in upsertJobs
 		return selectOne(
 			"""
+			WITH upserted AS (
 			INSERT INTO job_queue_ (
 				job_id,
 				dedup_key,
@@ -93,6 +138,13 @@ public class JobRepository extends BaseRepository {
 					COALESCE(EXCLUDED.delayed_until, job_queue_.delayed_until)
 				)
 			RETURNING *
+			)
+			SELECT upserted.*
+			FROM upserted
+			LEFT JOIN LATERAL (
+				SELECT pg_notify(?, upserted.type)
+				WHERE upserted.delayed_until <= clock_timestamp() + INTERVAL '5 seconds'
+			) notified ON TRUE
 			""",
 			jobMapper,
 			job.jobId(),
@@ -102,103 +154,271 @@ public class JobRepository extends BaseRepository {
 			job.payload(),
 			job.retryCount(),
 			job.maximumRetries(),
-			job.delayedUntil() != null ? java.sql.Timestamp.from(job.delayedUntil()) : null
+			java.sql.Timestamp.from(job.delayedUntil() != null ? job.delayedUntil() : Instant.now()),
+			NOTIFY_CHANNEL
 		).orElseThrow(() -> new RuntimeException("upsert failed to return job"));
 	}
 
-	public void updateJobStatus(String jobId, JobStatus status, String errorMessage) {
+	// jobs must be unique on (type, dedup_key), a single statement cannot merge into the same row twice
+	public List<Job> upsertJobs(List<Job> jobs) {
+		if (jobs.isEmpty()) {
+			return List.of();
+		}
+		String sql = """
+			WITH upserted AS (
+			INSERT INTO job_queue_ (
+				job_id,
+				dedup_key,
+				type,
+				status,
+				payload,
+				retry_count,
+				maximum_retries,
+				delayed_until
+			)
+			SELECT job_id, dedup_key, type, status, payload, retry_count, maximum_retries, to_timestamp(delayed_until_ms / 1000.0)
+			FROM unnest(?::text[], ?::text[], ?::text[], ?::text[], ?::text[], ?::int[], ?::int[], ?::bigint[])
+				AS batch(job_id, dedup_key, type, status, payload, retry_count, maximum_retries, delayed_until_ms)
+			ON CONFLICT (type, dedup_key)
+			WHERE status = 'PENDING'
+			DO UPDATE SET
+				payload = EXCLUDED.payload,
+				duplicate_count = job_queue_.duplicate_count + 1,
+				last_seen = NOW(),
+				delayed_until = LEAST(
+					COALESCE(job_queue_.delayed_until, EXCLUDED.delayed_until),
+					COALESCE(EXCLUDED.delayed_until, job_queue_.delayed_until)
+				)
+			RETURNING *
+			)
+			SELECT upserted.*
+			FROM upserted
+			LEFT JOIN LATERAL (
+				SELECT pg_notify(?, upserted.type)
+				WHERE upserted.delayed_until <= clock_timestamp() + INTERVAL '5 seconds'
+			) notified ON TRUE
+			""";
+
+		return selectMany(con -> {
+			PreparedStatement ps = con.prepareStatement(sql);
+			ps.setArray(1, con.createArrayOf("text", jobs.stream().map(Job::jobId).toArray()));
+			ps.setArray(2, con.createArrayOf("text", jobs.stream().map(Job::dedupKey).toArray()));
+			ps.setArray(3, con.createArrayOf("text", jobs.stream().map(job -> job.type().name()).toArray()));
+			ps.setArray(4, con.createArrayOf("text", jobs.stream().map(job -> job.status().name()).toArray()));
+			ps.setArray(5, con.createArrayOf("text", jobs.stream().map(Job::payload).toArray()));
+			ps.setArray(6, con.createArrayOf("int4", jobs.stream().map(Job::retryCount).toArray()));
+			ps.setArray(7, con.createArrayOf("int4", jobs.stream().map(Job::maximumRetries).toArray()));
+			ps.setArray(8, con.createArrayOf("int8", jobs.stream()
+				.map(job -> (job.delayedUntil() != null ? job.delayedUntil() : Instant.now()).toEpochMilli())
+				.toArray()));
+			ps.setString(9, NOTIFY_CHANNEL);
+			return ps;
+		}, jobMapper);
+	}
+
+	// status writes only land while the row is still PROCESSING under the claim that read it
+	public void updateJobStatus(String jobId, String leaseToken, JobStatus status, String errorMessage) {
 		execute(
-			"UPDATE job_queue_ SET status = ?, error_message = ?, processed_at = NOW() WHERE job_id = ?",
+			"""
+			UPDATE job_queue_
+			SET status = ?, error_message = ?, processed_at = NOW(), lease_expires_at = NULL, lease_token = NULL
+			WHERE job_id = ?
+			AND status = 'PROCESSING'
+			AND lease_token = ?
+			""",
 			status.name(),
 			errorMessage,
-			jobId
+			jobId,
+			leaseToken
 		);
 	}
 
-	public void updateJobForRetry(String jobId, int newRetryCount, Instant delayedUntil, String errorMessage) {
+	public void updateJobForRetry(String jobId, String leaseToken, int newRetryCount, Instant delayedUntil, String errorMessage) {
 		execute(
 			"""
 			UPDATE job_queue_
 			SET status = 'RETRYING',
 				retry_count = ?,
 				delayed_until = ?,
-				error_message = ?
+				error_message = ?,
+				lease_expires_at = NULL,
+				lease_token = NULL
 			WHERE job_id = ?
+			AND status = 'PROCESSING'
+			AND lease_token = ?
 			""",
 			newRetryCount,
 			java.sql.Timestamp.from(delayedUntil),
 			errorMessage,
-			jobId
+			jobId,
+			leaseToken
 		);
 	}
 
-	public void moveToDeadLetter(String jobId, String errorMessage) {
+	public void moveToDeadLetter(String jobId, String leaseToken, String errorMessage) {
 		execute(
-			"UPDATE job_queue_ SET status = 'DEAD_LETTER', error_message = ?, processed_at = NOW() WHERE job_id = ?",
+			"""
+			UPDATE job_queue_
+			SET status = 'DEAD_LETTER', error_message = ?, processed_at = NOW(), lease_expires_at = NULL, lease_token = NULL
+			WHERE job_id = ?
+			AND status = 'PROCESSING'
+			AND lease_token = ?
+			""",
 			errorMessage,
-			jobId
+			jobId,
+			leaseToken
 		);
 	}
 
-	public int archiveAndDeleteCompletedJobs() {
+	public int extendLeases(Collection<String> leaseTokens, Duration lease) {
+		if (leaseTokens.isEmpty()) {
+			return 0;
+		}
+		return execute(
+			"""
+			UPDATE job_queue_
+			SET lease_expires_at = NOW() + ? * INTERVAL '1 millisecond'
+			WHERE lease_token = ANY(?::text[])
+			AND status = 'PROCESSING'
+			""",
+			lease.toMillis(),
+			toArrayLiteral(List.copyOf(leaseTokens))
+		);
+	}
+
+	// PROCESSING rows claimed before leases existed have no expiry, they fall back to last_updated,
+	// rows handed back as RETRYING are due immediately so listening replicas are woken for them
+	public int reapExpiredLeases(Duration lease) {
+		return selectOne(
+			"""
+			WITH reaped AS (
+			UPDATE job_queue_
+			SET
+				status = CASE
+					WHEN retry_count + 1 >= maximum_retries THEN 'DEAD_LETTER'
+					ELSE 'RETRYING'
+				END,
+				retry_count = retry_count + 1,
+				delayed_until = NOW(),
+				processed_at = CASE
+					WHEN retry_count + 1 >= maximum_retries THEN NOW()
+					ELSE processed_at
+				END,
+				error_message = 'lease expired, owner ' || COALESCE(lease_owner, 'unknown') || ' stopped heartbeating',
+				lease_expires_at = NULL,
+				lease_token = NULL
+			WHERE job_id IN (
+				SELECT job_id FROM job_queue_
+				WHERE status = 'PROCESSING'
+				AND COALESCE(lease_expires_at, last_updated + ? * INTERVAL '1 millisecond') < NOW()
+				FOR UPDATE SKIP LOCKED
+			)
+			RETURNING type, status
+			)
+			SELECT COUNT(*)
+			FROM reaped
+			LEFT JOIN LATERAL (
+				SELECT pg_notify(?, reaped.type)
+				WHERE reaped.status = 'RETRYING'
+			) notified ON TRUE
+			""",
+			(rs, rowNum) -> rs.getInt(1),
+			lease.toMillis(),
+			NOTIFY_CHANNEL
+		).orElse(0);
+	}
+
+	// moves at most batchSize finished jobs, oldest first, so each chunk is a short transaction
+	public int archiveCompletedJobs(int batchSize) {
 		return execute("""
-			WITH archived AS (
-				INSERT INTO job_audit_ (
-					job_id,
-					dedup_key,
-					type,
-					status,
-					payload,
-					retry_count,
-					maximum_retries,
-					error_message,
-					delayed_until,
-					processed_at,
-					last_seen,
-					duplicate_count,
-					created_at,
-					last_updated
-				)
-				SELECT
-					job_id,
-					dedup_key,
-					type,
-					status,
-					payload,
-					retry_count,
-					maximum_retries,
-					error_message,
-					delayed_until,
-					processed_at,
-					last_seen,
-					duplicate_count,
-					created_at,
-					last_updated
-				FROM job_queue_
+			WITH batch AS (
+				SELECT job_id FROM job_queue_
 				WHERE status IN ('COMPLETED', 'DEAD_LETTER')
 				AND processed_at < NOW() - INTERVAL '1 minute'
-				RETURNING job_id
+				ORDER BY processed_at ASC
+				LIMIT ?
+				FOR UPDATE SKIP LOCKED
+			),
+			deleted AS (
+				DELETE FROM job_queue_
+				WHERE job_id IN (SELECT job_id FROM batch)
+				RETURNING *
 			)
-			DELETE FROM job_queue_
-			WHERE job_id IN (SELECT job_id FROM archived)
-			""");
-	}
-
-	public boolean tryAcquireCleanupLock() {
-		try {
-			return selectOne(
-				"SELECT pg_try_advisory_lock(12345678)",
-				(rs, rowNum) -> rs.getBoolean(1)
-			).orElse(false);
-		} catch (Exception e) {
-			return false;
-		}
+			INSERT INTO job_audit_ (
+				job_id,
+				dedup_key,
+				type,
+				status,
+				payload,
+				retry_count,
+				maximum_retries,
+				error_message,
+				delayed_until,
+				processed_at,
+				last_seen,
+				duplicate_count,
+				created_at,
+				last_updated
+			)
+			SELECT
+				job_id,
+				dedup_key,
+				type,
+				status,
+				payload,
+				retry_count,
+				maximum_retries,
+				error_message,
+				delayed_until,
+				processed_at,
+				last_seen,
+				duplicate_count,
+				created_at,
+				last_updated
+			FROM deleted
+			""",
+			batchSize
+		);
 	}
 
-	public void releaseCleanupLock() {
-		try {
-			execute("SELECT pg_advisory_unlock(12345678)");
-		} catch (Exception e) {
-		}
+	public Optional<Instant> selectOldestArchivableProcessedAt() {
+		return selectOne(
+			"""
+			SELECT MIN(processed_at) AS oldest FROM job_queue_
+			WHERE status IN ('COMPLETED', 'DEAD_LETTER')
+			""",
+			(rs, rowNum) -> rs.getTimestamp("oldest") != null ? rs.getTimestamp("oldest").toInstant() : null
+		);
+	}
+
+	public void ensureAuditPartitions(int monthsAhead) {
+		selectMany(
+			"""
+			SELECT ensure_job_audit_partition((date_trunc('month', NOW()) + month_offset * INTERVAL '1 month')::DATE)
+			FROM generate_series(0, ?) AS month_offset
+			""",
+			(rs, rowNum) -> null,
+			monthsAhead
+		);
+	}
+
+	public int dropAuditPartitionsOlderThan(int retentionMonths) {
+		return selectOne(
+			"SELECT drop_job_audit_partitions_before((date_trunc('month', NOW()) - ? * INTERVAL '1 month')::DATE)",
+			(rs, rowNum) -> rs.getInt(1),
+			retentionMonths
+		).orElse(0);
+	}
+
+	// transaction scoped, must be called inside the archival transaction
+	public boolean tryAcquireArchivalLock() {
+		return selectOne(
+			"SELECT pg_try_advisory_xact_lock(hashtext('job_audit_archival'))",
+			(rs, rowNum) -> rs.getBoolean(1)
+		).orElse(false);
+	}
+
+	private static String toArrayLiteral(List<String> values) {
+		return "{" + String.join(",", values) + "}";
 	}
 }
\ No newline at end of file
@@ -1,9 +1,13 @@
 package com.mc_host.api.queue;
 
+import com.mc_host.api.model.queue.EnqueueRequest;
+import com.mc_host.api.model.queue.EnqueueResult;
 import com.mc_host.api.model.queue.JobType;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 
 @Service
 public class JobScheduler {
@@ -29,6 +33,19 @@ public class JobScheduler {
 		jobPoolService.enqueue(jobType, payload, delayedUntil, maxRetries);
 	}
 
+	public List<EnqueueResult> scheduleAll(List<EnqueueRequest> requests) {
+		if (requests.isEmpty()) {
+			return List.of();
+		}
+		return jobPoolService.enqueueAll(requests);
+	}
+
+	public List<EnqueueResult> scheduleAll(JobType jobType, Collection<String> payloads) {
+		return scheduleAll(payloads.stream()
+			.map(payload -> EnqueueRequest.of(jobType, payload))
+			.toList());
+	}
+
 	// Convenience method
 	public void scheduleCustomerSubscriptionSync(String customerId, Integer delaySeconds) {
 		schedule(JobType.CUSTOMER_SUBSCRIPTION_SYNC, customerId, delaySeconds);
@@ -46,6 +63,10 @@ public class JobScheduler {
 		scheduleSubscriptionSync(subscriptionId, 0);
 	}
 
+	public void scheduleSubscriptionSyncs(Collection<String> subscriptionIds) {
+		scheduleAll(JobType.PER_SUBSCRIPTION_SYNC, subscriptionIds);
+	}
+
 	public void scheduleSubdomainUpdate(String subscriptionId, Integer delaySeconds) {
 		schedule(JobType.SUBSCRIPTION_SUBDOMAIN_UPDATE, subscriptionId, delaySeconds);
 	}
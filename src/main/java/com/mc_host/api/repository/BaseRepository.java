@@ -2,6 +2,7 @@ package com.mc_host.api.repository;
 
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.PreparedStatementSetter;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
@@ -33,6 +34,14 @@ public abstract class BaseRepository {
 		}
 	}
 
+	protected <T> List<T> selectMany(PreparedStatementCreator creator, RowMapper<T> mapper) {
+		try {
+			return jdbc.query(creator, mapper);
+		} catch (DataAccessException e) {
+			throw new RuntimeException("query failed: " + e.getMessage(), e);
+		}
+	}
+
 	protected int execute(String sql, Object... params) {
 		try {
 			return jdbc.update(sql, params);
@@ -41,6 +50,17 @@ public abstract class BaseRepository {
 		}
 	}
 
+	protected int[] executeBatch(String sql, List<Object[]> batchParams) {
+		if (batchParams.isEmpty()) {
+			return new int[0];
+		}
+		try {
+			return jdbc.batchUpdate(sql, batchParams);
+		} catch (DataAccessException e) {
+			throw new RuntimeException("batch update failed: " + e.getMessage(), e);
+		}
+	}
+
 	protected void upsert(String sql, PreparedStatementSetter setter) {
 		try {
 			jdbc.update(con -> {
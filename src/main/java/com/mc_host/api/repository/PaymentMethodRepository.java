@@ -4,11 +4,13 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mc_host.api.model.stripe.CustomerPaymentMethod;
 import com.mc_host.api.model.stripe.PaymentMethodType;
+import com.mc_host.api.util.RowDiff;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,25 +23,27 @@ public class PaymentMethodRepository extends BaseRepository {
         this.objectMapper = objectMapper;
     }
 
+    private static final String UPSERT_PAYMENT_METHOD = """
+        INSERT INTO payment_method_ (
+            payment_method_id,
+            customer_id,
+            payment_method_type,
+            display_name,
+            payment_data,
+            is_active,
+            is_default)
+        VALUES (?, ?, ?, ?, ?::jsonb, ?, ?)
+        ON CONFLICT (payment_method_id) DO UPDATE SET
+            customer_id = EXCLUDED.customer_id,
+            payment_method_type = EXCLUDED.payment_method_type,
+            display_name = EXCLUDED.display_name,
+            payment_data = EXCLUDED.payment_data,
+            is_active = EXCLUDED.is_active,
+            is_default = EXCLUDED.is_default
+        """;
+
     public void upsertPaymentMethod(CustomerPaymentMethod pm) {
-        upsert("""
-            INSERT INTO payment_method_ (
-                payment_method_id,
-                customer_id,
-                payment_method_type,
-                display_name,
-                payment_data,
-                is_active,
-                is_default)
-            VALUES (?, ?, ?, ?, ?::jsonb, ?, ?)
-            ON CONFLICT (payment_method_id) DO UPDATE SET
-                customer_id = EXCLUDED.customer_id,
-                payment_method_type = EXCLUDED.payment_method_type,
-                display_name = EXCLUDED.display_name,
-                payment_data = EXCLUDED.payment_data,
-                is_active = EXCLUDED.is_active,
-                is_default = EXCLUDED.is_default
-            """, ps -> {
+        upsert(UPSERT_PAYMENT_METHOD, ps -> {
             ps.setString(1, pm.paymentMethodId());
             ps.setString(2, pm.customerId());
             ps.setString(3, pm.paymentMethodType().name().toLowerCase());
@@ -50,8 +54,52 @@ public class PaymentMethodRepository extends BaseRepository {
         });
     }
 
-    public void deletePaymentMethodsForCustomer(String customerId) {
-        execute("DELETE FROM payment_method_ WHERE customer_id = ?", customerId);
+    /**
+     * Makes the customer's rows match paymentMethods. Rows that already match are left alone, the rest
+     * go out as one delete batch and one upsert batch. Run it in a transaction: the customer's rows are
+     * locked for the read, and readers see the old set until the new one is committed.
+     */
+    public RowDiff<CustomerPaymentMethod> reconcilePaymentMethods(String customerId, List<CustomerPaymentMethod> paymentMethods) {
+        var stored = selectMany("""
+            SELECT
+                payment_method_id,
+                customer_id,
+                payment_method_type,
+                display_name,
+                payment_data,
+                is_active, is_default
+            FROM payment_method_
+            WHERE customer_id = ?
+            FOR UPDATE
+            """,
+            this::mapPaymentMethod,
+            customerId
+        );
+        var diff = RowDiff.of(stored, paymentMethods, CustomerPaymentMethod::paymentMethodId);
+
+        executeBatch(
+            "DELETE FROM payment_method_ WHERE payment_method_id = ?",
+            diff.deleted().stream()
+                .map(pm -> new Object[] { pm.paymentMethodId() })
+                .toList()
+        );
+        // one_default_per_customer is checked per row, the old default has to let go before the new one takes it
+        executeBatch(
+            UPSERT_PAYMENT_METHOD,
+            diff.changed().stream()
+                .sorted(Comparator.comparing(CustomerPaymentMethod::isDefault))
+                .map(pm -> new Object[] {
+                    pm.paymentMethodId(),
+                    pm.customerId(),
+                    pm.paymentMethodType().name().toLowerCase(),
+                    pm.displayName(),
+                    pm.paymentData().toString(),
+                    pm.isActive(),
+                    pm.isDefault()
+                })
+                .toList()
+        );
+        return diff;
     }
 
     public Optional<String> selectPaymentMethodClerkId(String paymentMethodId) {
@@ -5,11 +5,13 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mc_host.api.model.plan.AcceptedCurrency;
 import com.mc_host.api.model.plan.ContentPrice;
+import com.mc_host.api.util.RowDiff;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -23,34 +25,82 @@ public class PriceRepository extends BaseRepository {
 
     public PriceRepository(JdbcTemplate jdbc) { super(jdbc); }
 
+    private static final String UPSERT_PRICE = """
+        INSERT INTO price_ (
+            price_id,
+            product_id,
+            active,
+            minor_amounts)
+        VALUES (?, ?, ?, ?::jsonb)
+        ON CONFLICT (price_id) DO UPDATE SET
+            product_id = EXCLUDED.product_id,
+            active = EXCLUDED.active,
+            minor_amounts = EXCLUDED.minor_amounts
+        """;
+
     public void insertPrice(ContentPrice price) {
-        try {
-            String minorAmountsJson = objectMapper.writeValueAsString(price.minorAmounts());
+        String minorAmountsJson = minorAmountsJson(price);
+        upsert(UPSERT_PRICE, ps -> {
+            ps.setString(1, price.priceId());
+            ps.setString(2, price.productId());
+            ps.setBoolean(3, price.active());
+            ps.setString(4, minorAmountsJson);
+        });
+    }
 
-            upsert("""
-            INSERT INTO price_ (
+    /**
+     * Makes the product's prices match prices with one batch each of deletes, inserts and updates, rows
+     * that already match are left alone. Run it in a transaction so plan and price reads see the product
+     * either before or after. A price a plan still points at is kept, the returned diff only lists the
+     * deletes that happened.
+     */
+    public RowDiff<ContentPrice> reconcileProductPrices(String productId, List<ContentPrice> prices) {
+        var stored = selectMany("""
+            SELECT
                 price_id,
                 product_id,
                 active,
-                minor_amounts)
-            VALUES (?, ?, ?, ?::jsonb)
-            ON CONFLICT (price_id) DO UPDATE SET
-                product_id = EXCLUDED.product_id,
-                active = EXCLUDED.active,
-                minor_amounts = EXCLUDED.minor_amounts
-            """, ps -> {
-                ps.setString(1, price.priceId());
-                ps.setString(2, price.productId());
-                ps.setBoolean(3, price.active());
-                ps.setString(4, minorAmountsJson);
-            });
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("failed to serialize minor_amounts", e);
-        }
-    }
+                minor_amounts
+            FROM price_
+            WHERE product_id = ?
+            FOR UPDATE
+            """, this::mapPrice, productId);
+        var diff = RowDiff.of(stored, prices, ContentPrice::priceId);
+
+        var deleteCounts = executeBatch("""
+            DELETE FROM price_
+            WHERE product_id = ?
+            AND price_id = ?
+            AND NOT EXISTS (SELECT 1 FROM plan_ WHERE plan_.price_id = price_.price_id)
+            """,
+            diff.deleted().stream()
+                .map(price -> new Object[] { productId, price.priceId() })
+                .toList()
+        );
+        executeBatch(
+            UPSERT_PRICE,
+            diff.inserted().stream()
+                .map(price -> new Object[] { price.priceId(), price.productId(), price.active(), minorAmountsJson(price) })
+                .toList()
+        );
+        executeBatch("""
+            UPDATE price_
+            SET active = ?,
+                minor_amounts = ?::jsonb
+            WHERE price_id = ?
+            """,
+            diff.updated().stream()
+                .map(price -> new Object[] { price.active(), minorAmountsJson(price), price.priceId() })
+                .toList()
+        );
 
-    public void deleteProductPrice(String priceId, String productId) {
-        execute("DELETE FROM price_ WHERE product_id = ? AND price_id = ?", productId, priceId);
+        List<ContentPrice> deleted = new ArrayList<>();
+        for (int i = 0; i < deleteCounts.length; i++) {
+            if (deleteCounts[i] != 0) {
+                deleted.add(diff.deleted().get(i));
+            }
+        }
+        return new RowDiff<>(diff.inserted(), diff.updated(), deleted, diff.unchanged());
     }
 
     public List<ContentPrice> selectPricesByProductId(String productId) {
@@ -83,6 +133,14 @@ public class PriceRepository extends BaseRepository {
                 (rs, rowNum) -> rs.getString("product_id"), priceId);
     }
 
+    private static String minorAmountsJson(ContentPrice price) {
+        try {
+            return objectMapper.writeValueAsString(price.minorAmounts());
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("failed to serialize minor_amounts", e);
+        }
+    }
+
     private ContentPrice mapPrice(ResultSet rs, int rowNum) throws SQLException {
         try {
             String jsonbString = rs.getString("minor_amounts");
@@ -0,0 +1,121 @@
+package com.mc_host.api.repository;
+
+import com.mc_host.api.model.provisioning.Mode;
+import com.mc_host.api.model.provisioning.StepExecution;
+import com.mc_host.api.model.provisioning.StepStatistics;
+import com.mc_host.api.model.provisioning.StepType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+@Service
+public class ServerExecutionStepRepository extends BaseRepository {
+
+    public ServerExecutionStepRepository(JdbcTemplate jdbc) { super(jdbc); }
+
+    public int insertStepExecution(StepExecution execution) {
+        return execute("""
+            INSERT INTO server_execution_step_ (
+                subscription_id,
+                step_type,
+                mode,
+                lane,
+                outcome,
+                error_message,
+                started_at,
+                duration_ms)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            """,
+            execution.subscriptionId(),
+            execution.stepType().name(),
+            execution.mode().name(),
+            execution.lane().name(),
+            execution.outcome().name(),
+            execution.errorMessage(),
+            Timestamp.from(execution.startedAt()),
+            execution.duration().toMillis()
+        );
+    }
+
+    // null step or mode matches everything
+    public List<StepExecution> selectSlowestSince(Instant since, StepType stepType, Mode mode, int limit) {
+        var step = stepType != null ? stepType.name() : null;
+        var modeName = mode != null ? mode.name() : null;
+        return selectMany("""
+            SELECT
+                subscription_id,
+                step_type,
+                mode,
+                lane,
+                outcome,
+                error_message,
+                started_at,
+                duration_ms
+            FROM server_execution_step_
+            WHERE started_at >= ?
+            AND (?::text IS NULL OR step_type = ?)
+            AND (?::text IS NULL OR mode = ?)
+            ORDER BY duration_ms DESC
+            LIMIT ?
+            """,
+            this::mapStepExecution,
+            Timestamp.from(since),
+            step, step,
+            modeName, modeName,
+            limit
+        );
+    }
+
+    public List<StepStatistics> selectStatisticsSince(Instant since, Mode mode) {
+        var modeName = mode != null ? mode.name() : null;
+        return selectMany("""
+            SELECT
+                step_type,
+                mode,
+                COUNT(*) AS executions,
+                COUNT(*) FILTER (WHERE outcome = 'FAILURE') AS failures,
+                percentile_cont(0.5) WITHIN GROUP (ORDER BY duration_ms) AS p50_ms,
+                percentile_cont(0.95) WITHIN GROUP (ORDER BY duration_ms) AS p95_ms,
+                MAX(duration_ms) AS max_ms
+            FROM server_execution_step_
+            WHERE started_at >= ?
+            AND (?::text IS NULL OR mode = ?)
+            GROUP BY step_type, mode
+            ORDER BY p95_ms DESC
+            """,
+            (rs, rowNum) -> new StepStatistics(
+                StepType.valueOf(rs.getString("step_type")),
+                Mode.valueOf(rs.getString("mode")),
+                rs.getLong("executions"),
+                rs.getLong("failures"),
+                Math.round(rs.getDouble("p50_ms")),
+                Math.round(rs.getDouble("p95_ms")),
+                rs.getLong("max_ms")),
+            Timestamp.from(since),
+            modeName, modeName
+        );
+    }
+
+    public int deleteStepExecutionsBefore(Instant before) {
+        return execute("DELETE FROM server_execution_step_ WHERE started_at < ?", Timestamp.from(before));
+    }
+
+    private StepExecution mapStepExecution(ResultSet rs, int rowNum) throws SQLException {
+        return new StepExecution(
+            rs.getString("subscription_id"),
+            StepType.valueOf(rs.getString("step_type")),
+            Mode.valueOf(rs.getString("mode")),
+            StepExecution.Lane.valueOf(rs.getString("lane")),
+            StepExecution.Outcome.valueOf(rs.getString("outcome")),
+            rs.getString("error_message"),
+            rs.getTimestamp("started_at").toInstant(),
+            Duration.ofMillis(rs.getLong("duration_ms"))
+        );
+    }
+}
@@ -0,0 +1,161 @@
+package com.mc_host.api.repository;
+
+import com.mc_host.api.model.stripe.StripeObjectChange;
+import com.mc_host.api.model.stripe.StripeSyncCursor;
+import com.mc_host.api.model.stripe.StripeSyncResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+public class StripeSyncRepository extends BaseRepository {
+
+    public StripeSyncRepository(JdbcTemplate jdbc) { super(jdbc); }
+
+    // an object only ever moves forward, on equal times the change appended last wins unless it was already applied
+    public void upsertPendingChanges(List<StripeObjectChange> changes) {
+        executeBatch("""
+            INSERT INTO stripe_object_change_ (
+                resource,
+                object_id,
+                customer_id,
+                event_created,
+                event_payload)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (resource, object_id) DO UPDATE SET
+                customer_id = EXCLUDED.customer_id,
+                event_created = EXCLUDED.event_created,
+                event_payload = EXCLUDED.event_payload,
+                applied = FALSE
+            WHERE EXCLUDED.event_created > stripe_object_change_.event_created
+            OR (EXCLUDED.event_created = stripe_object_change_.event_created AND NOT stripe_object_change_.applied)
+            """,
+            changes.stream()
+                .map(change -> new Object[] {
+                    change.resource().name(),
+                    change.objectId(),
+                    change.customerId(),
+                    Timestamp.from(change.eventCreated()),
+                    change.eventPayload()
+                })
+                .toList()
+        );
+    }
+
+    public List<StripeObjectChange> selectPendingChanges(String customerId, StripeSyncResource resource) {
+        return selectMany("""
+            SELECT
+                resource,
+                object_id,
+                customer_id,
+                event_created,
+                event_payload
+            FROM stripe_object_change_
+            WHERE customer_id = ?
+            AND resource = ?
+            AND NOT applied
+            ORDER BY event_created
+            """,
+            (rs, rowNum) -> new StripeObjectChange(
+                StripeSyncResource.valueOf(rs.getString("resource")),
+                rs.getString("object_id"),
+                rs.getString("customer_id"),
+                rs.getTimestamp("event_created").toInstant(),
+                rs.getString("event_payload")),
+            customerId,
+            resource.name()
+        );
+    }
+
+    // a newer change that landed on the same object after it was read is left pending for the next sync
+    public void markChangesApplied(List<StripeObjectChange> changes) {
+        executeBatch("""
+            UPDATE stripe_object_change_
+            SET applied = TRUE,
+                event_payload = NULL
+            WHERE resource = ?
+            AND object_id = ?
+            AND event_created <= ?
+            """,
+            changes.stream()
+                .map(change -> new Object[] {
+                    change.resource().name(),
+                    change.objectId(),
+                    Timestamp.from(change.eventCreated())
+                })
+                .toList()
+        );
+    }
+
+    // a full listing already holds everything stripe produced before it started
+    public int markChangesAppliedBefore(String customerId, StripeSyncResource resource, Instant before) {
+        return execute("""
+            UPDATE stripe_object_change_
+            SET applied = TRUE,
+                event_payload = NULL
+            WHERE customer_id = ?
+            AND resource = ?
+            AND NOT applied
+            AND event_created < ?
+            """,
+            customerId,
+            resource.name(),
+            Timestamp.from(before)
+        );
+    }
+
+    public int deleteAppliedChangesBefore(Instant before) {
+        return execute("""
+            DELETE FROM stripe_object_change_
+            WHERE applied
+            AND event_created < ?
+            """,
+            Timestamp.from(before)
+        );
+    }
+
+    public Optional<StripeSyncCursor> selectCursor(String customerId, StripeSyncResource resource) {
+        return selectOne("""
+            SELECT
+                customer_id,
+                resource,
+                applied_through,
+                full_synced_at
+            FROM stripe_sync_cursor_
+            WHERE customer_id = ?
+            AND resource = ?
+            """,
+            (rs, rowNum) -> new StripeSyncCursor(
+                rs.getString("customer_id"),
+                StripeSyncResource.valueOf(rs.getString("resource")),
+                rs.getTimestamp("applied_through").toInstant(),
+                rs.getTimestamp("full_synced_at").toInstant()),
+            customerId,
+            resource.name()
+        );
+    }
+
+    // never moves a cursor backwards, two syncs for one customer can finish out of order
+    public int upsertCursor(StripeSyncCursor cursor) {
+        return execute("""
+            INSERT INTO stripe_sync_cursor_ (
+                customer_id,
+                resource,
+                applied_through,
+                full_synced_at)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (customer_id, resource) DO UPDATE SET
+                applied_through = GREATEST(stripe_sync_cursor_.applied_through, EXCLUDED.applied_through),
+                full_synced_at = GREATEST(stripe_sync_cursor_.full_synced_at, EXCLUDED.full_synced_at)
+            """,
+            cursor.customerId(),
+            cursor.resource().name(),
+            Timestamp.from(cursor.appliedThrough()),
+            Timestamp.from(cursor.fullSyncedAt())
+        );
+    }
+}
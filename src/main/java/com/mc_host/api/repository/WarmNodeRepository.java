@@ -0,0 +1,232 @@
+package com.mc_host.api.repository;
+
+import com.mc_host.api.model.resource.dns.DnsARecord;
+import com.mc_host.api.model.resource.hetzner.HetznerCloudProduct;
+import com.mc_host.api.model.resource.hetzner.HetznerRegion;
+import com.mc_host.api.model.resource.hetzner.node.WarmNode;
+import com.mc_host.api.model.resource.hetzner.node.WarmPoolKey;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@Service
+public class WarmNodeRepository extends BaseRepository {
+
+    private static final String WARM_NODE_COLUMNS = """
+        id,
+        cloud_product,
+        hetzner_region,
+        status,
+        hetzner_node_id,
+        a_record_id,
+        zone_id,
+        zone_name,
+        record_name,
+        content,
+        pterodactyl_node_id,
+        created_at
+        """;
+
+    public WarmNodeRepository(JdbcTemplate jdbc) { super(jdbc); }
+
+    // held until the surrounding transaction ends, so slot reservations for one pool are serialised across replicas
+    public void lockPool(WarmPoolKey key) {
+        selectOne("SELECT pg_advisory_xact_lock(hashtext(?))", (rs, rowNum) -> true, "warm_node_:" + key.toPayload());
+    }
+
+    public Optional<Long> insertProvisioningNode(WarmPoolKey key) {
+        return selectOne("""
+            INSERT INTO warm_node_ (
+                cloud_product,
+                hetzner_region,
+                status)
+            VALUES (?, ?, 'PROVISIONING')
+            RETURNING id
+            """,
+            (rs, rowNum) -> rs.getLong("id"),
+            key.cloudProduct().toString(),
+            key.hetznerRegion().toString()
+        );
+    }
+
+    public int updateHetznerNode(Long id, Long hetznerNodeId) {
+        return execute("UPDATE warm_node_ SET hetzner_node_id = ? WHERE id = ?", hetznerNodeId, id);
+    }
+
+    public int updateDnsARecord(Long id, DnsARecord record) {
+        return execute("""
+            UPDATE warm_node_
+            SET a_record_id = ?,
+                zone_id = ?,
+                zone_name = ?,
+                record_name = ?,
+                content = ?
+            WHERE id = ?
+            """,
+            record.aRecordId(),
+            record.zoneId(),
+            record.zoneName(),
+            record.recordName(),
+            record.content(),
+            id
+        );
+    }
+
+    public int updatePterodactylNode(Long id, Long pterodactylNodeId) {
+        return execute("UPDATE warm_node_ SET pterodactyl_node_id = ? WHERE id = ?", pterodactylNodeId, id);
+    }
+
+    public int updateReady(Long id) {
+        return execute("UPDATE warm_node_ SET status = 'READY' WHERE id = ? AND status = 'PROVISIONING'", id);
+    }
+
+    public Optional<WarmNode> selectWarmNode(Long id) {
+        return selectOne("SELECT " + WARM_NODE_COLUMNS + " FROM warm_node_ WHERE id = ?",
+            this::mapWarmNode,
+            id
+        );
+    }
+
+    // SKIP LOCKED lets concurrent checkouts for the same pool walk past each other instead of queueing on one row
+    public Optional<WarmNode> claimReadyNode(WarmPoolKey key) {
+        return selectOne("""
+            DELETE FROM warm_node_
+            WHERE id = (
+                SELECT id
+                FROM warm_node_
+                WHERE status = 'READY'
+                AND cloud_product = ?
+                AND hetzner_region = ?
+                ORDER BY created_at
+                LIMIT 1
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING
+            """ + WARM_NODE_COLUMNS,
+            this::mapWarmNode,
+            key.cloudProduct().toString(),
+            key.hetznerRegion().toString()
+        );
+    }
+
+    // each stale row is returned to exactly one replica, which then owns tearing down its resources
+    public List<WarmNode> deleteStaleProvisioningNodes(Duration provisionTimeout) {
+        return selectMany("""
+            DELETE FROM warm_node_
+            WHERE status = 'PROVISIONING'
+            AND created_at < NOW() - ? * INTERVAL '1 millisecond'
+            RETURNING
+            """ + WARM_NODE_COLUMNS,
+            this::mapWarmNode,
+            provisionTimeout.toMillis()
+        );
+    }
+
+    public int deleteWarmNode(Long id) {
+        return execute("DELETE FROM warm_node_ WHERE id = ?", id);
+    }
+
+    public int countPoolNodes(WarmPoolKey key) {
+        return selectOne("SELECT COUNT(*) AS total FROM warm_node_ WHERE cloud_product = ? AND hetzner_region = ?",
+            (rs, rowNum) -> rs.getInt("total"),
+            key.cloudProduct().toString(),
+            key.hetznerRegion().toString()
+        ).orElse(0);
+    }
+
+    public Map<WarmPoolKey, Integer> countReadyNodes() {
+        return selectMany("""
+            SELECT
+                cloud_product,
+                hetzner_region,
+                COUNT(*) AS total
+            FROM warm_node_
+            WHERE status = 'READY'
+            GROUP BY cloud_product, hetzner_region
+            """,
+            (rs, rowNum) -> Map.entry(mapPoolKey(rs), rs.getInt("total"))
+        ).stream().collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    public List<DnsARecord> selectAllARecords() {
+        return selectMany("""
+            SELECT
+                a_record_id,
+                zone_id,
+                zone_name,
+                record_name,
+                content
+            FROM warm_node_
+            WHERE a_record_id IS NOT NULL
+            """,
+            (rs, rowNum) -> new DnsARecord(
+                null,
+                rs.getString("a_record_id"),
+                rs.getString("zone_id"),
+                rs.getString("zone_name"),
+                rs.getString("record_name"),
+                rs.getString("content"))
+        );
+    }
+
+    // checkout history
+    public int insertCheckout(WarmPoolKey key, boolean hit) {
+        return execute("INSERT INTO warm_node_checkout_ (cloud_product, hetzner_region, hit) VALUES (?, ?, ?)",
+            key.cloudProduct().toString(),
+            key.hetznerRegion().toString(),
+            hit
+        );
+    }
+
+    public Map<WarmPoolKey, Integer> countCheckoutsSince(Duration window) {
+        return selectMany("""
+            SELECT
+                cloud_product,
+                hetzner_region,
+                COUNT(*) AS total
+            FROM warm_node_checkout_
+            WHERE checked_out_at >= NOW() - ? * INTERVAL '1 millisecond'
+            GROUP BY cloud_product, hetzner_region
+            """,
+            (rs, rowNum) -> Map.entry(mapPoolKey(rs), rs.getInt("total")),
+            window.toMillis()
+        ).stream().collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    public int deleteCheckoutsBefore(Duration age) {
+        return execute("DELETE FROM warm_node_checkout_ WHERE checked_out_at < NOW() - ? * INTERVAL '1 millisecond'",
+            age.toMillis());
+    }
+
+    // mappers
+    private WarmPoolKey mapPoolKey(ResultSet rs) throws SQLException {
+        return new WarmPoolKey(
+            HetznerCloudProduct.lookup(rs.getString("cloud_product")),
+            HetznerRegion.lookup(rs.getString("hetzner_region"))
+        );
+    }
+
+    private WarmNode mapWarmNode(ResultSet rs, int rowNum) throws SQLException {
+        return new WarmNode(
+            rs.getLong("id"),
+            HetznerCloudProduct.lookup(rs.getString("cloud_product")),
+            HetznerRegion.lookup(rs.getString("hetzner_region")),
+            WarmNode.Status.valueOf(rs.getString("status")),
+            rs.getObject("hetzner_node_id", Long.class),
+            rs.getString("a_record_id"),
+            rs.getString("zone_id"),
+            rs.getString("zone_name"),
+            rs.getString("record_name"),
+            rs.getString("content"),
+            rs.getObject("pterodactyl_node_id", Long.class),
+            rs.getTimestamp("created_at").toInstant()
+        );
+    }
+}
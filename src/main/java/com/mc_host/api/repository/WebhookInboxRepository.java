@@ -0,0 +1,118 @@
+package com.mc_host.api.repository;
+
+import com.mc_host.api.model.webhook.InboxEvent;
+import com.mc_host.api.model.webhook.WebhookSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@Service
+public class WebhookInboxRepository extends BaseRepository {
+
+    public WebhookInboxRepository(JdbcTemplate jdbc) { super(jdbc); }
+
+    // false when the provider redelivered an event the inbox already holds
+    public boolean append(InboxEvent event) {
+        return execute("""
+            INSERT INTO webhook_inbox_ (
+                source,
+                event_id,
+                event_type,
+                payload)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (source, event_id) DO NOTHING
+            """,
+            event.source().name(),
+            event.eventId(),
+            event.eventType(),
+            event.payload()
+        ) > 0;
+    }
+
+    public Optional<Instant> selectOldestPendingReceivedAt() {
+        return selectOne("""
+            SELECT received_at
+            FROM webhook_inbox_
+            WHERE processed_at IS NULL
+            ORDER BY id
+            LIMIT 1
+            """,
+            (rs, rowNum) -> rs.getTimestamp("received_at").toInstant()
+        );
+    }
+
+    // must run inside a transaction, the rows stay locked until it commits so replicas drain disjoint batches
+    public List<InboxEvent> claimPending(int limit) {
+        return selectMany("""
+            SELECT
+                id,
+                source,
+                event_id,
+                event_type,
+                payload,
+                received_at
+            FROM webhook_inbox_
+            WHERE processed_at IS NULL
+            ORDER BY id
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+            """,
+            this::mapInboxEvent,
+            limit
+        );
+    }
+
+    public int markProcessed(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return execute("""
+            UPDATE webhook_inbox_
+            SET processed_at = NOW()
+            WHERE id = ANY(?::bigint[])
+            """,
+            ids.stream().map(String::valueOf).collect(Collectors.joining(",", "{", "}"))
+        );
+    }
+
+    // failed rows are not retried, the periodic syncs catch up with whatever they described
+    public int markFailed(Long id, String errorMessage) {
+        return execute("""
+            UPDATE webhook_inbox_
+            SET processed_at = NOW(), error_message = ?
+            WHERE id = ?
+            """,
+            errorMessage,
+            id
+        );
+    }
+
+    public long countPending() {
+        return selectOne(
+            "SELECT COUNT(*) AS pending FROM webhook_inbox_ WHERE processed_at IS NULL",
+            (rs, rowNum) -> rs.getLong("pending")
+        ).orElse(0L);
+    }
+
+    public int deleteProcessedBefore(Instant before) {
+        return execute("DELETE FROM webhook_inbox_ WHERE processed_at < ?", Timestamp.from(before));
+    }
+
+    private InboxEvent mapInboxEvent(ResultSet rs, int rowNum) throws SQLException {
+        return new InboxEvent(
+            rs.getLong("id"),
+            WebhookSource.valueOf(rs.getString("source")),
+            rs.getString("event_id"),
+            rs.getString("event_type"),
+            rs.getString("payload"),
+            rs.getTimestamp("received_at").toInstant()
+        );
+    }
+}
@@ -66,6 +66,28 @@ public class ClerkEventProcessor {
         createUser(clerkId);
     }
 
+    // works from current state rather than the event type, so any mix of coalesced events for a user ends the same way
+    public void reconcileUser(String clerkId) {
+        if (userRepository.selectUser(clerkId).isPresent()) {
+            updateUser(clerkId);
+            return;
+        }
+
+        User user;
+        try {
+            user = getClerkUser(clerkId);
+        } catch (ResponseStatusException e) {
+            if (e.getStatusCode().value() == 404) {
+                LOGGER.info("User %s exists neither in clerk nor locally, nothing to sync.".formatted(clerkId));
+                return;
+            }
+            throw new RuntimeException("Clerk api error for user " + clerkId, e);
+        } catch (Exception e) {
+            throw new RuntimeException("Error syncing clerk user " + clerkId, e);
+        }
+        createUser(clerkId, user);
+    }
+
     private void updateUser(String clerkId) {
         User user = null;
         try {
@@ -101,8 +123,17 @@ public class ClerkEventProcessor {
     }
 
     private void createUser(String clerkId) {
+        User user;
+        try {
+            user = getClerkUser(clerkId);
+        } catch (Exception e) {
+            throw new RuntimeException("Error syncing clerk user " + clerkId, e);
+        }
+        createUser(clerkId, user);
+    }
+
+    private void createUser(String clerkId, User user) {
         try {
-            User user = getClerkUser(clerkId);
             String primaryEmail = getPrimaryEmail(user);
 
             String customerId = createNewStripeCustomer(clerkId, primaryEmail);
@@ -4,7 +4,10 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mc_host.api.configuration.ClerkConfiguration;
 import com.mc_host.api.controller.webhook.ClerkWebhookController;
-import com.mc_host.api.model.user.ClerkUserEvent;
+import com.mc_host.api.metrics.WebhookMetrics;
+import com.mc_host.api.model.webhook.InboxEvent;
+import com.mc_host.api.model.webhook.WebhookSource;
+import com.mc_host.api.service.webhook.WebhookInboxService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
@@ -13,45 +16,48 @@ import org.springframework.stereotype.Service;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.security.MessageDigest;
+import java.time.Duration;
 import java.util.Base64;
-import java.util.concurrent.Executor;
 import java.util.logging.Logger;
 
 @Service
 @RequiredArgsConstructor
 public class ClerkService implements ClerkWebhookController {
     private static final Logger LOGGER = Logger.getLogger(ClerkService.class.getName());
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
     private final ClerkConfiguration clerkConfiguration;
-    private final ClerkEventProcessor clerkEventProcessor;
-    private final Executor virtualThreadExecutor;
+    private final WebhookInboxService webhookInboxService;
+    private final WebhookMetrics webhookMetrics;
 
     @Override
     public ResponseEntity<String> handleClerkWebhook(String payload, String svixId, String svixTimestamp, String svixSignature) {
+        long start = System.nanoTime();
+        String outcome = "error";
         try {
             if(!verifySignature(payload, svixId, svixTimestamp, svixSignature)) {
+                outcome = "rejected";
                 return ResponseEntity.status(HttpStatusCode.valueOf(403)).build();
             }
 
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode event = mapper.readTree(payload);
+            JsonNode event = OBJECT_MAPPER.readTree(payload);
             String eventType = event.get("type").asText();
 
             if(!clerkConfiguration.isValidEventType(eventType)) {
                 LOGGER.info("Invalid clerk webhook type: " + eventType);
+                outcome = "ignored";
                 return ResponseEntity.ok().build();
             }
 
-            ClerkUserEvent clerkUserEvent = new ClerkUserEvent(
-                eventType,
-                event.get("data").get("id").asText()
-            );
-
-            virtualThreadExecutor.execute(() -> clerkEventProcessor.processEvent(clerkUserEvent));
-
+            // svix keeps the message id across retries, so a redelivery lands on the same inbox row
+            boolean appended = webhookInboxService.append(
+                InboxEvent.received(WebhookSource.CLERK, svixId, eventType, payload));
+            outcome = appended ? "appended" : "duplicate";
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.internalServerError().build();
+        } finally {
+            webhookMetrics.recordAck(WebhookSource.CLERK, outcome, Duration.ofNanos(System.nanoTime() - start));
         }
         
         LOGGER.info("Clerk webhook processed");
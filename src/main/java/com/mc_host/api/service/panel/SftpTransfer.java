@@ -0,0 +1,375 @@
+package com.mc_host.api.service.panel;
+
+import com.mc_host.api.configuration.TransferConfiguration;
+import com.mc_host.api.metrics.TransferMetrics;
+import net.schmizz.sshj.SSHClient;
+import net.schmizz.sshj.sftp.FileMode;
+import net.schmizz.sshj.sftp.OpenMode;
+import net.schmizz.sshj.sftp.RemoteFile;
+import net.schmizz.sshj.sftp.RemoteResourceInfo;
+import net.schmizz.sshj.sftp.Response;
+import net.schmizz.sshj.sftp.SFTPClient;
+import net.schmizz.sshj.sftp.SFTPException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * One migration run between two servers. A walker lists the tree on its own channel and hands
+ * files to workers, each holding a dedicated source/target channel pair, which pipe the remote
+ * read stream straight into the remote write stream.
+ */
+class SftpTransfer implements AutoCloseable {
+	private final static Logger LOGGER = Logger.getLogger(SftpTransfer.class.getName());
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final TransferConfiguration config;
+	private final TransferMetrics metrics;
+	private final SFTPClient sourceWalker;
+	private final SFTPClient targetWalker;
+	private final BlockingQueue<ChannelPair> channels;
+	private final Semaphore slots;
+	private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+	private final AtomicReference<Exception> failure = new AtomicReference<>();
+	private final List<SFTPClient> opened = new ArrayList<>();
+
+	private Progress progress;
+
+	SftpTransfer(SSHClient source, SSHClient target, TransferConfiguration config, TransferMetrics metrics) throws IOException {
+		this.config = config;
+		this.metrics = metrics;
+		this.channels = new ArrayBlockingQueue<>(config.getParallelism());
+		this.slots = new Semaphore(config.getParallelism());
+		try {
+			this.sourceWalker = track(source.newSFTPClient());
+			this.targetWalker = track(target.newSFTPClient());
+			for (int i = 0; i < config.getParallelism(); i++) {
+				channels.add(new ChannelPair(track(source.newSFTPClient()), track(target.newSFTPClient())));
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	// removes everything under root; individual failures are logged and skipped like the serial wipe did
+	void clearTarget(String root) throws IOException, InterruptedException {
+		start("clear");
+		var directories = new ArrayList<String>();
+		walk(targetWalker, root, (path, entry) -> directories.add(path), (path, entry) -> submit(path, pair -> {
+			try {
+				pair.target().rm(path);
+				progress.fileDone(0);
+			} catch (IOException e) {
+				LOGGER.warning("failed to remove %s: %s".formatted(path, e.getMessage()));
+			}
+		}));
+		awaitWorkers();
+
+		// children were pushed after their parents, so reverse order removes leaves first
+		for (int i = directories.size() - 1; i >= 0; i--) {
+			try {
+				targetWalker.rmdir(directories.get(i));
+			} catch (IOException e) {
+				LOGGER.warning("failed to remove %s: %s".formatted(directories.get(i), e.getMessage()));
+			}
+		}
+		finish();
+	}
+
+	// lists the source tree without copying anything; the manifest drives both the bulk copy and the delta
+	TransferManifest scan(String sourceRoot) throws IOException, InterruptedException {
+		start("scan");
+		var manifest = new TransferManifest();
+		walk(sourceWalker, sourceRoot,
+			(path, entry) -> manifest.put(path, true, entry.getAttributes()),
+			(path, entry) -> manifest.put(path, false, entry.getAttributes()));
+		LOGGER.info("sftp scan: %d files, %d bytes".formatted(manifest.fileCount(), manifest.totalBytes()));
+		finish();
+		return manifest;
+	}
+
+	void copyTree(TransferManifest manifest, String sourceRoot, String targetRoot) throws IOException, InterruptedException {
+		start("copy");
+		createDirectoryIfNotExists(targetWalker, targetRoot);
+		for (var path : manifest.directories()) {
+			createDirectoryIfNotExists(targetWalker, rebase(path, sourceRoot, targetRoot));
+		}
+		for (var path : manifest.files()) {
+			if (failure.get() != null) {
+				break;
+			}
+			var targetPath = rebase(path, sourceRoot, targetRoot);
+			submit(path, pair -> copyFile(pair, path, targetPath));
+		}
+		awaitWorkers();
+		throwIfFailed();
+		finish();
+	}
+
+	// copies only what changed since the manifest was taken and removes what disappeared from the source
+	void syncDelta(TransferManifest manifest, String sourceRoot, String targetRoot) throws IOException, InterruptedException {
+		start("delta");
+		var seen = new HashSet<String>();
+		var changed = new AtomicLong();
+		walk(sourceWalker, sourceRoot,
+			(path, entry) -> {
+				seen.add(path);
+				if (!manifest.containsDirectory(path)) {
+					createDirectoryIfNotExists(targetWalker, rebase(path, sourceRoot, targetRoot));
+				}
+			},
+			(path, entry) -> {
+				seen.add(path);
+				if (manifest.isUnchanged(path, entry.getAttributes())) {
+					return;
+				}
+				changed.incrementAndGet();
+				var targetPath = rebase(path, sourceRoot, targetRoot);
+				submit(path, pair -> copyFile(pair, path, targetPath));
+			});
+		awaitWorkers();
+		throwIfFailed();
+
+		var vanished = manifest.vanished(seen);
+		for (var path : vanished) {
+			var targetPath = rebase(path, sourceRoot, targetRoot);
+			try {
+				if (manifest.containsDirectory(path)) {
+					targetWalker.rmdir(targetPath);
+				} else {
+					targetWalker.rm(targetPath);
+				}
+			} catch (SFTPException e) {
+				if (e.getStatusCode() != Response.StatusCode.NO_SUCH_FILE) {
+					throw new IOException("failed to remove vanished entry " + targetPath, e);
+				}
+			} catch (IOException e) {
+				throw new IOException("failed to remove vanished entry " + targetPath, e);
+			}
+		}
+		LOGGER.info("sftp delta: %d of %d entries changed, %d removed".formatted(changed.get(), manifest.size(), vanished.size()));
+		finish();
+	}
+
+	private void copyFile(ChannelPair pair, String sourcePath, String targetPath) throws IOException {
+		RemoteFile in;
+		try {
+			in = pair.source().open(sourcePath, EnumSet.of(OpenMode.READ));
+		} catch (SFTPException e) {
+			if (e.getStatusCode() != Response.StatusCode.NO_SUCH_FILE) {
+				throw new IOException("file transfer failed for " + sourcePath, e);
+			}
+			// a running server deletes files between the scan and the copy, the delta pass reconciles them
+			LOGGER.fine("skipping %s, removed since the scan".formatted(sourcePath));
+			return;
+		}
+		try (in;
+			 var out = pair.target().open(targetPath, EnumSet.of(OpenMode.WRITE, OpenMode.CREAT, OpenMode.TRUNC));
+			 var input = in.new ReadAheadRemoteFileInputStream(config.getReadAheadRequests());
+			 var output = out.new RemoteFileOutputStream(0, config.getUnconfirmedWrites())) {
+			var buffer = new byte[BUFFER_SIZE];
+			long copied = 0;
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				output.write(buffer, 0, read);
+				copied += read;
+			}
+			progress.fileDone(copied);
+		} catch (IOException e) {
+			throw new IOException("file transfer failed for " + sourcePath, e);
+		}
+	}
+
+	private void walk(SFTPClient client, String path, DirectoryVisitor onDirectory, FileVisitor onFile)
+		throws IOException, InterruptedException {
+		for (var entry : client.ls(path)) {
+			if (failure.get() != null) {
+				return;
+			}
+
+			String filename = entry.getName();
+			if (".".equals(filename) || "..".equals(filename)) {
+				continue;
+			}
+
+			if (entry.getAttributes().getMode().getType().equals(FileMode.Type.SYMLINK)) {
+				LOGGER.finer("skipping symlink %s".formatted(filename));
+				continue;
+			}
+
+			String entryPath = buildPath(path, filename);
+			if (entry.isDirectory()) {
+				onDirectory.visit(entryPath, entry);
+				walk(client, entryPath, onDirectory, onFile);
+			} else {
+				onFile.visit(entryPath, entry);
+			}
+		}
+	}
+
+	private void submit(String path, SftpTask task) throws InterruptedException {
+		slots.acquire();
+		workers.execute(() -> {
+			ChannelPair pair = null;
+			try {
+				pair = channels.take();
+				task.run(pair);
+			} catch (Exception e) {
+				LOGGER.warning("failed to transfer %s: %s".formatted(path, e.getMessage()));
+				failure.compareAndSet(null, e);
+			} finally {
+				if (pair != null) {
+					channels.add(pair);
+				}
+				slots.release();
+			}
+		});
+	}
+
+	// every in-flight task holds a slot, so owning all of them means the pool is drained
+	private void awaitWorkers() throws InterruptedException {
+		slots.acquire(config.getParallelism());
+		slots.release(config.getParallelism());
+	}
+
+	private void createDirectoryIfNotExists(SFTPClient client, String path) throws IOException {
+		if (path.equals("/")) return; // root always exists
+
+		try {
+			client.stat(path);
+		} catch (Exception e) {
+			// directory doesn't exist, create parent first then this one
+			String parentPath = path.substring(0, path.lastIndexOf('/'));
+			if (!parentPath.isEmpty()) {
+				createDirectoryIfNotExists(client, parentPath);
+			}
+
+			try {
+				client.mkdir(path);
+				LOGGER.finer("created directory %s".formatted(path));
+			} catch (Exception ex) {
+				try {
+					client.stat(path);
+				} catch (Exception stillFails) {
+					throw new RuntimeException("failed to create directory " + path, ex);
+				}
+			}
+		}
+	}
+
+	private void throwIfFailed() {
+		var error = failure.get();
+		if (error != null) {
+			throw new RuntimeException("file transfer failed", error);
+		}
+	}
+
+	private void start(String phase) {
+		failure.set(null);
+		progress = new Progress(phase, System.nanoTime());
+	}
+
+	private void finish() {
+		progress.log();
+		var elapsed = Duration.ofNanos(System.nanoTime() - progress.startNanos);
+		metrics.recordPhase(progress.phase, elapsed);
+	}
+
+	private static String rebase(String path, String fromRoot, String toRoot) {
+		var relative = path.substring(fromRoot.length());
+		if (relative.startsWith("/")) {
+			relative = relative.substring(1);
+		}
+		return relative.isEmpty() ? toRoot : buildPath(toRoot, relative);
+	}
+
+	private static String buildPath(String parent, String child) {
+		if (parent.endsWith("/")) {
+			return parent + child;
+		}
+		return parent + "/" + child;
+	}
+
+	private SFTPClient track(SFTPClient client) {
+		opened.add(client);
+		return client;
+	}
+
+	@Override
+	public void close() {
+		workers.shutdownNow();
+		for (var client : opened) {
+			try {
+				client.close();
+			} catch (IOException e) {
+				LOGGER.fine("failed to close sftp channel: %s".formatted(e.getMessage()));
+			}
+		}
+	}
+
+	private class Progress {
+		private final String phase;
+		private final long startNanos;
+		private final LongAdder files = new LongAdder();
+		private final LongAdder bytes = new LongAdder();
+		private final AtomicLong lastLogNanos;
+
+		private Progress(String phase, long startNanos) {
+			this.phase = phase;
+			this.startNanos = startNanos;
+			this.lastLogNanos = new AtomicLong(startNanos);
+		}
+
+		private void fileDone(long copied) {
+			files.increment();
+			bytes.add(copied);
+			metrics.recordFiles(phase, 1);
+			metrics.recordBytes(phase, copied);
+
+			var now = System.nanoTime();
+			var last = lastLogNanos.get();
+			if (now - last >= Duration.ofMillis(config.getProgressLogIntervalMs()).toNanos()
+				&& lastLogNanos.compareAndSet(last, now)) {
+				log();
+			}
+		}
+
+		private void log() {
+			var seconds = Math.max(1e-3, (System.nanoTime() - startNanos) / 1e9);
+			var megabytes = bytes.sum() / (1024.0 * 1024.0);
+			LOGGER.info("sftp %s: %d files, %.1f MB in %.1fs (%.1f MB/s)".formatted(
+				phase, files.sum(), megabytes, seconds, megabytes / seconds));
+		}
+	}
+
+	private record ChannelPair(SFTPClient source, SFTPClient target) {}
+
+	@FunctionalInterface
+	private interface SftpTask {
+		void run(ChannelPair pair) throws IOException;
+	}
+
+	@FunctionalInterface
+	private interface DirectoryVisitor {
+		void visit(String path, RemoteResourceInfo entry) throws IOException;
+	}
+
+	@FunctionalInterface
+	private interface FileVisitor {
+		void visit(String path, RemoteResourceInfo entry) throws IOException, InterruptedException;
+	}
+}
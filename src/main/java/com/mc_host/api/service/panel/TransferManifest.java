@@ -0,0 +1,85 @@
+package com.mc_host.api.service.panel;
+
+import net.schmizz.sshj.sftp.FileAttributes;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Source tree as the pre-copy pass saw it, keyed by source path. The delta pass compares
+ * against it to find entries that changed or vanished while the server was still running.
+ * Only the walker thread touches it.
+ */
+class TransferManifest {
+	private final Map<String, Entry> entries = new HashMap<>();
+
+	void put(String path, boolean directory, FileAttributes attributes) {
+		entries.put(path, new Entry(directory, attributes.getSize(), attributes.getMtime()));
+	}
+
+	boolean containsDirectory(String path) {
+		var entry = entries.get(path);
+		return entry != null && entry.directory();
+	}
+
+	boolean isUnchanged(String path, FileAttributes attributes) {
+		var entry = entries.get(path);
+		return entry != null
+			&& !entry.directory()
+			&& entry.size() == attributes.getSize()
+			&& entry.mtime() == attributes.getMtime();
+	}
+
+	// files first, then directories deepest first, so every rmdir finds its directory already empty
+	List<String> vanished(Set<String> seen) {
+		return entries.entrySet().stream()
+			.filter(e -> !seen.contains(e.getKey()))
+			.sorted(Comparator.<Map.Entry<String, Entry>, Boolean>comparing(e -> e.getValue().directory())
+				.thenComparing(e -> e.getKey().length(), Comparator.reverseOrder()))
+			.map(Map.Entry::getKey)
+			.toList();
+	}
+
+	// sorted so every parent comes before its children
+	List<String> directories() {
+		return entries.entrySet().stream()
+			.filter(e -> e.getValue().directory())
+			.map(Map.Entry::getKey)
+			.sorted()
+			.toList();
+	}
+
+	List<String> files() {
+		return entries.entrySet().stream()
+			.filter(e -> !e.getValue().directory())
+			.map(Map.Entry::getKey)
+			.toList();
+	}
+
+	long fileCount() {
+		return entries.values().stream().filter(e -> !e.directory()).count();
+	}
+
+	long totalBytes() {
+		return entries.values().stream().filter(e -> !e.directory()).mapToLong(Entry::size).sum();
+	}
+
+	// names of the entries directly under root, which is what wings expects for a compress call
+	List<String> topLevelNames(String root) {
+		var prefix = root.endsWith("/") ? root : root + "/";
+		return entries.keySet().stream()
+			.filter(path -> path.startsWith(prefix) && path.indexOf('/', prefix.length()) == -1)
+			.map(path -> path.substring(prefix.length()))
+			.sorted()
+			.toList();
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	private record Entry(boolean directory, long size, long mtime) {}
+}
@@ -1,22 +1,26 @@
 package com.mc_host.api.service.panel;
 
+import com.mc_host.api.client.PterodactylUserClient;
 import com.mc_host.api.configuration.PterodactylConfiguration;
+import com.mc_host.api.configuration.TransferConfiguration;
+import com.mc_host.api.metrics.TransferMetrics;
 import com.mc_host.api.model.resource.pterodactyl.PterodactylAllocation;
 import com.mc_host.api.model.resource.pterodactyl.PterodactylServer;
+import com.mc_host.api.model.resource.pterodactyl.file.FileObject;
 import com.mc_host.api.repository.GameServerRepository;
 import com.mc_host.api.repository.NodeAccessoryRepository;
+import com.mc_host.api.service.resources.PterodactylService;
+import com.mc_host.api.service.resources.SshConnectionManager;
+import com.mc_host.api.util.ConditionAwaiter;
+import com.mc_host.api.util.PersistenceContext;
 import lombok.RequiredArgsConstructor;
-import net.schmizz.sshj.SSHClient;
-import net.schmizz.sshj.sftp.FileMode;
-import net.schmizz.sshj.sftp.SFTPClient;
-import net.schmizz.sshj.transport.verification.PromiscuousVerifier;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 @Service
@@ -27,169 +31,128 @@ public class TransferService {
 	private final PterodactylConfiguration pterodactylConfiguration;
 	private final GameServerRepository gameServerRepository;
 	private final NodeAccessoryRepository nodeAccessoryRepository;
+	private final TransferConfiguration transferConfiguration;
+	private final TransferMetrics transferMetrics;
+	private final PterodactylService pterodactylService;
+	private final PterodactylUserClient pterodactylUserClient;
+	private final SshConnectionManager sshConnectionManager;
+	private final ConditionAwaiter conditionAwaiter;
 
 	public void transferServerData(Long sourceServerId, Long targetServerId) throws Exception {
 		LOGGER.info("starting sshj sftp transfer from %s to %s".formatted(sourceServerId, targetServerId));
 
-		var sourceSftpDetails = getSftpDetails(sourceServerId);
-		var targetSftpDetails = getSftpDetails(targetServerId);
+		var sourceServer = selectServer(sourceServerId);
+		var sourceSftpDetails = getSftpDetails(sourceServer);
+		var targetServer = selectServer(targetServerId);
+		var targetSftpDetails = getSftpDetails(targetServer);
 
-		try (var sourceClient = createSshClient(sourceSftpDetails);
-			 var targetClient = createSshClient(targetSftpDetails);
-			 var sourceSftp = sourceClient.newSFTPClient();
-			 var targetSftp = targetClient.newSFTPClient()) {
+		try (var source = sshConnectionManager.acquire(sourceSftpDetails);
+			 var target = sshConnectionManager.acquire(targetSftpDetails);
+			 var transfer = new SftpTransfer(source.client(), target.client(), transferConfiguration, transferMetrics)) {
 
 			// clear target first
-			clearServerViaSftp(targetSftp, "/");
+			transfer.clearTarget("/");
+
+			// bulk copy, with the source still serving players when pre-copy is on
+			var manifest = transfer.scan("/");
+			var bulkStart = System.nanoTime();
+			if (useArchive(manifest)) {
+				transferViaArchive(sourceServer, targetServer, manifest);
+				transferMetrics.recordBulkCopy("archive", manifest.fileCount(), Duration.ofNanos(System.nanoTime() - bulkStart));
+			} else {
+				transfer.copyTree(manifest, "/", "/");
+				transferMetrics.recordBulkCopy("per_file", manifest.fileCount(), Duration.ofNanos(System.nanoTime() - bulkStart));
+			}
 
-			// transfer everything recursively
-			transferDirectoryRecursive(sourceSftp, targetSftp, "/", "/");
+			if (transferConfiguration.getPreCopy()) {
+				// downtime starts here and only covers what changed during the bulk copy
+				withSourceStopped(sourceServer.pterodactylServerUid(), () -> transfer.syncDelta(manifest, "/", "/"));
+			}
 
 			LOGGER.info("sshj sftp transfer completed successfully");
 		}
 	}
 
-	private SSHClient createSshClient(SftpDetails details) throws IOException, InterruptedException {
-		int retries = 0;
-		int delay = 500;
-		while (true) {
+	// the source keeps serving players until the stop, so a failure from there on starts it again
+	// before rethrowing, otherwise a transfer that ends up dead lettered leaves the live server down
+	void withSourceStopped(String sourceUid, PersistenceContext.ThrowingRunnable whileStopped) throws Exception {
+		try {
+			var stopStart = System.nanoTime();
+			pterodactylService.stopAndWaitForServer(sourceUid, Duration.ofMillis(transferConfiguration.getStopTimeoutMs()));
+			transferMetrics.recordPhase("stop", Duration.ofNanos(System.nanoTime() - stopStart));
+			whileStopped.run();
+		} catch (Exception e) {
 			try {
-				SSHClient client = new SSHClient();
-				client.addHostKeyVerifier(new PromiscuousVerifier());
-				client.connect(details.host, details.port);
-				client.authPassword(details.username, details.password);
-				return client;
-			} catch(Exception e) {
-				Thread.sleep(delay);
-				delay *= 1.2;
-				retries++;
-				if (retries >= 15) {
-					throw e;
-				}
+				pterodactylService.startServer(sourceUid);
+			} catch (Exception restartError) {
+				e.addSuppressed(restartError);
 			}
+			throw e;
 		}
 	}
 
-	private void transferDirectoryRecursive(SFTPClient source, SFTPClient target,
-											String sourcePath, String targetPath) throws IOException {
-		LOGGER.finer("transferring directory %s to %s".formatted(sourcePath, targetPath));
-
-		// ensure target directory exists
-		createDirectoryIfNotExists(target, targetPath);
-
-		var entries = source.ls(sourcePath);
-
-		for (var entry : entries) {
-			String filename = entry.getName();
-
-			if (".".equals(filename) || "..".equals(filename)) {
-				continue;
-			}
-
-			if (entry.getAttributes().getMode().getType().equals(FileMode.Type.SYMLINK)) {
-				LOGGER.finer("skipping symlink %s".formatted(filename));
-				continue;
-			}
-
-			String sourceFilePath = buildPath(sourcePath, filename);
-			String targetFilePath = buildPath(targetPath, filename);
-
-			if (entry.isDirectory()) {
-				transferDirectoryRecursive(source, target, sourceFilePath, targetFilePath);
-			} else {
-				LOGGER.finer("transferring file %s (%d bytes)".formatted(sourceFilePath, entry.getAttributes().getSize()));
-				try {
-					Path tempFile = Files.createTempFile("sftp-transfer-", ".tmp");
-					try {
-						source.get(sourceFilePath, tempFile.toString());
-						target.put(tempFile.toString(), targetFilePath);
-					} finally {
-						Files.deleteIfExists(tempFile);
-					}
-				} catch (Exception e) {
-					LOGGER.warning("failed to transfer file %s: %s".formatted(sourceFilePath, e.getMessage()));
-					throw new RuntimeException("file transfer failed for " + sourceFilePath, e);
-				}
-			}
-		}
+	// per-file sftp pays a round trip per file, which dominates for worlds made of many small files
+	private boolean useArchive(TransferManifest manifest) {
+		return transferConfiguration.getArchiveEnabled()
+			&& manifest.fileCount() >= transferConfiguration.getArchiveThresholdFiles();
 	}
 
-	private void createDirectoryIfNotExists(SFTPClient client, String path) throws IOException {
-		if (path.equals("/")) return; // root always exists
+	// compress on the source node, let the target node pull the archive straight from the source's
+	// signed download url, then unpack it there; the bytes never pass through this service
+	private void transferViaArchive(PterodactylServer source, PterodactylServer target, TransferManifest manifest) {
+		var sourceUid = source.pterodactylServerUid();
+		var targetUid = target.pterodactylServerUid();
+		LOGGER.info("transferring %d files from %s to %s as an archive".formatted(manifest.fileCount(), sourceUid, targetUid));
 
+		var archive = pterodactylUserClient.compressFiles(sourceUid, "/", manifest.topLevelNames("/")).attributes();
 		try {
-			client.stat(path);
-		} catch (Exception e) {
-			// directory doesn't exist, create parent first then this one
-			String parentPath = path.substring(0, path.lastIndexOf('/'));
-			if (!parentPath.isEmpty()) {
-				createDirectoryIfNotExists(client, parentPath);
-			}
-
-			try {
-				client.mkdir(path);
-				LOGGER.finer("created directory %s".formatted(path));
-			} catch (Exception ex) {
-				// might have been created by another thread, check if it exists now
-				try {
-					client.stat(path);
-				} catch (Exception stillFails) {
-					throw new RuntimeException("failed to create directory " + path, ex);
-				}
-			}
+			var downloadUrl = pterodactylUserClient.getFileDownloadLink(sourceUid, "/" + archive.name()).attributes().url();
+			pterodactylUserClient.pullFile(targetUid, downloadUrl, "/", archive.name());
+			awaitArchive(targetUid, archive.name(), archive.size());
+			pterodactylUserClient.decompressFile(targetUid, "/", archive.name());
+		} finally {
+			deleteArchive(sourceUid, archive.name());
+			deleteArchive(targetUid, archive.name());
 		}
 	}
 
-	private void clearServerViaSftp(SFTPClient client, String path) throws IOException {
-		LOGGER.fine("clearing server directory %s".formatted(path));
-
-		var entries = client.ls(path);
-
-		for (var entry : entries) {
-			String filename = entry.getName();
-
-			if (".".equals(filename) || "..".equals(filename)) {
-				continue;
-			}
-
-			if (entry.getAttributes().getMode().getType().equals(FileMode.Type.SYMLINK)) {
-				LOGGER.finer("skipping symlink %s".formatted(filename));
-				continue;
-			}
-
-			String filePath = buildPath(path, filename);
-
-			try {
-				if (entry.isDirectory()) {
-					// recursively clear and remove directory
-					clearServerViaSftp(client, filePath);
-					client.rmdir(filePath);
-					LOGGER.finer("removed directory %s".formatted(filePath));
-				} else {
-					// remove file
-					client.rm(filePath);
-					LOGGER.finer("removed file %s".formatted(filePath));
-				}
-			} catch (Exception e) {
-				LOGGER.warning("failed to remove %s: %s".formatted(filePath, e.getMessage()));
-				// continue with other files instead of failing completely
-			}
-		}
+	// the listed size can reach the expected size while the pull is still writing, so the archive only
+	// counts as landed once two polls in a row agree on a size at least as large as the source's
+	private void awaitArchive(String serverUid, String name, long expectedSize) {
+		var pollInterval = Duration.ofMillis(transferConfiguration.getArchivePollIntervalMs());
+		var lastSize = new AtomicLong(-1);
+		ConditionAwaiter.join(conditionAwaiter.await(
+			"transfer.archive.pulled",
+			new ConditionAwaiter.Backoff(pollInterval, pollInterval, 1.0),
+			pollInterval,
+			Duration.ofMillis(transferConfiguration.getArchivePullTimeoutMs()),
+			() -> pterodactylUserClient.listFiles(serverUid, "/").stream()
+				.map(FileObject::attributes)
+				.filter(file -> file.name().equals(name))
+				.map(file -> file.size())
+				.findFirst()
+				.filter(size -> size == lastSize.getAndSet(size) && size >= expectedSize)
+		));
 	}
 
-	private String buildPath(String parent, String child) {
-		if (parent.endsWith("/")) {
-			return parent + child;
+	// best effort, a leftover archive only wastes disk
+	private void deleteArchive(String serverUid, String name) {
+		try {
+			pterodactylUserClient.deleteFiles(serverUid, "/", List.of(name));
+		} catch (Exception e) {
+			LOGGER.warning("failed to delete archive %s on %s: %s".formatted(name, serverUid, e.getMessage()));
 		}
-		return parent + "/" + child;
 	}
 
-	private SftpDetails getSftpDetails(Long serverId) {
-		PterodactylServer server = gameServerRepository.selectPterodactylServer(serverId)
+	private PterodactylServer selectServer(Long serverId) {
+		return gameServerRepository.selectPterodactylServer(serverId)
 			.orElseThrow(() -> new ResponseStatusException(HttpStatusCode.valueOf(404), "Server %s not found".formatted(serverId)));
+	}
+
+	private SshConnectionManager.Target getSftpDetails(PterodactylServer server) {
 		PterodactylAllocation allocation = nodeAccessoryRepository.selectPterodactylAllocation(server.allocationId())
-			.orElseThrow(() -> new ResponseStatusException(HttpStatusCode.valueOf(404), "Allocation %s not found".formatted(serverId)));
-		return new SftpDetails(
+			.orElseThrow(() -> new ResponseStatusException(HttpStatusCode.valueOf(404), "Allocation %s not found".formatted(server.pterodactylServerId())));
+		return SshConnectionManager.Target.withPassword(
 			allocation.ip(),
 			2022,
 			"%s.%s".formatted(
@@ -199,6 +162,4 @@ public class TransferService {
 			pterodactylConfiguration.getAdminPassword()
 		);
 	}
-
-	private record SftpDetails(String host, int port, String username, String password) {}
 }
\ No newline at end of file
@@ -0,0 +1,127 @@
+package com.mc_host.api.service.panel.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mc_host.api.client.PterodactylUserClient;
+import com.mc_host.api.client.PterodactylUserClient.ServerStatus;
+import com.mc_host.api.configuration.PterodactylConfiguration;
+import com.mc_host.api.model.resource.pterodactyl.panel.WebsocketCredentials;
+import com.mc_host.api.model.resource.pterodactyl.panel.WebsocketEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Listens on the wings websocket of a server for a status event. Wings sends the current status right
+ * after auth and again on every power state change, so a start is seen the moment it happens instead of
+ * on the next /resources poll. The returned future only ever completes with a status; if the socket
+ * can't be opened or drops it stays pending and callers are expected to race it against a poll.
+ */
+@Component
+@RequiredArgsConstructor
+public class ServerStatusWatcher {
+    private static final Logger LOGGER = Logger.getLogger(ServerStatusWatcher.class.getName());
+    private static final String STATUS = "status";
+    private static final String TOKEN_EXPIRING = "token expiring";
+
+    private final PterodactylUserClient userClient;
+    private final PterodactylConfiguration pterodactylConfiguration;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // cancelling or completing the returned future closes the socket
+    public CompletableFuture<ServerStatus> watch(String serverUid, Set<ServerStatus> targets) {
+        var result = new CompletableFuture<ServerStatus>();
+        try {
+            WebsocketCredentials credentials = userClient.getWebsocketCredentials(serverUid).data();
+            WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+            headers.set("Origin", pterodactylConfiguration.getApiBase());
+
+            new StandardWebSocketClient()
+                .execute(new StatusHandler(serverUid, credentials.token(), targets, result), headers, URI.create(credentials.socket()))
+                .whenComplete((session, error) -> {
+                    if (error != null) {
+                        LOGGER.log(Level.WARNING, "[serverUid: %s] couldn't open wings websocket, relying on polling".formatted(serverUid), error);
+                        return;
+                    }
+                    result.whenComplete((status, ignored) -> closeQuietly(session));
+                });
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "[serverUid: %s] couldn't open wings websocket, relying on polling".formatted(serverUid), e);
+        }
+        return result;
+    }
+
+    private void sendAuthMessage(WebSocketSession session, String token) throws Exception {
+        Map<String, Object> authMessage = Map.of(
+            "event", "auth",
+            "args", new String[]{token}
+        );
+        session.sendMessage(new TextMessage(objectMapper.writeValueAsString(authMessage)));
+    }
+
+    private void closeQuietly(WebSocketSession session) {
+        try {
+            if (session.isOpen()) {
+                session.close(CloseStatus.NORMAL);
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "failed to close wings websocket", e);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private class StatusHandler extends TextWebSocketHandler {
+        private final String serverUid;
+        private final String token;
+        private final Set<ServerStatus> targets;
+        private final CompletableFuture<ServerStatus> result;
+
+        @Override
+        public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
+            if (result.isDone()) {
+                closeQuietly(session);
+                return;
+            }
+            sendAuthMessage(session, token);
+        }
+
+        @Override
+        protected void handleTextMessage(@NonNull WebSocketSession session, @NonNull TextMessage message) throws Exception {
+            WebsocketEvent websocketEvent;
+            try {
+                websocketEvent = objectMapper.readValue(message.getPayload(), WebsocketEvent.class);
+            } catch (Exception e) {
+                return;
+            }
+
+            if (TOKEN_EXPIRING.equals(websocketEvent.event())) {
+                sendAuthMessage(session, userClient.getWebsocketCredentials(serverUid).data().token());
+            } else if (STATUS.equals(websocketEvent.event()) && websocketEvent.args() != null && !websocketEvent.args().isEmpty()) {
+                var status = ServerStatus.valueOf(websocketEvent.args().get(0).toUpperCase());
+                LOGGER.fine("[serverUid: %s] wings reported status %s".formatted(serverUid, status));
+                if (targets.contains(status)) {
+                    result.complete(status);
+                }
+            }
+        }
+
+        @Override
+        public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus status) {
+            if (!result.isDone()) {
+                LOGGER.info("[serverUid: %s] wings websocket closed before status was reached: %s".formatted(serverUid, status));
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.mc_host.api.service.processor;
+
+import com.mc_host.api.model.queue.Job;
+import com.mc_host.api.model.queue.JobType;
+import com.mc_host.api.queue.processor.JobProcessor;
+import com.mc_host.api.service.clerk.ClerkEventProcessor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.logging.Logger;
+
+@Component
+@RequiredArgsConstructor
+public class ClerkUserSyncJobProcessor implements JobProcessor {
+	private static final Logger LOGGER = Logger.getLogger(ClerkUserSyncJobProcessor.class.getName());
+
+	private final ClerkEventProcessor clerkEventProcessor;
+
+	@Override
+	public JobType getJobType() {
+		return JobType.CLERK_USER_SYNC;
+	}
+
+	@Override
+	public void process(Job job) throws Exception {
+		LOGGER.info("Processing %s job: %s".formatted(getJobType(), job.jobId()));
+		clerkEventProcessor.reconcileUser(job.payload());
+		LOGGER.info("%s job completed for: %s".formatted(getJobType(), job.jobId()));
+	}
+}
@@ -4,6 +4,7 @@ import com.mc_host.api.model.plan.AcceptedCurrency;
 import com.mc_host.api.model.provisioning.Context;
 import com.mc_host.api.model.queue.Job;
 import com.mc_host.api.model.queue.JobType;
+import com.mc_host.api.model.stripe.StripeSyncResource;
 import com.mc_host.api.model.stripe.SubscriptionStatus;
 import com.mc_host.api.model.subscription.ContentSubscription;
 import com.mc_host.api.queue.JobScheduler;
@@ -11,13 +12,16 @@ import com.mc_host.api.queue.processor.JobProcessor;
 import com.mc_host.api.repository.ServerExecutionContextRepository;
 import com.mc_host.api.repository.SubscriptionRepository;
 import com.mc_host.api.service.FakerService;
+import com.mc_host.api.service.stripe.StripeChangeFeed;
 import com.mc_host.api.util.PersistenceContext;
+import com.mc_host.api.util.RowDiff;
 import com.stripe.exception.StripeException;
 import com.stripe.model.Subscription;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
 import java.time.Instant;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
@@ -33,6 +37,7 @@ public class CustomerSubscriptionSyncJobProcessor implements JobProcessor {
 	private final SubscriptionRepository subscriptionRepository;
 	private final ServerExecutionContextRepository serverExecutionContextRepository;
 	private final PersistenceContext persistenceContext;
+	private final StripeChangeFeed stripeChangeFeed;
 
 	@Override
 	public JobType getJobType() {
@@ -48,36 +53,55 @@ public class CustomerSubscriptionSyncJobProcessor implements JobProcessor {
 
 	public void process(String customerId) {
 		try {
-			List<ContentSubscription> stripeSubscriptions = Subscription.list(Map.of("customer", customerId, "status", "all")).getData().stream()
-				.map(subscription -> stripeSubscriptionToNewEntity(subscription, customerId)).toList();
+			var batch = stripeChangeFeed.open(customerId, StripeSyncResource.SUBSCRIPTION, Subscription.class);
+			List<Subscription> fetched = batch.isFull()
+				? Subscription.list(Map.of("customer", customerId, "status", "all")).getData()
+				: batch.objects();
 
-			stripeSubscriptions.forEach(subscription -> persistenceContext.inTransaction(() -> {
-				// update subscription details, and add an execution context if subscription is new
-				subscriptionRepository.upsertSubscription(subscription);
-				serverExecutionContextRepository.insertOrIgnoreSubscription(
-					Context.newIdle(
-						subscription.subscriptionId(),
-						"My New Server",
-						"A Minecraft Server"
-					)
-				);
-			}));
+			// the subdomain is ours, not stripe's, an existing subscription keeps the one it was given
+			List<ContentSubscription> stored = subscriptionRepository.selectSubscriptionsByCustomerId(customerId);
+			Map<String, String> subdomains = new HashMap<>();
+			stored.forEach(subscription -> subdomains.put(subscription.subscriptionId(), subscription.subdomain()));
+			List<ContentSubscription> stripeSubscriptions = fetched.stream()
+				.map(subscription -> stripeSubscriptionToEntity(subscription, customerId, subdomains.get(subscription.getId())))
+				.toList();
+			RowDiff<ContentSubscription> diff = RowDiff.of(stored, stripeSubscriptions, ContentSubscription::subscriptionId);
 
-			stripeSubscriptions
-				.stream()
-				.map(ContentSubscription::subscriptionId)
-				.forEach(jobScheduler::scheduleSubscriptionSync);
+			persistenceContext.inTransaction(() -> {
+				// add an execution context alongside a new subscription
+				diff.inserted().forEach(subscription -> {
+					subscriptionRepository.upsertSubscription(subscription);
+					serverExecutionContextRepository.insertOrIgnoreSubscription(
+						Context.newIdle(
+							subscription.subscriptionId(),
+							"My New Server",
+							"A Minecraft Server"
+						)
+					);
+				});
+				diff.updated().forEach(subscriptionRepository::upsertSubscription);
+				if (batch.isFull() || !diff.changed().isEmpty()) {
+					subscriptionRepository.updateUserCurrencyFromSubscription(customerId);
+				}
+				stripeChangeFeed.commit(batch, diff);
+			});
 
-			subscriptionRepository.updateUserCurrencyFromSubscription(customerId);
+			List<String> changedIds = diff.changed().stream()
+				.map(ContentSubscription::subscriptionId)
+				.toList();
+			if (!changedIds.isEmpty()) {
+				jobScheduler.scheduleSubscriptionSyncs(changedIds);
+			}
 
-			LOGGER.log(Level.FINE, "Executed subscription db sync for customer: " + customerId);
+			LOGGER.log(Level.FINE, "Executed %s subscription db sync for customer: %s, %d changed, %d unchanged"
+				.formatted(batch.mode(), customerId, changedIds.size(), diff.unchanged()));
 		} catch (StripeException e) {
 			LOGGER.log(Level.SEVERE, "Failed to sync subscription data for customer: " + customerId, e);
 			throw new RuntimeException("Failed to sync subscription data", e);
 		}
 	}
 
-	private ContentSubscription stripeSubscriptionToNewEntity(Subscription subscription, String customerId) {
+	private ContentSubscription stripeSubscriptionToEntity(Subscription subscription, String customerId, String subdomain) {
 		return new ContentSubscription(
 			subscription.getId(),
 			customerId,
@@ -87,7 +111,7 @@ public class CustomerSubscriptionSyncJobProcessor implements JobProcessor {
 			Instant.ofEpochMilli(subscription.getCurrentPeriodEnd()),
 			Instant.ofEpochMilli(subscription.getCurrentPeriodStart()),
 			subscription.getCancelAtPeriodEnd(),
-			fakerService.generateSubdomain()
+			subdomain != null ? subdomain : fakerService.generateSubdomain()
 		);
 	}
 }
@@ -4,13 +4,16 @@ import com.mc_host.api.model.plan.AcceptedCurrency;
 import com.mc_host.api.model.queue.Job;
 import com.mc_host.api.model.queue.JobType;
 import com.mc_host.api.model.stripe.CustomerInvoice;
+import com.mc_host.api.model.stripe.StripeSyncResource;
 import com.mc_host.api.queue.processor.JobProcessor;
 import com.mc_host.api.repository.InvoiceRepository;
+import com.mc_host.api.service.stripe.StripeChangeFeed;
+import com.mc_host.api.util.PersistenceContext;
+import com.mc_host.api.util.RowDiff;
 import com.stripe.model.Invoice;
 import com.stripe.param.InvoiceListParams;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.List;
@@ -22,6 +25,8 @@ public class InvoiceSyncJobProcessor implements JobProcessor {
 	private static final Logger LOGGER = Logger.getLogger(InvoiceSyncJobProcessor.class.getName());
 
 	private final InvoiceRepository invoiceRepository;
+	private final StripeChangeFeed stripeChangeFeed;
+	private final PersistenceContext persistenceContext;
 
 	@Override
 	public JobType getJobType() {
@@ -35,21 +40,30 @@ public class InvoiceSyncJobProcessor implements JobProcessor {
 		LOGGER.info("%s job completed for: %s".formatted(getJobType(), job.jobId()));
 	}
 
-	@Transactional
 	public void process(String customerId) {
 		try {
 			LOGGER.info("Syncing invoice data for customer: " + customerId);
 
-			InvoiceListParams invoiceListParams = InvoiceListParams.builder()
-				.setCustomer(customerId)
-				.build();
-			List<CustomerInvoice> stripeInvoices = Invoice.list(invoiceListParams).getData().stream()
+			var batch = stripeChangeFeed.open(customerId, StripeSyncResource.INVOICE, Invoice.class);
+			List<Invoice> fetched = batch.isFull()
+				? Invoice.list(InvoiceListParams.builder().setCustomer(customerId).build()).getData()
+				: batch.objects();
+			List<CustomerInvoice> stripeInvoices = fetched.stream()
 				.map(invoice -> stripeInvoiceToEntity(invoice))
 				.toList();
+			RowDiff<CustomerInvoice> diff = RowDiff.of(
+				invoiceRepository.selectInvoicesByCustomerId(customerId),
+				stripeInvoices,
+				CustomerInvoice::invoiceId
+			);
 
-			LOGGER.info("Found " + stripeInvoices.size() + " invoices for customer: " + customerId);
+			LOGGER.info("Found %d invoices for customer: %s in a %s sync, %d changed"
+				.formatted(stripeInvoices.size(), customerId, batch.mode(), diff.changed().size()));
 
-			stripeInvoices.forEach(invoiceRepository::insertInvoice);
+			persistenceContext.inTransaction(() -> {
+				diff.changed().forEach(invoiceRepository::insertInvoice);
+				stripeChangeFeed.commit(batch, diff);
+			});
 		} catch (Exception e) {
 			LOGGER.severe("Error syncing invoice data for customer " + customerId + ": " + e.getMessage());
 			throw new RuntimeException("Failed to sync invoice data", e);
@@ -2,19 +2,21 @@ package com.mc_host.api.service.processor;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mc_host.api.metrics.StripeSyncMetrics;
 import com.mc_host.api.model.queue.Job;
 import com.mc_host.api.model.queue.JobType;
 import com.mc_host.api.model.stripe.CustomerPaymentMethod;
 import com.mc_host.api.model.stripe.PaymentMethodType;
 import com.mc_host.api.queue.processor.JobProcessor;
 import com.mc_host.api.repository.PaymentMethodRepository;
+import com.mc_host.api.util.PersistenceContext;
+import com.mc_host.api.util.RowDiff;
 import com.stripe.model.Customer;
 import com.stripe.model.PaymentMethod;
 import com.stripe.param.CustomerUpdateParams;
 import com.stripe.param.PaymentMethodListParams;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.logging.Logger;
@@ -26,6 +28,8 @@ public class PaymentMethodSyncJobProcessor implements JobProcessor {
 
 	private final PaymentMethodRepository paymentMethodRepository;
 	private final ObjectMapper objectMapper;
+	private final PersistenceContext persistenceContext;
+	private final StripeSyncMetrics stripeSyncMetrics;
 
 	@Override
 	public JobType getJobType() {
@@ -39,7 +43,6 @@ public class PaymentMethodSyncJobProcessor implements JobProcessor {
 		LOGGER.info("%s job completed for: %s".formatted(getJobType(), job.jobId()));
 	}
 
-	@Transactional
 	public void process(String customerId) {
 		try {
 			LOGGER.info("Syncing payment method data for customer: " + customerId);
@@ -55,28 +58,33 @@ public class PaymentMethodSyncJobProcessor implements JobProcessor {
 				.build();
 
 			final String finalDefaultId = defaultPaymentMethodId;
-			List<CustomerPaymentMethod> paymentMethods = PaymentMethod.list(params).getData().stream()
+			List<CustomerPaymentMethod> fetched = PaymentMethod.list(params).getData().stream()
 				.map(pm -> stripePaymentMethodToEntity(pm, customerId, pm.getId().equals(finalDefaultId)))
 				.toList();
 
-			if (paymentMethods.size() == 1 && defaultPaymentMethodId == null) {
-				CustomerPaymentMethod paymentMethod = paymentMethods.getFirst().setDefault();
-				paymentMethodRepository.deletePaymentMethodsForCustomer(customerId);
-				paymentMethodRepository.upsertPaymentMethod(paymentMethod);
+			// a customer's only payment method becomes their default
+			boolean adoptDefault = fetched.size() == 1 && defaultPaymentMethodId == null;
+			List<CustomerPaymentMethod> paymentMethods = adoptDefault
+				? List.of(fetched.getFirst().setDefault())
+				: fetched;
 
+			RowDiff<CustomerPaymentMethod> diff = persistenceContext.inTransaction(status ->
+				paymentMethodRepository.reconcilePaymentMethods(customerId, paymentMethods));
+			stripeSyncMetrics.recordSync("payment_method", "full");
+			stripeSyncMetrics.recordRows("payment_method", diff);
+			LOGGER.info("Reconciled %d payment methods for customer: %s, %d inserted, %d updated, %d deleted"
+				.formatted(paymentMethods.size(), customerId, diff.inserted().size(), diff.updated().size(), diff.deleted().size()));
+
+			if (adoptDefault) {
 				CustomerUpdateParams setDefaultParams = CustomerUpdateParams.builder()
 					.setInvoiceSettings(
 						CustomerUpdateParams.InvoiceSettings.builder()
-							.setDefaultPaymentMethod(paymentMethod.paymentMethodId())
+							.setDefaultPaymentMethod(paymentMethods.getFirst().paymentMethodId())
 							.build())
 					.build();
 
 				Customer.retrieve(customerId).update(setDefaultParams);
-				return;
 			}
-
-			paymentMethodRepository.deletePaymentMethodsForCustomer(customerId);
-			paymentMethods.forEach(paymentMethodRepository::upsertPaymentMethod);
 		} catch (Exception e) {
 			LOGGER.severe("Error syncing payment method data for customer " + customerId + ": " + e.getMessage());
 			throw new RuntimeException("Failed to sync payment method data", e);
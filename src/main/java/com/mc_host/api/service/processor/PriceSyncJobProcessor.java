@@ -1,22 +1,21 @@
 package com.mc_host.api.service.processor;
 
+import com.mc_host.api.metrics.StripeSyncMetrics;
 import com.mc_host.api.model.plan.AcceptedCurrency;
 import com.mc_host.api.model.plan.ContentPrice;
-import com.mc_host.api.model.plan.PricePair;
 import com.mc_host.api.model.queue.Job;
 import com.mc_host.api.model.queue.JobType;
 import com.mc_host.api.queue.processor.JobProcessor;
 import com.mc_host.api.repository.PriceRepository;
-import com.mc_host.api.util.Task;
+import com.mc_host.api.util.PersistenceContext;
+import com.mc_host.api.util.RowDiff;
 import com.stripe.exception.StripeException;
 import com.stripe.model.Price;
 import com.stripe.param.PriceListParams;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -27,6 +26,8 @@ public class PriceSyncJobProcessor implements JobProcessor {
 	private static final Logger LOGGER = Logger.getLogger(PriceSyncJobProcessor.class.getName());
 
 	private final PriceRepository priceRepository;
+	private final PersistenceContext persistenceContext;
+	private final StripeSyncMetrics stripeSyncMetrics;
 
 	@Override
 	public JobType getJobType() {
@@ -49,48 +50,17 @@ public class PriceSyncJobProcessor implements JobProcessor {
 			List<ContentPrice> stripePrices = Price.list(priceListParams).getData().stream()
 				.map(price -> stripePriceToEntity(price, productId))
 				.toList();
-			List<ContentPrice> dbPrices = priceRepository.selectPricesByProductId(productId);
 
-			List<ContentPrice> pricesToDelete = dbPrices.stream()
-				.filter(dbPrice -> stripePrices.stream().noneMatch(dbPrice::isAlike))
-				.toList();
-			List<ContentPrice> pricesToCreate = stripePrices.stream()
-				.filter(stripePrice -> dbPrices.stream().noneMatch(stripePrice::isAlike))
-				.toList();
-			List<PricePair> pricesToUpdate = dbPrices.stream()
-				.flatMap(dbPrice -> stripePrices.stream()
-					.filter(dbPrice::isAlike)
-					.map(stripeSubscription -> new PricePair(dbPrice, stripeSubscription)))
-				.toList();
-
-			List<CompletableFuture<Void>> deleteTasks = pricesToDelete.stream()
-				.map(price -> Task.alwaysAttempt(
-					"Delete price " + price.priceId(),
-					() -> priceRepository.deleteProductPrice(price.priceId(), productId)
-				)).toList();
-
-			List<CompletableFuture<Void>> createTasks = pricesToCreate.stream()
-				.map(price -> Task.alwaysAttempt(
-					"Create price " + price.priceId(),
-					() -> priceRepository.insertPrice(price)
-				)).toList();
-
-			List<CompletableFuture<Void>> updateTasks = pricesToUpdate.stream()
-				.map(pricePair -> Task.alwaysAttempt(
-					"Update price " + pricePair.getOldPrice().priceId(),
-					() -> priceRepository.insertPrice(pricePair.getNewPrice())
-				)).toList();
-
-			List<CompletableFuture<Void>> allTasks = new ArrayList<>();
-			allTasks.addAll(deleteTasks);
-			allTasks.addAll(createTasks);
-			allTasks.addAll(updateTasks);
-			Task.awaitCompletion(allTasks);
+			RowDiff<ContentPrice> diff = persistenceContext.inTransaction(status ->
+				priceRepository.reconcileProductPrices(productId, stripePrices));
+			stripeSyncMetrics.recordSync("price", "full");
+			stripeSyncMetrics.recordRows("price", diff);
 
-			LOGGER.log(Level.INFO, "Executed price db sync for product: " + productId);
+			LOGGER.log(Level.INFO, "Executed price db sync for product: %s, %d inserted, %d updated, %d deleted, %d unchanged"
+				.formatted(productId, diff.inserted().size(), diff.updated().size(), diff.deleted().size(), diff.unchanged()));
 		} catch (StripeException e) {
 			LOGGER.log(Level.SEVERE, "Failed to sync price data for product: " + productId, e);
-			throw new RuntimeException("Failed to sync subscription data", e);
+			throw new RuntimeException("Failed to sync price data", e);
 		}
 	}
 
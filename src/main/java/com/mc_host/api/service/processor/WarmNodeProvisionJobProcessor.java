@@ -0,0 +1,31 @@
+package com.mc_host.api.service.processor;
+
+import com.mc_host.api.model.queue.Job;
+import com.mc_host.api.model.queue.JobType;
+import com.mc_host.api.model.resource.hetzner.node.WarmPoolKey;
+import com.mc_host.api.queue.processor.JobProcessor;
+import com.mc_host.api.service.resources.WarmNodePoolService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.logging.Logger;
+
+@Component
+@RequiredArgsConstructor
+public class WarmNodeProvisionJobProcessor implements JobProcessor {
+	private static final Logger LOGGER = Logger.getLogger(WarmNodeProvisionJobProcessor.class.getName());
+
+	private final WarmNodePoolService warmNodePoolService;
+
+	@Override
+	public JobType getJobType() {
+		return JobType.WARM_NODE_PROVISION;
+	}
+
+	@Override
+	public void process(Job job) throws Exception {
+		LOGGER.info("Processing %s job: %s".formatted(getJobType(), job.jobId()));
+		warmNodePoolService.provision(WarmPoolKey.fromPayload(job.payload()));
+		LOGGER.info("%s job completed for: %s".formatted(getJobType(), job.jobId()));
+	}
+}
@@ -1,16 +1,29 @@
 package com.mc_host.api.service.provisioning;
 
+import com.mc_host.api.configuration.ProvisioningConfiguration;
+import com.mc_host.api.metrics.ProvisioningMetrics;
 import com.mc_host.api.model.provisioning.Context;
 import com.mc_host.api.model.provisioning.Status;
+import com.mc_host.api.model.provisioning.StepExecution;
 import com.mc_host.api.model.provisioning.StepTransition;
 import com.mc_host.api.model.provisioning.StepType;
 import com.mc_host.api.service.provisioning.steps.Step;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -19,15 +32,27 @@ public class ServerExecutor {
     private static final Logger LOGGER = Logger.getLogger(ServerExecutor.class.getName());
 
     private final Map<StepType, Step> steps;
+    private final TransitionService transitionService;
+    private final ProvisioningConfiguration provisioningConfiguration;
+    private final ProvisioningMetrics provisioningMetrics;
+    private final StepHistoryService stepHistoryService;
 
     public ServerExecutor(
-        List<Step> allSteps
+        List<Step> allSteps,
+        TransitionService transitionService,
+        ProvisioningConfiguration provisioningConfiguration,
+        ProvisioningMetrics provisioningMetrics,
+        StepHistoryService stepHistoryService
     ) {
         this.steps = allSteps.stream()
             .collect(Collectors.toMap(
-                Step::getType, 
+                Step::getType,
                 Function.identity()
             ));
+        this.transitionService = transitionService;
+        this.provisioningConfiguration = provisioningConfiguration;
+        this.provisioningMetrics = provisioningMetrics;
+        this.stepHistoryService = stepHistoryService;
     }
 
     private Step supply(StepType stepType) {
@@ -38,12 +63,128 @@ public class ServerExecutor {
     public void execute(Context context) {
         LOGGER.info(String.format("Starting execution for subscription: %s", context.getSubscriptionId()));
 
-        StepTransition transition = new StepTransition(context, context.getStepType());
-        while (!transition.context().getStatus().equals(Status.COMPLETED)) {
-            transition = supply(transition.toStep()).execute(transition.context());
-        }
+        new Execution(context).run();
 
         LOGGER.info(String.format("Execution completed for subscription: %s", context.getSubscriptionId()));
     }
-    
+
+    /**
+     * One walk of the chain. Detached steps from the StepGraph are started on virtual threads once they
+     * are ready and collected when the chain reaches them; the chain then carries on from wherever the
+     * detached step routed to. All writes go through one ledger so the row always holds every step's ids.
+     */
+    private final class Execution {
+        private final Context initial;
+        private final TransitionService.Ledger ledger;
+        private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        private final Map<StepType, CompletableFuture<StepTransition>> ahead = new EnumMap<>(StepType.class);
+        private final Set<StepType> started = EnumSet.noneOf(StepType.class);
+
+        private Execution(Context initial) {
+            this.initial = initial;
+            this.ledger = transitionService.ledger(initial);
+        }
+
+        private void run() {
+            var start = System.nanoTime();
+            var outcome = "failure";
+            try {
+                StepTransition transition = new StepTransition(initial, initial.getStepType());
+                while (!transition.context().getStatus().equals(Status.COMPLETED)) {
+                    startReadySteps();
+                    transition = advance(transition.toStep());
+                }
+                outcome = "success";
+            } finally {
+                // the job only lets go of the subscription once nothing is touching its row or resources
+                awaitAhead();
+                executor.shutdown();
+                provisioningMetrics.recordExecution(initial.getMode(), outcome, Duration.ofNanos(System.nanoTime() - start));
+            }
+        }
+
+        private void startReadySteps() {
+            var chain = ledger.current();
+            for (StepGraph.Detached detached : StepGraph.DETACHED) {
+                if (started.contains(detached.step()) || !detached.isReady(chain) || inFlight() >= provisioningConfiguration.getParallelism()) {
+                    continue;
+                }
+                started.add(detached.step());
+                LOGGER.info("Starting step: %s ahead of the chain at: %s for subscription: %s"
+                    .formatted(detached.step(), chain.getStepType(), chain.getSubscriptionId()));
+                ahead.put(detached.step(), CompletableFuture.supplyAsync(() -> runStep(detached.step(), chain, true), executor));
+            }
+        }
+
+        private StepTransition advance(StepType step) {
+            var detached = ahead.remove(step);
+            if (detached == null) {
+                return runStep(step, ledger.current(), false);
+            }
+
+            var waitStart = System.nanoTime();
+            StepTransition collected;
+            try {
+                collected = detached.join();
+            } catch (CompletionException e) {
+                // the chain fails at the step as if it had run it itself, so a retry starts from there
+                var chain = ledger.current();
+                transitionService.within(ledger, chain, false, () -> {
+                    transitionService.persist(chain.failed());
+                    return null;
+                });
+                throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+            }
+            provisioningMetrics.recordJoinWait(step, ledger.current().getMode(), Duration.ofNanos(System.nanoTime() - waitStart));
+
+            var chain = ledger.current();
+            return transitionService.within(ledger, chain, false, () -> transitionService.persistAndProgress(chain, collected.toStep()));
+        }
+
+        private StepTransition runStep(StepType step, Context context, boolean detached) {
+            var startedAt = Instant.now();
+            var start = System.nanoTime();
+            var outcome = StepExecution.Outcome.FAILURE;
+            Throwable error = null;
+            try {
+                var transition = transitionService.within(ledger, context, detached, () -> supply(step).execute(context));
+                outcome = StepExecution.Outcome.SUCCESS;
+                return transition;
+            } catch (RuntimeException e) {
+                error = e;
+                throw e;
+            } finally {
+                stepHistoryService.record(new StepExecution(
+                    context.getSubscriptionId(),
+                    step,
+                    context.getMode(),
+                    detached ? StepExecution.Lane.AHEAD : StepExecution.Lane.CHAIN,
+                    outcome,
+                    StepHistoryService.errorMessage(error),
+                    startedAt,
+                    Duration.ofNanos(System.nanoTime() - start)
+                ));
+            }
+        }
+
+        private long inFlight() {
+            return ahead.values().stream()
+                .filter(future -> !future.isDone())
+                .count();
+        }
+
+        private void awaitAhead() {
+            ahead.forEach((step, future) -> {
+                try {
+                    future.join();
+                    LOGGER.warning("Step: %s ran ahead but the chain never reached it for subscription: %s"
+                        .formatted(step, initial.getSubscriptionId()));
+                } catch (Exception e) {
+                    LOGGER.log(Level.WARNING, "Step: %s failed ahead of the chain for subscription: %s"
+                        .formatted(step, initial.getSubscriptionId()), e);
+                }
+            });
+            ahead.clear();
+        }
+    }
 }
@@ -0,0 +1,44 @@
+package com.mc_host.api.service.provisioning;
+
+import com.mc_host.api.model.provisioning.Context;
+import com.mc_host.api.model.provisioning.Mode;
+import com.mc_host.api.model.provisioning.StepType;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Which steps don't need everything the chain does before them. Each step still routes to the next one
+ * itself; a detached step is only started early, as soon as the step it depends on is behind the chain,
+ * and the chain collects its transition when it gets to it. Create chains only ever move forward through
+ * StepType, which is what makes "behind the chain" an ordinal comparison.
+ */
+public final class StepGraph {
+
+    public static final List<Detached> DETACHED = List.of(
+        // needs the node's A record and nothing about the pterodactyl node or server
+        new Detached(StepType.C_NAME_RECORD, StepType.NODE_A_RECORD, Set.of(Mode.CREATE)),
+        // the subuser step between them only talks to the panel, migrations decide on a data transfer there first
+        new Detached(StepType.START_SERVER, StepType.INSTALL_SERVER, Set.of(Mode.CREATE))
+    );
+
+    private StepGraph() {}
+
+    public static Optional<Detached> detached(StepType step) {
+        return DETACHED.stream()
+            .filter(detached -> detached.step() == step)
+            .findFirst();
+    }
+
+    public record Detached(StepType step, StepType dependsOn, Set<Mode> modes) {
+
+        // dependency done and the chain not yet at the step, at the step the chain just runs it itself
+        public boolean isReady(Context chain) {
+            var position = chain.getStepType().ordinal();
+            return modes.contains(chain.getMode())
+                && position > dependsOn.ordinal()
+                && position < step.ordinal();
+        }
+    }
+}
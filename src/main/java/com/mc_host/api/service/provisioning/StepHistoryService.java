@@ -0,0 +1,81 @@
+package com.mc_host.api.service.provisioning;
+
+import com.mc_host.api.configuration.ProvisioningConfiguration;
+import com.mc_host.api.metrics.ProvisioningMetrics;
+import com.mc_host.api.model.provisioning.Mode;
+import com.mc_host.api.model.provisioning.ProvisioningReport;
+import com.mc_host.api.model.provisioning.StepExecution;
+import com.mc_host.api.model.provisioning.StepType;
+import com.mc_host.api.repository.ServerExecutionStepRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@Service
+public class StepHistoryService {
+    private static final Logger LOGGER = Logger.getLogger(StepHistoryService.class.getName());
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final ServerExecutionStepRepository stepRepository;
+    private final ProvisioningMetrics provisioningMetrics;
+    private final ProvisioningConfiguration provisioningConfiguration;
+
+    public StepHistoryService(
+        ServerExecutionStepRepository stepRepository,
+        ProvisioningMetrics provisioningMetrics,
+        ProvisioningConfiguration provisioningConfiguration
+    ) {
+        this.stepRepository = stepRepository;
+        this.provisioningMetrics = provisioningMetrics;
+        this.provisioningConfiguration = provisioningConfiguration;
+    }
+
+    // history is for looking back, a failed write must never fail the step it describes
+    public void record(StepExecution execution) {
+        provisioningMetrics.recordStep(execution);
+        try {
+            stepRepository.insertStepExecution(execution);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "failed to record %s execution for subscription %s"
+                .formatted(execution.stepType(), execution.subscriptionId()), e);
+        }
+    }
+
+    public ProvisioningReport report(Duration window, StepType stepType, Mode mode, int limit) {
+        var since = Instant.now().minus(window);
+        return new ProvisioningReport(
+            since,
+            stepRepository.selectStatisticsSince(since, mode),
+            stepRepository.selectSlowestSince(since, stepType, mode, limit)
+        );
+    }
+
+    @Scheduled(fixedDelayString = "${provisioning.history-prune-interval-ms:3600000}")
+    public void pruneHistory() {
+        try {
+            var deleted = stepRepository.deleteStepExecutionsBefore(Instant.now().minus(provisioningConfiguration.historyRetention()));
+            if (deleted > 0) {
+                LOGGER.info("pruned %d provisioning step executions".formatted(deleted));
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "failed to prune provisioning step history", e);
+        }
+    }
+
+    // the step wrappers add the step name around the real failure, keep the innermost message
+    static String errorMessage(Throwable error) {
+        if (error == null) {
+            return null;
+        }
+        Throwable root = error;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        var message = root.getClass().getSimpleName() + ": " + root.getMessage();
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
@@ -6,6 +6,7 @@ import com.mc_host.api.model.provisioning.StepType;
 import com.mc_host.api.repository.ServerExecutionContextRepository;
 import org.springframework.stereotype.Service;
 
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 @Service
@@ -13,26 +14,83 @@ public class TransitionService {
     private static final Logger LOGGER = Logger.getLogger(TransitionService.class.getName());
 
     private final ServerExecutionContextRepository repository;
+    // set by the executor around each step, so steps keep persisting the way they always have
+    private final ThreadLocal<Scope> scope = new ThreadLocal<>();
 
     public TransitionService(
         ServerExecutionContextRepository repository
     ) {
         this.repository = repository;
     }
-    
+
     public StepTransition persistAndProgress(Context context, StepType toStep) {
         var transition = new StepTransition(
             context.transitionTo(toStep),
             toStep
         );
-        repository.upsertSubscription(transition.context());
+        persist(transition.context());
         return transition;
     }
-    
+
     public StepTransition persistAndComplete(Context context) {
         Context completed = context.completed();
-        repository.upsertSubscription(completed);
+        persist(completed);
         LOGGER.info(String.format("Finished executing at step: %s for subscription: %s, mode: %s", context.getStepType(), context.getSubscriptionId(), context.getMode()));
         return new StepTransition(completed, context.getStepType());
     }
+
+    public void persist(Context context) {
+        var current = scope.get();
+        if (current == null) {
+            repository.upsertSubscription(context);
+            return;
+        }
+        // a step running ahead of the chain owns its resource ids, never the chain's position or status
+        var after = current.ahead()
+            ? context.withStepType(current.before().getStepType()).withStatus(current.before().getStatus())
+            : context;
+        current.ledger().record(current.before(), after);
+    }
+
+    public Ledger ledger(Context context) {
+        return new Ledger(context);
+    }
+
+    // ahead: the step was started before the chain reached it and shares the row with whatever the chain is doing
+    public <T> T within(Ledger ledger, Context before, boolean ahead, Supplier<T> work) {
+        var previous = scope.get();
+        scope.set(new Scope(ledger, before, ahead));
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                scope.remove();
+            } else {
+                scope.set(previous);
+            }
+        }
+    }
+
+    private record Scope(Ledger ledger, Context before, boolean ahead) {}
+
+    /**
+     * The latest context of one execution. Every write merges only what that step changed into it and
+     * upserts the result, so steps running side by side don't overwrite each other's resource ids.
+     */
+    public final class Ledger {
+        private Context current;
+
+        private Ledger(Context context) {
+            this.current = context;
+        }
+
+        public synchronized Context current() {
+            return current;
+        }
+
+        private synchronized void record(Context before, Context after) {
+            current = current.mergeChanges(before, after);
+            repository.upsertSubscription(current);
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package com.mc_host.api.service.provisioning.steps;
 
 import com.mc_host.api.model.plan.ServerSpecification;
+import com.mc_host.api.model.resource.dns.DnsARecord;
 import com.mc_host.api.model.provisioning.Context;
 import com.mc_host.api.model.provisioning.StepTransition;
 import com.mc_host.api.model.provisioning.StepType;
@@ -9,19 +10,26 @@ import com.mc_host.api.model.resource.hetzner.HetznerRegion;
 import com.mc_host.api.model.resource.hetzner.node.HetznerClaim;
 import com.mc_host.api.model.resource.hetzner.node.HetznerCloudNode;
 import com.mc_host.api.model.resource.hetzner.node.HetznerNode;
+import com.mc_host.api.model.resource.hetzner.node.WarmNode;
+import com.mc_host.api.model.resource.hetzner.node.WarmPoolKey;
+import com.mc_host.api.model.resource.pterodactyl.PterodactylNode;
 import com.mc_host.api.model.subscription.ContentSubscription;
 import com.mc_host.api.repository.GameServerSpecRepository;
+import com.mc_host.api.repository.NodeAccessoryRepository;
 import com.mc_host.api.repository.NodeRepository;
 import com.mc_host.api.repository.PlanRepository;
 import com.mc_host.api.repository.SubscriptionRepository;
+import com.mc_host.api.service.resources.CloudNodeAllocator;
 import com.mc_host.api.service.resources.HetznerService;
+import com.mc_host.api.service.resources.WarmNodePoolService;
+import com.mc_host.api.util.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.logging.Level;
+import java.util.Optional;
 import java.util.stream.Stream;
 
 @Service
@@ -32,7 +40,11 @@ public class AllocateCloudNodeStep extends AbstractStep {
     private final GameServerSpecRepository gameServerSpecRepository;
     private final PlanRepository planRepository;
     private final NodeRepository nodeRepository;
+    private final NodeAccessoryRepository nodeAccessoryRepository;
     private final HetznerService hetznerService;
+    private final CloudNodeAllocator cloudNodeAllocator;
+    private final WarmNodePoolService warmNodePoolService;
+    private final PersistenceContext persistenceContext;
 
     @Override
     public StepType getType() {
@@ -40,7 +52,6 @@ public class AllocateCloudNodeStep extends AbstractStep {
     }
 
     @Override
-    @Transactional
     public StepTransition create(Context context) {
         //Skip for dedicated resources
         //Cloud nodes havent been created yet
@@ -60,7 +71,7 @@ public class AllocateCloudNodeStep extends AbstractStep {
             .orElseThrow(() -> new IllegalStateException(String.format("No specification could be found for price: %s", priceId)));
 
         //Sometimes hetzner api 412s
-        //We try all equivalent available resources to try and avoid this
+        //We try all equivalent available resources to try and avoid this, in parallel when racing is on
         List<Pair<HetznerRegion, HetznerCloudProduct>> regionProductMatrix = Stream.of(HetznerRegion.values())
             .flatMap(region -> Stream.of(HetznerCloudProduct.values())
                 .filter(product -> product.getSpecificationId().equals(specificationId))
@@ -68,31 +79,26 @@ public class AllocateCloudNodeStep extends AbstractStep {
             )
             .toList();
 
-        HetznerCloudNode hetznerCloudNode = null;
-        for (Pair<HetznerRegion, HetznerCloudProduct> regionProductPair : regionProductMatrix) {
-            try {
-                hetznerCloudNode = hetznerService.createCloudNode(
-                    context.getSubscriptionId(),
-                    regionProductPair.getRight(),
-                    regionProductPair.getLeft());
-                break;
-            } catch (Exception e) {
-                LOGGER.log(
-                    Level.SEVERE,
-                    "Error provisioning hetzner cloud node for subscription %s".formatted(context.getSubscriptionId()),
-                    e
-                );
-            }
-        }
-
-        if (hetznerCloudNode == null) {
-            throw new RuntimeException("FATAL: Error provisioning hetzner cloud node for subscription %s".formatted(context.getSubscriptionId()));
-        }
-
         Long specRam = gameServerSpecRepository.selectSpecification(specificationId)
             .map(ServerSpecification::ram_gb)
             .map(Long::valueOf)
             .orElseThrow(() -> new IllegalStateException(String.format("No specification could be found for price: %s", priceId)));
+
+        //A warm node already has its a record, pterodactyl node and wings, so those steps are skipped
+        //The executor calls create through execute on this same bean, so @Transactional would never apply here.
+        //Taking the warm row and writing its claim, a record and pterodactyl node commit or roll back together.
+        List<WarmPoolKey> warmPoolKeys = regionProductMatrix.stream()
+            .map(pair -> new WarmPoolKey(pair.getRight(), pair.getLeft()))
+            .toList();
+        Optional<StepTransition> warmTransition = persistenceContext.inTransaction(status ->
+            warmNodePoolService.claim(context.getSubscriptionId(), warmPoolKeys)
+                .map(warmNode -> claimWarmNode(context, warmNode, specRam)));
+        if (warmTransition.isPresent()) {
+            return warmTransition.get();
+        }
+
+        HetznerCloudNode hetznerCloudNode = cloudNodeAllocator.allocate(context.getSubscriptionId(), regionProductMatrix);
+        warmNodePoolService.recordMiss(new WarmPoolKey(hetznerCloudNode.cloudProduct(), hetznerCloudNode.hetznerRegion()));
         nodeRepository.insertCloudNode(hetznerCloudNode);
         nodeRepository.insertClaim(new HetznerClaim(
             context.getSubscriptionId(),
@@ -104,6 +110,24 @@ public class AllocateCloudNodeStep extends AbstractStep {
         return transitionService.persistAndProgress(transitionedContext, StepType.NODE_A_RECORD);
     }
 
+    private StepTransition claimWarmNode(Context context, WarmNode warmNode, Long specRam) {
+        nodeRepository.insertClaim(new HetznerClaim(
+            context.getSubscriptionId(),
+            warmNode.hetznerNodeId(),
+            specRam
+        ));
+        DnsARecord dnsARecord = warmNode.dnsARecord(context.getSubscriptionId());
+        nodeAccessoryRepository.insertDnsARecord(dnsARecord);
+        nodeAccessoryRepository.insertPterodactylNode(new PterodactylNode(context.getSubscriptionId(), warmNode.pterodactylNodeId()));
+
+        Context transitionedContext = context
+            .withNewNodeId(warmNode.hetznerNodeId())
+            .withNewARecordId(dnsARecord.aRecordId())
+            .withNewPterodactylNodeId(warmNode.pterodactylNodeId());
+
+        return transitionService.persistAndProgress(transitionedContext, StepType.CREATE_PTERODACTYL_ALLOCATION);
+    }
+
     @Override
     @Transactional
     public StepTransition destroy(Context context) {
@@ -40,15 +40,19 @@ public class CNameRecordStep extends AbstractStep {
             return transitionService.persistAndProgress(context, StepType.SYNC_NODE_ROUTE);
         }
 
-        DnsARecord dnsARecord = nodeAccessoryRepository.selectDnsARecord(context.getNewARecordId())
-            .orElseThrow(() -> new IllegalStateException("DNS A record not found: " + context.getNewARecordId()));
-        String subdomain = subscriptionRepository.selectSubscription(context.getSubscriptionId())
-            .map(ContentSubscription::subdomain)
-            .orElseThrow(() -> new IllegalStateException("Subscription not found: " + context.getSubscriptionId()));
-        DnsCNameRecord dnsCNameRecord = dnsService.createCNameRecord(dnsARecord, subdomain);
+        //Runs ahead of the chain, so a retry can find it already done
+        Context transitionedContext = context;
+        if (context.getNewCNameRecordId() == null) {
+            DnsARecord dnsARecord = nodeAccessoryRepository.selectDnsARecord(context.getNewARecordId())
+                .orElseThrow(() -> new IllegalStateException("DNS A record not found: " + context.getNewARecordId()));
+            String subdomain = subscriptionRepository.selectSubscription(context.getSubscriptionId())
+                .map(ContentSubscription::subdomain)
+                .orElseThrow(() -> new IllegalStateException("Subscription not found: " + context.getSubscriptionId()));
+            DnsCNameRecord dnsCNameRecord = dnsService.createCNameRecord(dnsARecord, subdomain);
 
-        Context transitionedContext = context.withNewCNameRecordId(dnsCNameRecord.cNameRecordId());
-        gameServerRepository.insertDnsCNameRecord(dnsCNameRecord);
+            transitionedContext = context.withNewCNameRecordId(dnsCNameRecord.cNameRecordId());
+            gameServerRepository.insertDnsCNameRecord(dnsCNameRecord);
+        }
 
         Boolean dedicated = nodeRepository.selectHetznerNode(context.getNewNodeId())
             .map(HetznerNode::dedicated)
@@ -4,12 +4,14 @@ import com.mc_host.api.client.CloudflareClient;
 import com.mc_host.api.client.CloudflareClient.DNSRecordResponse;
 import com.mc_host.api.model.resource.ResourceType;
 import com.mc_host.api.repository.NodeAccessoryRepository;
+import com.mc_host.api.repository.WarmNodeRepository;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 
 @Service
@@ -18,13 +20,16 @@ public class ARecordReconciler implements ResourceReconciler {
 
     private final CloudflareClient cloudflareClient;
     private final NodeAccessoryRepository nodeAccessoryRepository;
+    private final WarmNodeRepository warmNodeRepository;
 
     ARecordReconciler(
         CloudflareClient cloudflareClient,
-        NodeAccessoryRepository nodeAccessoryRepository
+        NodeAccessoryRepository nodeAccessoryRepository,
+        WarmNodeRepository warmNodeRepository
     ) {
         this.cloudflareClient = cloudflareClient;
         this.nodeAccessoryRepository = nodeAccessoryRepository;
+        this.warmNodeRepository = warmNodeRepository;
     }
 
     @Override
@@ -74,7 +79,10 @@ public class ARecordReconciler implements ResourceReconciler {
     }
 
     private List<DnsARecordZone> fetchExpectedResources() {
-        return nodeAccessoryRepository.selectAllARecordIds().stream()
+        // warm pool records have no subscription yet but are still ours
+        return Stream.concat(
+                nodeAccessoryRepository.selectAllARecordIds().stream(),
+                warmNodeRepository.selectAllARecords().stream())
             .map(record -> new DnsARecordZone(
                 record.aRecordId(),
                 record.zoneId()
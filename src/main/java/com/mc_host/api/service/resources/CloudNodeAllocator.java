@@ -0,0 +1,278 @@
+package com.mc_host.api.service.resources;
+
+import com.mc_host.api.configuration.CloudNodeAllocationConfiguration;
+import com.mc_host.api.metrics.CloudCapacityMetrics;
+import com.mc_host.api.model.resource.hetzner.HetznerCloudProduct;
+import com.mc_host.api.model.resource.hetzner.HetznerRegion;
+import com.mc_host.api.model.resource.hetzner.node.HetznerCloudNode;
+import com.mc_host.api.util.ConditionAwaiter;
+import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Gets a running cloud node out of a list of equivalent region/product candidates. Candidates are tried
+ * in preference order, reordered by how often each one has recently had capacity. In race mode a bounded
+ * number of creates run at once; the most preferred node to reach running wins and every other server
+ * the race created is deleted before returning.
+ */
+@Service
+public class CloudNodeAllocator {
+    private static final Logger LOGGER = Logger.getLogger(CloudNodeAllocator.class.getName());
+
+    private final CloudNodeAllocationConfiguration allocationConfiguration;
+    private final CloudCapacityMetrics capacityMetrics;
+    private final HetznerService hetznerService;
+    private final ConditionAwaiter conditionAwaiter;
+    private final RegionCapacityTracker capacityTracker;
+
+    public CloudNodeAllocator(
+        CloudNodeAllocationConfiguration allocationConfiguration,
+        CloudCapacityMetrics capacityMetrics,
+        HetznerService hetznerService,
+        ConditionAwaiter conditionAwaiter
+    ) {
+        this.allocationConfiguration = allocationConfiguration;
+        this.capacityMetrics = capacityMetrics;
+        this.hetznerService = hetznerService;
+        this.conditionAwaiter = conditionAwaiter;
+        this.capacityTracker = new RegionCapacityTracker(allocationConfiguration.getCapacitySmoothing());
+        for (HetznerRegion region : HetznerRegion.values()) {
+            for (HetznerCloudProduct product : HetznerCloudProduct.values()) {
+                var candidate = Pair.of(region, product);
+                capacityMetrics.registerCapacityScore(region, product, () -> capacityTracker.score(candidate));
+            }
+        }
+    }
+
+    public HetznerCloudNode allocate(String subscriptionId, List<Pair<HetznerRegion, HetznerCloudProduct>> candidates) {
+        var ordered = capacityTracker.order(candidates);
+        if (allocationConfiguration.getRaceEnabled() && allocationConfiguration.getParallelism() > 1 && ordered.size() > 1) {
+            return new Race(subscriptionId, ordered).run();
+        }
+        return sequential(subscriptionId, ordered);
+    }
+
+    private HetznerCloudNode sequential(String subscriptionId, List<Pair<HetznerRegion, HetznerCloudProduct>> candidates) {
+        var start = System.nanoTime();
+        int attempts = 0;
+        for (Pair<HetznerRegion, HetznerCloudProduct> candidate : candidates) {
+            attempts++;
+            var attemptStart = System.nanoTime();
+            try {
+                var node = hetznerService.createCloudNode(subscriptionId, candidate.getRight(), candidate.getLeft());
+                recordAttempt(candidate, "success", attemptStart);
+                capacityMetrics.recordAllocation("sequential", "success", attempts, Duration.ofNanos(System.nanoTime() - start));
+                return node;
+            } catch (Exception e) {
+                recordAttempt(candidate, failureOutcome(e), attemptStart);
+                LOGGER.log(
+                    Level.SEVERE,
+                    "Error provisioning hetzner cloud node for subscription %s".formatted(subscriptionId),
+                    e
+                );
+            }
+        }
+        capacityMetrics.recordAllocation("sequential", "failure", attempts, Duration.ofNanos(System.nanoTime() - start));
+        throw new RuntimeException("FATAL: Error provisioning hetzner cloud node for subscription %s".formatted(subscriptionId));
+    }
+
+    private void recordAttempt(Pair<HetznerRegion, HetznerCloudProduct> candidate, String outcome, long startNanos) {
+        capacityMetrics.recordAttempt(candidate.getLeft(), candidate.getRight(), outcome, Duration.ofNanos(System.nanoTime() - startNanos));
+        // only hetzner's own answer says anything about capacity, our errors and abandoned attempts do not
+        switch (outcome) {
+            case "success" -> capacityTracker.record(candidate, true);
+            case "unavailable", "timeout" -> capacityTracker.record(candidate, false);
+            default -> { }
+        }
+    }
+
+    static String failureOutcome(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException
+                || (cause.getMessage() != null && cause.getMessage().contains("Timed-out"))) {
+                return "timeout";
+            }
+            if (cause.getMessage() != null
+                && (cause.getMessage().contains("API error: 412") || cause.getMessage().contains("resource_unavailable"))) {
+                return "unavailable";
+            }
+        }
+        return "error";
+    }
+
+    private record Result(int index, HetznerCloudNode node) {}
+
+    private final class Race {
+        private final String subscriptionId;
+        private final List<Pair<HetznerRegion, HetznerCloudProduct>> candidates;
+        private final BlockingQueue<Result> results = new LinkedBlockingQueue<>();
+        // guarded by this: servers that exist at hetzner, and whether a winner has been picked
+        private final Map<Integer, HetznerCloudNode> created = new HashMap<>();
+        private boolean decided;
+
+        private Race(String subscriptionId, List<Pair<HetznerRegion, HetznerCloudProduct>> candidates) {
+            this.subscriptionId = subscriptionId;
+            this.candidates = candidates;
+        }
+
+        private HetznerCloudNode run() {
+            var start = System.nanoTime();
+            ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+            var inFlight = new TreeSet<Integer>();
+            int next = 0;
+            Integer best = null;
+            long graceDeadline = 0;
+            try {
+                while (next < candidates.size() && inFlight.size() < allocationConfiguration.getParallelism()) {
+                    launch(executor, next, inFlight);
+                    next++;
+                }
+                while (!inFlight.isEmpty()) {
+                    // nothing more preferred is still running, no reason to wait out the grace period
+                    if (best != null && inFlight.first() > best) {
+                        break;
+                    }
+                    Result result = best == null
+                        ? results.take()
+                        : results.poll(graceDeadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (result == null) {
+                        break;
+                    }
+                    inFlight.remove(result.index());
+                    if (result.node() != null) {
+                        if (best == null) {
+                            graceDeadline = System.nanoTime() + allocationConfiguration.preferenceGrace().toNanos();
+                        }
+                        if (best == null || result.index() < best) {
+                            best = result.index();
+                        }
+                    } else if (best == null && next < candidates.size()) {
+                        launch(executor, next, inFlight);
+                        next++;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                best = null;
+            } finally {
+                // losers still in flight finish on their own and clean up after themselves
+                executor.shutdown();
+            }
+
+            var winner = decide(best);
+            var outcome = winner != null ? "success" : "failure";
+            capacityMetrics.recordAllocation("race", outcome, next, Duration.ofNanos(System.nanoTime() - start));
+            if (winner == null) {
+                throw new RuntimeException("FATAL: Error provisioning hetzner cloud node for subscription %s".formatted(subscriptionId));
+            }
+            LOGGER.info("[subscriptionId: %s] [hetznerNodeId: %s] won cloud node race in %s/%s after %d attempts".formatted(
+                subscriptionId, winner.hetznerNodeId(), winner.cloudProduct(), winner.hetznerRegion(), next));
+            return winner;
+        }
+
+        private void launch(ExecutorService executor, int index, TreeSet<Integer> inFlight) {
+            inFlight.add(index);
+            executor.execute(() -> attempt(index));
+        }
+
+        private HetznerCloudNode decide(Integer best) {
+            List<HetznerCloudNode> losers;
+            HetznerCloudNode winner;
+            synchronized (this) {
+                decided = true;
+                winner = best != null ? created.get(best) : null;
+                losers = new ArrayList<>(created.values());
+                losers.remove(winner);
+            }
+            losers.forEach(this::deleteQuietly);
+            return winner;
+        }
+
+        private void attempt(int index) {
+            var candidate = candidates.get(index);
+            var start = System.nanoTime();
+            try {
+                var node = hetznerService.startCloudNode(subscriptionId, candidate.getRight(), candidate.getLeft());
+                if (!register(index, node)) {
+                    deleteQuietly(node);
+                    recordAttempt(candidate, "abandoned", start);
+                    return;
+                }
+                if (awaitRunning(node)) {
+                    recordAttempt(candidate, "success", start);
+                    results.add(new Result(index, node));
+                } else {
+                    // the race was decided while this one booted, decide() has already deleted it
+                    recordAttempt(candidate, "abandoned", start);
+                }
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                recordAttempt(candidate, failureOutcome(e), start);
+                LOGGER.warning("[subscriptionId: %s] cloud node attempt in %s/%s failed: %s".formatted(
+                    subscriptionId, candidate.getRight(), candidate.getLeft(), e.getMessage()));
+                results.add(new Result(index, null));
+            }
+        }
+
+        private synchronized boolean register(int index, HetznerCloudNode node) {
+            if (decided) {
+                return false;
+            }
+            created.put(index, node);
+            return true;
+        }
+
+        private synchronized boolean isDecided() {
+            return decided;
+        }
+
+        // false once the race is decided elsewhere, there is no point waiting on a server that is being deleted
+        private boolean awaitRunning(HetznerCloudNode node) throws InterruptedException, TimeoutException {
+            var pollInterval = Duration.ofMillis(allocationConfiguration.getPollIntervalMs());
+            var backoff = new ConditionAwaiter.Backoff(pollInterval, pollInterval.multipliedBy(5), 1.5);
+            var running = conditionAwaiter.await("hetzner.server.running", backoff, allocationConfiguration.runningTimeout(), () -> {
+                if (isDecided()) {
+                    return Optional.of(false);
+                }
+                return Optional.of(true).filter(ignored -> "running".equals(hetznerService.getServerStatus(node.hetznerNodeId())));
+            });
+            try {
+                return running.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof TimeoutException timeout) {
+                    throw timeout;
+                }
+                throw new RuntimeException(e.getCause());
+            } finally {
+                running.cancel(false);
+            }
+        }
+
+        private void deleteQuietly(HetznerCloudNode node) {
+            try {
+                hetznerService.deleteCloudNode(node.hetznerNodeId());
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "failed to delete losing cloud node %s, the reconciler will pick it up".formatted(node.hetznerNodeId()), e);
+            }
+        }
+    }
+}
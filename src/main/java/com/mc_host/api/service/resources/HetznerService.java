@@ -1,15 +1,22 @@
 package com.mc_host.api.service.resources;
 
 import com.mc_host.api.client.HetznerCloudClient;
+import com.mc_host.api.configuration.NodeBootstrapConfiguration;
+import com.mc_host.api.metrics.NodeBootstrapMetrics;
 import com.mc_host.api.model.resource.hetzner.HetznerCloudProduct;
 import com.mc_host.api.model.resource.hetzner.HetznerRegion;
 import com.mc_host.api.model.resource.hetzner.HetznerServerResponse;
 import com.mc_host.api.model.resource.hetzner.HetznerServerResponse.Server;
 import com.mc_host.api.model.resource.hetzner.node.HetznerCloudNode;
+import com.mc_host.api.util.ConditionAwaiter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -18,32 +25,69 @@ import java.util.logging.Logger;
 public class HetznerService {
     private static final Logger LOGGER = Logger.getLogger(HetznerService.class.getName());
 
+    private static final ConditionAwaiter.Backoff RUNNING_BACKOFF =
+        new ConditionAwaiter.Backoff(Duration.ofSeconds(2), Duration.ofSeconds(10), 1.5);
+    private static final Duration RUNNING_TIMEOUT = Duration.ofMinutes(2);
+
     private final HetznerCloudClient hetznerClient;
+    private final NodeBootstrapConfiguration nodeBootstrapConfiguration;
+    private final NodeBootstrapMetrics nodeBootstrapMetrics;
+    private final WingsService wingsService;
+    private final ConditionAwaiter conditionAwaiter;
 
     public HetznerCloudNode createCloudNode(String subscriptionId, HetznerCloudProduct hetznerCloudProduct, HetznerRegion hetznerRegion) {
         try {
+            var start = System.nanoTime();
+            HetznerCloudNode hetznerCloudNode = startCloudNode(subscriptionId, hetznerCloudProduct, hetznerRegion);
+            
+            try {
+                awaitRunning(hetznerCloudNode.hetznerNodeId(), RUNNING_TIMEOUT).join();
+            } catch (CompletionException e) {
+                throw new RuntimeException(String.format("[subscriptionId: %s] [hetznerNodeId: %s] Timed-out creating hetzner cloud node", subscriptionId, hetznerCloudNode.hetznerNodeId()), e.getCause());
+            }
+            nodeBootstrapMetrics.recordPhase(nodeBootstrapConfiguration.getMode().name().toLowerCase(), "create", Duration.ofNanos(System.nanoTime() - start));
+            LOGGER.log(Level.INFO, String.format("[subscriptionId: %s] [hetznerNodeId: %s] Created hetzner cloud node", subscriptionId, hetznerCloudNode.hetznerNodeId()));
+            return hetznerCloudNode;
+        } catch (Exception e) {
+            throw new RuntimeException(String.format("[subscriptionId: %s] Error creating hetzner cloud node", subscriptionId), e);
+        }       
+    }
+
+    // returns as soon as hetzner accepts the create, the server is usually still initializing
+    public HetznerCloudNode startCloudNode(String subscriptionId, HetznerCloudProduct hetznerCloudProduct, HetznerRegion hetznerRegion) {
+        try {
+            var mode = nodeBootstrapConfiguration.getMode();
             String uuid = UUID.randomUUID().toString();
             Server hetznerServer = hetznerClient.createServer(
                 uuid,
                 hetznerCloudProduct.toString(),
                 hetznerRegion.toString(),
-                "ubuntu-24.04"
+                nodeBootstrapConfiguration.image(),
+                mode == NodeBootstrapConfiguration.Mode.CLOUD_INIT ? wingsService.installScript() : null
             ).server;
-            HetznerCloudNode hetznerCloudNode = new HetznerCloudNode(
+            return new HetznerCloudNode(
                 hetznerServer.id,
                 hetznerRegion,
                 hetznerServer.public_net.ipv4.ip,
                 hetznerCloudProduct
             );
-            
-            if (!hetznerClient.waitForServerStatus(hetznerServer.id, "running")) {
-                throw new RuntimeException(String.format("[subscriptionId: %s] [hetznerNodeId: %s] Timed-out creating hetzner cloud node", subscriptionId, hetznerServer.id));
-            }
-            LOGGER.log(Level.INFO, String.format("[subscriptionId: %s] [hetznerNodeId: %s] Created hetzner cloud node", subscriptionId, hetznerServer.id));
-            return hetznerCloudNode;
         } catch (Exception e) {
-            throw new RuntimeException(String.format("[subscriptionId: %s] Error creating hetzner cloud node", subscriptionId), e);
-        }       
+            throw new RuntimeException(String.format("[subscriptionId: %s] Error starting hetzner cloud node in %s/%s", subscriptionId, hetznerCloudProduct, hetznerRegion), e);
+        }
+    }
+
+    // most servers come up in well under a minute, so check often early and back off after that
+    public CompletableFuture<Boolean> awaitRunning(Long hetznerNodeId, Duration timeout) {
+        return conditionAwaiter.await("hetzner.server.running", RUNNING_BACKOFF, timeout, () ->
+            Optional.of(true).filter(ignored -> "running".equals(getServerStatus(hetznerNodeId))));
+    }
+
+    public String getServerStatus(Long hetznerNodeId) {
+        try {
+            return hetznerClient.getServer(hetznerNodeId).server.status;
+        } catch (Exception e) {
+            throw new RuntimeException(String.format("[hetznerNodeId: %s] Error checking server status", hetznerNodeId), e);
+        }
     }
 
     public void deleteCloudNode(Long hetznerNodeId) {
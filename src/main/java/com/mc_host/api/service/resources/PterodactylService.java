@@ -16,12 +16,17 @@ import com.mc_host.api.model.resource.pterodactyl.games.Nest;
 import com.mc_host.api.model.resource.pterodactyl.panel.PterodactylServerResources;
 import com.mc_host.api.model.resource.pterodactyl.panel.WebsocketCredentials;
 import com.mc_host.api.model.resource.pterodactyl.request.PterodactylCreateNodeRequest;
+import com.mc_host.api.service.panel.websocket.ServerStatusWatcher;
+import com.mc_host.api.util.ConditionAwaiter;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 import java.util.stream.IntStream;
 
@@ -29,18 +34,30 @@ import java.util.stream.IntStream;
 public class PterodactylService {
     private static final Logger LOGGER = Logger.getLogger(PterodactylService.class.getName());
 
+    private static final ConditionAwaiter.Backoff FAST_BACKOFF =
+        new ConditionAwaiter.Backoff(Duration.ofSeconds(1), Duration.ofSeconds(10), 1.5);
+    // only a fallback behind the websocket, and each failed check may restart the server
+    private static final ConditionAwaiter.Backoff SLOW_BACKOFF =
+        new ConditionAwaiter.Backoff(Duration.ofSeconds(15), Duration.ofSeconds(30), 1.5);
+
     private final PterodactylApplicationClient appClient;
     private final PterodactylUserClient userClient;
     private final WingsService wingsService;
+    private final ConditionAwaiter conditionAwaiter;
+    private final ServerStatusWatcher serverStatusWatcher;
     
     public PterodactylService(
         PterodactylApplicationClient appClient,
         PterodactylUserClient userClient,
-        WingsService wingsService
+        WingsService wingsService,
+        ConditionAwaiter conditionAwaiter,
+        ServerStatusWatcher serverStatusWatcher
     ) {
         this.appClient = appClient;
         this.userClient = userClient;
         this.wingsService = wingsService;
+        this.conditionAwaiter = conditionAwaiter;
+        this.serverStatusWatcher = serverStatusWatcher;
     }
 
     public PterodactylNode createNode(
@@ -173,6 +190,19 @@ public class PterodactylService {
         LOGGER.info("[serverUid: %s] started pterodactyl server".formatted(serverUid));
     }
 
+    public void stopServer(String serverUid) {
+        userClient.setPowerState(serverUid, PowerState.STOP);
+        LOGGER.info("[serverUid: %s] stopped pterodactyl server".formatted(serverUid));
+    }
+
+    public void stopAndWaitForServer(String serverUid, Duration timeout) {
+        stopServer(serverUid);
+        // status endpoint can flap while wings tears the container down, a failed check just means keep polling
+        ConditionAwaiter.join(conditionAwaiter.await("pterodactyl.server.stopped", FAST_BACKOFF, timeout, () ->
+            Optional.of(getServerStatus(serverUid)).filter(List.of(ServerStatus.STOPPED, ServerStatus.OFFLINE)::contains)
+        ));
+    }
+
     public void acceptEula(String serverUid) {      
         userClient.acceptMinecraftEula(serverUid);
         LOGGER.info("[serverUid: %s] accepted EULA for pterodactyl server".formatted(serverUid));
@@ -228,63 +258,57 @@ public class PterodactylService {
         var serverId = server.pterodactylServerId();
         var serverUid = server.pterodactylServerUid();
 
-        waitForServerAccessible(serverUid, Duration.ofMinutes(3));
-        startAndWaitForServer(serverUid, serverId, Duration.ofMinutes(10));
+        ConditionAwaiter.join(awaitServerAccessible(serverUid, Duration.ofMinutes(3))
+            .thenCompose(status -> startAndAwaitRunning(serverUid, serverId, Duration.ofMinutes(10))));
     }
 
     public void waitForServerAccessible(String serverUid, Duration timeout) {
-        var interval = Duration.ofSeconds(5);
-        var timePassed = Duration.ZERO;
-        
-        while (timePassed.compareTo(timeout) < 0) {
-            try {
-                Thread.sleep(interval.toMillis());
-                timePassed = timePassed.plus(interval);
-                
-                getServerStatus(serverUid);
-                return; // success
-                
-            } catch (Exception e) {
-                if (timePassed.compareTo(timeout) >= 0) {
-                    throw new RuntimeException("couldn't obtain status of pterodactyl server %s after %s"
-                        .formatted(serverUid, timeout));
-                }
-            }
-        }
+        ConditionAwaiter.join(awaitServerAccessible(serverUid, timeout));
     }
 
-    private void startAndWaitForServer(String serverUid, Long serverId, Duration timeout) {
-        var interval = Duration.ofSeconds(30);
-        var timePassed = Duration.ZERO;
-        
-        while (timePassed.compareTo(timeout) < 0) {
-            try {
-                Thread.sleep(interval.toMillis());
-                timePassed = timePassed.plus(interval);
-                
-                var status = getServerStatus(serverUid);
-                
-                if (status == ServerStatus.RUNNING) {
-                    return; // we're done
-                }
-                
-                if (List.of(ServerStatus.STOPPING, ServerStatus.STOPPED, ServerStatus.OFFLINE).contains(status)) {
-                    LOGGER.info("[serverId: %s] starting server (%ss/%ss)".formatted(serverId, timePassed.getSeconds(), timeout.getSeconds()));
-                    startServer(serverUid);
-                    Thread.sleep(Duration.ofSeconds(15).toMillis()); // wait a bit
-                    acceptEula(serverUid);
-                }
-
-            } catch (Exception e) {
-                if (timePassed.compareTo(timeout) >= 0) {
-                    throw new RuntimeException("couldn't start pterodactyl server %s after %s"
-                        .formatted(serverId, timeout));
-                }
-                // continue retrying if we haven't timed out
+    // the status endpoint errors until wings has created the server, any answer means it's there
+    public CompletableFuture<ServerStatus> awaitServerAccessible(String serverUid, Duration timeout) {
+        return conditionAwaiter.await("pterodactyl.server.accessible", FAST_BACKOFF, timeout, () ->
+            Optional.of(getServerStatus(serverUid)));
+    }
+
+    /**
+     * Running is picked up from the wings websocket status event. The slow poll alongside it covers a
+     * socket that never opens and re-issues the start if the server falls back to stopped, which is what
+     * happens when it boots before the EULA file lands.
+     */
+    private CompletableFuture<ServerStatus> startAndAwaitRunning(String serverUid, Long serverId, Duration timeout) {
+        acceptEula(serverUid);
+        var watched = serverStatusWatcher.watch(serverUid, Set.of(ServerStatus.RUNNING));
+        startServer(serverUid);
+
+        // the first check waits a full backoff step, right after the start the server still reads offline
+        var polled = conditionAwaiter.await("pterodactyl.server.running", SLOW_BACKOFF, SLOW_BACKOFF.initialDelay(), timeout, () -> {
+            var status = getServerStatus(serverUid);
+            if (status == ServerStatus.RUNNING) {
+                return Optional.of(status);
             }
-        }
-        
-        throw new RuntimeException("pterodactyl server %s didn't start within %s"
-            .formatted(serverId, timeout));
+            if (List.of(ServerStatus.STOPPED, ServerStatus.OFFLINE).contains(status)) {
+                LOGGER.info("[serverId: %s] server is %s, starting it again".formatted(serverId, status));
+                acceptEula(serverUid);
+                startServer(serverUid);
+            }
+            return Optional.empty();
+        });
+
+        var running = new CompletableFuture<ServerStatus>();
+        watched.thenAccept(running::complete);
+        polled.whenComplete((status, error) -> {
+            if (error != null) {
+                running.completeExceptionally(new RuntimeException("pterodactyl server %s didn't start within %s"
+                    .formatted(serverId, timeout), error));
+            } else {
+                running.complete(status);
+            }
+        });
+        return running.whenComplete((status, error) -> {
+            watched.cancel(false);
+            polled.cancel(false);
+        });
     }
-}
\ No newline at end of file
+}
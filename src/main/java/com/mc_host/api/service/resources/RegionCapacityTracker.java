@@ -0,0 +1,41 @@
+package com.mc_host.api.service.resources;
+
+import com.mc_host.api.model.resource.hetzner.HetznerCloudProduct;
+import com.mc_host.api.model.resource.hetzner.HetznerRegion;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// exponentially smoothed availability per region/product; unseen pairs start optimistic so they still get tried
+class RegionCapacityTracker {
+    private static final double UNSEEN = 1.0;
+
+    private final double smoothing;
+    private final Map<Pair<HetznerRegion, HetznerCloudProduct>, Double> scores = new ConcurrentHashMap<>();
+
+    RegionCapacityTracker(double smoothing) {
+        this.smoothing = smoothing;
+    }
+
+    void record(Pair<HetznerRegion, HetznerCloudProduct> candidate, boolean available) {
+        double sample = available ? 1.0 : 0.0;
+        scores.compute(candidate, (key, previous) -> {
+            double current = previous == null ? UNSEEN : previous;
+            return current + smoothing * (sample - current);
+        });
+    }
+
+    double score(Pair<HetznerRegion, HetznerCloudProduct> candidate) {
+        return scores.getOrDefault(candidate, UNSEEN);
+    }
+
+    // stable, so equally scored candidates keep the caller's preference order
+    List<Pair<HetznerRegion, HetznerCloudProduct>> order(List<Pair<HetznerRegion, HetznerCloudProduct>> candidates) {
+        return candidates.stream()
+            .sorted(Comparator.<Pair<HetznerRegion, HetznerCloudProduct>>comparingDouble(this::score).reversed())
+            .toList();
+    }
+}
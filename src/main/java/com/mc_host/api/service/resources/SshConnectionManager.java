@@ -0,0 +1,229 @@
+package com.mc_host.api.service.resources;
+
+import com.mc_host.api.configuration.SshConfiguration;
+import com.mc_host.api.metrics.SshMetrics;
+import jakarta.annotation.PreDestroy;
+import net.schmizz.keepalive.KeepAliveProvider;
+import net.schmizz.sshj.DefaultConfig;
+import net.schmizz.sshj.SSHClient;
+import net.schmizz.sshj.transport.verification.PromiscuousVerifier;
+import net.schmizz.sshj.userauth.keyprovider.KeyProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Shares one authenticated ssh transport per host/user. Callers lease the connection, open as many
+ * session or sftp channels on it as they need, and close the lease; the transport stays up with
+ * keep-alives until it has been idle for ssh.idle-timeout-ms.
+ */
+@Service
+public class SshConnectionManager {
+    private static final Logger LOGGER = Logger.getLogger(SshConnectionManager.class.getName());
+
+    private final SshConfiguration sshConfiguration;
+    private final SshMetrics sshMetrics;
+    private final DefaultConfig clientConfig;
+    private final Map<Target, PooledConnection> connections = new ConcurrentHashMap<>();
+    // keyed by host:port rather than Target, per-server sftp usernames would grow the map without bound
+    private final Map<String, ReentrantLock> connectLocks = new ConcurrentHashMap<>();
+
+    private volatile KeyProvider keyProvider;
+
+    public SshConnectionManager(SshConfiguration sshConfiguration, SshMetrics sshMetrics) {
+        this.sshConfiguration = sshConfiguration;
+        this.sshMetrics = sshMetrics;
+        this.clientConfig = new DefaultConfig();
+        this.clientConfig.setKeepAliveProvider(KeepAliveProvider.KEEP_ALIVE);
+        sshMetrics.registerPool(connections::size);
+    }
+
+    public Lease acquire(Target target) throws IOException, InterruptedException {
+        // one connect per host at a time, other hosts are not held up by a slow handshake. a lock rather than
+        // a monitor so virtual threads waiting out a handshake or retry backoff don't pin their carriers
+        var connectLock = connectLocks.computeIfAbsent(target.host() + ":" + target.port(), k -> new ReentrantLock());
+        connectLock.lockInterruptibly();
+        try {
+            var pooled = connections.get(target);
+            if (pooled != null) {
+                var lease = pooled.tryLease();
+                if (lease != null) {
+                    sshMetrics.recordReuse();
+                    return lease;
+                }
+                connections.remove(target, pooled);
+                pooled.close();
+                sshMetrics.recordEviction("broken");
+            }
+
+            var connection = new PooledConnection(connect(target));
+            connections.put(target, connection);
+            return connection.tryLease();
+        } finally {
+            connectLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ssh.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        var idleTimeout = Duration.ofMillis(sshConfiguration.getIdleTimeoutMs());
+        connections.forEach((target, connection) -> {
+            var reason = connection.tryRetire(idleTimeout);
+            if (reason != null && connections.remove(target, connection)) {
+                connection.close();
+                sshMetrics.recordEviction(reason);
+                LOGGER.fine("closed %s ssh connection to %s".formatted(reason, target));
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connections.values().forEach(PooledConnection::close);
+        connections.clear();
+    }
+
+    private SSHClient connect(Target target) throws IOException, InterruptedException {
+        var start = System.nanoTime();
+        double delay = sshConfiguration.getConnectInitialDelayMs();
+        for (int attempt = 1; ; attempt++) {
+            var client = new SSHClient(clientConfig);
+            try {
+                client.addHostKeyVerifier(new PromiscuousVerifier());
+                client.connect(target.host(), target.port());
+                if (target.password() != null) {
+                    client.authPassword(target.username(), target.password());
+                } else {
+                    client.authPublickey(target.username(), keyProvider());
+                }
+                client.getConnection().getKeepAlive().setKeepAliveInterval(sshConfiguration.getKeepAliveIntervalSeconds());
+                sshMetrics.recordConnect("success", attempt, Duration.ofNanos(System.nanoTime() - start));
+                return client;
+            } catch (IOException e) {
+                closeQuietly(client);
+                if (attempt >= sshConfiguration.getConnectAttempts()) {
+                    sshMetrics.recordConnect("failure", attempt, Duration.ofNanos(System.nanoTime() - start));
+                    LOGGER.severe("failed to connect to %s after %d attempts".formatted(target, attempt));
+                    throw e;
+                }
+                Thread.sleep((long) delay);
+                delay *= sshConfiguration.getConnectBackoffMultiplier();
+            }
+        }
+    }
+
+    // parsed once and kept in memory, the key never touches the disk
+    private KeyProvider keyProvider() throws IOException {
+        if (keyProvider == null) {
+            synchronized (this) {
+                if (keyProvider == null) {
+                    var privateKey = sshConfiguration.getPrivateKey()
+                        .replace("\\n", "\n")
+                        .replace("\r", "")
+                        .trim();
+                    keyProvider = new SSHClient(clientConfig).loadKeys(privateKey, null, null);
+                }
+            }
+        }
+        return keyProvider;
+    }
+
+    private static void closeQuietly(SSHClient client) {
+        try {
+            client.close();
+        } catch (IOException e) {
+            LOGGER.fine("failed to close ssh client: %s".formatted(e.getMessage()));
+        }
+    }
+
+    public record Target(String host, int port, String username, String password) {
+        public static Target withKey(String host, int port, String username) {
+            return new Target(host, port, username, null);
+        }
+
+        public static Target withPassword(String host, int port, String username, String password) {
+            return new Target(host, port, username, password);
+        }
+
+        @Override
+        public String toString() {
+            return "%s@%s:%d".formatted(username, host, port);
+        }
+    }
+
+    private static class PooledConnection {
+        private final SSHClient client;
+        private int leases;
+        private long lastReleasedNanos = System.nanoTime();
+        private boolean retired;
+
+        private PooledConnection(SSHClient client) {
+            this.client = client;
+        }
+
+        private synchronized Lease tryLease() {
+            if (retired || !isUsable()) {
+                return null;
+            }
+            leases++;
+            return new Lease(this);
+        }
+
+        private synchronized void release() {
+            leases--;
+            lastReleasedNanos = System.nanoTime();
+        }
+
+        // only retired while nobody holds it, so a lease never sees its transport closed underneath it
+        private synchronized String tryRetire(Duration idleTimeout) {
+            if (leases > 0) {
+                return null;
+            }
+            if (!isUsable()) {
+                retired = true;
+                return "broken";
+            }
+            if (System.nanoTime() - lastReleasedNanos >= idleTimeout.toNanos()) {
+                retired = true;
+                return "idle";
+            }
+            return null;
+        }
+
+        private boolean isUsable() {
+            return client.isConnected() && client.isAuthenticated();
+        }
+
+        private synchronized void close() {
+            retired = true;
+            closeQuietly(client);
+        }
+    }
+
+    public static final class Lease implements AutoCloseable {
+        private final PooledConnection connection;
+        private boolean released;
+
+        private Lease(PooledConnection connection) {
+            this.connection = connection;
+        }
+
+        public SSHClient client() {
+            return connection.client;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!released) {
+                released = true;
+                connection.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.mc_host.api.service.resources;
+
+import com.mc_host.api.configuration.WarmPoolConfiguration;
+import com.mc_host.api.metrics.WarmPoolMetrics;
+import com.mc_host.api.model.plan.ServerSpecification;
+import com.mc_host.api.model.queue.JobType;
+import com.mc_host.api.model.resource.dns.DnsARecord;
+import com.mc_host.api.model.resource.hetzner.node.HetznerCloudNode;
+import com.mc_host.api.model.resource.hetzner.node.WarmNode;
+import com.mc_host.api.model.resource.hetzner.node.WarmPoolKey;
+import com.mc_host.api.model.resource.pterodactyl.PterodactylNode;
+import com.mc_host.api.queue.JobScheduler;
+import com.mc_host.api.repository.GameServerSpecRepository;
+import com.mc_host.api.repository.NodeRepository;
+import com.mc_host.api.repository.WarmNodeRepository;
+import com.mc_host.api.util.PersistenceContext;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps a per product/region stock of cloud nodes that already have an A record, a pterodactyl node and
+ * a running wings. AllocateCloudNodeStep claims one in the transaction that records the claim and skips straight to
+ * allocation; the refill sizes each pool from the recent checkout rate and builds nodes on the job queue.
+ */
+@Service
+public class WarmNodePoolService {
+    private static final Logger LOGGER = Logger.getLogger(WarmNodePoolService.class.getName());
+    // stands in for the subscription id on resources built before anyone owns them
+    private static final String POOL_OWNER = "warm-pool";
+
+    private final WarmPoolConfiguration warmPoolConfiguration;
+    private final WarmPoolMetrics warmPoolMetrics;
+    private final WarmNodeRepository warmNodeRepository;
+    private final NodeRepository nodeRepository;
+    private final GameServerSpecRepository gameServerSpecRepository;
+    private final HetznerService hetznerService;
+    private final DnsService dnsService;
+    private final PterodactylService pterodactylService;
+    private final JobScheduler jobScheduler;
+    private final PersistenceContext persistenceContext;
+    private final Map<WarmPoolKey, Integer> readyCounts = new ConcurrentHashMap<>();
+    private final Map<WarmPoolKey, Integer> targets = new ConcurrentHashMap<>();
+
+    public WarmNodePoolService(
+        WarmPoolConfiguration warmPoolConfiguration,
+        WarmPoolMetrics warmPoolMetrics,
+        WarmNodeRepository warmNodeRepository,
+        NodeRepository nodeRepository,
+        GameServerSpecRepository gameServerSpecRepository,
+        HetznerService hetznerService,
+        DnsService dnsService,
+        PterodactylService pterodactylService,
+        JobScheduler jobScheduler,
+        PersistenceContext persistenceContext
+    ) {
+        this.warmPoolConfiguration = warmPoolConfiguration;
+        this.warmPoolMetrics = warmPoolMetrics;
+        this.warmNodeRepository = warmNodeRepository;
+        this.nodeRepository = nodeRepository;
+        this.gameServerSpecRepository = gameServerSpecRepository;
+        this.hetznerService = hetznerService;
+        this.dnsService = dnsService;
+        this.pterodactylService = pterodactylService;
+        this.jobScheduler = jobScheduler;
+        this.persistenceContext = persistenceContext;
+        warmPoolConfiguration.getPools().forEach(pool -> warmPoolMetrics.registerPool(
+            pool.key(),
+            () -> readyCounts.getOrDefault(pool.key(), 0),
+            () -> targets.getOrDefault(pool.key(), 0)
+        ));
+    }
+
+    public boolean isEnabled() {
+        return warmPoolConfiguration.getEnabled();
+    }
+
+    // the DELETE .. RETURNING commits on its own unless the caller opens a transaction, which has to cover
+    // every write that records the claim so a failure afterwards puts the row back with the rollback
+    public Optional<WarmNode> claim(String subscriptionId, List<WarmPoolKey> candidates) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        for (WarmPoolKey key : candidates) {
+            var claimed = warmNodeRepository.claimReadyNode(key);
+            if (claimed.isPresent()) {
+                warmNodeRepository.insertCheckout(key, true);
+                warmPoolMetrics.recordCheckout(key, true);
+                LOGGER.info("[subscriptionId: %s] [hetznerNodeId: %s] claimed warm node from %s"
+                    .formatted(subscriptionId, claimed.get().hetznerNodeId(), key.toPayload()));
+                return claimed;
+            }
+        }
+        return Optional.empty();
+    }
+
+    // a miss is still demand, the pool that should have served it grows on the next refill
+    public void recordMiss(WarmPoolKey key) {
+        if (!isEnabled()) {
+            return;
+        }
+        warmNodeRepository.insertCheckout(key, false);
+        warmPoolMetrics.recordCheckout(key, false);
+    }
+
+    @Scheduled(fixedDelayString = "${warm-pool.refill-interval-ms:30000}")
+    public void refill() {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            reapStaleNodes();
+            warmNodeRepository.deleteCheckoutsBefore(warmPoolConfiguration.rateWindow().multipliedBy(2));
+
+            var checkouts = warmNodeRepository.countCheckoutsSince(warmPoolConfiguration.rateWindow());
+            var ready = warmNodeRepository.countReadyNodes();
+            // one job per missing node, each on its own slot so the builds run in parallel
+            List<String> missingSlots = new ArrayList<>();
+            for (WarmPoolConfiguration.Pool pool : warmPoolConfiguration.getPools()) {
+                var key = pool.key();
+                var target = targetSize(pool, checkouts.getOrDefault(key, 0));
+                targets.put(key, target);
+                readyCounts.put(key, ready.getOrDefault(key, 0));
+                var missing = target - warmNodeRepository.countPoolNodes(key);
+                for (int slot = 0; slot < missing; slot++) {
+                    missingSlots.add(key.toSlotPayload(slot));
+                }
+            }
+            jobScheduler.scheduleAll(JobType.WARM_NODE_PROVISION, missingSlots);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "failed to refill warm node pools", e);
+        }
+    }
+
+    public void provision(WarmPoolKey key) {
+        var pool = warmPoolConfiguration.getPools().stream()
+            .filter(candidate -> candidate.key().equals(key))
+            .findFirst();
+        if (!isEnabled() || pool.isEmpty()) {
+            return;
+        }
+
+        // the advisory lock makes count-then-insert safe when several replicas work the same pool
+        Optional<Long> slot = persistenceContext.inTransaction(status -> {
+            warmNodeRepository.lockPool(key);
+            var checkouts = warmNodeRepository.countCheckoutsSince(warmPoolConfiguration.rateWindow()).getOrDefault(key, 0);
+            if (warmNodeRepository.countPoolNodes(key) >= targetSize(pool.get(), checkouts)) {
+                return Optional.<Long>empty();
+            }
+            return warmNodeRepository.insertProvisioningNode(key);
+        });
+        if (slot.isEmpty()) {
+            return;
+        }
+
+        build(slot.get(), key);
+    }
+
+    private void build(Long id, WarmPoolKey key) {
+        var start = System.nanoTime();
+        HetznerCloudNode hetznerNode = null;
+        DnsARecord dnsARecord = null;
+        PterodactylNode pterodactylNode = null;
+        try {
+            hetznerNode = hetznerService.createCloudNode(POOL_OWNER, key.cloudProduct(), key.hetznerRegion());
+            nodeRepository.insertCloudNode(hetznerNode);
+            warmNodeRepository.updateHetznerNode(id, hetznerNode.hetznerNodeId());
+
+            dnsARecord = dnsService.createARecord(hetznerNode, POOL_OWNER);
+            warmNodeRepository.updateDnsARecord(id, dnsARecord);
+
+            String specificationId = key.cloudProduct().getSpecificationId();
+            ServerSpecification serverSpecification = gameServerSpecRepository.selectSpecification(specificationId)
+                .orElseThrow(() -> new IllegalStateException("Specification not found:" + specificationId));
+            pterodactylNode = pterodactylService.createNode(dnsARecord, serverSpecification, key.hetznerRegion());
+            warmNodeRepository.updatePterodactylNode(id, pterodactylNode.pterodactylNodeId());
+
+            pterodactylService.configureNode(pterodactylNode.pterodactylNodeId(), dnsARecord);
+            if (warmNodeRepository.updateReady(id) == 0) {
+                throw new IllegalStateException("warm node %s was reaped before it finished provisioning".formatted(id));
+            }
+
+            warmPoolMetrics.recordProvision(key, "success", Duration.ofNanos(System.nanoTime() - start));
+            LOGGER.info("[hetznerNodeId: %s] warm node ready in %s".formatted(hetznerNode.hetznerNodeId(), key.toPayload()));
+        } catch (Exception e) {
+            warmPoolMetrics.recordProvision(key, "failure", Duration.ofNanos(System.nanoTime() - start));
+            // torn down from what this worker built, the row may already be gone
+            discard(new WarmNode(
+                id,
+                key.cloudProduct(),
+                key.hetznerRegion(),
+                WarmNode.Status.PROVISIONING,
+                hetznerNode != null ? hetznerNode.hetznerNodeId() : null,
+                dnsARecord != null ? dnsARecord.aRecordId() : null,
+                dnsARecord != null ? dnsARecord.zoneId() : null,
+                dnsARecord != null ? dnsARecord.zoneName() : null,
+                dnsARecord != null ? dnsARecord.recordName() : null,
+                dnsARecord != null ? dnsARecord.content() : null,
+                pterodactylNode != null ? pterodactylNode.pterodactylNodeId() : null,
+                null
+            ), "failed");
+            throw new RuntimeException("Failed to provision warm node in %s".formatted(key.toPayload()), e);
+        }
+    }
+
+    private void reapStaleNodes() {
+        warmNodeRepository.deleteStaleProvisioningNodes(warmPoolConfiguration.provisionTimeout())
+            .forEach(node -> discard(node, "stale"));
+    }
+
+    // best effort on every resource, anything left behind is picked up by the reconcilers
+    private void discard(WarmNode node, String reason) {
+        warmPoolMetrics.recordDiscard(node.poolKey(), reason);
+        LOGGER.warning("[hetznerNodeId: %s] discarding %s warm node in %s".formatted(node.hetznerNodeId(), reason, node.poolKey().toPayload()));
+        if (node.pterodactylNodeId() != null) {
+            try {
+                pterodactylService.destroyNode(node.pterodactylNodeId());
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "failed to delete pterodactyl node %s".formatted(node.pterodactylNodeId()), e);
+            }
+        }
+        if (node.aRecordId() != null) {
+            try {
+                dnsService.deleteARecord(node.dnsARecord(POOL_OWNER));
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "failed to delete a record %s".formatted(node.aRecordId()), e);
+            }
+        }
+        if (node.hetznerNodeId() != null) {
+            try {
+                hetznerService.deleteCloudNode(node.hetznerNodeId());
+                nodeRepository.deleteHetznerCloudNode(node.hetznerNodeId());
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "failed to delete hetzner node %s".formatted(node.hetznerNodeId()), e);
+            }
+        }
+        warmNodeRepository.deleteWarmNode(node.id());
+    }
+
+    private int targetSize(WarmPoolConfiguration.Pool pool, int checkouts) {
+        return targetSize(
+            checkouts,
+            warmPoolConfiguration.rateWindow(),
+            warmPoolConfiguration.leadTime(),
+            warmPoolConfiguration.getHeadroom(),
+            pool.getMinSize(),
+            pool.getMaxSize()
+        );
+    }
+
+    // enough nodes to cover the checkouts expected while a replacement is being built
+    static int targetSize(int checkouts, Duration window, Duration leadTime, double headroom, int minSize, int maxSize) {
+        double expected = checkouts * ((double) leadTime.toMillis() / window.toMillis()) * headroom;
+        return Math.max(minSize, Math.min(maxSize, (int) Math.ceil(expected)));
+    }
+}
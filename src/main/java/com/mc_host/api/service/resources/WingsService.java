@@ -3,18 +3,19 @@ package com.mc_host.api.service.resources;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mc_host.api.configuration.CloudflareConfiguration;
-import com.mc_host.api.configuration.SshConfiguration;
+import com.mc_host.api.configuration.NodeBootstrapConfiguration;
+import com.mc_host.api.metrics.NodeBootstrapMetrics;
 import com.mc_host.api.model.resource.dns.DnsARecord;
 import lombok.RequiredArgsConstructor;
 import net.schmizz.sshj.SSHClient;
 import net.schmizz.sshj.connection.channel.direct.Session;
 import net.schmizz.sshj.connection.channel.direct.Session.Command;
-import net.schmizz.sshj.transport.verification.PromiscuousVerifier;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
@@ -27,19 +28,26 @@ public class WingsService {
     private static final String USERNAME = "root";
     private static final int PORT = 22;
     private static final int TIMEOUT = 300;
-    private static final int DELAY = 500;
+    private static final String INSTALL_SCRIPT = "scripts/wings-install.sh";
+    private static final String INSTALLED_CHECK =
+        "command -v docker && test -x /etc/pterodactyl/wings && test -f /etc/systemd/system/wings.service";
 
-    private final SshConfiguration sshConfiguration;
+    private final SshConnectionManager sshConnectionManager;
     private final CloudflareConfiguration cloudflareConfiguration;
+    private final NodeBootstrapConfiguration nodeBootstrapConfiguration;
+    private final NodeBootstrapMetrics nodeBootstrapMetrics;
     private final ObjectMapper objectMapper;
     private final ObjectMapper yamlMapper;
 
+    private volatile String installScript;
+
     public void setupWings(DnsARecord dnsARecord, String jsonConfig) {
-        try (SSHClient ssh = new SSHClient()) {
-            String sshPrivateKey = sshConfiguration.getPrivateKey()
-                .replace("\\n", "\n")
-                .replace("\r", "")
-                .trim();
+        var mode = nodeBootstrapConfiguration.getMode().name().toLowerCase();
+        var setupStart = System.nanoTime();
+        var phaseStart = System.nanoTime();
+        try (var lease = sshConnectionManager.acquire(SshConnectionManager.Target.withKey(dnsARecord.content(), PORT, USERNAME))) {
+            SSHClient ssh = lease.client();
+            phaseStart = recordPhase(mode, "connect", phaseStart);
             String originCertificate = cloudflareConfiguration.getOriginCert()
                 .replace("\\n", "\n")
                 .replace("\r", "")
@@ -48,34 +56,7 @@ public class WingsService {
                 .replace("\\n", "\n")
                 .replace("\r", "")
                 .trim();
-            
-            Path keyPath = Files.createTempFile("ssh-key", null);
-            Files.write(keyPath, sshPrivateKey.getBytes(), StandardOpenOption.WRITE);
-            
-            int retries = 0;
-            int delay = DELAY;
-            while (true) {
-                try {
-                    ssh.addHostKeyVerifier(new PromiscuousVerifier());
-                    ssh.loadKeys(keyPath.toString());
-                    ssh.connect(dnsARecord.content(), PORT);
-                    ssh.authPublickey(USERNAME, keyPath.toString());
-                    break;
-                } catch(Exception e) {
-                    Thread.sleep(delay);
-                    delay *= 1.2;
-                    retries++;
-                    if (retries >= 15) {
-                        LOGGER.severe("Failed to authenticate server %s".formatted(dnsARecord.aRecordId()));
-                        throw e;
-                    }
-                }
-            }
-            
-            if (!ssh.isAuthenticated()) {
-                throw new RuntimeException("Authentication failed after attempting key auth");
-            }
-            
+
             LOGGER.log(Level.FINE, "Successfully authenticated");
 
             String yamlConfig;
@@ -89,55 +70,107 @@ public class WingsService {
 
             String escapedConfig = yamlConfig.replace("'", "'\\''");
 
+            // every mode waits here: user-data may still be installing, and on a plain image cloud-init holds the apt lock
+            var cloudInitTimeout = nodeBootstrapConfiguration.getCloudInitTimeoutSeconds();
+            var cloudInit = exec(ssh, "timeout %d cloud-init status --wait".formatted(cloudInitTimeout), cloudInitTimeout + 10);
+            if (cloudInit.exitStatus() != 0) {
+                LOGGER.warning("[aRecordId: %s] cloud-init finished with status %d: %s"
+                    .formatted(dnsARecord.aRecordId(), cloudInit.exitStatus(), cloudInit.output().trim()));
+            }
+            phaseStart = recordPhase(mode, "cloud_init", phaseStart);
+
+            // decided by what is on the node rather than the configured mode, so a failed user-data run or a
+            // node created under a different mode still ends up installed
+            if (exec(ssh, INSTALLED_CHECK, 10).exitStatus() != 0) {
+                LOGGER.info("[aRecordId: %s] docker or wings missing, installing over ssh".formatted(dnsARecord.aRecordId()));
+                run(ssh, "bash -s", installScript(), TIMEOUT * 3);
+                phaseStart = recordPhase(mode, "install", phaseStart);
+            }
+
             String[] commands = {
-                "apt-get update",
                 "mkdir -p /etc/letsencrypt/live/%s".formatted(dnsARecord.recordName()),
                 "echo '%s' > /etc/letsencrypt/live/%s/fullchain.pem".formatted(originCertificate, dnsARecord.recordName()),
                 "echo '%s' > /etc/letsencrypt/live/%s/privkey.pem".formatted(certPrivateKey, dnsARecord.recordName()),
-                "curl -sSL https://get.docker.com/ | CHANNEL=stable bash",
-                "apt install -y tar unzip make gcc g++ python3",
                 "mkdir -p /etc/pterodactyl",
-                "cd /etc/pterodactyl && curl -L -o wings \"https://github.com/pterodactyl/wings/releases/latest/download/wings_linux_$([[ \"$(uname -m)\" == \"x86_64\" ]] && echo \"amd64\" || echo \"arm64\")\"",
-                "chmod u+x /etc/pterodactyl/wings",
-                "echo '[Unit]\nDescription=Pterodactyl Wings Daemon\nAfter=docker.service\nRequires=docker.service\n\n[Service]\nUser=root\nWorkingDirectory=/etc/pterodactyl\nLimitNOFILE=4096\nPIDFile=/var/run/wings/daemon.pid\nExecStart=/etc/pterodactyl/wings\nRestart=on-failure\nStartLimitInterval=180\nStartLimitBurst=30\n\n[Install]\nWantedBy=multi-user.target' > /etc/systemd/system/wings.service",
-                "cat > /etc/pterodactyl/config.yml << 'EOL'\n" + escapedConfig + "\nEOL",
-                "systemctl enable wings",
-                "systemctl start wings"
+                "cat > /etc/pterodactyl/config.yml << 'EOL'\n" + escapedConfig + "\nEOL"
             };
 
             for (String command : commands) {
-                try (Session session = ssh.startSession()) {
-                    Command cmd = session.exec(command);
-                    
-                    String output = new String(cmd.getInputStream().readAllBytes());
-                    String error = new String(cmd.getErrorStream().readAllBytes());
-                    
-                    cmd.join(TIMEOUT, TimeUnit.SECONDS);
-                    
-                    if (cmd.getExitStatus() != 0 && !command.equals("systemctl status wings")) {
-                        throw new RuntimeException(String.format(
-                            "Command failed with status %d: %s\nOutput: %s\nError: %s",
-                            cmd.getExitStatus(), command, output, error
-                        ));
-                    }
-                    LOGGER.log(Level.FINE, "Executed command for %s: %s".formatted(dnsARecord.recordName(), command));
-                }
+                run(ssh, command, null, TIMEOUT);
+                LOGGER.log(Level.FINE, "Executed command for %s: %s".formatted(dnsARecord.recordName(), command));
             }
+            phaseStart = recordPhase(mode, "configure", phaseStart);
+
+            run(ssh, "systemctl enable wings && systemctl restart wings", null, TIMEOUT);
 
             try (Session session = ssh.startSession()) {
                 Command cmd = session.exec("systemctl status wings");
                 String output = new String(cmd.getInputStream().readAllBytes());
                 cmd.join(10, TimeUnit.SECONDS);
-                
+
                 if (!output.contains("Active: active (running)")) {
                     throw new RuntimeException("wings service was not properly installed");
                 }
                 LOGGER.log(Level.INFO, "wings system service successfully configured");
 
             }
+            recordPhase(mode, "start", phaseStart);
+            recordPhase(mode, "total", setupStart);
 
         } catch (Exception e) {
             throw new RuntimeException(String.format("[aRecordId: %s] Failed to setup Wings", dnsARecord.aRecordId()), e);
         }
     }
-}
\ No newline at end of file
+
+    // the same script runs over ssh, as cloud-init user-data, and on the node a bootstrap snapshot is taken from
+    public String installScript() {
+        if (installScript == null) {
+            try (var stream = new ClassPathResource(INSTALL_SCRIPT).getInputStream()) {
+                installScript = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to load " + INSTALL_SCRIPT, e);
+            }
+        }
+        return installScript;
+    }
+
+    private void run(SSHClient ssh, String command, String stdin, long timeoutSeconds) throws IOException {
+        try (Session session = ssh.startSession()) {
+            Command cmd = session.exec(command);
+            if (stdin != null) {
+                try (var input = cmd.getOutputStream()) {
+                    input.write(stdin.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+
+            String output = new String(cmd.getInputStream().readAllBytes());
+            String error = new String(cmd.getErrorStream().readAllBytes());
+
+            cmd.join(timeoutSeconds, TimeUnit.SECONDS);
+
+            if (cmd.getExitStatus() == null || cmd.getExitStatus() != 0) {
+                throw new RuntimeException(String.format(
+                    "Command failed with status %s: %s\nOutput: %s\nError: %s",
+                    cmd.getExitStatus(), command, output, error
+                ));
+            }
+        }
+    }
+
+    private ExecResult exec(SSHClient ssh, String command, long timeoutSeconds) throws IOException {
+        try (Session session = ssh.startSession()) {
+            Command cmd = session.exec(command);
+            String output = new String(cmd.getInputStream().readAllBytes());
+            cmd.join(timeoutSeconds, TimeUnit.SECONDS);
+            return new ExecResult(cmd.getExitStatus() == null ? -1 : cmd.getExitStatus(), output);
+        }
+    }
+
+    private long recordPhase(String mode, String phase, long startNanos) {
+        var now = System.nanoTime();
+        nodeBootstrapMetrics.recordPhase(mode, phase, Duration.ofNanos(now - startNanos));
+        return now;
+    }
+
+    private record ExecResult(int exitStatus, String output) {}
+}
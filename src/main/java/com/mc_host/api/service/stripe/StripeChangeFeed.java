@@ -0,0 +1,154 @@
+package com.mc_host.api.service.stripe;
+
+import com.mc_host.api.configuration.StripeConfiguration;
+import com.mc_host.api.metrics.StripeSyncMetrics;
+import com.mc_host.api.model.stripe.StripeObjectChange;
+import com.mc_host.api.model.stripe.StripeSyncCursor;
+import com.mc_host.api.model.stripe.StripeSyncResource;
+import com.mc_host.api.repository.StripeSyncRepository;
+import com.mc_host.api.util.RowDiff;
+import com.stripe.Stripe;
+import com.stripe.exception.EventDataObjectDeserializationException;
+import com.stripe.model.Event;
+import com.stripe.model.StripeObject;
+import com.stripe.net.ApiResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Decides whether a customer's sync can run off the objects its webhooks carried or has to list stripe.
+ * Stripe's list endpoints have no updated-since filter, so the incremental source is the freshest object
+ * per id the inbox drain recorded. A full listing still runs for a customer seen for the first time, once
+ * the full sync interval has passed, and whenever the carried objects can't be used.
+ */
+@Service
+public class StripeChangeFeed {
+    private static final Logger LOGGER = Logger.getLogger(StripeChangeFeed.class.getName());
+
+    private final StripeSyncRepository stripeSyncRepository;
+    private final StripeConfiguration stripeConfiguration;
+    private final StripeSyncMetrics stripeSyncMetrics;
+
+    public StripeChangeFeed(
+        StripeSyncRepository stripeSyncRepository,
+        StripeConfiguration stripeConfiguration,
+        StripeSyncMetrics stripeSyncMetrics
+    ) {
+        this.stripeSyncRepository = stripeSyncRepository;
+        this.stripeConfiguration = stripeConfiguration;
+        this.stripeSyncMetrics = stripeSyncMetrics;
+    }
+
+    public <T extends StripeObject> Batch<T> open(String customerId, StripeSyncResource resource, Class<T> type) {
+        // event times are whole seconds, anything created in the second a listing starts is applied again later
+        var startedAt = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        var cursor = stripeSyncRepository.selectCursor(customerId, resource);
+        if (cursor.isEmpty() || cursor.get().fullSyncDue(startedAt, stripeConfiguration.fullSyncInterval())) {
+            return Batch.full(customerId, resource, startedAt);
+        }
+
+        // nothing carried means the job came from somewhere that expects stripe to be read
+        var changes = stripeSyncRepository.selectPendingChanges(customerId, resource);
+        if (changes.isEmpty()) {
+            return Batch.full(customerId, resource, startedAt);
+        }
+
+        List<T> objects = new ArrayList<>();
+        for (StripeObjectChange change : changes) {
+            // the last listing already read this object in a newer state
+            if (change.eventCreated().isBefore(cursor.get().fullSyncedAt())) {
+                continue;
+            }
+            var object = embeddedObject(change, type);
+            if (object.isEmpty()) {
+                LOGGER.warning("Could not read the %s %s carried for customer: %s, listing stripe instead"
+                    .formatted(resource, change.objectId(), customerId));
+                return Batch.full(customerId, resource, startedAt);
+            }
+            objects.add(object.get());
+        }
+        return new Batch<>(customerId, resource, Mode.INCREMENTAL, objects, changes, startedAt);
+    }
+
+    // call in the transaction that writes the batch's rows, a batch that is never committed is read again next time
+    public void commit(Batch<?> batch, RowDiff<?> diff) {
+        if (batch.isFull()) {
+            stripeSyncRepository.markChangesAppliedBefore(batch.customerId(), batch.resource(), batch.startedAt());
+            stripeSyncRepository.upsertCursor(new StripeSyncCursor(batch.customerId(), batch.resource(), batch.startedAt(), batch.startedAt()));
+        } else {
+            stripeSyncRepository.markChangesApplied(batch.consumed());
+            var appliedThrough = batch.consumed().stream()
+                .map(StripeObjectChange::eventCreated)
+                .max(Comparator.naturalOrder())
+                .orElseThrow();
+            // full_synced_at is kept by the upsert, it only ever moves forward
+            stripeSyncRepository.upsertCursor(new StripeSyncCursor(batch.customerId(), batch.resource(), appliedThrough, Instant.EPOCH));
+        }
+
+        var resource = batch.resource().name().toLowerCase();
+        stripeSyncMetrics.recordSync(resource, batch.mode().name().toLowerCase());
+        stripeSyncMetrics.recordRows(resource, "inserted", diff.inserted().size());
+        stripeSyncMetrics.recordRows(resource, "updated", diff.updated().size());
+        stripeSyncMetrics.recordRows(resource, "unchanged", diff.unchanged());
+    }
+
+    @Scheduled(fixedDelayString = "${stripe.applied-change-prune-interval-ms:3600000}")
+    public void pruneAppliedChanges() {
+        try {
+            int pruned = stripeSyncRepository.deleteAppliedChangesBefore(Instant.now().minus(stripeConfiguration.appliedChangeRetention()));
+            if (pruned > 0) {
+                LOGGER.info("Pruned %d applied stripe object changes".formatted(pruned));
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to prune applied stripe object changes", e);
+        }
+    }
+
+    private static <T extends StripeObject> Optional<T> embeddedObject(StripeObjectChange change, Class<T> type) {
+        try {
+            var event = StripeObject.deserializeStripeObject(change.eventPayload(), Event.class, ApiResource.getGlobalResponseGetter());
+            // the carried object is in the webhook endpoint's api version, the listing in the one stripe-java pins,
+            // fields can be missing or shaped differently between the two so only an exact match is used
+            if (!Stripe.API_VERSION.equals(event.getApiVersion())) {
+                return Optional.empty();
+            }
+            return Optional.of(event.getDataObjectDeserializer().deserializeUnsafe())
+                .filter(type::isInstance)
+                .map(type::cast);
+        } catch (EventDataObjectDeserializationException | RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    public enum Mode {
+        FULL,
+        INCREMENTAL
+    }
+
+    // objects: the carried objects of an incremental batch, a full batch leaves listing stripe to the caller
+    public record Batch<T extends StripeObject>(
+        String customerId,
+        StripeSyncResource resource,
+        Mode mode,
+        List<T> objects,
+        List<StripeObjectChange> consumed,
+        Instant startedAt
+    ) {
+        private static <T extends StripeObject> Batch<T> full(String customerId, StripeSyncResource resource, Instant startedAt) {
+            return new Batch<>(customerId, resource, Mode.FULL, List.of(), List.of(), startedAt);
+        }
+
+        public boolean isFull() {
+            return mode == Mode.FULL;
+        }
+    }
+}
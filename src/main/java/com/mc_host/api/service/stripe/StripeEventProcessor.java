@@ -1,27 +1,35 @@
 package com.mc_host.api.service.stripe;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mc_host.api.configuration.StripeConfiguration;
+import com.mc_host.api.model.queue.EnqueueRequest;
 import com.mc_host.api.model.queue.JobType;
 import com.mc_host.api.model.stripe.StripeEventType;
-import com.mc_host.api.queue.JobScheduler;
-import com.stripe.model.Event;
-import com.stripe.model.StripeObject;
+import com.mc_host.api.model.stripe.StripeObjectChange;
+import com.mc_host.api.model.stripe.StripeSyncResource;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 @Service
 public class StripeEventProcessor {
     private static final Logger LOGGER = Logger.getLogger(StripeEventProcessor.class.getName());
 
-    private final StripeConfiguration stripeConfiguration;
-    private final JobScheduler jobScheduler;
+    private static final Set<String> CHANGE_FIELDS = Set.of("object", "id", "customer");
+    private static final Set<JobType> SYNCED_JOB_TYPES = Arrays.stream(StripeSyncResource.values())
+        .map(StripeSyncResource::getJobType)
+        .collect(Collectors.toUnmodifiableSet());
+
     private final Map<StripeEventType, EventConfig> eventConfigs;
 
     private record EventConfig(
@@ -31,11 +39,8 @@ public class StripeEventProcessor {
     ) {}
 
     public StripeEventProcessor(
-        StripeConfiguration stripeConfiguration,
-        JobScheduler jobScheduler
+        StripeConfiguration stripeConfiguration
     ) {
-        this.stripeConfiguration = stripeConfiguration;
-        this.jobScheduler = jobScheduler;
         this.eventConfigs = Map.of(
             StripeEventType.INVOICE, new EventConfig(
                 JobType.CUSTOMER_INVOICE_SYNC,
@@ -60,63 +65,65 @@ public class StripeEventProcessor {
         );
     }
     
-    public void processEvent(Event event) {
-        try {
-            if (!stripeConfiguration.isAcceptableEvent().test(event.getType())) {
-                LOGGER.log(Level.FINE, String.format(
-                    "[Thread: %s] discarding event %s, type %s is unsupported",
-                    Thread.currentThread().getName(),
-                    event.getId(),
-                    event.getType()
-                ));
-                return;
-            }
-
-            eventConfigs.entrySet().stream()
-                .filter(entry -> entry.getValue().eventTypePredicate.test(event.getType()))
-                .forEach(entry -> {
-                    StripeEventType eventType = entry.getKey();
-                    EventConfig config = entry.getValue();
-                    String extractedId = extractValueFromEvent(event, config.extractionField)
-                        .orElseThrow(() -> new IllegalStateException(
-                            String.format("failed to extract %s from event %s (type: %s)", 
-                                config.extractionField, event.getId(), event.getType())
-                        ));
-                    jobScheduler.schedule(config.jobType(), extractedId);
-                });
-
+    // the jobs an event calls for and, when it carries a subscription or invoice one of those jobs syncs, that
+    // object's new state. Everything comes off the raw payload in a single streaming pass
+    public Routing route(String eventId, String eventType, String payload) throws IOException {
+        List<EventConfig> matching = eventConfigs.values().stream()
+            .filter(config -> config.eventTypePredicate.test(eventType))
+            .toList();
+        if (matching.isEmpty()) {
             LOGGER.log(Level.FINE, String.format(
-                "[Thread: %s] processed event %s (type: %s)",
-                Thread.currentThread().getName(),
-                event.getId(),
-                event.getType()
+                "discarding event %s, type %s is unsupported",
+                eventId,
+                eventType
             ));
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, String.format(
-                "error processing event %s", 
-                event.getId()), 
-                e);
-            throw e;
+            return new Routing(List.of(), Optional.empty());
         }
-    }
 
-    @SuppressWarnings("deprecation")
-    public static Optional<String> extractValueFromEvent(Event event, String valueName) {
-        if (event == null || event.getData() == null || event.getData().getObject() == null) {
-            return Optional.empty();
+        Set<String> fields = matching.stream()
+            .map(EventConfig::extractionField)
+            .collect(Collectors.toCollection(HashSet::new));
+        boolean syncsObjects = matching.stream()
+            .anyMatch(config -> SYNCED_JOB_TYPES.contains(config.jobType()));
+        if (syncsObjects) {
+            fields.addAll(CHANGE_FIELDS);
         }
+        StripePayloadReader.EventFields event = StripePayloadReader.readEvent(payload, fields);
 
-        StripeObject eventObject = event.getData().getObject();
-        
-        try {
-            String jsonString = eventObject.toJson();
-            ObjectMapper mapper = new ObjectMapper();
-            Map<String, Object> rawData = mapper.readValue(jsonString, new TypeReference<Map<String, Object>>() {});
-            Object value = rawData.get(valueName);
-            return value != null ? Optional.of(value.toString()) : Optional.empty();
-        } catch (Exception e) {
+        List<EnqueueRequest> requests = matching.stream()
+            .map(config -> {
+                String extractedId = event.object().get(config.extractionField());
+                if (extractedId == null) {
+                    throw new IllegalStateException(
+                        String.format("failed to extract %s from event %s (type: %s)", 
+                            config.extractionField(), eventId, eventType)
+                    );
+                }
+                return EnqueueRequest.of(config.jobType(), extractedId);
+            })
+            .toList();
+        return new Routing(requests, syncsObjects ? change(event, requests, payload) : Optional.empty());
+    }
+
+    private static Optional<StripeObjectChange> change(StripePayloadReader.EventFields event, List<EnqueueRequest> requests, String payload) {
+        String objectId = event.object().get("id");
+        String customerId = event.object().get("customer");
+        if (event.created() == null || objectId == null || customerId == null) {
             return Optional.empty();
         }
+        return StripeSyncResource.fromObjectType(event.object().get("object"))
+            .filter(resource -> requests.stream().anyMatch(request -> request.type() == resource.getJobType()))
+            .map(resource -> new StripeObjectChange(
+                resource,
+                objectId,
+                customerId,
+                Instant.ofEpochSecond(event.created()),
+                payload
+            ));
     }
 
-}
\ No newline at end of file
+    public record Routing(
+        List<EnqueueRequest> requests,
+        Optional<StripeObjectChange> change
+    ) {}
+}
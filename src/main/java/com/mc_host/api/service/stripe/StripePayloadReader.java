@@ -0,0 +1,104 @@
+package com.mc_host.api.service.stripe;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads the handful of fields webhook handling needs straight off the raw event payload with a streaming
+ * parser, without building the stripe event, a json tree or a map. Every read stops as soon as it has
+ * what it came for, anything it does not need is skipped over unparsed.
+ */
+final class StripePayloadReader {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private StripePayloadReader() {}
+
+    record EventHeader(String id, String type) {}
+
+    static EventHeader readHeader(String payload) throws IOException {
+        String id = null;
+        String type = null;
+        try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+            requireObject(parser.nextToken());
+            while ((id == null || type == null) && parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_STRING && "id".equals(name)) {
+                    id = parser.getText();
+                } else if (value == JsonToken.VALUE_STRING && "type".equals(name)) {
+                    type = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        if (id == null || type == null) {
+            throw new IOException("stripe event payload has no id or type");
+        }
+        return new EventHeader(id, type);
+    }
+
+    // created is whole seconds, null when the event has none
+    record EventFields(Long created, Map<String, String> object) {}
+
+    // the event's created time and string fields directly on data.object, a field that is missing, null or
+    // not a string is left out
+    static EventFields readEvent(String payload, Collection<String> fields) throws IOException {
+        Long created = null;
+        Map<String, String> values = new HashMap<>(fields.size() * 2);
+        try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+            requireObject(parser.nextToken());
+            boolean inData = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NUMBER_INT && "created".equals(name)) {
+                    created = parser.getLongValue();
+                } else if (value == JsonToken.START_OBJECT && "data".equals(name)) {
+                    inData = true;
+                    break;
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (!inData || !enterObject(parser, "object")) {
+                return new EventFields(created, values);
+            }
+            while (values.size() < fields.size() && parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_STRING && fields.contains(name)) {
+                    values.put(name, parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new EventFields(created, values);
+    }
+
+    // moves the parser inside the named object field of the current object, skipping every field before it
+    private static boolean enterObject(JsonParser parser, String field) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_OBJECT && field.equals(name)) {
+                return true;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private static void requireObject(JsonToken token) throws IOException {
+        if (token != JsonToken.START_OBJECT) {
+            throw new IOException("stripe event payload is not a json object");
+        }
+    }
+}
@@ -2,15 +2,18 @@ package com.mc_host.api.service.stripe;
 
 import com.mc_host.api.configuration.StripeConfiguration;
 import com.mc_host.api.controller.webhook.StripeWebhookController;
+import com.mc_host.api.metrics.WebhookMetrics;
+import com.mc_host.api.model.webhook.InboxEvent;
+import com.mc_host.api.model.webhook.WebhookSource;
+import com.mc_host.api.service.webhook.WebhookInboxService;
 import com.stripe.exception.SignatureVerificationException;
-import com.stripe.model.Event;
 import com.stripe.net.Webhook;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.Executor;
+import java.time.Duration;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -20,27 +23,41 @@ public class StripeWebhookService implements StripeWebhookController {
 	private static final Logger LOGGER = Logger.getLogger(StripeWebhookService.class.getName());
 
 	private final StripeConfiguration stripeConfiguration;
-	private final StripeEventProcessor stripeEventProcessor;
-	private final Executor virtualThreadExecutor;
+	private final WebhookInboxService webhookInboxService;
+	private final WebhookMetrics webhookMetrics;
 
 	@Override
 	public ResponseEntity<String> handleStripeWebhook(String payload, String sigHeader) {
+		long start = System.nanoTime();
+		String outcome = "error";
 		try {
-			Event event = Webhook.constructEvent(payload, sigHeader, stripeConfiguration.getSigningKey());
+			// same check constructEvent makes, without deserializing the whole event just to read its id and type
+			Webhook.Signature.verifyHeader(payload, sigHeader, stripeConfiguration.getSigningKey(), Webhook.DEFAULT_TOLERANCE);
+			StripePayloadReader.EventHeader event = StripePayloadReader.readHeader(payload);
 			LOGGER.log(Level.FINE, String.format(
 				"[Thread: %s] Stripe Event Received - Type: %s, ID: %s",
 				Thread.currentThread().getName(),
-				event.getType(),
-				event.getId()
+				event.type(),
+				event.id()
 			));
-			virtualThreadExecutor.execute(() -> stripeEventProcessor.processEvent(event));
+			if (!stripeConfiguration.isAcceptableEvent().test(event.type())) {
+				outcome = "ignored";
+				return ResponseEntity.ok().body("Webhook Received");
+			}
+			// only acknowledged once the event is durable, stripe retries anything that errors here
+			boolean appended = webhookInboxService.append(
+				InboxEvent.received(WebhookSource.STRIPE, event.id(), event.type(), payload));
+			outcome = appended ? "appended" : "duplicate";
 			return ResponseEntity.ok().body("Webhook Received");
 		} catch (SignatureVerificationException e) {
+			outcome = "rejected";
 			LOGGER.log(Level.SEVERE, "Invalid signature", e);
 			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid signature");
 		} catch (Exception e) {
 			LOGGER.log(Level.SEVERE,"Unexpected error processing webhook", e);
 			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An unexpected error occurred");
+		} finally {
+			webhookMetrics.recordAck(WebhookSource.STRIPE, outcome, Duration.ofNanos(System.nanoTime() - start));
 		}
 	}
 }
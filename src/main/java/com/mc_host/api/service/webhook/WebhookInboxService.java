@@ -0,0 +1,171 @@
+package com.mc_host.api.service.webhook;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mc_host.api.configuration.WebhookInboxConfiguration;
+import com.mc_host.api.metrics.WebhookMetrics;
+import com.mc_host.api.model.queue.EnqueueRequest;
+import com.mc_host.api.model.queue.JobType;
+import com.mc_host.api.model.stripe.StripeObjectChange;
+import com.mc_host.api.model.webhook.InboxEvent;
+import com.mc_host.api.queue.JobScheduler;
+import com.mc_host.api.repository.StripeSyncRepository;
+import com.mc_host.api.repository.WebhookInboxRepository;
+import com.mc_host.api.service.stripe.StripeEventProcessor;
+import com.mc_host.api.util.PersistenceContext;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Webhooks are appended here in the request thread and acknowledged once the row is written, so an
+ * event survives the pod dying straight after the 200. The drainer waits until the oldest pending
+ * event is a coalescing window old, then turns everything pending into one job per (type, id) and
+ * marks the rows processed in the same transaction as the enqueue.
+ */
+@Service
+public class WebhookInboxService {
+    private static final Logger LOGGER = Logger.getLogger(WebhookInboxService.class.getName());
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final WebhookInboxRepository inboxRepository;
+    private final StripeSyncRepository stripeSyncRepository;
+    private final WebhookInboxConfiguration inboxConfiguration;
+    private final StripeEventProcessor stripeEventProcessor;
+    private final JobScheduler jobScheduler;
+    private final PersistenceContext persistenceContext;
+    private final WebhookMetrics webhookMetrics;
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    public WebhookInboxService(
+        WebhookInboxRepository inboxRepository,
+        StripeSyncRepository stripeSyncRepository,
+        WebhookInboxConfiguration inboxConfiguration,
+        StripeEventProcessor stripeEventProcessor,
+        JobScheduler jobScheduler,
+        PersistenceContext persistenceContext,
+        WebhookMetrics webhookMetrics
+    ) {
+        this.inboxRepository = inboxRepository;
+        this.stripeSyncRepository = stripeSyncRepository;
+        this.inboxConfiguration = inboxConfiguration;
+        this.stripeEventProcessor = stripeEventProcessor;
+        this.jobScheduler = jobScheduler;
+        this.persistenceContext = persistenceContext;
+        this.webhookMetrics = webhookMetrics;
+        webhookMetrics.registerInboxLag(() -> lagMillis.get() / 1000.0);
+    }
+
+    // false for a redelivery of an event already in the inbox
+    public boolean append(InboxEvent event) {
+        return inboxRepository.append(event);
+    }
+
+    @Scheduled(fixedDelayString = "${webhook-inbox.drain-interval-ms:500}")
+    public void drainInbox() {
+        try {
+            drain(Instant.now());
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Failed to drain webhook inbox", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${webhook-inbox.prune-interval-ms:3600000}")
+    public void pruneInbox() {
+        try {
+            int pruned = inboxRepository.deleteProcessedBefore(Instant.now().minus(inboxConfiguration.retention()));
+            if (pruned > 0) {
+                LOGGER.info("Pruned %d processed webhook inbox events".formatted(pruned));
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to prune webhook inbox", e);
+        }
+    }
+
+    // returns how many events were drained, nothing is taken until the oldest pending one has waited out the window
+    public int drain(Instant now) {
+        var oldest = inboxRepository.selectOldestPendingReceivedAt();
+        lagMillis.set(oldest.map(receivedAt -> Duration.between(receivedAt, now).toMillis()).orElse(0L));
+        if (oldest.isEmpty() || oldest.get().isAfter(now.minus(inboxConfiguration.coalesceWindow()))) {
+            return 0;
+        }
+
+        int drained = 0;
+        int batch;
+        do {
+            batch = persistenceContext.inTransaction(status -> drainBatch());
+            drained += batch;
+        } while (batch >= inboxConfiguration.getBatchSize());
+        return drained;
+    }
+
+    private int drainBatch() {
+        var start = System.nanoTime();
+        List<InboxEvent> events = inboxRepository.claimPending(inboxConfiguration.getBatchSize());
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, EnqueueRequest> coalesced = new LinkedHashMap<>();
+        Map<String, StripeObjectChange> changes = new LinkedHashMap<>();
+        List<Long> processed = new ArrayList<>();
+        int failed = 0;
+        for (InboxEvent event : events) {
+            try {
+                List<EnqueueRequest> requests = switch (event.source()) {
+                    case STRIPE -> {
+                        var routing = stripeEventProcessor.route(event.eventId(), event.eventType(), event.payload());
+                        routing.change().ifPresent(change -> changes.merge(
+                            String.join("::", change.resource().name(), change.objectId()),
+                            change,
+                            (kept, next) -> next.eventCreated().isBefore(kept.eventCreated()) ? kept : next));
+                        yield routing.requests();
+                    }
+                    case CLERK -> clerkRequests(event);
+                };
+                requests.forEach(request ->
+                    coalesced.putIfAbsent(String.join("::", request.type().name(), request.payload()), request));
+                processed.add(event.id());
+            } catch (Exception e) {
+                failed++;
+                LOGGER.log(Level.WARNING, "Dropping %s webhook %s (type: %s)"
+                    .formatted(event.source(), event.eventId(), event.eventType()), e);
+                inboxRepository.markFailed(event.id(), errorMessage(e));
+            }
+        }
+
+        // the carried objects are written before their jobs exist, so a sync never runs without them
+        stripeSyncRepository.upsertPendingChanges(List.copyOf(changes.values()));
+        jobScheduler.scheduleAll(List.copyOf(coalesced.values()));
+        inboxRepository.markProcessed(processed);
+
+        var scheduledAt = Instant.now();
+        events.forEach(event -> webhookMetrics.recordDelay(event.source(), Duration.between(event.receivedAt(), scheduledAt)));
+        webhookMetrics.recordDrain(events.size(), coalesced.size(), failed, Duration.ofNanos(System.nanoTime() - start));
+        LOGGER.fine("Drained %d webhook events into %d jobs, %d failed".formatted(events.size(), coalesced.size(), failed));
+        return events.size();
+    }
+
+    private List<EnqueueRequest> clerkRequests(InboxEvent event) throws Exception {
+        JsonNode userId = OBJECT_MAPPER.readTree(event.payload()).path("data").path("id");
+        if (!userId.isTextual()) {
+            throw new IllegalStateException("clerk event %s has no user id".formatted(event.eventId()));
+        }
+        return List.of(EnqueueRequest.of(JobType.CLERK_USER_SYNC, userId.asText()));
+    }
+
+    private static String errorMessage(Exception e) {
+        var message = "%s: %s".formatted(e.getClass().getSimpleName(), e.getMessage());
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
@@ -0,0 +1,147 @@
+package com.mc_host.api.util;
+
+import com.mc_host.api.metrics.AwaitMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Polls a condition without holding a thread between checks. Each check runs on a virtual thread,
+ * the gaps between them are timers on the shared delayed task scheduler, and the delay grows from
+ * the backoff's initial delay towards its max so a condition that is nearly met is noticed quickly.
+ * Cancelling the returned future stops the polling.
+ */
+@Component
+public class ConditionAwaiter {
+
+    private final ScheduledExecutorService delayedTaskScheduler;
+    private final AwaitMetrics awaitMetrics;
+    private final ExecutorService probeExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ConditionAwaiter(ScheduledExecutorService delayedTaskScheduler, AwaitMetrics awaitMetrics) {
+        this.delayedTaskScheduler = delayedTaskScheduler;
+        this.awaitMetrics = awaitMetrics;
+    }
+
+    /**
+     * Completes with the probe's first non-empty result. A probe that throws counts as not ready yet;
+     * if the timeout passes first the future fails with a TimeoutException carrying the last such error.
+     */
+    public <T> CompletableFuture<T> await(String name, Backoff backoff, Duration timeout, Probe<T> probe) {
+        return await(name, backoff, Duration.ZERO, timeout, probe);
+    }
+
+    // for probes with side effects that must not fire before the action being waited on has had a chance
+    public <T> CompletableFuture<T> await(String name, Backoff backoff, Duration firstCheckDelay, Duration timeout, Probe<T> probe) {
+        var wait = new Wait<>(name, backoff, System.nanoTime() + timeout.toNanos(), timeout, probe);
+        wait.schedule(firstCheckDelay);
+        return wait.result;
+    }
+
+    // for callers that still have to return synchronously, unwraps the failure the probe or timeout produced
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        probeExecutor.shutdownNow();
+    }
+
+    private final class Wait<T> {
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final AtomicReference<Exception> lastError = new AtomicReference<>();
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final String name;
+        private final Backoff backoff;
+        private final long deadlineNanos;
+        private final Duration timeout;
+        private final Probe<T> probe;
+        private final long startNanos = System.nanoTime();
+
+        private Wait(String name, Backoff backoff, long deadlineNanos, Duration timeout, Probe<T> probe) {
+            this.name = name;
+            this.backoff = backoff;
+            this.deadlineNanos = deadlineNanos;
+            this.timeout = timeout;
+            this.probe = probe;
+            result.whenComplete((value, error) -> awaitMetrics.recordAwait(
+                name,
+                error == null ? "satisfied" : result.isCancelled() ? "cancelled" : error instanceof TimeoutException ? "timeout" : "failed",
+                attempts.get(),
+                Duration.ofNanos(System.nanoTime() - startNanos)
+            ));
+        }
+
+        private void schedule(Duration delay) {
+            try {
+                delayedTaskScheduler.schedule(() -> probeExecutor.execute(() -> check(delay)), delay.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        private void check(Duration previousDelay) {
+            if (result.isDone()) {
+                return;
+            }
+            attempts.incrementAndGet();
+            try {
+                Optional<T> value = probe.check();
+                if (value.isPresent()) {
+                    result.complete(value.get());
+                    return;
+                }
+            } catch (Exception e) {
+                lastError.set(e);
+            }
+
+            var remaining = deadlineNanos - System.nanoTime();
+            if (remaining <= 0) {
+                var timedOut = new TimeoutException("%s not satisfied within %s after %d checks".formatted(name, timeout, attempts.get()));
+                timedOut.initCause(lastError.get());
+                result.completeExceptionally(timedOut);
+                return;
+            }
+            var next = backoff.next(previousDelay);
+            schedule(next.toNanos() > remaining ? Duration.ofNanos(remaining) : next);
+        }
+    }
+
+    public record Backoff(Duration initialDelay, Duration maxDelay, double multiplier) {
+        public static Backoff of(Duration initialDelay, Duration maxDelay) {
+            return new Backoff(initialDelay, maxDelay, 2.0);
+        }
+
+        Duration next(Duration previous) {
+            if (previous.isZero()) {
+                return initialDelay;
+            }
+            var grown = Duration.ofNanos((long) (previous.toNanos() * multiplier));
+            return grown.compareTo(maxDelay) > 0 ? maxDelay : grown;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Probe<T> {
+        Optional<T> check() throws Exception;
+    }
+}
@@ -0,0 +1,46 @@
+package com.mc_host.api.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * What it takes to make a set of stored rows match a freshly fetched set. Rows are paired by key and
+ * compared with equals, so a record row only counts as updated when its content differs. Deleted is
+ * only meaningful when the fetched set is complete, callers applying a partial set ignore it.
+ */
+public record RowDiff<R>(List<R> inserted, List<R> updated, List<R> deleted, int unchanged) {
+
+    public static <K, R> RowDiff<R> of(Collection<R> stored, Collection<R> fetched, Function<R, K> key) {
+        Map<K, R> remaining = new LinkedHashMap<>();
+        stored.forEach(row -> remaining.put(key.apply(row), row));
+
+        List<R> inserted = new ArrayList<>();
+        List<R> updated = new ArrayList<>();
+        int unchanged = 0;
+        for (R row : fetched) {
+            R current = remaining.remove(key.apply(row));
+            if (current == null) {
+                inserted.add(row);
+            } else if (current.equals(row)) {
+                unchanged++;
+            } else {
+                updated.add(row);
+            }
+        }
+        return new RowDiff<>(inserted, updated, List.copyOf(remaining.values()), unchanged);
+    }
+
+    public List<R> changed() {
+        List<R> changed = new ArrayList<>(inserted);
+        changed.addAll(updated);
+        return changed;
+    }
+
+    public boolean hasChanges() {
+        return !inserted.isEmpty() || !updated.isEmpty() || !deleted.isEmpty();
+    }
+}
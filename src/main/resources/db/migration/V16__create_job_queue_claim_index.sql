@@ -0,0 +1,7 @@
+-- Single claim path for PENDING and RETRYING, walked per type in readiness order
+CREATE INDEX idx_job_queue_claimable ON job_queue_(type, delayed_until, job_id)
+    WHERE status IN ('PENDING', 'RETRYING');
+
+-- Superseded by idx_job_queue_claimable
+DROP INDEX idx_job_queue_pending_ready;
+DROP INDEX idx_job_queue_retrying_ready;
@@ -0,0 +1,6 @@
+-- Lease held by the replica processing a job, extended by heartbeat while the job runs
+ALTER TABLE job_queue_ ADD COLUMN lease_owner TEXT;
+ALTER TABLE job_queue_ ADD COLUMN lease_expires_at TIMESTAMP WITH TIME ZONE;
+
+CREATE INDEX idx_job_queue_lease_expiry ON job_queue_(lease_expires_at)
+    WHERE status = 'PROCESSING';
@@ -0,0 +1,106 @@
+-- Monthly range partitions on archived_at, old months are dropped instead of deleted
+ALTER TABLE job_audit_ RENAME TO job_audit_legacy_;
+ALTER INDEX job_audit__pkey RENAME TO job_audit_legacy__pkey;
+DROP INDEX idx_job_audit_type_status;
+DROP INDEX idx_job_audit_created_date;
+DROP INDEX idx_job_audit_archived_date;
+DROP INDEX idx_job_audit_job_id;
+
+CREATE TABLE job_audit_ (
+    -- same fields as job_queue_
+    id BIGSERIAL,
+    job_id TEXT NOT NULL,
+    dedup_key TEXT,
+    type TEXT,
+    status TEXT,
+    payload TEXT,
+    retry_count INTEGER,
+    maximum_retries INTEGER,
+    error_message TEXT,
+    delayed_until TIMESTAMP WITH TIME ZONE,
+    processed_at TIMESTAMP WITH TIME ZONE,
+    last_seen TIMESTAMP WITH TIME ZONE,
+    duplicate_count INTEGER,
+    created_at TIMESTAMP WITH TIME ZONE,
+    last_updated TIMESTAMP WITH TIME ZONE,
+
+    -- audit metadata
+    archived_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    PRIMARY KEY (id, archived_at)
+) PARTITION BY RANGE (archived_at);
+
+-- indexes for analytics queries, created on every partition
+CREATE INDEX idx_job_audit_type_status ON job_audit_(type, status);
+CREATE INDEX idx_job_audit_created_date ON job_audit_(created_at);
+CREATE INDEX idx_job_audit_archived_date ON job_audit_(archived_at);
+CREATE INDEX idx_job_audit_job_id ON job_audit_(job_id);
+
+-- Partition naming: job_audit_yYYYYmMM, covering one calendar month
+CREATE OR REPLACE FUNCTION ensure_job_audit_partition(partition_month DATE)
+RETURNS VOID AS $$
+DECLARE
+    month_start DATE := date_trunc('month', partition_month)::DATE;
+BEGIN
+    EXECUTE format(
+        'CREATE TABLE IF NOT EXISTS %I PARTITION OF job_audit_ FOR VALUES FROM (%L) TO (%L)',
+        'job_audit_y' || to_char(month_start, 'YYYY') || 'm' || to_char(month_start, 'MM'),
+        month_start,
+        (month_start + INTERVAL '1 month')::DATE
+    );
+END;
+$$ language 'plpgsql';
+
+CREATE OR REPLACE FUNCTION drop_job_audit_partitions_before(cutoff DATE)
+RETURNS INTEGER AS $$
+DECLARE
+    partition_name TEXT;
+    dropped INTEGER := 0;
+BEGIN
+    FOR partition_name IN
+        SELECT child.relname
+        FROM pg_inherits
+        JOIN pg_class parent ON pg_inherits.inhparent = parent.oid
+        JOIN pg_class child ON pg_inherits.inhrelid = child.oid
+        WHERE parent.relname = 'job_audit_'
+        AND child.relname ~ '^job_audit_y[0-9]{4}m[0-9]{2}$'
+    LOOP
+        IF (to_date(substring(partition_name FROM 12 FOR 4) || substring(partition_name FROM 17 FOR 2), 'YYYYMM')
+                + INTERVAL '1 month') <= cutoff THEN
+            EXECUTE format('DROP TABLE %I', partition_name);
+            dropped := dropped + 1;
+        END IF;
+    END LOOP;
+    RETURN dropped;
+END;
+$$ language 'plpgsql';
+
+-- Partitions for existing audit history plus the next two months
+DO $$
+DECLARE
+    partition_month DATE;
+BEGIN
+    FOR partition_month IN
+        SELECT generate_series(
+            date_trunc('month', COALESCE((SELECT MIN(archived_at) FROM job_audit_legacy_), NOW())),
+            date_trunc('month', NOW()) + INTERVAL '2 months',
+            INTERVAL '1 month'
+        )::DATE
+    LOOP
+        PERFORM ensure_job_audit_partition(partition_month);
+    END LOOP;
+END;
+$$;
+
+INSERT INTO job_audit_ (
+    id, job_id, dedup_key, type, status, payload, retry_count, maximum_retries, error_message,
+    delayed_until, processed_at, last_seen, duplicate_count, created_at, last_updated, archived_at
+)
+SELECT
+    id, job_id, dedup_key, type, status, payload, retry_count, maximum_retries, error_message,
+    delayed_until, processed_at, last_seen, duplicate_count, created_at, last_updated, archived_at
+FROM job_audit_legacy_;
+
+SELECT setval(pg_get_serial_sequence('job_audit_', 'id'), COALESCE((SELECT MAX(id) FROM job_audit_legacy_), 0) + 1, false);
+
+DROP TABLE job_audit_legacy_;
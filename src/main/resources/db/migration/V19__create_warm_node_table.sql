@@ -0,0 +1,40 @@
+-- Cloud nodes built ahead of demand, fully configured but owned by no subscription yet.
+-- A row is deleted when a subscription claims it, its resources move into the per-subscription tables.
+CREATE TABLE warm_node_ (
+    id BIGSERIAL PRIMARY KEY,
+    cloud_product TEXT NOT NULL,
+    hetzner_region TEXT NOT NULL,
+    status TEXT NOT NULL,
+    hetzner_node_id BIGINT,
+    a_record_id TEXT,
+    zone_id TEXT,
+    zone_name TEXT,
+    record_name TEXT,
+    content TEXT,
+    pterodactyl_node_id BIGINT,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_updated TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT warm_node_hetzner_node_id_fk FOREIGN KEY (hetzner_node_id)
+        REFERENCES node_(hetzner_node_id) ON DELETE CASCADE,
+    CONSTRAINT warm_node_hetzner_node_id_unique UNIQUE (hetzner_node_id)
+);
+
+-- claim path: oldest ready node of a product in a region
+CREATE INDEX idx_warm_node_ready ON warm_node_(cloud_product, hetzner_region, created_at) WHERE status = 'READY';
+
+CREATE TRIGGER update_warm_node_last_updated
+    BEFORE UPDATE ON warm_node_
+    FOR EACH ROW
+    EXECUTE FUNCTION update_last_updated_column();
+
+-- Every cloud node allocation, served from the pool or not, drives the pool's target size
+CREATE TABLE warm_node_checkout_ (
+    id BIGSERIAL PRIMARY KEY,
+    cloud_product TEXT NOT NULL,
+    hetzner_region TEXT NOT NULL,
+    hit BOOLEAN NOT NULL,
+    checked_out_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_warm_node_checkout_pool ON warm_node_checkout_(cloud_product, hetzner_region, checked_out_at);
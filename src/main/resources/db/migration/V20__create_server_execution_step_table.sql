@@ -0,0 +1,17 @@
+-- Append only, one row per provisioning step execution. server_execution_context_ keeps just the latest state
+CREATE TABLE server_execution_step_ (
+    id BIGSERIAL PRIMARY KEY,
+    subscription_id TEXT NOT NULL,
+    step_type TEXT NOT NULL,
+    mode TEXT NOT NULL,
+    -- CHAIN when run in order, AHEAD when started before the chain reached it
+    lane TEXT NOT NULL,
+    outcome TEXT NOT NULL,
+    error_message TEXT,
+    started_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    duration_ms BIGINT NOT NULL
+);
+
+CREATE INDEX idx_server_execution_step_started ON server_execution_step_(started_at);
+CREATE INDEX idx_server_execution_step_type_started ON server_execution_step_(step_type, started_at);
+CREATE INDEX idx_server_execution_step_subscription ON server_execution_step_(subscription_id, started_at);
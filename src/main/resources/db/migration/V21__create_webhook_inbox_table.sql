@@ -0,0 +1,18 @@
+-- Verified webhook deliveries, written before the webhook is acknowledged and drained into the job queue.
+-- Processed rows are kept for a while so a provider redelivering an event is dropped by the unique key.
+CREATE TABLE webhook_inbox_ (
+    id BIGSERIAL PRIMARY KEY,
+    source TEXT NOT NULL,
+    event_id TEXT NOT NULL,
+    event_type TEXT NOT NULL,
+    payload TEXT NOT NULL,
+    received_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    processed_at TIMESTAMP WITH TIME ZONE,
+    error_message TEXT,
+
+    CONSTRAINT webhook_inbox_source_event_unique UNIQUE (source, event_id)
+);
+
+-- drain path: pending rows in arrival order
+CREATE INDEX idx_webhook_inbox_pending ON webhook_inbox_(id) WHERE processed_at IS NULL;
+CREATE INDEX idx_webhook_inbox_processed ON webhook_inbox_(processed_at) WHERE processed_at IS NOT NULL;
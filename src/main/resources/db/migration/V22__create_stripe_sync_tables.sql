@@ -0,0 +1,25 @@
+-- The freshest state of each stripe object seen in a webhook. A row stays once its customer's sync has
+-- applied it, so an older event redelivered afterwards can't take the object backwards.
+CREATE TABLE stripe_object_change_ (
+    resource TEXT NOT NULL,
+    object_id TEXT NOT NULL,
+    customer_id TEXT NOT NULL,
+    event_created TIMESTAMP WITH TIME ZONE NOT NULL,
+    event_payload TEXT,
+    applied BOOLEAN NOT NULL DEFAULT FALSE,
+
+    PRIMARY KEY (resource, object_id)
+);
+
+-- sync path: a customer's changes still waiting to be applied
+CREATE INDEX idx_stripe_object_change_pending ON stripe_object_change_(customer_id, resource) WHERE NOT applied;
+
+-- Per customer high-water mark of what the incremental sync has applied, and when stripe was last listed in full
+CREATE TABLE stripe_sync_cursor_ (
+    customer_id TEXT NOT NULL,
+    resource TEXT NOT NULL,
+    applied_through TIMESTAMP WITH TIME ZONE NOT NULL,
+    full_synced_at TIMESTAMP WITH TIME ZONE NOT NULL,
+
+    PRIMARY KEY (customer_id, resource)
+);
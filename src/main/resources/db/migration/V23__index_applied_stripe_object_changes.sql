@@ -0,0 +1,2 @@
+-- prune path: applied rows past their retention
+CREATE INDEX idx_stripe_object_change_applied ON stripe_object_change_(event_created) WHERE applied;
@@ -0,0 +1,61 @@
+-- Catch-all for rows archived into a month whose partition doesn't exist yet, so archival never fails
+CREATE TABLE job_audit_default PARTITION OF job_audit_ DEFAULT;
+
+-- Creating a month's partition fails while the default holds rows for that month, move them across
+CREATE OR REPLACE FUNCTION ensure_job_audit_partition(partition_month DATE)
+RETURNS VOID AS $$
+DECLARE
+    month_start DATE := date_trunc('month', partition_month)::DATE;
+    month_end DATE := (date_trunc('month', partition_month) + INTERVAL '1 month')::DATE;
+    partition_name TEXT := 'job_audit_y' || to_char(month_start, 'YYYY') || 'm' || to_char(month_start, 'MM');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN;
+    END IF;
+
+    CREATE TEMP TABLE job_audit_stray_ (LIKE job_audit_);
+    WITH moved AS (
+        DELETE FROM job_audit_default
+        WHERE archived_at >= month_start AND archived_at < month_end
+        RETURNING *
+    )
+    INSERT INTO job_audit_stray_ SELECT * FROM moved;
+
+    EXECUTE format(
+        'CREATE TABLE %I PARTITION OF job_audit_ FOR VALUES FROM (%L) TO (%L)',
+        partition_name,
+        month_start,
+        month_end
+    );
+
+    INSERT INTO job_audit_ SELECT * FROM job_audit_stray_;
+    DROP TABLE job_audit_stray_;
+END;
+$$ language 'plpgsql';
+
+-- Expired rows that landed in the default are deleted, monthly partitions are still dropped whole
+CREATE OR REPLACE FUNCTION drop_job_audit_partitions_before(cutoff DATE)
+RETURNS INTEGER AS $$
+DECLARE
+    partition_name TEXT;
+    dropped INTEGER := 0;
+BEGIN
+    DELETE FROM job_audit_default WHERE archived_at < cutoff;
+
+    FOR partition_name IN
+        SELECT child.relname
+        FROM pg_inherits
+        JOIN pg_class parent ON pg_inherits.inhparent = parent.oid
+        JOIN pg_class child ON pg_inherits.inhrelid = child.oid
+        WHERE parent.relname = 'job_audit_'
+        AND child.relname ~ '^job_audit_y[0-9]{4}m[0-9]{2}$'
+    LOOP
+        IF (to_date(substring(partition_name FROM 12 FOR 4) || substring(partition_name FROM 17 FOR 2), 'YYYYMM')
+                + INTERVAL '1 month') <= cutoff THEN
+            EXECUTE format('DROP TABLE %I', partition_name);
+            dropped := dropped + 1;
+        END IF;
+    END LOOP;
+    RETURN dropped;
+END;
+$$ language 'plpgsql';
@@ -0,0 +1,2 @@
+-- Fresh per claim, so a run whose lease was reaped can't write over the row or a later claim of it
+ALTER TABLE job_queue_ ADD COLUMN lease_token TEXT;
@@ -0,0 +1,40 @@
+#!/bin/bash
+set -e
+
+# installs docker and the wings daemon, leaves wings enabled but stopped until config.yml and certs are pushed.
+# runs over ssh, as hetzner cloud-init user-data, or once on the node a bootstrap snapshot is taken from
+export DEBIAN_FRONTEND=noninteractive
+
+apt-get update
+curl -sSL https://get.docker.com/ | CHANNEL=stable bash
+apt-get install -y tar unzip make gcc g++ python3
+
+# wings binary
+mkdir -p /etc/pterodactyl
+ARCH=$(uname -m | sed 's/x86_64/amd64/; s/aarch64/arm64/')
+curl -sSL -o /etc/pterodactyl/wings "https://github.com/pterodactyl/wings/releases/latest/download/wings_linux_${ARCH}"
+chmod u+x /etc/pterodactyl/wings
+
+# systemd service
+cat > /etc/systemd/system/wings.service << 'EOF'
+[Unit]
+Description=Pterodactyl Wings Daemon
+After=docker.service
+Requires=docker.service
+
+[Service]
+User=root
+WorkingDirectory=/etc/pterodactyl
+LimitNOFILE=4096
+PIDFile=/var/run/wings/daemon.pid
+ExecStart=/etc/pterodactyl/wings
+Restart=on-failure
+StartLimitInterval=180
+StartLimitBurst=30
+
+[Install]
+WantedBy=multi-user.target
+EOF
+
+systemctl daemon-reload
+systemctl enable wings
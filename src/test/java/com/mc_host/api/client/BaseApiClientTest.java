@@ -0,0 +1,224 @@
+package com.mc_host.api.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mc_host.api.configuration.HttpClientConfiguration;
+import com.mc_host.api.metrics.HttpClientMetrics;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BaseApiClientTest {
+
+    private HttpServer server;
+    private SimpleMeterRegistry meterRegistry;
+    private UpstreamTransportFactory transports;
+    private TestClient client;
+    private final AtomicInteger flakyCalls = new AtomicInteger();
+    private final AtomicInteger throttledCalls = new AtomicInteger();
+    private final AtomicInteger downCalls = new AtomicInteger();
+    private final AtomicInteger uploadedBytes = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/servers", exchange -> {
+            var status = exchange.getRequestURI().getPath().endsWith("/conflict") ? 409 : 200;
+            var body = "{\"id\":42,\"name\":\"alpha\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/flaky", exchange -> {
+            var status = flakyCalls.incrementAndGet() == 1 ? 503 : 200;
+            var body = "{\"id\":7,\"name\":\"beta\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/throttled", exchange -> {
+            var first = throttledCalls.incrementAndGet() == 1;
+            if (first) {
+                exchange.getResponseHeaders().add("Retry-After", "0");
+            }
+            var body = "{\"id\":9,\"name\":\"gamma\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(first ? 429 : 200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/down", exchange -> {
+            downCalls.incrementAndGet();
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+        server.createContext("/upload", exchange -> {
+            uploadedBytes.set(exchange.getRequestBody().readAllBytes().length);
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+
+        meterRegistry = new SimpleMeterRegistry();
+        var metrics = new HttpClientMetrics(meterRegistry);
+        var configuration = new HttpClientConfiguration();
+        configuration.getDefaults().setHttp2(false);
+        configuration.getDefaults().setRetryBaseDelayMs(1L);
+        configuration.getDefaults().setCircuitFailureThreshold(2);
+        transports = new UpstreamTransportFactory(configuration, metrics);
+        client = new TestClient(transports.forUpstream("test"), metrics, "http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    @AfterEach
+    void tearDown() {
+        transports.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void sendRequest_shouldDeserializeFromStream() {
+        // when
+        var response = client.sendRequest("GET", "/servers/1234", TestResponse.class);
+
+        // then
+        assertThat(response).isEqualTo(new TestResponse(42L, "alpha"));
+        assertThat(client.transport.inFlight()).isZero();
+    }
+
+    @Test
+    void sendRequest_shouldRecordTimerByPathTemplate() {
+        // when
+        client.sendRequest("GET", "/servers/1234?include=allocations");
+        client.sendRequest("GET", "/servers/5678");
+
+        // then
+        var timer = meterRegistry.find("http.client.upstream.requests")
+            .tags("upstream", "test", "method", "GET", "uri", "/servers/{id}", "status", "200")
+            .timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(2);
+    }
+
+    @Test
+    void sendRequest_shouldReleasePermitOnError() {
+        // when / then
+        assertThatThrownBy(() -> client.sendRequest("GET", "/servers/1234/conflict"))
+            .hasMessageContaining("GET /servers/1234/conflict");
+        assertThat(client.transport.inFlight()).isZero();
+    }
+
+    @Test
+    void sendRequest_shouldRetryIdempotentRequestOnServiceUnavailable() {
+        // when
+        var response = client.sendRequest("GET", "/flaky/1", TestResponse.class);
+
+        // then
+        assertThat(response.id()).isEqualTo(7L);
+        assertThat(flakyCalls.get()).isEqualTo(2);
+        assertThat(meterRegistry.find("http.client.upstream.retries").tag("reason", "503").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void sendRequest_shouldNotRetryNonIdempotentRequestOnServiceUnavailable() {
+        // when / then
+        assertThatThrownBy(() -> client.sendRequest("POST", "/flaky/1", Map.of("a", "b"), TestResponse.class))
+            .hasMessageContaining("POST /flaky/1");
+        assertThat(flakyCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void sendRequest_shouldHonourRetryAfterOnTooManyRequests() {
+        // when
+        var response = client.sendRequest("POST", "/throttled", Map.of("a", "b"), TestResponse.class);
+
+        // then
+        assertThat(response.id()).isEqualTo(9L);
+        assertThat(throttledCalls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void sendRequest_shouldFailFastOnceCircuitOpens() {
+        // given
+        assertThatThrownBy(() -> client.sendRequest("POST", "/down"));
+        assertThatThrownBy(() -> client.sendRequest("POST", "/down"));
+
+        // when / then
+        assertThatThrownBy(() -> client.sendRequest("POST", "/down"))
+            .rootCause()
+            .hasMessageContaining("circuit open");
+        assertThat(downCalls.get()).isEqualTo(2);
+        assertThat(client.transport.circuitBreaker().getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void sendToSignedUrl_shouldStreamBodyAndRecordTimer() throws Exception {
+        // given
+        var payload = new byte[256 * 1024];
+        var request = HttpRequest.newBuilder()
+            .uri(URI.create(client.getApiBase() + "/upload?token=abc"))
+            .POST(HttpRequest.BodyPublishers.fromPublisher(
+                HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(payload)),
+                payload.length))
+            .build();
+
+        // when
+        client.sendToSignedUrl(request, "/upload/file");
+
+        // then
+        assertThat(uploadedBytes.get()).isEqualTo(payload.length);
+        assertThat(meterRegistry.find("http.client.upstream.requests").tag("uri", "/upload/file").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void parseRetryAfter_shouldAcceptSecondsAndHttpDates() {
+        assertThat(BaseApiClient.parseRetryAfter("5")).isEqualTo(Duration.ofSeconds(5));
+        assertThat(BaseApiClient.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT")).isEqualTo(Duration.ZERO);
+        assertThat(BaseApiClient.parseRetryAfter("soon")).isNull();
+    }
+
+    @Test
+    void pathTemplate_shouldCollapseIdentifiers() {
+        assertThat(BaseApiClient.pathTemplate("/api/client/servers/1a2b3c4d/files/list?directory=%2F"))
+            .isEqualTo("/api/client/servers/{id}/files/list");
+        assertThat(BaseApiClient.pathTemplate("/api/client/servers/1a2b3c4d/backups/0b5c2f1e-6d4a-4a8e-9a31-8e2f1c7d9b10/download"))
+            .isEqualTo("/api/client/servers/{id}/backups/{id}/download");
+        assertThat(BaseApiClient.pathTemplate("/zones/023e105f4ecef8ad9ca31a8372d0c353/dns_records"))
+            .isEqualTo("/zones/{id}/dns_records");
+        assertThat(BaseApiClient.pathTemplate("/api/application/nodes/7/configuration"))
+            .isEqualTo("/api/application/nodes/{id}/configuration");
+    }
+
+    record TestResponse(Long id, String name) {}
+
+    private static class TestClient extends BaseApiClient {
+        private final String apiBase;
+
+        TestClient(UpstreamTransport transport, HttpClientMetrics metrics, String apiBase) {
+            super(transport, metrics, new ObjectMapper());
+            this.apiBase = apiBase;
+        }
+
+        @Override
+        protected String getApiBase() {
+            return apiBase;
+        }
+
+        @Override
+        protected String getAuthorizationHeader() {
+            return "Bearer test";
+        }
+    }
+}
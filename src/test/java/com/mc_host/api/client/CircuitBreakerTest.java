@@ -0,0 +1,106 @@
+package com.mc_host.api.client;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        circuitBreaker = new CircuitBreaker(3, Duration.ofSeconds(10), clock::get);
+    }
+
+    @Test
+    void onFailure_shouldOpenAfterConsecutiveFailures() {
+        // when
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+
+        // then
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        // when
+        circuitBreaker.onFailure();
+
+        // then
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void tryAcquire_shouldAllowSingleProbeAfterCoolDown() {
+        // given
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.onFailure();
+        }
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        // when / then
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+    }
+
+    @Test
+    void onFailure_shouldReopenWhenProbeFails() {
+        // given
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.onFailure();
+        }
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        circuitBreaker.tryAcquire();
+
+        // when
+        circuitBreaker.onFailure();
+
+        // then
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void onSuccess_shouldCloseAfterSuccessfulProbe() {
+        // given
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.onFailure();
+        }
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        circuitBreaker.tryAcquire();
+
+        // when
+        circuitBreaker.onSuccess();
+
+        // then
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void onAbandoned_shouldHandTheProbeToTheNextCaller_whenAProbeIsInterrupted() {
+        // given
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.onFailure();
+        }
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+
+        // when
+        circuitBreaker.onAbandoned();
+
+        // then
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+    }
+}
@@ -0,0 +1,54 @@
+package com.mc_host.api.configuration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HttpClientConfigurationTest {
+
+    @Test
+    void upstream_shouldLayerOverridesOnTopOfConfiguredDefaults() {
+        // given
+        var configuration = bind(Map.of(
+            "http-client.defaults.max-retries", "7",
+            "http-client.defaults.request-timeout-ms", "45000",
+            "http-client.upstreams.pterodactyl.max-concurrent-requests", "32",
+            "http-client.upstreams.pterodactyl.request-timeout-ms", "900000"
+        ));
+
+        // when
+        var pterodactyl = configuration.upstream("pterodactyl");
+
+        // then
+        assertThat(pterodactyl.getMaxConcurrentRequests()).isEqualTo(32);
+        assertThat(pterodactyl.getRequestTimeoutMs()).isEqualTo(900000L);
+        assertThat(pterodactyl.getMaxRetries()).isEqualTo(7);
+        assertThat(pterodactyl.getBurst()).isEqualTo(20);
+    }
+
+    @Test
+    void upstream_shouldFallBackToDefaultsForUnconfiguredUpstream() {
+        // given
+        var configuration = bind(Map.of(
+            "http-client.defaults.max-retries", "7"
+        ));
+
+        // when
+        var unknown = configuration.upstream("unknown");
+
+        // then
+        assertThat(unknown.getMaxRetries()).isEqualTo(7);
+        assertThat(unknown.getHttp2()).isTrue();
+        assertThat(unknown.getRequestTimeoutMs()).isEqualTo(30000L);
+    }
+
+    private HttpClientConfiguration bind(Map<String, String> properties) {
+        var binder = new Binder(new MapConfigurationPropertySource(properties));
+        return binder.bind("http-client", Bindable.ofInstance(new HttpClientConfiguration())).get();
+    }
+}
@@ -0,0 +1,156 @@
+package com.mc_host.api.queue;
+
+import com.mc_host.api.DatabaseTest;
+import com.mc_host.api.model.queue.Job;
+import com.mc_host.api.model.queue.JobType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// run with -Dbenchmark=true, seeds 100k queued jobs and compares the legacy two-statement claim with claimJobs
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class JobClaimBenchmarkTest extends DatabaseTest {
+	private static final Logger LOGGER = Logger.getLogger(JobClaimBenchmarkTest.class.getName());
+
+	private static final int QUEUED_JOBS = 100_000;
+	private static final int ITERATIONS = 50;
+	private static final int PER_TYPE_CAP = 5;
+
+	private static final String LEGACY_CLAIM = """
+		UPDATE job_queue_
+		SET
+			status = 'PROCESSING'
+		WHERE job_id IN (
+			SELECT job_id FROM job_queue_
+			WHERE status = ?
+			AND delayed_until <= NOW()
+			AND NOT EXISTS (
+				SELECT 1 FROM job_queue_ j2
+				WHERE j2.type = job_queue_.type
+				AND j2.dedup_key = job_queue_.dedup_key
+				AND j2.status = 'PROCESSING'
+			)
+		ORDER BY delayed_until ASC, job_id ASC
+		LIMIT ?
+		FOR UPDATE SKIP LOCKED
+		)
+		RETURNING job_id;
+		""";
+
+	@Autowired
+	private JobRepository jobRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void claim_at100kQueuedJobs() {
+		seedQueue();
+		// both paths get the same total per iteration, the legacy one split 80/20 between its two statements
+		int batchSize = PER_TYPE_CAP * JobType.values().length;
+		int pendingLimit = batchSize * 4 / 5;
+		int retryingLimit = batchSize - pendingLimit;
+
+		// the legacy claim runs against the indexes it shipped with, not the one that replaced them
+		useLegacyIndexes();
+		long legacyNanos = 0;
+		int legacyClaimed = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			long start = System.nanoTime();
+			List<String> pending = jdbcTemplate.queryForList(LEGACY_CLAIM, String.class, "PENDING", pendingLimit);
+			List<String> retrying = jdbcTemplate.queryForList(LEGACY_CLAIM, String.class, "RETRYING", retryingLimit);
+			legacyNanos += System.nanoTime() - start;
+			legacyClaimed += pending.size() + retrying.size();
+			release(pending);
+			release(retrying);
+		}
+
+		useClaimableIndex();
+		Map<JobType, Integer> limits = new EnumMap<>(JobType.class);
+		Arrays.stream(JobType.values()).forEach(type -> limits.put(type, PER_TYPE_CAP));
+		long batchedNanos = 0;
+		int batchedClaimed = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			long start = System.nanoTime();
+			List<Job> claimed = jobRepository.claimJobs(limits, Duration.ofMinutes(2));
+			batchedNanos += System.nanoTime() - start;
+			batchedClaimed += claimed.size();
+			release(claimed.stream().map(Job::jobId).toList());
+		}
+
+		LOGGER.info("legacy claim: %.2f ms/op for %d jobs, batched claim: %.2f ms/op for %d jobs over %d queued jobs"
+			.formatted(legacyNanos / 1e6 / ITERATIONS, legacyClaimed, batchedNanos / 1e6 / ITERATIONS, batchedClaimed, QUEUED_JOBS));
+		assertThat(batchedClaimed).isPositive();
+		assertThat(batchedClaimed).isEqualTo(legacyClaimed);
+	}
+
+	private void useLegacyIndexes() {
+		jdbcTemplate.execute("DROP INDEX idx_job_queue_claimable");
+		jdbcTemplate.execute("""
+			CREATE INDEX idx_job_queue_pending_ready ON job_queue_(status, delayed_until, job_id)
+				WHERE status = 'PENDING'
+			""");
+		jdbcTemplate.execute("""
+			CREATE INDEX idx_job_queue_retrying_ready ON job_queue_(delayed_until)
+				WHERE status = 'RETRYING'
+			""");
+		jdbcTemplate.execute("ANALYZE job_queue_");
+	}
+
+	private void useClaimableIndex() {
+		jdbcTemplate.execute("DROP INDEX idx_job_queue_pending_ready");
+		jdbcTemplate.execute("DROP INDEX idx_job_queue_retrying_ready");
+		jdbcTemplate.execute("""
+			CREATE INDEX idx_job_queue_claimable ON job_queue_(type, delayed_until, job_id)
+				WHERE status IN ('PENDING', 'RETRYING')
+			""");
+		jdbcTemplate.execute("ANALYZE job_queue_");
+	}
+
+	private void seedQueue() {
+		String[] types = Arrays.stream(JobType.values()).map(JobType::name).toArray(String[]::new);
+		// ~80% pending, ~20% retrying, ~1% of keys already held by a processing job
+		jdbcTemplate.update("""
+			INSERT INTO job_queue_ (job_id, dedup_key, type, status, payload, retry_count, delayed_until)
+			SELECT
+				'bench-' || i,
+				(?::text[])[1 + i % ?] || '::payload-' || i,
+				(?::text[])[1 + i % ?],
+				CASE WHEN i % 5 = 0 THEN 'RETRYING' ELSE 'PENDING' END,
+				'payload-' || i,
+				CASE WHEN i % 5 = 0 THEN 1 ELSE 0 END,
+				NOW() - (i || ' milliseconds')::interval
+			FROM generate_series(1, ?) AS i
+			""",
+			toArrayLiteral(types), types.length, toArrayLiteral(types), types.length, QUEUED_JOBS);
+		jdbcTemplate.update("""
+			INSERT INTO job_queue_ (job_id, dedup_key, type, status, payload)
+			SELECT 'bench-processing-' || job_id, dedup_key, type, 'PROCESSING', payload
+			FROM job_queue_
+			WHERE status = 'PENDING' AND random() < 0.01
+			""");
+		jdbcTemplate.execute("ANALYZE job_queue_");
+	}
+
+	private void release(List<String> jobIds) {
+		jobIds.forEach(jobId -> jdbcTemplate.update(
+			"UPDATE job_queue_ SET status = CASE WHEN retry_count > 0 THEN 'RETRYING' ELSE 'PENDING' END WHERE job_id = ?",
+			jobId));
+	}
+
+	private static String toArrayLiteral(String[] values) {
+		return "{" + String.join(",", values) + "}";
+	}
+}
@@ -0,0 +1,76 @@
+package com.mc_host.api.queue;
+
+import com.mc_host.api.DatabaseTest;
+import com.mc_host.api.model.queue.Job;
+import com.mc_host.api.model.queue.JobStatus;
+import com.mc_host.api.model.queue.JobType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// run with -Dbenchmark=true, compares per-row upsertJob against a single upsertJobs statement
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class JobEnqueueBenchmarkTest extends DatabaseTest {
+	private static final Logger LOGGER = Logger.getLogger(JobEnqueueBenchmarkTest.class.getName());
+
+	private static final int JOBS = 5_000;
+
+	@Autowired
+	private JobRepository jobRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void enqueue_perRowVersusBatch() {
+		List<Job> perRow = jobs("per-row");
+		long start = System.nanoTime();
+		perRow.forEach(jobRepository::upsertJob);
+		long perRowNanos = System.nanoTime() - start;
+
+		jdbcTemplate.update("DELETE FROM job_queue_");
+
+		List<Job> batch = jobs("batch");
+		start = System.nanoTime();
+		List<Job> upserted = jobRepository.upsertJobs(batch);
+		long batchNanos = System.nanoTime() - start;
+
+		// second pass merges every row into the pending ones from the first
+		start = System.nanoTime();
+		List<Job> merged = jobRepository.upsertJobs(jobs("batch"));
+		long mergeNanos = System.nanoTime() - start;
+
+		LOGGER.info("per-row: %d ms, batch insert: %d ms, batch merge: %d ms for %d jobs"
+			.formatted(perRowNanos / 1_000_000, batchNanos / 1_000_000, mergeNanos / 1_000_000, JOBS));
+		assertThat(upserted).hasSize(JOBS);
+		assertThat(merged).hasSize(JOBS);
+	}
+
+	private List<Job> jobs(String prefix) {
+		return IntStream.range(0, JOBS)
+			.mapToObj(i -> new Job(
+				UUID.randomUUID().toString(),
+				JobType.PER_SUBSCRIPTION_SYNC.name() + "::" + prefix + "-" + i,
+				JobType.PER_SUBSCRIPTION_SYNC,
+				JobStatus.PENDING,
+				prefix + "-" + i,
+				0,
+				3,
+				null,
+				Instant.now().plusSeconds(3600),
+				null
+			))
+			.toList();
+	}
+}
@@ -0,0 +1,143 @@
+package com.mc_host.api.queue;
+
+import com.mc_host.api.configuration.JobQueueConfiguration;
+import com.mc_host.api.model.queue.JobExecutorMode;
+import com.mc_host.api.model.queue.JobType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JobExecutorTest {
+
+	@Mock
+	private ThreadPoolExecutor threadPoolExecutor;
+
+	private JobExecutor jobExecutor;
+
+	@BeforeEach
+	void setUp() {
+		JobQueueConfiguration configuration = new JobQueueConfiguration();
+		configuration.setExecutorMode(JobExecutorMode.VIRTUAL);
+		configuration.setDefaultConcurrency(5);
+		configuration.setConcurrency(Map.of(JobType.PER_SUBSCRIPTION_SYNC, 1));
+		configuration.setMaxConcurrency(100);
+		jobExecutor = new JobExecutor(configuration, threadPoolExecutor);
+	}
+
+	@AfterEach
+	void tearDown() {
+		jobExecutor.shutdown();
+	}
+
+	@Test
+	void availablePermits_shouldUsePerTypeConcurrency() {
+		// when
+		Map<JobType, Integer> available = jobExecutor.availablePermits();
+
+		// then
+		assertThat(available.get(JobType.PER_SUBSCRIPTION_SYNC)).isEqualTo(1);
+		assertThat(available.get(JobType.CUSTOMER_SUBSCRIPTION_SYNC)).isEqualTo(5);
+	}
+
+	@Test
+	void submit_shouldHoldPermitUntilJobFinishes() throws Exception {
+		// given
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch finished = new CountDownLatch(1);
+
+		// when
+		jobExecutor.submit(JobType.PER_SUBSCRIPTION_SYNC, () -> {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			finished.countDown();
+		});
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+		// then
+		assertThat(jobExecutor.availablePermits().get(JobType.PER_SUBSCRIPTION_SYNC)).isZero();
+		assertThat(jobExecutor.availablePermits().get(JobType.CUSTOMER_SUBSCRIPTION_SYNC)).isEqualTo(5);
+
+		release.countDown();
+		assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+		// the permit is released just after the task body returns
+		for (int i = 0; i < 100 && jobExecutor.availablePermits().get(JobType.PER_SUBSCRIPTION_SYNC) == 0; i++) {
+			Thread.sleep(10);
+		}
+		assertThat(jobExecutor.availablePermits().get(JobType.PER_SUBSCRIPTION_SYNC)).isEqualTo(1);
+	}
+
+	@Test
+	void submit_shouldRunOnReleaseAfterPermitsAreBack() throws Exception {
+		// given
+		CountDownLatch released = new CountDownLatch(1);
+		AtomicInteger availableOnRelease = new AtomicInteger(-1);
+
+		// when
+		jobExecutor.submit(JobType.PER_SUBSCRIPTION_SYNC, () -> {}, () -> {
+			availableOnRelease.set(jobExecutor.availablePermits().get(JobType.PER_SUBSCRIPTION_SYNC));
+			released.countDown();
+		});
+
+		// then
+		assertThat(released.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(availableOnRelease.get()).isEqualTo(1);
+	}
+
+	@Test
+	void availablePermits_shouldShareTotalCapAcrossTypes() {
+		// given
+		JobQueueConfiguration configuration = new JobQueueConfiguration();
+		configuration.setExecutorMode(JobExecutorMode.VIRTUAL);
+		configuration.setDefaultConcurrency(5);
+		configuration.setConcurrency(Map.of(JobType.PER_SUBSCRIPTION_SYNC, 1));
+		configuration.setMaxConcurrency(12);
+		JobExecutor capped = new JobExecutor(configuration, threadPoolExecutor);
+
+		// when
+		Map<JobType, Integer> available = capped.availablePermits();
+
+		// then
+		assertThat(available.values().stream().mapToInt(Integer::intValue).sum()).isEqualTo(12);
+		assertThat(available.get(JobType.PER_SUBSCRIPTION_SYNC)).isEqualTo(1);
+		assertThat(available.values()).allMatch(permits -> permits >= 1 && permits <= 2);
+		assertThat(capped.freeTypePermits(JobType.CUSTOMER_SUBSCRIPTION_SYNC)).isEqualTo(5);
+		assertThat(capped.freeTotalPermits()).isEqualTo(12);
+		capped.shutdown();
+	}
+
+	@Test
+	void availablePermits_shouldBoundPlatformModeTotalByIdleThreads() {
+		// given
+		JobQueueConfiguration configuration = new JobQueueConfiguration();
+		configuration.setExecutorMode(JobExecutorMode.PLATFORM);
+		configuration.setDefaultConcurrency(5);
+		when(threadPoolExecutor.getMaximumPoolSize()).thenReturn(8);
+		when(threadPoolExecutor.getActiveCount()).thenReturn(2);
+		JobExecutor platform = new JobExecutor(configuration, threadPoolExecutor);
+
+		// when
+		Map<JobType, Integer> available = platform.availablePermits();
+
+		// then
+		assertThat(available.values().stream().mapToInt(Integer::intValue).sum()).isEqualTo(6);
+		platform.shutdown();
+	}
+}
@@ -1,23 +1,32 @@
 package com.mc_host.api.queue;
 
+import com.mc_host.api.configuration.JobQueueConfiguration;
+import com.mc_host.api.metrics.JobQueueMetrics;
+import com.mc_host.api.model.queue.EnqueueRequest;
+import com.mc_host.api.model.queue.EnqueueResult;
 import com.mc_host.api.model.queue.Job;
 import com.mc_host.api.model.queue.JobStatus;
 import com.mc_host.api.model.queue.JobType;
 import com.mc_host.api.queue.processor.JobProcessor;
 import com.mc_host.api.queue.processor.JobProcessorFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.contains;
 import static org.mockito.ArgumentMatchers.eq;
@@ -37,16 +46,25 @@ class JobPoolServiceTest {
 	private JobProcessorFactory processorFactory;
 
 	@Mock
-	private ThreadPoolExecutor threadPoolExecutor;
+	private JobExecutor jobExecutor;
 
 	@Mock
 	private JobProcessor jobProcessor;
 
 	private JobPoolService jobPoolService;
 
+	private SimpleMeterRegistry meterRegistry;
+
 	@BeforeEach
 	void setUp() {
-		jobPoolService = new JobPoolService(jobRepository, processorFactory, threadPoolExecutor);
+		meterRegistry = new SimpleMeterRegistry();
+		jobPoolService = new JobPoolService(
+			jobRepository,
+			processorFactory,
+			jobExecutor,
+			new JobQueueMetrics(meterRegistry),
+			new JobQueueConfiguration()
+		);
 	}
 
 	@Test
@@ -86,24 +104,95 @@ class JobPoolServiceTest {
 			.hasMessage("no processor found for job type: " + jobType);
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	void enqueueAll_shouldUpsertOncePerDedupKeyAndReportMerges() {
+		// given
+		Job existing = createJob("existing-job", JobType.PER_SUBSCRIPTION_SYNC, "sub-1");
+		when(processorFactory.getProcessor(JobType.PER_SUBSCRIPTION_SYNC)).thenReturn(jobProcessor);
+		when(jobRepository.upsertJobs(anyList())).thenAnswer(invocation -> {
+			List<Job> jobs = invocation.getArgument(0);
+			return jobs.stream()
+				.map(job -> job.payload().equals("sub-1") ? existing : job)
+				.toList();
+		});
+
+		// when
+		List<EnqueueResult> results = jobPoolService.enqueueAll(List.of(
+			EnqueueRequest.of(JobType.PER_SUBSCRIPTION_SYNC, "sub-1"),
+			EnqueueRequest.of(JobType.PER_SUBSCRIPTION_SYNC, "sub-2"),
+			EnqueueRequest.of(JobType.PER_SUBSCRIPTION_SYNC, "sub-2")
+		));
+
+		// then
+		verify(jobRepository).upsertJobs(argThat(jobs -> jobs.size() == 2));
+		assertThat(results).extracting(EnqueueResult::merged).containsExactly(true, false, true);
+		assertThat(results.get(1).job()).isEqualTo(results.get(2).job());
+		assertThat(meterRegistry.get("job.duplicate.merges")
+			.tag("type", "PER_SUBSCRIPTION_SYNC")
+			.counter().count()).isEqualTo(2);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void enqueueAll_shouldTreatNullDelayAsEarliestWhenCollapsingDuplicates() {
+		// given
+		when(processorFactory.getProcessor(JobType.PER_SUBSCRIPTION_SYNC)).thenReturn(jobProcessor);
+		when(jobRepository.upsertJobs(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+		// when
+		jobPoolService.enqueueAll(List.of(
+			new EnqueueRequest(JobType.PER_SUBSCRIPTION_SYNC, "sub-1", Instant.now().plusSeconds(60), 3),
+			new EnqueueRequest(JobType.PER_SUBSCRIPTION_SYNC, "sub-1", null, 3),
+			new EnqueueRequest(JobType.PER_SUBSCRIPTION_SYNC, "sub-1", Instant.now(), 3)
+		));
+
+		// then
+		verify(jobRepository).upsertJobs(argThat(jobs -> jobs.size() == 1 && jobs.get(0).delayedUntil() == null));
+	}
+
 	@Test
 	void processJobs_shouldClaimAndSubmitJobs() {
 		// given
 		Job pendingJob = createJob("pending-1", JobType.CUSTOMER_SUBSCRIPTION_SYNC, "payload");
 		Job retryJob = createJob("retry-1", JobType.PER_SUBSCRIPTION_SYNC, "payload");
 
-		when(threadPoolExecutor.getMaximumPoolSize()).thenReturn(10);
-		when(threadPoolExecutor.getActiveCount()).thenReturn(2);
-		when(jobRepository.claimJobsByStatus(eq(7), eq(JobStatus.PENDING)))
-			.thenReturn(List.of(pendingJob));
-		when(jobRepository.claimJobsByStatus(eq(3), eq(JobStatus.RETRYING)))
-			.thenReturn(List.of(retryJob));
+		when(jobExecutor.availablePermits()).thenReturn(Map.of(
+			JobType.CUSTOMER_SUBSCRIPTION_SYNC, 10,
+			JobType.PER_SUBSCRIPTION_SYNC, 0
+		));
+		when(jobRepository.claimJobs(anyMap(), any(Duration.class)))
+			.thenReturn(List.of(pendingJob, retryJob));
 
 		// when
 		jobPoolService.processJobs();
 
 		// then
-		verify(threadPoolExecutor, times(2)).submit(any(Runnable.class));
+		verify(jobRepository).claimJobs(
+			eq(Map.of(JobType.CUSTOMER_SUBSCRIPTION_SYNC, 10, JobType.PER_SUBSCRIPTION_SYNC, 0)),
+			any(Duration.class)
+		);
+		verify(jobExecutor).submit(eq(JobType.CUSTOMER_SUBSCRIPTION_SYNC), any(Runnable.class), any(Runnable.class));
+		verify(jobExecutor).submit(eq(JobType.PER_SUBSCRIPTION_SYNC), any(Runnable.class), any(Runnable.class));
+	}
+
+	@Test
+	void processJobs_shouldClaimAgainWhenSaturatedSlotIsReleased() {
+		// given
+		Job job = createJob("job-1", JobType.CUSTOMER_SUBSCRIPTION_SYNC, "payload");
+		when(jobExecutor.availablePermits()).thenReturn(Map.of(JobType.CUSTOMER_SUBSCRIPTION_SYNC, 1));
+		when(jobRepository.claimJobs(anyMap(), any(Duration.class)))
+			.thenReturn(List.of(job))
+			.thenReturn(List.of());
+		jobPoolService.processJobs();
+		ArgumentCaptor<Runnable> onRelease = ArgumentCaptor.forClass(Runnable.class);
+		verify(jobExecutor).submit(eq(JobType.CUSTOMER_SUBSCRIPTION_SYNC), any(Runnable.class), onRelease.capture());
+
+		// when
+		onRelease.getValue().run();
+
+		// then
+		verify(jobRepository, times(2)).claimJobs(anyMap(), any(Duration.class));
 	}
 
 	@Test
@@ -119,7 +208,7 @@ class JobPoolServiceTest {
 
 		// then
 		verify(jobProcessor).process(job);
-		verify(jobRepository).updateJobStatus(job.jobId(), JobStatus.COMPLETED, null);
+		verify(jobRepository).updateJobStatus(job.jobId(), job.leaseToken(), JobStatus.COMPLETED, null);
 	}
 
 	@Test
@@ -137,6 +226,7 @@ class JobPoolServiceTest {
 		// then
 		verify(jobRepository).updateJobForRetry(
 			eq(job.jobId()),
+			eq(job.leaseToken()),
 			eq(1),
 			any(Instant.class),
 			contains("processing failed")
@@ -158,10 +248,32 @@ class JobPoolServiceTest {
 		// then
 		verify(jobRepository).moveToDeadLetter(
 			eq(job.jobId()),
+			eq(job.leaseToken()),
 			contains("final failure")
 		);
 	}
 
+	@Test
+	void processJob_shouldRecordExecutionAndRetryMetrics() throws Exception {
+		// given
+		Job job = createJob("job-1", JobType.CUSTOMER_INVOICE_SYNC, "payload", 0, 3);
+
+		when(processorFactory.getProcessor(job.type())).thenReturn(jobProcessor);
+		doThrow(new RuntimeException("processing failed")).when(jobProcessor).process(job);
+
+		// when
+		jobPoolService.processJob(job);
+
+		// then
+		assertThat(meterRegistry.get("job.execution")
+			.tag("type", "CUSTOMER_INVOICE_SYNC")
+			.tag("outcome", "failed")
+			.timer().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("job.retries")
+			.tag("type", "CUSTOMER_INVOICE_SYNC")
+			.counter().count()).isEqualTo(1);
+	}
+
 	@Test
 	void processJob_shouldHandleNoProcessorFound() {
 		// given
@@ -176,6 +288,7 @@ class JobPoolServiceTest {
 		// then
 		verify(jobRepository).moveToDeadLetter(
 			eq(job.jobId()),
+			eq(job.leaseToken()),
 			contains("no processor")
 		);
 	}
@@ -194,7 +307,8 @@ class JobPoolServiceTest {
 			retryCount,
 			maxRetries,
 			null,
-			Instant.now()
+			Instant.now(),
+			"lease-" + jobId
 		);
 	}
 }
\ No newline at end of file
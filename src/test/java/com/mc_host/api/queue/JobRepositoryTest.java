@@ -0,0 +1,322 @@
+package com.mc_host.api.queue;
+
+import com.mc_host.api.DatabaseTest;
+import com.mc_host.api.model.queue.Job;
+import com.mc_host.api.model.queue.JobStatus;
+import com.mc_host.api.model.queue.JobType;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+class JobRepositoryTest extends DatabaseTest {
+
+	private static final Duration LEASE = Duration.ofMinutes(2);
+
+	@Autowired
+	private JobRepository jobRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Test
+	void claimJobs_shouldClaimPendingAndRetryingInOneCall() {
+		Job pending = jobRepository.upsertJob(createJob(JobType.CUSTOMER_SUBSCRIPTION_SYNC, "customer-1"));
+		Job retrying = jobRepository.upsertJob(createJob(JobType.CUSTOMER_SUBSCRIPTION_SYNC, "customer-2"));
+		markRetrying(retrying.jobId());
+
+		List<Job> claimed = jobRepository.claimJobs(Map.of(JobType.CUSTOMER_SUBSCRIPTION_SYNC, 10), LEASE);
+
+		assertThat(claimed)
+			.extracting(Job::jobId)
+			.containsExactlyInAnyOrder(pending.jobId(), retrying.jobId());
+		assertThat(claimed)
+			.allMatch(job -> job.status() == JobStatus.PROCESSING);
+	}
+
+	@Test
+	void claimJobs_shouldCapRowsPerType() {
+		for (int i = 0; i < 5; i++) {
+			jobRepository.upsertJob(createJob(JobType.PER_SUBSCRIPTION_SYNC, "subscription-" + i));
+			jobRepository.upsertJob(createJob(JobType.CUSTOMER_INVOICE_SYNC, "customer-" + i));
+		}
+
+		List<Job> claimed = jobRepository.claimJobs(Map.of(
+			JobType.PER_SUBSCRIPTION_SYNC, 2,
+			JobType.CUSTOMER_INVOICE_SYNC, 3,
+			JobType.PRODUCT_PRICE_SYNC, 0
+		), LEASE);
+
+		assertThat(claimed).filteredOn(job -> job.type() == JobType.PER_SUBSCRIPTION_SYNC).hasSize(2);
+		assertThat(claimed).filteredOn(job -> job.type() == JobType.CUSTOMER_INVOICE_SYNC).hasSize(3);
+	}
+
+	@Test
+	void claimJobs_shouldSkipDedupKeyAlreadyProcessing() {
+		Job first = jobRepository.upsertJob(createJob(JobType.CUSTOMER_PAYMENT_METHOD_SYNC, "customer-1"));
+		assertThat(jobRepository.claimJobs(Map.of(JobType.CUSTOMER_PAYMENT_METHOD_SYNC, 10), LEASE))
+			.extracting(Job::jobId)
+			.containsExactly(first.jobId());
+
+		jobRepository.upsertJob(createJob(JobType.CUSTOMER_PAYMENT_METHOD_SYNC, "customer-1"));
+
+		assertThat(jobRepository.claimJobs(Map.of(JobType.CUSTOMER_PAYMENT_METHOD_SYNC, 10), LEASE)).isEmpty();
+	}
+
+	@Test
+	void claimJobs_shouldClaimOnlyOneRowPerDedupKey() {
+		Job retrying = jobRepository.upsertJob(createJob(JobType.CUSTOMER_PAYMENT_METHOD_SYNC, "customer-1"));
+		markRetrying(retrying.jobId());
+		jobRepository.upsertJob(createJob(JobType.CUSTOMER_PAYMENT_METHOD_SYNC, "customer-1"));
+
+		List<Job> claimed = jobRepository.claimJobs(Map.of(JobType.CUSTOMER_PAYMENT_METHOD_SYNC, 10), LEASE);
+
+		assertThat(claimed).extracting(Job::jobId).containsExactly(retrying.jobId());
+	}
+
+	@Test
+	void upsertJobs_shouldInsertNewRowsAndMergeIntoPending() {
+		Job existing = jobRepository.upsertJob(createJob(JobType.PER_SUBSCRIPTION_SYNC, "subscription-1"));
+
+		List<Job> upserted = jobRepository.upsertJobs(List.of(
+			createJob(JobType.PER_SUBSCRIPTION_SYNC, "subscription-1"),
+			createJob(JobType.PER_SUBSCRIPTION_SYNC, "subscription-2")
+		));
+
+		assertThat(upserted).hasSize(2);
+		assertThat(upserted).extracting(Job::jobId).contains(existing.jobId());
+		assertThat(jdbcTemplate.queryForObject(
+			"SELECT duplicate_count FROM job_queue_ WHERE job_id = ?", Integer.class, existing.jobId()))
+			.isEqualTo(1);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM job_queue_", Integer.class))
+			.isEqualTo(2);
+	}
+
+	@Test
+	void reapExpiredLeases_shouldReturnExpiredJobsToRetrying() {
+		Job job = jobRepository.upsertJob(createJob(JobType.PER_SUBSCRIPTION_SYNC, "subscription-1"));
+		jobRepository.claimJobs(Map.of(JobType.PER_SUBSCRIPTION_SYNC, 1), LEASE);
+		jdbcTemplate.update("UPDATE job_queue_ SET lease_expires_at = NOW() - INTERVAL '1 second' WHERE job_id = ?", job.jobId());
+
+		int reaped = jobRepository.reapExpiredLeases(LEASE);
+
+		assertThat(reaped).isEqualTo(1);
+		assertThat(jobRepository.findById(job.jobId()))
+			.get()
+			.satisfies(reclaimed -> {
+				assertThat(reclaimed.status()).isEqualTo(JobStatus.RETRYING);
+				assertThat(reclaimed.retryCount()).isEqualTo(1);
+			});
+		assertThat(jobRepository.claimJobs(Map.of(JobType.PER_SUBSCRIPTION_SYNC, 1), LEASE))
+			.extracting(Job::jobId)
+			.containsExactly(job.jobId());
+	}
+
+	@Test
+	void reapExpiredLeases_shouldKeepHeartbeatedJobs() {
+		Job job = jobRepository.upsertJob(createJob(JobType.PER_SUBSCRIPTION_SYNC, "subscription-1"));
+		Job claimed = jobRepository.claimJobs(Map.of(JobType.PER_SUBSCRIPTION_SYNC, 1), Duration.ofMillis(1)).get(0);
+
+		int extended = jobRepository.extendLeases(Set.of(claimed.leaseToken()), LEASE);
+		int reaped = jobRepository.reapExpiredLeases(LEASE);
+
+		assertThat(extended).isEqualTo(1);
+		assertThat(reaped).isZero();
+		assertThat(jobRepository.findById(job.jobId())).get()
+			.extracting(Job::status)
+			.isEqualTo(JobStatus.PROCESSING);
+	}
+
+	@Test
+	void updateJobStatus_shouldIgnoreWritesFromReapedClaim() {
+		Job job = jobRepository.upsertJob(createJob(JobType.PER_SUBSCRIPTION_SYNC, "subscription-1"));
+		Job stalled = jobRepository.claimJobs(Map.of(JobType.PER_SUBSCRIPTION_SYNC, 1), LEASE).get(0);
+		jdbcTemplate.update("UPDATE job_queue_ SET lease_expires_at = NOW() - INTERVAL '1 second' WHERE job_id = ?", job.jobId());
+		jobRepository.reapExpiredLeases(LEASE);
+
+		jobRepository.updateJobStatus(stalled.jobId(), stalled.leaseToken(), JobStatus.COMPLETED, null);
+		jobRepository.moveToDeadLetter(stalled.jobId(), stalled.leaseToken(), "late failure");
+
+		assertThat(jobRepository.findById(job.jobId())).get()
+			.satisfies(reaped -> {
+				assertThat(reaped.status()).isEqualTo(JobStatus.RETRYING);
+				assertThat(reaped.leaseToken()).isNull();
+			});
+	}
+
+	@Test
+	void updateJobForRetry_shouldOnlyApplyToCurrentClaim() {
+		Job job = jobRepository.upsertJob(createJob(JobType.PER_SUBSCRIPTION_SYNC, "subscription-1"));
+		Job stalled = jobRepository.claimJobs(Map.of(JobType.PER_SUBSCRIPTION_SYNC, 1), LEASE).get(0);
+		jdbcTemplate.update("UPDATE job_queue_ SET lease_expires_at = NOW() - INTERVAL '1 second' WHERE job_id = ?", job.jobId());
+		jobRepository.reapExpiredLeases(LEASE);
+		Job current = jobRepository.claimJobs(Map.of(JobType.PER_SUBSCRIPTION_SYNC, 1), LEASE).get(0);
+
+		jobRepository.updateJobForRetry(stalled.jobId(), stalled.leaseToken(), 5, Instant.now(), "late failure");
+		int extendedStalled = jobRepository.extendLeases(Set.of(stalled.leaseToken()), LEASE);
+		jobRepository.updateJobStatus(current.jobId(), current.leaseToken(), JobStatus.COMPLETED, null);
+
+		assertThat(current.leaseToken()).isNotEqualTo(stalled.leaseToken());
+		assertThat(extendedStalled).isZero();
+		assertThat(jobRepository.findById(job.jobId())).get()
+			.extracting(Job::status)
+			.isEqualTo(JobStatus.COMPLETED);
+	}
+
+	@Test
+	void archiveCompletedJobs_shouldMoveAtMostOneBatch() {
+		for (int i = 0; i < 3; i++) {
+			jobRepository.upsertJob(createJob(JobType.CUSTOMER_INVOICE_SYNC, "customer-" + i));
+		}
+		jobRepository.claimJobs(Map.of(JobType.CUSTOMER_INVOICE_SYNC, 3), LEASE)
+			.forEach(job -> jobRepository.updateJobStatus(job.jobId(), job.leaseToken(), JobStatus.COMPLETED, null));
+		jdbcTemplate.update("UPDATE job_queue_ SET processed_at = NOW() - INTERVAL '5 minutes'");
+
+		int archived = jobRepository.archiveCompletedJobs(2);
+
+		assertThat(archived).isEqualTo(2);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM job_queue_", Integer.class)).isEqualTo(1);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM job_audit_", Integer.class)).isEqualTo(2);
+	}
+
+	@Test
+	void ensureAuditPartitions_shouldMoveRowsOutOfDefaultPartition() {
+		jdbcTemplate.update("""
+			INSERT INTO job_audit_ (job_id, archived_at)
+			VALUES ('future-job', date_trunc('month', NOW()) + INTERVAL '6 months')
+			""");
+		assertThat(jdbcTemplate.queryForObject(
+			"SELECT tableoid::regclass::text FROM job_audit_ WHERE job_id = 'future-job'", String.class))
+			.isEqualTo("job_audit_default");
+
+		jobRepository.ensureAuditPartitions(6);
+
+		assertThat(jdbcTemplate.queryForObject(
+			"SELECT tableoid::regclass::text FROM job_audit_ WHERE job_id = 'future-job'", String.class))
+			.startsWith("job_audit_y");
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM job_audit_default", Integer.class)).isZero();
+	}
+
+	@Test
+	void upsertJob_shouldMakeJobWithoutDelayClaimableNow() {
+		Job job = jobRepository.upsertJob(createJob(JobType.PER_SUBSCRIPTION_SYNC, "subscription-1", null));
+
+		assertThat(job.delayedUntil()).isNotNull();
+		assertThat(jobRepository.claimJobs(Map.of(JobType.PER_SUBSCRIPTION_SYNC, 1), LEASE))
+			.extracting(Job::jobId)
+			.containsExactly(job.jobId());
+	}
+
+	@Test
+	void upsertJob_shouldNotifyForImmediateAndSlightlySkewedJobs() throws Exception {
+		try (Connection listener = dataSource.getConnection()) {
+			listen(listener);
+
+			jobRepository.upsertJob(createJob(JobType.PER_SUBSCRIPTION_SYNC, "subscription-1", null));
+			jobRepository.upsertJob(createJob(JobType.CUSTOMER_INVOICE_SYNC, "customer-1", Instant.now().plusSeconds(2)));
+
+			assertThat(notifiedTypes(listener))
+				.containsExactlyInAnyOrder(JobType.PER_SUBSCRIPTION_SYNC.name(), JobType.CUSTOMER_INVOICE_SYNC.name());
+		}
+	}
+
+	@Test
+	void upsertJobs_shouldNotNotifyForDelayedJobs() throws Exception {
+		try (Connection listener = dataSource.getConnection()) {
+			listen(listener);
+
+			jobRepository.upsertJobs(List.of(
+				createJob(JobType.PER_SUBSCRIPTION_SYNC, "subscription-1", Instant.now().plus(Duration.ofMinutes(5))),
+				createJob(JobType.CUSTOMER_INVOICE_SYNC, "customer-1", Instant.now())
+			));
+
+			assertThat(notifiedTypes(listener)).containsExactly(JobType.CUSTOMER_INVOICE_SYNC.name());
+		}
+	}
+
+	@Test
+	void reapExpiredLeases_shouldNotifyForRetryingJobs() throws Exception {
+		Job job = jobRepository.upsertJob(createJob(JobType.PER_SUBSCRIPTION_SYNC, "subscription-1"));
+		jobRepository.claimJobs(Map.of(JobType.PER_SUBSCRIPTION_SYNC, 1), LEASE);
+		jdbcTemplate.update("UPDATE job_queue_ SET lease_expires_at = NOW() - INTERVAL '1 second' WHERE job_id = ?", job.jobId());
+
+		try (Connection listener = dataSource.getConnection()) {
+			listen(listener);
+
+			jobRepository.reapExpiredLeases(LEASE);
+
+			assertThat(notifiedTypes(listener)).containsExactly(JobType.PER_SUBSCRIPTION_SYNC.name());
+		}
+	}
+
+	private Job createJob(JobType type, String payload) {
+		return new Job(
+			UUID.randomUUID().toString(),
+			String.join("::", type.name(), payload),
+			type,
+			JobStatus.PENDING,
+			payload,
+			0,
+			3,
+			null,
+			Instant.now().minusSeconds(1),
+			null
+		);
+	}
+
+	private void markRetrying(String jobId) {
+		jdbcTemplate.update(
+			"UPDATE job_queue_ SET status = 'RETRYING', retry_count = 1, delayed_until = NOW() - INTERVAL '1 second' WHERE job_id = ?",
+			jobId);
+	}
+
+	private Job createJob(JobType type, String payload, Instant delayedUntil) {
+		Job job = createJob(type, payload);
+		return new Job(
+			job.jobId(),
+			job.dedupKey(),
+			job.type(),
+			job.status(),
+			job.payload(),
+			job.retryCount(),
+			job.maximumRetries(),
+			job.errorMessage(),
+			delayedUntil,
+			null
+		);
+	}
+
+	private void listen(Connection connection) throws Exception {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("LISTEN " + JobRepository.NOTIFY_CHANNEL);
+		}
+	}
+
+	private List<String> notifiedTypes(Connection connection) throws Exception {
+		PGNotification[] notifications = connection.unwrap(PGConnection.class).getNotifications(1000);
+		if (notifications == null) {
+			return List.of();
+		}
+		return Arrays.stream(notifications).map(PGNotification::getParameter).toList();
+	}
+}
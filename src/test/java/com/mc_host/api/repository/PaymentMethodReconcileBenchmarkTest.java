@@ -0,0 +1,118 @@
+package com.mc_host.api.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mc_host.api.DatabaseTest;
+import com.mc_host.api.model.stripe.CustomerPaymentMethod;
+import com.mc_host.api.model.stripe.PaymentMethodType;
+import com.mc_host.api.util.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// run with -Dbenchmark=true, one sync per customer through delete-all then re-insert against reconcilePaymentMethods
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PaymentMethodReconcileBenchmarkTest extends DatabaseTest {
+    private static final Logger LOGGER = Logger.getLogger(PaymentMethodReconcileBenchmarkTest.class.getName());
+
+    private static final int CUSTOMERS = 10_000;
+    private static final int METHODS_PER_CUSTOMER = 2;
+    // share of customers whose card changed at stripe between two syncs
+    private static final int CHANGED_EVERY = 10;
+
+    @Autowired
+    private PaymentMethodRepository paymentMethodRepository;
+
+    @Autowired
+    private PersistenceContext persistenceContext;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void sync_deleteAllVersusReconcile() {
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO user_ (clerk_id, customer_id, pterodactyl_username, dummy_email) VALUES (?, ?, ?, ?)",
+            IntStream.range(0, CUSTOMERS)
+                .mapToObj(i -> new Object[] { "user_" + i, customer(i), "user_" + i, "user_" + i + "@example.com" })
+                .toList()
+        );
+        Map<String, List<CustomerPaymentMethod>> synced = paymentMethods(0);
+        Map<String, List<CustomerPaymentMethod>> changed = paymentMethods(CHANGED_EVERY);
+        synced.forEach((customerId, paymentMethods) -> persistenceContext.inTransaction(status ->
+            paymentMethodRepository.reconcilePaymentMethods(customerId, paymentMethods)));
+
+        var deleteAll = run("delete-all, unchanged", synced, (customerId, paymentMethods) -> {
+            jdbcTemplate.update("DELETE FROM payment_method_ WHERE customer_id = ?", customerId);
+            paymentMethods.forEach(paymentMethodRepository::upsertPaymentMethod);
+        });
+        var reconcileUnchanged = run("reconcile, unchanged", synced, (customerId, paymentMethods) ->
+            paymentMethodRepository.reconcilePaymentMethods(customerId, paymentMethods));
+        var reconcileChanged = run("reconcile, 1 in %d changed".formatted(CHANGED_EVERY), changed, (customerId, paymentMethods) ->
+            paymentMethodRepository.reconcilePaymentMethods(customerId, paymentMethods));
+
+        assertThat(deleteAll).isEqualTo(CUSTOMERS * METHODS_PER_CUSTOMER);
+        assertThat(reconcileUnchanged).isZero();
+        assertThat(reconcileChanged).isEqualTo(CUSTOMERS / CHANGED_EVERY);
+    }
+
+    // returns how many rows the pass wrote
+    private long run(String name, Map<String, List<CustomerPaymentMethod>> byCustomer, Sync sync) {
+        var mark = Timestamp.from(Instant.now());
+        long start = System.nanoTime();
+        byCustomer.forEach((customerId, paymentMethods) -> persistenceContext.inTransaction(() -> sync.apply(customerId, paymentMethods)));
+        long nanos = System.nanoTime() - start;
+
+        Long written = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM payment_method_ WHERE created_at >= ? OR last_updated >= ?", Long.class, mark, mark);
+        LOGGER.info("%s: %d ms for %d customers, %.1f us per customer, %d rows written"
+            .formatted(name, nanos / 1_000_000, CUSTOMERS, nanos / 1_000.0 / CUSTOMERS, written));
+        return written;
+    }
+
+    private Map<String, List<CustomerPaymentMethod>> paymentMethods(int changedEvery) {
+        return IntStream.range(0, CUSTOMERS).boxed()
+            .collect(Collectors.toMap(
+                this::customer,
+                i -> IntStream.range(0, METHODS_PER_CUSTOMER)
+                    .mapToObj(j -> card(i, j, changedEvery > 0 && i % changedEvery == 0 && j == 0 ? 2031 : 2030))
+                    .toList()
+            ));
+    }
+
+    private CustomerPaymentMethod card(int customer, int index, int expYear) {
+        var paymentMethodId = "pm_%d_%d".formatted(customer, index);
+        var data = objectMapper.createObjectNode()
+            .put("stripe_pm_id", paymentMethodId)
+            .put("brand", "visa")
+            .put("last_four", "%04d".formatted(index))
+            .put("exp_month", 12)
+            .put("exp_year", expYear)
+            .put("funding", "credit");
+        return new CustomerPaymentMethod(paymentMethodId, customer(customer), PaymentMethodType.CARD, "Visa ending in %04d".formatted(index), data, true, index == 0);
+    }
+
+    private String customer(int i) {
+        return "cus_" + i;
+    }
+
+    @FunctionalInterface
+    private interface Sync {
+        void apply(String customerId, List<CustomerPaymentMethod> paymentMethods);
+    }
+}
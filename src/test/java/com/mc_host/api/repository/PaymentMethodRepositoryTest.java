@@ -0,0 +1,92 @@
+package com.mc_host.api.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mc_host.api.DatabaseTest;
+import com.mc_host.api.model.stripe.CustomerPaymentMethod;
+import com.mc_host.api.model.stripe.PaymentMethodType;
+import com.mc_host.api.util.PersistenceContext;
+import com.mc_host.api.util.RowDiff;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+class PaymentMethodRepositoryTest extends DatabaseTest {
+
+    private static final String CUSTOMER_ID = "cus_1";
+
+    @Autowired
+    private PaymentMethodRepository paymentMethodRepository;
+
+    @Autowired
+    private PersistenceContext persistenceContext;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void insertCustomer() {
+        jdbcTemplate.update("""
+            INSERT INTO user_ (clerk_id, customer_id, pterodactyl_username, dummy_email)
+            VALUES ('user_1', ?, 'user_1', 'user_1@example.com')
+            """, CUSTOMER_ID);
+    }
+
+    @Test
+    void reconcilePaymentMethods_shouldLeaveMatchingRowsUntouched() {
+        var card = card("pm_1", "4242", true);
+        reconcile(List.of(card, card("pm_2", "1111", false)));
+        var cardVersion = rowVersion("pm_1");
+
+        var diff = reconcile(List.of(card, card("pm_2", "2222", false), card("pm_3", "3333", false)));
+
+        assertThat(diff.unchanged()).isEqualTo(1);
+        assertThat(diff.updated()).extracting(CustomerPaymentMethod::paymentMethodId).containsExactly("pm_2");
+        assertThat(diff.inserted()).extracting(CustomerPaymentMethod::paymentMethodId).containsExactly("pm_3");
+        assertThat(rowVersion("pm_1")).isEqualTo(cardVersion);
+        assertThat(paymentMethodRepository.selectPaymentMethodsByCustomerId(CUSTOMER_ID))
+            .extracting(CustomerPaymentMethod::displayName)
+            .containsExactlyInAnyOrder("Visa ending in 4242", "Visa ending in 2222", "Visa ending in 3333");
+    }
+
+    @Test
+    void reconcilePaymentMethods_shouldMoveTheDefault_andDropDetachedMethods() {
+        reconcile(List.of(card("pm_1", "4242", true), card("pm_2", "1111", false), card("pm_3", "3333", false)));
+
+        var diff = reconcile(List.of(card("pm_1", "4242", false), card("pm_2", "1111", true)));
+
+        assertThat(diff.deleted()).extracting(CustomerPaymentMethod::paymentMethodId).containsExactly("pm_3");
+        assertThat(paymentMethodRepository.selectPaymentMethodsByCustomerId(CUSTOMER_ID))
+            .filteredOn(CustomerPaymentMethod::isDefault)
+            .extracting(CustomerPaymentMethod::paymentMethodId)
+            .containsExactly("pm_2");
+    }
+
+    private RowDiff<CustomerPaymentMethod> reconcile(List<CustomerPaymentMethod> paymentMethods) {
+        return persistenceContext.inTransaction(status -> paymentMethodRepository.reconcilePaymentMethods(CUSTOMER_ID, paymentMethods));
+    }
+
+    private String rowVersion(String paymentMethodId) {
+        return jdbcTemplate.queryForObject("SELECT xmin::text FROM payment_method_ WHERE payment_method_id = ?", String.class, paymentMethodId);
+    }
+
+    private CustomerPaymentMethod card(String paymentMethodId, String lastFour, boolean isDefault) {
+        var data = objectMapper.createObjectNode()
+            .put("stripe_pm_id", paymentMethodId)
+            .put("brand", "visa")
+            .put("last_four", lastFour)
+            .put("exp_month", 12)
+            .put("exp_year", 2030)
+            .put("funding", "credit");
+        return new CustomerPaymentMethod(paymentMethodId, CUSTOMER_ID, PaymentMethodType.CARD, "Visa ending in " + lastFour, data, true, isDefault);
+    }
+}
@@ -0,0 +1,74 @@
+package com.mc_host.api.repository;
+
+import com.mc_host.api.DatabaseTest;
+import com.mc_host.api.model.plan.AcceptedCurrency;
+import com.mc_host.api.model.plan.ContentPrice;
+import com.mc_host.api.util.PersistenceContext;
+import com.mc_host.api.util.RowDiff;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+class PriceRepositoryTest extends DatabaseTest {
+
+    private static final String PRODUCT_ID = "prod_1";
+
+    @Autowired
+    private PriceRepository priceRepository;
+
+    @Autowired
+    private PersistenceContext persistenceContext;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void reconcileProductPrices_shouldOnlyWriteChangedPrices() {
+        reconcile(List.of(price("price_1", 500L, true), price("price_2", 900L, true), price("price_3", 100L, true)));
+        var unchangedVersion = rowVersion("price_1");
+
+        var diff = reconcile(List.of(price("price_1", 500L, true), price("price_2", 900L, false), price("price_4", 1200L, true)));
+
+        assertThat(diff.unchanged()).isEqualTo(1);
+        assertThat(diff.inserted()).extracting(ContentPrice::priceId).containsExactly("price_4");
+        assertThat(diff.updated()).extracting(ContentPrice::priceId).containsExactly("price_2");
+        assertThat(diff.deleted()).extracting(ContentPrice::priceId).containsExactly("price_3");
+        assertThat(rowVersion("price_1")).isEqualTo(unchangedVersion);
+        assertThat(priceRepository.selectPricesByProductId(PRODUCT_ID))
+            .containsExactlyInAnyOrder(price("price_1", 500L, true), price("price_2", 900L, false), price("price_4", 1200L, true));
+    }
+
+    @Test
+    void reconcileProductPrices_shouldKeepAPriceAPlanStillPointsAt() {
+        reconcile(List.of(price("price_1", 500L, true), price("price_2", 900L, true)));
+        jdbcTemplate.update("""
+            INSERT INTO plan_ (plan_id, specification_id, price_id)
+            VALUES ('plan_1', '7a9850d2-9263-4084-a7b7-b8ec6a3899db', 'price_1')
+            """);
+
+        var diff = reconcile(List.of(price("price_2", 950L, true)));
+
+        assertThat(diff.deleted()).isEmpty();
+        assertThat(priceRepository.selectPrice("price_1")).isPresent();
+        assertThat(priceRepository.selectPrice("price_2")).contains(price("price_2", 950L, true));
+    }
+
+    private RowDiff<ContentPrice> reconcile(List<ContentPrice> prices) {
+        return persistenceContext.inTransaction(status -> priceRepository.reconcileProductPrices(PRODUCT_ID, prices));
+    }
+
+    private String rowVersion(String priceId) {
+        return jdbcTemplate.queryForObject("SELECT xmin::text FROM price_ WHERE price_id = ?", String.class, priceId);
+    }
+
+    private static ContentPrice price(String priceId, Long eur, boolean active) {
+        return new ContentPrice(priceId, PRODUCT_ID, active, Map.of(AcceptedCurrency.EUR, eur, AcceptedCurrency.USD, eur + 100));
+    }
+}
@@ -0,0 +1,80 @@
+package com.mc_host.api.repository;
+
+import com.mc_host.api.DatabaseTest;
+import com.mc_host.api.model.provisioning.Mode;
+import com.mc_host.api.model.provisioning.StepExecution;
+import com.mc_host.api.model.provisioning.StepType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+class ServerExecutionStepRepositoryTest extends DatabaseTest {
+
+    @Autowired
+    private ServerExecutionStepRepository stepRepository;
+
+    @Test
+    void selectSlowestSince_shouldOrderByDurationAndFilterByStep() {
+        var now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        stepRepository.insertStepExecution(execution(StepType.CONFIGURE_NODE, Mode.CREATE, now, 120_000));
+        stepRepository.insertStepExecution(execution(StepType.CONFIGURE_NODE, Mode.CREATE, now, 300_000));
+        stepRepository.insertStepExecution(execution(StepType.START_SERVER, Mode.CREATE, now, 900_000));
+        stepRepository.insertStepExecution(execution(StepType.CONFIGURE_NODE, Mode.CREATE, now.minus(Duration.ofDays(10)), 999_000));
+
+        var slowest = stepRepository.selectSlowestSince(now.minus(Duration.ofDays(7)), StepType.CONFIGURE_NODE, null, 10);
+
+        assertThat(slowest).extracting(execution -> execution.duration().toMillis()).containsExactly(300_000L, 120_000L);
+        assertThat(slowest.get(0).startedAt()).isEqualTo(now);
+    }
+
+    @Test
+    void selectStatisticsSince_shouldComputePercentilesPerStepAndMode() {
+        var now = Instant.now();
+        for (int i = 1; i <= 20; i++) {
+            stepRepository.insertStepExecution(execution(StepType.CONFIGURE_NODE, Mode.CREATE, now, i * 1000));
+        }
+        stepRepository.insertStepExecution(execution(StepType.CONFIGURE_NODE, Mode.MIGRATE_CREATE, now, 5000));
+
+        var statistics = stepRepository.selectStatisticsSince(now.minus(Duration.ofDays(7)), Mode.CREATE);
+
+        assertThat(statistics).singleElement().satisfies(stats -> {
+            assertThat(stats.stepType()).isEqualTo(StepType.CONFIGURE_NODE);
+            assertThat(stats.executions()).isEqualTo(20);
+            assertThat(stats.p50Ms()).isEqualTo(10_500);
+            assertThat(stats.p95Ms()).isEqualTo(19_050);
+            assertThat(stats.maxMs()).isEqualTo(20_000);
+        });
+    }
+
+    @Test
+    void deleteStepExecutionsBefore_shouldKeepRecentRows() {
+        var now = Instant.now();
+        stepRepository.insertStepExecution(execution(StepType.NEW, Mode.CREATE, now.minus(Duration.ofDays(100)), 10));
+        stepRepository.insertStepExecution(execution(StepType.NEW, Mode.CREATE, now, 10));
+
+        int deleted = stepRepository.deleteStepExecutionsBefore(now.minus(Duration.ofDays(90)));
+
+        assertThat(deleted).isEqualTo(1);
+        assertThat(stepRepository.selectSlowestSince(now.minus(Duration.ofDays(365)), null, null, 10)).hasSize(1);
+    }
+
+    private StepExecution execution(StepType stepType, Mode mode, Instant startedAt, long durationMs) {
+        return new StepExecution(
+            "sub_1",
+            stepType,
+            mode,
+            StepExecution.Lane.CHAIN,
+            StepExecution.Outcome.SUCCESS,
+            null,
+            startedAt,
+            Duration.ofMillis(durationMs)
+        );
+    }
+}
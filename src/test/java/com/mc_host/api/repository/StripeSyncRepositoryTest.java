@@ -0,0 +1,98 @@
+package com.mc_host.api.repository;
+
+import com.mc_host.api.DatabaseTest;
+import com.mc_host.api.model.stripe.StripeObjectChange;
+import com.mc_host.api.model.stripe.StripeSyncCursor;
+import com.mc_host.api.model.stripe.StripeSyncResource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@ActiveProfiles("test")
+class StripeSyncRepositoryTest extends DatabaseTest {
+
+    private static final Instant T0 = Instant.parse("2025-01-15T12:00:00Z");
+
+    @Autowired
+    private StripeSyncRepository stripeSyncRepository;
+
+    @Test
+    void upsertPendingChanges_shouldKeepTheFreshestStatePerObject() {
+        stripeSyncRepository.upsertPendingChanges(List.of(change("in_1", T0.plusSeconds(10), "{\"v\": 2}")));
+        stripeSyncRepository.upsertPendingChanges(List.of(
+            change("in_1", T0, "{\"v\": 1}"),
+            change("in_2", T0, "{\"v\": 1}")
+        ));
+
+        assertThat(stripeSyncRepository.selectPendingChanges("cus_1", StripeSyncResource.INVOICE))
+            .extracting(StripeObjectChange::objectId, StripeObjectChange::eventPayload)
+            .containsExactlyInAnyOrder(
+                tuple("in_1", "{\"v\": 2}"),
+                tuple("in_2", "{\"v\": 1}"));
+    }
+
+    @Test
+    void markChangesApplied_shouldNotLetARedeliveredOlderEventReopenTheObject() {
+        var applied = change("in_1", T0.plusSeconds(10), "{\"v\": 2}");
+        stripeSyncRepository.upsertPendingChanges(List.of(applied));
+        stripeSyncRepository.markChangesApplied(List.of(applied));
+
+        stripeSyncRepository.upsertPendingChanges(List.of(change("in_1", T0, "{\"v\": 1}")));
+        assertThat(stripeSyncRepository.selectPendingChanges("cus_1", StripeSyncResource.INVOICE)).isEmpty();
+
+        stripeSyncRepository.upsertPendingChanges(List.of(change("in_1", T0.plusSeconds(20), "{\"v\": 3}")));
+        assertThat(stripeSyncRepository.selectPendingChanges("cus_1", StripeSyncResource.INVOICE))
+            .extracting(StripeObjectChange::eventPayload)
+            .containsExactly("{\"v\": 3}");
+    }
+
+    @Test
+    void markChangesAppliedBefore_shouldLeaveChangesNewerThanTheListing() {
+        stripeSyncRepository.upsertPendingChanges(List.of(
+            change("in_1", T0.minusSeconds(5), "{}"),
+            change("in_2", T0.plusSeconds(5), "{}")
+        ));
+
+        stripeSyncRepository.markChangesAppliedBefore("cus_1", StripeSyncResource.INVOICE, T0);
+
+        assertThat(stripeSyncRepository.selectPendingChanges("cus_1", StripeSyncResource.INVOICE))
+            .extracting(StripeObjectChange::objectId)
+            .containsExactly("in_2");
+    }
+
+    @Test
+    void deleteAppliedChangesBefore_shouldKeepPendingAndRecentlyAppliedChanges() {
+        var old = change("in_1", T0.minusSeconds(60), "{}");
+        var recent = change("in_2", T0.plusSeconds(60), "{}");
+        stripeSyncRepository.upsertPendingChanges(List.of(old, recent, change("in_3", T0.minusSeconds(60), "{}")));
+        stripeSyncRepository.markChangesApplied(List.of(old, recent));
+
+        assertThat(stripeSyncRepository.deleteAppliedChangesBefore(T0)).isEqualTo(1);
+
+        // in_1 is gone, so an older redelivery is pending again, in_2 still guards its object
+        stripeSyncRepository.upsertPendingChanges(List.of(change("in_1", T0.minusSeconds(120), "{}"), change("in_2", T0, "{}")));
+        assertThat(stripeSyncRepository.selectPendingChanges("cus_1", StripeSyncResource.INVOICE))
+            .extracting(StripeObjectChange::objectId)
+            .containsExactlyInAnyOrder("in_1", "in_3");
+    }
+
+    @Test
+    void upsertCursor_shouldNeverMoveBackwards() {
+        stripeSyncRepository.upsertCursor(new StripeSyncCursor("cus_1", StripeSyncResource.INVOICE, T0.plusSeconds(30), T0));
+        stripeSyncRepository.upsertCursor(new StripeSyncCursor("cus_1", StripeSyncResource.INVOICE, T0.plusSeconds(10), Instant.EPOCH));
+
+        assertThat(stripeSyncRepository.selectCursor("cus_1", StripeSyncResource.INVOICE))
+            .contains(new StripeSyncCursor("cus_1", StripeSyncResource.INVOICE, T0.plusSeconds(30), T0));
+        assertThat(stripeSyncRepository.selectCursor("cus_1", StripeSyncResource.SUBSCRIPTION)).isEmpty();
+    }
+
+    private static StripeObjectChange change(String objectId, Instant created, String payload) {
+        return new StripeObjectChange(StripeSyncResource.INVOICE, objectId, "cus_1", created, payload);
+    }
+}
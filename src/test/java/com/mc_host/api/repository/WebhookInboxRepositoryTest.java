@@ -0,0 +1,67 @@
+package com.mc_host.api.repository;
+
+import com.mc_host.api.DatabaseTest;
+import com.mc_host.api.model.webhook.InboxEvent;
+import com.mc_host.api.model.webhook.WebhookSource;
+import com.mc_host.api.util.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+class WebhookInboxRepositoryTest extends DatabaseTest {
+
+    @Autowired
+    private WebhookInboxRepository inboxRepository;
+
+    @Autowired
+    private PersistenceContext persistenceContext;
+
+    @Test
+    void append_shouldDropRedeliveriesOfTheSameEvent() {
+        assertThat(inboxRepository.append(InboxEvent.received(WebhookSource.STRIPE, "evt_1", "invoice.paid", "{}"))).isTrue();
+        assertThat(inboxRepository.append(InboxEvent.received(WebhookSource.STRIPE, "evt_1", "invoice.paid", "{}"))).isFalse();
+        // ids are only unique per provider
+        assertThat(inboxRepository.append(InboxEvent.received(WebhookSource.CLERK, "evt_1", "user.updated", "{}"))).isTrue();
+
+        assertThat(inboxRepository.countPending()).isEqualTo(2);
+    }
+
+    @Test
+    void claimPending_shouldReturnUnprocessedEventsInArrivalOrder() {
+        inboxRepository.append(InboxEvent.received(WebhookSource.STRIPE, "evt_1", "invoice.paid", "{\"id\": 1}"));
+        inboxRepository.append(InboxEvent.received(WebhookSource.STRIPE, "evt_2", "invoice.paid", "{\"id\": 2}"));
+        inboxRepository.append(InboxEvent.received(WebhookSource.STRIPE, "evt_3", "invoice.paid", "{\"id\": 3}"));
+
+        List<InboxEvent> first = persistenceContext.inTransaction(status -> {
+            var claimed = inboxRepository.claimPending(2);
+            inboxRepository.markProcessed(claimed.stream().map(InboxEvent::id).toList());
+            return claimed;
+        });
+        List<InboxEvent> second = persistenceContext.inTransaction(status -> inboxRepository.claimPending(10));
+
+        assertThat(first).extracting(InboxEvent::eventId).containsExactly("evt_1", "evt_2");
+        assertThat(first.get(0).payload()).isEqualTo("{\"id\": 1}");
+        assertThat(first.get(0).receivedAt()).isNotNull();
+        assertThat(second).extracting(InboxEvent::eventId).containsExactly("evt_3");
+        assertThat(inboxRepository.selectOldestPendingReceivedAt()).contains(second.get(0).receivedAt());
+    }
+
+    @Test
+    void deleteProcessedBefore_shouldKeepPendingEvents() {
+        inboxRepository.append(InboxEvent.received(WebhookSource.STRIPE, "evt_1", "invoice.paid", "{}"));
+        inboxRepository.append(InboxEvent.received(WebhookSource.STRIPE, "evt_2", "invoice.paid", "{}"));
+        var failed = persistenceContext.inTransaction(status -> inboxRepository.claimPending(1)).get(0);
+        inboxRepository.markFailed(failed.id(), "IllegalStateException: no customer");
+
+        int deleted = inboxRepository.deleteProcessedBefore(Instant.now().plusSeconds(60));
+
+        assertThat(deleted).isEqualTo(1);
+        assertThat(inboxRepository.countPending()).isEqualTo(1);
+    }
+}
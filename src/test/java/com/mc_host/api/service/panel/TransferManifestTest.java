@@ -0,0 +1,66 @@
+package com.mc_host.api.service.panel;
+
+import net.schmizz.sshj.sftp.FileAttributes;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransferManifestTest {
+
+    @Test
+    void isUnchanged_shouldCompareSizeAndMtime() {
+        // given
+        var manifest = new TransferManifest();
+        manifest.put("/world/level.dat", false, attributes(100, 1000));
+
+        // when / then
+        assertThat(manifest.isUnchanged("/world/level.dat", attributes(100, 1000))).isTrue();
+        assertThat(manifest.isUnchanged("/world/level.dat", attributes(101, 1000))).isFalse();
+        assertThat(manifest.isUnchanged("/world/level.dat", attributes(100, 1001))).isFalse();
+        assertThat(manifest.isUnchanged("/world/new.dat", attributes(100, 1000))).isFalse();
+    }
+
+    @Test
+    void vanished_shouldListFilesBeforeDirectoriesDeepestFirst() {
+        // given
+        var manifest = new TransferManifest();
+        manifest.put("/world", true, attributes(0, 0));
+        manifest.put("/world/DIM-1", true, attributes(0, 0));
+        manifest.put("/world/DIM-1/region", true, attributes(0, 0));
+        manifest.put("/world/DIM-1/region/r.0.0.mca", false, attributes(10, 0));
+        manifest.put("/world/level.dat", false, attributes(10, 0));
+
+        // when
+        var vanished = manifest.vanished(Set.of("/world", "/world/level.dat"));
+
+        // then
+        assertThat(vanished).containsExactly(
+            "/world/DIM-1/region/r.0.0.mca",
+            "/world/DIM-1/region",
+            "/world/DIM-1"
+        );
+    }
+
+    @Test
+    void topLevelNames_shouldListDirectChildrenOfRoot() {
+        // given
+        var manifest = new TransferManifest();
+        manifest.put("/world", true, attributes(0, 0));
+        manifest.put("/world/level.dat", false, attributes(10, 0));
+        manifest.put("/server.properties", false, attributes(10, 0));
+
+        // when / then
+        assertThat(manifest.topLevelNames("/")).containsExactly("server.properties", "world");
+        assertThat(manifest.fileCount()).isEqualTo(2);
+        assertThat(manifest.directories()).containsExactly("/world");
+    }
+
+    private static FileAttributes attributes(long size, long mtime) {
+        return new FileAttributes.Builder()
+            .withSize(size)
+            .withAtimeMtime(mtime, mtime)
+            .build();
+    }
+}
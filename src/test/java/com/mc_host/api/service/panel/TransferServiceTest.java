@@ -0,0 +1,104 @@
+package com.mc_host.api.service.panel;
+
+import com.mc_host.api.client.PterodactylUserClient;
+import com.mc_host.api.configuration.PterodactylConfiguration;
+import com.mc_host.api.configuration.TransferConfiguration;
+import com.mc_host.api.metrics.TransferMetrics;
+import com.mc_host.api.repository.GameServerRepository;
+import com.mc_host.api.repository.NodeAccessoryRepository;
+import com.mc_host.api.service.resources.PterodactylService;
+import com.mc_host.api.service.resources.SshConnectionManager;
+import com.mc_host.api.util.ConditionAwaiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class TransferServiceTest {
+
+    private static final String SOURCE_UID = "source-uid";
+
+    @Mock
+    private PterodactylService pterodactylService;
+
+    @Mock
+    private TransferMetrics transferMetrics;
+
+    @Mock
+    private GameServerRepository gameServerRepository;
+
+    @Mock
+    private NodeAccessoryRepository nodeAccessoryRepository;
+
+    @Mock
+    private PterodactylUserClient pterodactylUserClient;
+
+    @Mock
+    private SshConnectionManager sshConnectionManager;
+
+    @Mock
+    private ConditionAwaiter conditionAwaiter;
+
+    private TransferService transferService;
+
+    @BeforeEach
+    void setUp() {
+        transferService = new TransferService(
+            new PterodactylConfiguration(),
+            gameServerRepository,
+            nodeAccessoryRepository,
+            new TransferConfiguration(),
+            transferMetrics,
+            pterodactylService,
+            pterodactylUserClient,
+            sshConnectionManager,
+            conditionAwaiter
+        );
+    }
+
+    @Test
+    void withSourceStopped_shouldRestartSourceWhenDeltaSyncFails() {
+        // given
+        var failure = new IOException("sftp channel closed");
+
+        // when / then
+        assertThatThrownBy(() -> transferService.withSourceStopped(SOURCE_UID, () -> {
+            throw failure;
+        })).isSameAs(failure);
+        verify(pterodactylService).stopAndWaitForServer(eq(SOURCE_UID), any(Duration.class));
+        verify(pterodactylService).startServer(SOURCE_UID);
+    }
+
+    @Test
+    void withSourceStopped_shouldRestartSourceWhenStopTimesOut() {
+        // given
+        doThrow(new RuntimeException("pterodactyl.server.stopped not satisfied"))
+            .when(pterodactylService).stopAndWaitForServer(eq(SOURCE_UID), any(Duration.class));
+
+        // when / then
+        assertThatThrownBy(() -> transferService.withSourceStopped(SOURCE_UID, () -> {}))
+            .hasMessageContaining("not satisfied");
+        verify(pterodactylService).startServer(SOURCE_UID);
+    }
+
+    @Test
+    void withSourceStopped_shouldLeaveSourceStoppedWhenDeltaSyncSucceeds() throws Exception {
+        // when
+        transferService.withSourceStopped(SOURCE_UID, () -> {});
+
+        // then
+        verify(pterodactylService, never()).startServer(SOURCE_UID);
+    }
+}
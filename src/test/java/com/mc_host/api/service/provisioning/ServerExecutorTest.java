@@ -0,0 +1,215 @@
+package com.mc_host.api.service.provisioning;
+
+import com.mc_host.api.configuration.ProvisioningConfiguration;
+import com.mc_host.api.metrics.ProvisioningMetrics;
+import com.mc_host.api.model.provisioning.Context;
+import com.mc_host.api.model.provisioning.Mode;
+import com.mc_host.api.model.provisioning.Status;
+import com.mc_host.api.model.provisioning.StepExecution;
+import com.mc_host.api.model.provisioning.StepTransition;
+import com.mc_host.api.model.provisioning.StepType;
+import com.mc_host.api.repository.ServerExecutionContextRepository;
+import com.mc_host.api.repository.ServerExecutionStepRepository;
+import com.mc_host.api.service.provisioning.steps.Step;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ServerExecutorTest {
+
+    @Mock private ServerExecutionContextRepository repository;
+    @Mock private ServerExecutionStepRepository stepRepository;
+
+    private TransitionService transitionService;
+    private ProvisioningConfiguration configuration;
+    private List<StepType> executed;
+
+    @BeforeEach
+    void setUp() {
+        transitionService = new TransitionService(repository);
+        configuration = new ProvisioningConfiguration();
+        executed = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @Test
+    void execute_runsCNameRecordAlongsideNodeSetup_andKeepsEveryStepsIds() {
+        // given
+        var cNameStarted = new CountDownLatch(1);
+        var steps = chain(cNameStarted, null);
+
+        // when
+        executor(steps).execute(startingContext());
+
+        // then
+        assertThat(executed.indexOf(StepType.C_NAME_RECORD)).isLessThan(executed.indexOf(StepType.CONFIGURE_NODE));
+        var last = lastPersisted();
+        assertThat(last.getStatus()).isEqualTo(Status.COMPLETED);
+        assertThat(last.getStepType()).isEqualTo(StepType.READY);
+        assertThat(last.getNewPterodactylNodeId()).isEqualTo(2L);
+        assertThat(last.getNewCNameRecordId()).isEqualTo("cname");
+        var history = ArgumentCaptor.forClass(StepExecution.class);
+        verify(stepRepository, times(9)).insertStepExecution(history.capture());
+        assertThat(history.getAllValues())
+            .filteredOn(execution -> execution.lane() == StepExecution.Lane.AHEAD)
+            .extracting(StepExecution::stepType)
+            .containsExactlyInAnyOrder(StepType.C_NAME_RECORD, StepType.START_SERVER);
+    }
+
+    @Test
+    void execute_runsInOrder_whenParallelismIsZero() {
+        // given
+        configuration.setParallelism(0);
+        var steps = chain(null, null);
+
+        // when
+        executor(steps).execute(startingContext());
+
+        // then
+        assertThat(executed).containsExactly(
+            StepType.NODE_A_RECORD,
+            StepType.PTERODACTYL_NODE,
+            StepType.CONFIGURE_NODE,
+            StepType.INSTALL_SERVER,
+            StepType.CREATE_SUBUSER,
+            StepType.START_SERVER,
+            StepType.C_NAME_RECORD,
+            StepType.FINALISE,
+            StepType.READY
+        );
+        assertThat(lastPersisted().getNewCNameRecordId()).isEqualTo("cname");
+    }
+
+    @Test
+    void execute_failsAtDetachedStep_whenItFailedAheadOfTheChain() {
+        // given
+        var steps = chain(null, new IllegalStateException("cloudflare down"));
+
+        // when / then
+        assertThatThrownBy(() -> executor(steps).execute(startingContext()))
+            .hasMessageContaining("cloudflare down");
+        var last = lastPersisted();
+        assertThat(last.getStatus()).isEqualTo(Status.FAILED);
+        assertThat(last.getStepType()).isEqualTo(StepType.C_NAME_RECORD);
+        assertThat(last.getNewPterodactylNodeId()).isEqualTo(2L);
+        assertThat(executed).doesNotContain(StepType.FINALISE);
+        var history = ArgumentCaptor.forClass(StepExecution.class);
+        verify(stepRepository, atLeastOnce()).insertStepExecution(history.capture());
+        assertThat(history.getAllValues())
+            .filteredOn(execution -> execution.outcome() == StepExecution.Outcome.FAILURE)
+            .singleElement()
+            .satisfies(execution -> {
+                assertThat(execution.stepType()).isEqualTo(StepType.C_NAME_RECORD);
+                assertThat(execution.errorMessage()).isEqualTo("IllegalStateException: cloudflare down");
+            });
+    }
+
+    private ServerExecutor executor(List<Step> steps) {
+        var metrics = new ProvisioningMetrics(new SimpleMeterRegistry());
+        return new ServerExecutor(steps, transitionService, configuration, metrics, new StepHistoryService(stepRepository, metrics, configuration));
+    }
+
+    // a cut down cloud create chain, pterodactyl node setup blocks until the c name record has started
+    private List<Step> chain(CountDownLatch cNameStarted, RuntimeException cNameFailure) {
+        return List.of(
+            new FakeStep(StepType.NODE_A_RECORD, StepType.PTERODACTYL_NODE, context -> context.withNewARecordId("a")),
+            new FakeStep(StepType.PTERODACTYL_NODE, StepType.CONFIGURE_NODE, context -> {
+                await(cNameStarted);
+                return context.withNewPterodactylNodeId(2L);
+            }),
+            new FakeStep(StepType.CONFIGURE_NODE, StepType.INSTALL_SERVER, UnaryOperator.identity()),
+            new FakeStep(StepType.INSTALL_SERVER, StepType.CREATE_SUBUSER, UnaryOperator.identity()),
+            new FakeStep(StepType.CREATE_SUBUSER, StepType.START_SERVER, UnaryOperator.identity()),
+            new FakeStep(StepType.START_SERVER, StepType.C_NAME_RECORD, UnaryOperator.identity()),
+            new FakeStep(StepType.C_NAME_RECORD, StepType.FINALISE, context -> {
+                if (cNameStarted != null) {
+                    cNameStarted.countDown();
+                }
+                if (cNameFailure != null) {
+                    throw cNameFailure;
+                }
+                return context.withNewCNameRecordId("cname");
+            }),
+            new FakeStep(StepType.FINALISE, StepType.READY, UnaryOperator.identity()),
+            new FakeStep(StepType.READY, null, UnaryOperator.identity())
+        );
+    }
+
+    private static void await(CountDownLatch latch) {
+        if (latch == null) {
+            return;
+        }
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Context startingContext() {
+        return Context.newIdle("sub_1", "title", "caption")
+            .withMode(Mode.CREATE)
+            .withNewNodeId(1L)
+            .withStepType(StepType.NODE_A_RECORD)
+            .inProgress();
+    }
+
+    private Context lastPersisted() {
+        var captor = ArgumentCaptor.forClass(Context.class);
+        verify(repository, atLeastOnce()).upsertSubscription(captor.capture());
+        return captor.getValue();
+    }
+
+    private class FakeStep implements Step {
+        private final StepType type;
+        private final StepType next;
+        private final UnaryOperator<Context> change;
+
+        private FakeStep(StepType type, StepType next, UnaryOperator<Context> change) {
+            this.type = type;
+            this.next = next;
+            this.change = change;
+        }
+
+        @Override
+        public StepType getType() {
+            return type;
+        }
+
+        @Override
+        public StepTransition execute(Context context) {
+            return create(context);
+        }
+
+        @Override
+        public StepTransition create(Context context) {
+            executed.add(type);
+            var changed = change.apply(context);
+            return next == null
+                ? transitionService.persistAndComplete(changed)
+                : transitionService.persistAndProgress(changed, next);
+        }
+
+        @Override
+        public StepTransition destroy(Context context) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
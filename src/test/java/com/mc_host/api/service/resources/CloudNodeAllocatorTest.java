@@ -0,0 +1,144 @@
+package com.mc_host.api.service.resources;
+
+import com.mc_host.api.configuration.CloudNodeAllocationConfiguration;
+import com.mc_host.api.metrics.AwaitMetrics;
+import com.mc_host.api.metrics.CloudCapacityMetrics;
+import com.mc_host.api.model.resource.hetzner.HetznerCloudProduct;
+import com.mc_host.api.model.resource.hetzner.HetznerRegion;
+import com.mc_host.api.model.resource.hetzner.node.HetznerCloudNode;
+import com.mc_host.api.util.ConditionAwaiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CloudNodeAllocatorTest {
+
+    private static final HetznerCloudProduct PRODUCT = HetznerCloudProduct.CX22;
+    private static final List<Pair<HetznerRegion, HetznerCloudProduct>> CANDIDATES = List.of(
+        Pair.of(HetznerRegion.NBG1, PRODUCT),
+        Pair.of(HetznerRegion.FSN1, PRODUCT),
+        Pair.of(HetznerRegion.HEL1, PRODUCT)
+    );
+
+    @Mock
+    private HetznerService hetznerService;
+
+    private CloudNodeAllocationConfiguration configuration;
+
+    @BeforeEach
+    void setUp() {
+        configuration = new CloudNodeAllocationConfiguration();
+        configuration.setParallelism(3);
+        configuration.setPreferenceGraceMs(2000L);
+        configuration.setPollIntervalMs(10L);
+    }
+
+    @Test
+    void race_shouldKeepMostPreferredRunningNodeAndDeleteTheRest() {
+        // given
+        configuration.setRaceEnabled(true);
+        stubStart(HetznerRegion.NBG1, 1L);
+        stubStart(HetznerRegion.FSN1, 2L);
+        stubStart(HetznerRegion.HEL1, 3L);
+        when(hetznerService.getServerStatus(anyLong())).thenReturn("running");
+
+        // when
+        var node = allocator().allocate("sub_1", CANDIDATES);
+
+        // then
+        assertThat(node.hetznerNodeId()).isEqualTo(1L);
+        verify(hetznerService, timeout(1000)).deleteCloudNode(2L);
+        verify(hetznerService, timeout(1000)).deleteCloudNode(3L);
+        verify(hetznerService, never()).deleteCloudNode(1L);
+    }
+
+    @Test
+    void race_shouldReplaceUnavailableAttemptsUntilOneRuns() {
+        // given
+        configuration.setRaceEnabled(true);
+        configuration.setParallelism(2);
+        when(hetznerService.startCloudNode(any(), eq(PRODUCT), eq(HetznerRegion.NBG1)))
+            .thenThrow(new RuntimeException("start failed", new RuntimeException("API error: 412 resource_unavailable")));
+        when(hetznerService.startCloudNode(any(), eq(PRODUCT), eq(HetznerRegion.FSN1)))
+            .thenThrow(new RuntimeException("start failed", new RuntimeException("API error: 412 resource_unavailable")));
+        stubStart(HetznerRegion.HEL1, 3L);
+        when(hetznerService.getServerStatus(3L)).thenReturn("initializing", "running");
+
+        // when
+        var node = allocator().allocate("sub_1", CANDIDATES);
+
+        // then
+        assertThat(node.hetznerNodeId()).isEqualTo(3L);
+        verify(hetznerService, never()).deleteCloudNode(anyLong());
+    }
+
+    @Test
+    void sequential_shouldTryRegionsWithRecentCapacityFirst() {
+        // given
+        var allocator = allocator();
+        when(hetznerService.createCloudNode(any(), eq(PRODUCT), eq(HetznerRegion.NBG1)))
+            .thenThrow(new RuntimeException("create failed", new RuntimeException("API error: 412 resource_unavailable")));
+        when(hetznerService.createCloudNode(any(), eq(PRODUCT), eq(HetznerRegion.FSN1)))
+            .thenReturn(node(HetznerRegion.FSN1, 2L));
+        allocator.allocate("sub_1", CANDIDATES);
+
+        // when
+        var node = allocator.allocate("sub_2", CANDIDATES);
+
+        // then
+        assertThat(node.hetznerNodeId()).isEqualTo(2L);
+        InOrder order = inOrder(hetznerService);
+        order.verify(hetznerService).createCloudNode("sub_1", PRODUCT, HetznerRegion.NBG1);
+        order.verify(hetznerService).createCloudNode("sub_1", PRODUCT, HetznerRegion.FSN1);
+        order.verify(hetznerService).createCloudNode("sub_2", PRODUCT, HetznerRegion.FSN1);
+        verify(hetznerService, never()).createCloudNode("sub_2", PRODUCT, HetznerRegion.NBG1);
+    }
+
+    @Test
+    void failureOutcome_shouldClassifyHetznerRefusalsAndTimeouts() {
+        // when / then
+        assertThat(CloudNodeAllocator.failureOutcome(new RuntimeException("x", new RuntimeException("API error: 412 {}"))))
+            .isEqualTo("unavailable");
+        assertThat(CloudNodeAllocator.failureOutcome(new RuntimeException("[subscriptionId: s] Timed-out creating hetzner cloud node")))
+            .isEqualTo("timeout");
+        assertThat(CloudNodeAllocator.failureOutcome(new RuntimeException("API error: 401 unauthorized")))
+            .isEqualTo("error");
+    }
+
+    private CloudNodeAllocator allocator() {
+        return new CloudNodeAllocator(
+            configuration,
+            new CloudCapacityMetrics(new SimpleMeterRegistry()),
+            hetznerService,
+            new ConditionAwaiter(Executors.newSingleThreadScheduledExecutor(), new AwaitMetrics(new SimpleMeterRegistry()))
+        );
+    }
+
+    private void stubStart(HetznerRegion region, long hetznerNodeId) {
+        lenient().when(hetznerService.startCloudNode(any(), eq(PRODUCT), eq(region))).thenReturn(node(region, hetznerNodeId));
+    }
+
+    private static HetznerCloudNode node(HetznerRegion region, long hetznerNodeId) {
+        return new HetznerCloudNode(hetznerNodeId, region, "10.0.0." + hetznerNodeId, PRODUCT);
+    }
+}
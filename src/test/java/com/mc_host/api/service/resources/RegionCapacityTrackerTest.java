@@ -0,0 +1,55 @@
+package com.mc_host.api.service.resources;
+
+import com.mc_host.api.model.resource.hetzner.HetznerCloudProduct;
+import com.mc_host.api.model.resource.hetzner.HetznerRegion;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RegionCapacityTrackerTest {
+
+    private static final Pair<HetznerRegion, HetznerCloudProduct> NBG1 = Pair.of(HetznerRegion.NBG1, HetznerCloudProduct.CX22);
+    private static final Pair<HetznerRegion, HetznerCloudProduct> FSN1 = Pair.of(HetznerRegion.FSN1, HetznerCloudProduct.CX22);
+    private static final Pair<HetznerRegion, HetznerCloudProduct> HEL1 = Pair.of(HetznerRegion.HEL1, HetznerCloudProduct.CX22);
+
+    @Test
+    void order_shouldKeepPreferenceOrderUntilSomethingFails() {
+        // given
+        var tracker = new RegionCapacityTracker(0.5);
+
+        // when / then
+        assertThat(tracker.order(List.of(NBG1, FSN1, HEL1))).containsExactly(NBG1, FSN1, HEL1);
+    }
+
+    @Test
+    void order_shouldMoveRegionsWithoutCapacityBack() {
+        // given
+        var tracker = new RegionCapacityTracker(0.5);
+        tracker.record(NBG1, false);
+        tracker.record(FSN1, true);
+
+        // when
+        var ordered = tracker.order(List.of(NBG1, FSN1, HEL1));
+
+        // then
+        assertThat(ordered).containsExactly(FSN1, HEL1, NBG1);
+        assertThat(tracker.score(NBG1)).isEqualTo(0.5);
+    }
+
+    @Test
+    void record_shouldRecoverAfterSuccesses() {
+        // given
+        var tracker = new RegionCapacityTracker(0.5);
+        tracker.record(NBG1, false);
+        tracker.record(NBG1, false);
+
+        // when
+        tracker.record(NBG1, true);
+
+        // then
+        assertThat(tracker.score(NBG1)).isEqualTo(0.625);
+    }
+}
@@ -0,0 +1,69 @@
+package com.mc_host.api.service.resources;
+
+import com.mc_host.api.model.resource.hetzner.HetznerCloudProduct;
+import com.mc_host.api.model.resource.hetzner.HetznerRegion;
+import com.mc_host.api.model.resource.hetzner.node.WarmPoolKey;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WarmNodePoolServiceTest {
+
+    private static final Duration HOUR = Duration.ofHours(1);
+    private static final Duration TEN_MINUTES = Duration.ofMinutes(10);
+
+    @Test
+    void targetSize_shouldCoverCheckoutsExpectedDuringLeadTime() {
+        // given 12 checkouts an hour, so 2 expected while one node builds, plus 50% headroom
+
+        // when
+        var target = WarmNodePoolService.targetSize(12, HOUR, TEN_MINUTES, 1.5, 0, 10);
+
+        // then
+        assertThat(target).isEqualTo(3);
+    }
+
+    @Test
+    void targetSize_shouldRoundUpAnyDemand() {
+        // when / then
+        assertThat(WarmNodePoolService.targetSize(1, HOUR, TEN_MINUTES, 1.0, 0, 10)).isEqualTo(1);
+        assertThat(WarmNodePoolService.targetSize(0, HOUR, TEN_MINUTES, 1.0, 0, 10)).isZero();
+    }
+
+    @Test
+    void targetSize_shouldClampToPoolBounds() {
+        // when / then
+        assertThat(WarmNodePoolService.targetSize(0, HOUR, TEN_MINUTES, 1.5, 2, 5)).isEqualTo(2);
+        assertThat(WarmNodePoolService.targetSize(600, HOUR, TEN_MINUTES, 1.5, 2, 5)).isEqualTo(5);
+    }
+
+    @Test
+    void poolKey_shouldRoundTripThroughJobPayload() {
+        // given
+        var key = new WarmPoolKey(HetznerCloudProduct.CX22, HetznerRegion.NBG1);
+
+        // when
+        var payload = key.toPayload();
+
+        // then
+        assertThat(payload).isEqualTo("cx22/nbg1");
+        assertThat(WarmPoolKey.fromPayload(payload)).isEqualTo(key);
+        assertThatThrownBy(() -> WarmPoolKey.fromPayload("cx22")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void poolKey_shouldReadSlotPayloadAsItsPool() {
+        // given
+        var key = new WarmPoolKey(HetznerCloudProduct.CX22, HetznerRegion.NBG1);
+
+        // when
+        var payload = key.toSlotPayload(2);
+
+        // then
+        assertThat(payload).isEqualTo("cx22/nbg1#2");
+        assertThat(WarmPoolKey.fromPayload(payload)).isEqualTo(key);
+    }
+}
@@ -0,0 +1,153 @@
+package com.mc_host.api.service.stripe;
+
+import com.mc_host.api.configuration.StripeConfiguration;
+import com.mc_host.api.metrics.StripeSyncMetrics;
+import com.mc_host.api.model.stripe.StripeObjectChange;
+import com.mc_host.api.model.stripe.StripeSyncCursor;
+import com.mc_host.api.model.stripe.StripeSyncResource;
+import com.mc_host.api.repository.StripeSyncRepository;
+import com.mc_host.api.util.RowDiff;
+import com.stripe.Stripe;
+import com.stripe.model.Invoice;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StripeChangeFeedTest {
+
+    private static final String CUSTOMER_ID = "cus_1";
+
+    @Mock private StripeSyncRepository stripeSyncRepository;
+
+    private StripeChangeFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        feed = new StripeChangeFeed(stripeSyncRepository, new StripeConfiguration(), new StripeSyncMetrics(new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void open_isFull_forACustomerNeverListed() {
+        // given
+        when(stripeSyncRepository.selectCursor(CUSTOMER_ID, StripeSyncResource.INVOICE)).thenReturn(Optional.empty());
+
+        // when
+        var batch = feed.open(CUSTOMER_ID, StripeSyncResource.INVOICE, Invoice.class);
+
+        // then
+        assertThat(batch.mode()).isEqualTo(StripeChangeFeed.Mode.FULL);
+    }
+
+    @Test
+    void open_isFull_onceTheFullSyncIntervalHasPassed() {
+        // given
+        var listedAt = Instant.now().minus(Duration.ofDays(2));
+        when(stripeSyncRepository.selectCursor(CUSTOMER_ID, StripeSyncResource.INVOICE))
+            .thenReturn(Optional.of(new StripeSyncCursor(CUSTOMER_ID, StripeSyncResource.INVOICE, listedAt, listedAt)));
+
+        // when
+        var batch = feed.open(CUSTOMER_ID, StripeSyncResource.INVOICE, Invoice.class);
+
+        // then
+        assertThat(batch.isFull()).isTrue();
+    }
+
+    @Test
+    void open_readsTheCarriedObjects_andSkipsChangesTheLastListingAlreadyHad() {
+        // given
+        var listedAt = Instant.now().minus(Duration.ofHours(1));
+        var stale = change("in_1", listedAt.minusSeconds(60), "invoice");
+        var fresh = change("in_2", listedAt.plusSeconds(60), "invoice");
+        when(stripeSyncRepository.selectCursor(CUSTOMER_ID, StripeSyncResource.INVOICE))
+            .thenReturn(Optional.of(new StripeSyncCursor(CUSTOMER_ID, StripeSyncResource.INVOICE, listedAt, listedAt)));
+        when(stripeSyncRepository.selectPendingChanges(CUSTOMER_ID, StripeSyncResource.INVOICE)).thenReturn(List.of(stale, fresh));
+
+        // when
+        var batch = feed.open(CUSTOMER_ID, StripeSyncResource.INVOICE, Invoice.class);
+
+        // then
+        assertThat(batch.mode()).isEqualTo(StripeChangeFeed.Mode.INCREMENTAL);
+        assertThat(batch.objects()).extracting(Invoice::getId).containsExactly("in_2");
+        assertThat(batch.objects().getFirst().getAmountDue()).isEqualTo(500L);
+        assertThat(batch.consumed()).containsExactly(stale, fresh);
+    }
+
+    @Test
+    void open_isFull_whenACarriedObjectIsNotTheResourceAsked() {
+        // given
+        var listedAt = Instant.now().minus(Duration.ofHours(1));
+        when(stripeSyncRepository.selectCursor(CUSTOMER_ID, StripeSyncResource.INVOICE))
+            .thenReturn(Optional.of(new StripeSyncCursor(CUSTOMER_ID, StripeSyncResource.INVOICE, listedAt, listedAt)));
+        when(stripeSyncRepository.selectPendingChanges(CUSTOMER_ID, StripeSyncResource.INVOICE))
+            .thenReturn(List.of(change("sub_1", listedAt.plusSeconds(60), "subscription")));
+
+        // when
+        var batch = feed.open(CUSTOMER_ID, StripeSyncResource.INVOICE, Invoice.class);
+
+        // then
+        assertThat(batch.isFull()).isTrue();
+        assertThat(batch.consumed()).isEmpty();
+    }
+
+    @Test
+    void open_isFull_whenTheWebhookIsInAnotherApiVersion() {
+        // given
+        var listedAt = Instant.now().minus(Duration.ofHours(1));
+        when(stripeSyncRepository.selectCursor(CUSTOMER_ID, StripeSyncResource.INVOICE))
+            .thenReturn(Optional.of(new StripeSyncCursor(CUSTOMER_ID, StripeSyncResource.INVOICE, listedAt, listedAt)));
+        when(stripeSyncRepository.selectPendingChanges(CUSTOMER_ID, StripeSyncResource.INVOICE))
+            .thenReturn(List.of(change("in_1", listedAt.plusSeconds(60), "invoice", "2024-06-20")));
+
+        // when
+        var batch = feed.open(CUSTOMER_ID, StripeSyncResource.INVOICE, Invoice.class);
+
+        // then
+        assertThat(batch.isFull()).isTrue();
+    }
+
+    @Test
+    void commit_movesTheCursorToTheNewestChangeApplied() {
+        // given
+        var listedAt = Instant.now().minus(Duration.ofHours(1));
+        var first = change("in_1", listedAt.plusSeconds(60), "invoice");
+        var second = change("in_2", listedAt.plusSeconds(120), "invoice");
+        var batch = new StripeChangeFeed.Batch<Invoice>(
+            CUSTOMER_ID, StripeSyncResource.INVOICE, StripeChangeFeed.Mode.INCREMENTAL, List.of(), List.of(second, first), Instant.now());
+
+        // when
+        feed.commit(batch, new RowDiff<>(List.of(), List.of(), List.of(), 2));
+
+        // then
+        verify(stripeSyncRepository).markChangesApplied(List.of(second, first));
+        var cursor = ArgumentCaptor.forClass(StripeSyncCursor.class);
+        verify(stripeSyncRepository).upsertCursor(cursor.capture());
+        assertThat(cursor.getValue().appliedThrough()).isEqualTo(second.eventCreated());
+    }
+
+    private static StripeObjectChange change(String objectId, Instant created, String objectType) {
+        return change(objectId, created, objectType, Stripe.API_VERSION);
+    }
+
+    private static StripeObjectChange change(String objectId, Instant created, String objectType, String apiVersion) {
+        var payload = """
+            {"id": "evt_%s", "object": "event", "api_version": "%s", "created": %d, "type": "%s.updated",
+             "data": {"object": {"id": "%s", "object": "%s", "customer": "%s", "amount_due": 500, "currency": "eur"}}}
+            """.formatted(objectId, apiVersion, created.getEpochSecond(), objectType, objectId, objectType, CUSTOMER_ID);
+        var resource = StripeSyncResource.fromObjectType(objectType).orElseThrow();
+        return new StripeObjectChange(resource, objectId, CUSTOMER_ID, Instant.ofEpochSecond(created.getEpochSecond()), payload);
+    }
+}
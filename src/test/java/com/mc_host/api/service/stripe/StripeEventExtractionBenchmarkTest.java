@@ -0,0 +1,119 @@
+package com.mc_host.api.service.stripe;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mc_host.api.configuration.StripeConfiguration;
+import com.stripe.model.Event;
+import com.stripe.model.StripeObject;
+import com.stripe.net.ApiResource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// run with -Dbenchmark=true, compares time and allocation per event of the old toJson/Map extraction with the streaming reader
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class StripeEventExtractionBenchmarkTest {
+    private static final Logger LOGGER = Logger.getLogger(StripeEventExtractionBenchmarkTest.class.getName());
+
+    private static final int WARMUP_ROUNDS = 2_000;
+    private static final int MEASURED_ROUNDS = 10_000;
+    private static final List<String> EXTRACTION_FIELDS = List.of("customer", "product");
+
+    private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private long sink;
+
+    @Test
+    void extract_legacyVersusStreaming() throws Exception {
+        List<String> payloads = recordedPayloads();
+        var processor = new StripeEventProcessor(configuration());
+
+        // both paths have to agree before either is worth timing
+        for (String payload : payloads) {
+            var header = StripePayloadReader.readHeader(payload);
+            var streamed = processor.route(header.id(), header.type(), payload).requests();
+            var event = StripeObject.deserializeStripeObject(payload, Event.class, ApiResource.getGlobalResponseGetter());
+            assertThat(header.id()).isEqualTo(event.getId());
+            streamed.forEach(request -> assertThat(EXTRACTION_FIELDS.stream().map(field -> legacyExtract(event, field)))
+                .contains(request.payload()));
+        }
+
+        report("legacy deserialize + toJson/Map", payloads, () -> {
+            for (String payload : payloads) {
+                var event = StripeObject.deserializeStripeObject(payload, Event.class, ApiResource.getGlobalResponseGetter());
+                for (String field : EXTRACTION_FIELDS) {
+                    var value = legacyExtract(event, field);
+                    sink += value == null ? 0 : value.length();
+                }
+            }
+        });
+        report("streaming header + fields", payloads, () -> {
+            for (String payload : payloads) {
+                var header = StripePayloadReader.readHeader(payload);
+                sink += processor.route(header.id(), header.type(), payload).requests().size();
+            }
+        });
+        LOGGER.fine("sink " + sink);
+    }
+
+    private void report(String name, List<String> payloads, Round round) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            round.run();
+        }
+        long thread = Thread.currentThread().threadId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            round.run();
+        }
+        long nanos = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+        long events = (long) MEASURED_ROUNDS * payloads.size();
+        LOGGER.info("%s: %.2f us/event, %d bytes/event over %d events"
+            .formatted(name, nanos / 1_000.0 / events, allocated / events, events));
+    }
+
+    // StripeEventProcessor.extractValueFromEvent as it was, run once per extraction field
+    @SuppressWarnings("deprecation")
+    private static String legacyExtract(Event event, String field) {
+        try {
+            String json = event.getData().getObject().toJson();
+            Map<String, Object> raw = new ObjectMapper().readValue(json, new TypeReference<Map<String, Object>>() {});
+            Object value = raw.get(field);
+            return value != null ? value.toString() : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static StripeConfiguration configuration() {
+        var configuration = new StripeConfiguration();
+        configuration.setSubscriptionEvents(List.of("checkout.session.completed", "customer.subscription.created",
+            "customer.subscription.updated", "payment_intent.succeeded", "invoice.created", "invoice.finalized",
+            "invoice.paid", "invoice.updated"));
+        configuration.setInvoiceEvents(List.of("invoice.created", "invoice.finalized", "invoice.paid", "invoice.updated"));
+        configuration.setPriceEvents(List.of("price.created", "price.updated"));
+        configuration.setPaymentMethodEvents(List.of("payment_method.attached", "payment_method.detached"));
+        return configuration;
+    }
+
+    private static List<String> recordedPayloads() throws Exception {
+        try (InputStream in = StripeEventExtractionBenchmarkTest.class.getClassLoader().getResourceAsStream("webhooks/stripe-checkout.jsonl")) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).lines()
+                .filter(line -> !line.isBlank())
+                .toList();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Round {
+        void run() throws Exception;
+    }
+}
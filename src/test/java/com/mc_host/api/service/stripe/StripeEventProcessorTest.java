@@ -0,0 +1,106 @@
+package com.mc_host.api.service.stripe;
+
+import com.mc_host.api.configuration.StripeConfiguration;
+import com.mc_host.api.model.queue.EnqueueRequest;
+import com.mc_host.api.model.stripe.StripeSyncResource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StripeEventProcessorTest {
+
+    private StripeEventProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        var stripeConfiguration = new StripeConfiguration();
+        stripeConfiguration.setSubscriptionEvents(List.of("invoice.paid"));
+        stripeConfiguration.setInvoiceEvents(List.of("invoice.paid"));
+        stripeConfiguration.setPriceEvents(List.of("price.updated"));
+        stripeConfiguration.setPaymentMethodEvents(List.of("payment_method.attached"));
+        processor = new StripeEventProcessor(stripeConfiguration);
+    }
+
+    @Test
+    void route_readsIdsOffTheDataObject_notOffNestedOrPreviousValues() throws Exception {
+        // given
+        var payload = """
+            {"id": "evt_1", "customer": "cus_top", "type": "invoice.paid", "data": {
+                "object": {
+                    "id": "in_1",
+                    "lines": {"data": [{"price": {"product": "prod_nested", "customer": "cus_nested"}}]},
+                    "customer_details": {"customer": "cus_details"},
+                    "customer": "cus_1",
+                    "status": "paid"
+                },
+                "previous_attributes": {"customer": "cus_previous"}
+            }}
+            """;
+
+        // when
+        var requests = processor.route("evt_1", "invoice.paid", payload).requests();
+
+        // then
+        assertThat(requests)
+            .extracting(request -> request.type() + ":" + request.payload())
+            .containsExactlyInAnyOrder("CUSTOMER_INVOICE_SYNC:cus_1", "CUSTOMER_SUBSCRIPTION_SYNC:cus_1");
+    }
+
+    @Test
+    void route_carriesTheObject_forResourcesSyncedIncrementally() throws Exception {
+        // given
+        var payload = """
+            {"id": "evt_4", "created": 1736900000, "type": "invoice.paid", "data": {"object": {"id": "in_4", "object": "invoice", "customer": "cus_4"}}}
+            """;
+
+        // when
+        var change = processor.route("evt_4", "invoice.paid", payload).change();
+
+        // then
+        assertThat(change).hasValueSatisfying(carried -> {
+            assertThat(carried.resource()).isEqualTo(StripeSyncResource.INVOICE);
+            assertThat(carried.objectId()).isEqualTo("in_4");
+            assertThat(carried.customerId()).isEqualTo("cus_4");
+            assertThat(carried.eventCreated()).isEqualTo(Instant.ofEpochSecond(1736900000));
+            assertThat(carried.eventPayload()).isEqualTo(payload);
+        });
+    }
+
+    @Test
+    void route_readsProductForPriceEvents() throws Exception {
+        // given
+        var payload = """
+            {"id": "evt_2", "created": 1736900000, "type": "price.updated", "data": {"object": {"id": "price_1", "object": "price", "product": "prod_1", "unit_amount": 500}}}
+            """;
+
+        // when
+        var routing = processor.route("evt_2", "price.updated", payload);
+
+        // then
+        assertThat(routing.requests()).extracting(EnqueueRequest::payload).containsExactly("prod_1");
+        assertThat(routing.change()).isEmpty();
+    }
+
+    @Test
+    void route_fails_whenTheIdIsMissing() {
+        // given
+        var payload = """
+            {"id": "evt_3", "type": "payment_method.attached", "data": {"object": {"id": "pm_1", "customer": null}}}
+            """;
+
+        // when / then
+        assertThatThrownBy(() -> processor.route("evt_3", "payment_method.attached", payload).requests())
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("failed to extract customer from event evt_3");
+    }
+
+    @Test
+    void route_isEmpty_forUnsupportedTypes() throws Exception {
+        assertThat(processor.route("evt_4", "customer.created", "not even json").requests()).isEmpty();
+    }
+}
@@ -0,0 +1,184 @@
+package com.mc_host.api.service.webhook;
+
+import com.mc_host.api.DatabaseTest;
+import com.mc_host.api.configuration.ClerkConfiguration;
+import com.mc_host.api.configuration.StripeConfiguration;
+import com.mc_host.api.service.clerk.ClerkService;
+import com.mc_host.api.service.stripe.StripeWebhookService;
+import com.stripe.net.Webhook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// run with -Dbenchmark=true, replays recorded stripe checkout and clerk signup streams as one overlapping burst
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@TestPropertySource(properties = {
+    "stripe.subscription-events=checkout.session.completed,customer.subscription.created,customer.subscription.updated,"
+        + "payment_intent.succeeded,invoice.created,invoice.finalized,invoice.paid,invoice.updated",
+    "stripe.invoice-events=invoice.created,invoice.finalized,invoice.paid,invoice.updated",
+    "stripe.price-events=price.created,price.updated",
+    "stripe.payment-method-events=payment_method.attached,payment_method.detached",
+    "clerk.signing-key=whsec_dGVzdC1jbGVyay1zaWduaW5nLWtleQ==",
+    // the benchmark drives the drain itself and nothing should consume the jobs it produces
+    "webhook-inbox.drain-interval-ms=3600000",
+    "job-queue.poll-interval-ms=3600000"
+})
+class WebhookInboxBenchmarkTest extends DatabaseTest {
+    private static final Logger LOGGER = Logger.getLogger(WebhookInboxBenchmarkTest.class.getName());
+
+    private static final int CUSTOMERS = 500;
+    private static final int USERS = 500;
+    private static final int CONCURRENCY = 32;
+    // distinct (type, id) keys in one replay of each recording
+    private static final int JOBS_PER_CUSTOMER = 3;
+    private static final int SHARED_PRICE_JOBS = 1;
+
+    @Autowired
+    private StripeWebhookService stripeWebhookService;
+
+    @Autowired
+    private ClerkService clerkService;
+
+    @Autowired
+    private WebhookInboxService inboxService;
+
+    @Autowired
+    private StripeConfiguration stripeConfiguration;
+
+    @Autowired
+    private ClerkConfiguration clerkConfiguration;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void replayRecordedBurst_ackLatencyAndDrainThroughput() throws Exception {
+        List<String> stripeRecording = recording("webhooks/stripe-checkout.jsonl");
+        List<String> clerkRecording = recording("webhooks/clerk-signup.jsonl");
+
+        // each customer replays the same checkout, interleaved so every customer's burst overlaps every other's
+        List<Supplier<Integer>> deliveries = new ArrayList<>();
+        for (int event = 0; event < Math.max(stripeRecording.size(), clerkRecording.size()); event++) {
+            for (int replay = 0; replay < Math.max(CUSTOMERS, USERS); replay++) {
+                if (event < stripeRecording.size() && replay < CUSTOMERS) {
+                    deliveries.add(stripeDelivery(stripeRecording.get(event), replay));
+                }
+                if (event < clerkRecording.size() && replay < USERS) {
+                    deliveries.add(clerkDelivery(clerkRecording.get(event), replay, event));
+                }
+            }
+        }
+
+        long[] ackNanos = new long[deliveries.size()];
+        var failures = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < deliveries.size(); i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    long ackStart = System.nanoTime();
+                    int status = deliveries.get(index).get();
+                    ackNanos[index] = System.nanoTime() - ackStart;
+                    if (status != 200) {
+                        failures.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        long burstNanos = System.nanoTime() - start;
+
+        Integer pending = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM webhook_inbox_ WHERE processed_at IS NULL", Integer.class);
+        start = System.nanoTime();
+        int drained = inboxService.drain(Instant.now().plusSeconds(60));
+        long drainNanos = System.nanoTime() - start;
+        Integer jobs = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM job_queue_", Integer.class);
+
+        Arrays.sort(ackNanos);
+        LOGGER.info(("replayed %d deliveries in %d ms (%d/s) at concurrency %d, ack p50: %.2f ms, p99: %.2f ms, max: %.2f ms; "
+            + "drained %d inbox events into %d jobs in %d ms (%d events/s)").formatted(
+            deliveries.size(), burstNanos / 1_000_000, deliveries.size() * 1_000_000_000L / burstNanos, CONCURRENCY,
+            percentile(ackNanos, 0.50), percentile(ackNanos, 0.99), ackNanos[ackNanos.length - 1] / 1e6,
+            drained, jobs, drainNanos / 1_000_000, drained * 1_000_000_000L / Math.max(drainNanos, 1)));
+
+        assertThat(failures).hasValue(0);
+        assertThat(drained).isEqualTo(pending);
+        assertThat(jobs).isEqualTo(CUSTOMERS * JOBS_PER_CUSTOMER + SHARED_PRICE_JOBS + USERS);
+    }
+
+    private Supplier<Integer> stripeDelivery(String recorded, int replay) {
+        var payload = recorded
+            .replace("cus_RkT3recorded", "cus_replay" + replay)
+            .replace("evt_1QsR", "evt_replay" + replay + "_");
+        return () -> {
+            try {
+                long timestamp = Webhook.Util.getTimeNow();
+                String signature = Webhook.Util.computeHmacSha256(stripeConfiguration.getSigningKey(), timestamp + "." + payload);
+                return stripeWebhookService.handleStripeWebhook(payload, "t=%d,v1=%s".formatted(timestamp, signature))
+                    .getStatusCode().value();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    private Supplier<Integer> clerkDelivery(String recorded, int replay, int event) {
+        var payload = recorded.replace("user_2recorded", "user_replay" + replay);
+        var svixId = "msg_replay%d_%d".formatted(replay, event);
+        return () -> {
+            try {
+                var svixTimestamp = String.valueOf(Instant.now().getEpochSecond());
+                var secret = Base64.getDecoder().decode(clerkConfiguration.getSigningKey().split("_")[1]);
+                var mac = Mac.getInstance("HmacSHA256");
+                mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+                var signature = Base64.getEncoder().encodeToString(
+                    mac.doFinal(String.join(".", svixId, svixTimestamp, payload).getBytes(StandardCharsets.UTF_8)));
+                return clerkService.handleClerkWebhook(payload, svixId, svixTimestamp, "v1," + signature)
+                    .getStatusCode().value();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    private static List<String> recording(String resource) throws IOException {
+        try (InputStream in = WebhookInboxBenchmarkTest.class.getClassLoader().getResourceAsStream(resource)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).lines()
+                .filter(line -> !line.isBlank())
+                .toList();
+        }
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.ceil(percentile * sorted.length) - 1] / 1e6;
+    }
+}
@@ -0,0 +1,156 @@
+package com.mc_host.api.service.webhook;
+
+import com.mc_host.api.configuration.StripeConfiguration;
+import com.mc_host.api.configuration.WebhookInboxConfiguration;
+import com.mc_host.api.metrics.WebhookMetrics;
+import com.mc_host.api.model.queue.EnqueueRequest;
+import com.mc_host.api.model.queue.JobType;
+import com.mc_host.api.model.stripe.StripeObjectChange;
+import com.mc_host.api.model.webhook.InboxEvent;
+import com.mc_host.api.model.webhook.WebhookSource;
+import com.mc_host.api.queue.JobScheduler;
+import com.mc_host.api.repository.StripeSyncRepository;
+import com.mc_host.api.repository.WebhookInboxRepository;
+import com.mc_host.api.service.stripe.StripeEventProcessor;
+import com.mc_host.api.util.PersistenceContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookInboxServiceTest {
+
+    @Mock private WebhookInboxRepository inboxRepository;
+    @Mock private StripeSyncRepository stripeSyncRepository;
+    @Mock private JobScheduler jobScheduler;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private WebhookInboxService inboxService;
+    private final Instant now = Instant.parse("2026-01-01T12:00:00Z");
+
+    @BeforeEach
+    void setUp() {
+        var stripeConfiguration = new StripeConfiguration();
+        stripeConfiguration.setSubscriptionEvents(List.of("customer.subscription.updated", "invoice.paid"));
+        stripeConfiguration.setInvoiceEvents(List.of("invoice.paid"));
+        stripeConfiguration.setPriceEvents(List.of("price.updated"));
+        stripeConfiguration.setPaymentMethodEvents(List.of("payment_method.attached"));
+
+        inboxService = new WebhookInboxService(
+            inboxRepository,
+            stripeSyncRepository,
+            new WebhookInboxConfiguration(),
+            new StripeEventProcessor(stripeConfiguration),
+            jobScheduler,
+            new PersistenceContext(transactionManager),
+            new WebhookMetrics(new SimpleMeterRegistry())
+        );
+    }
+
+    @Test
+    void drain_coalescesBurstIntoOneJobPerTypeAndId() {
+        // given
+        List<InboxEvent> events = new ArrayList<>();
+        LongStream.rangeClosed(1, 30).forEach(id -> events.add(stripe(id, id % 2 == 0 ? "invoice.paid" : "customer.subscription.updated", "cus_1")));
+        events.add(stripe(31, "customer.subscription.updated", "cus_2"));
+        events.add(clerk(32, "user_1"));
+        events.add(clerk(33, "user_1"));
+        when(inboxRepository.selectOldestPendingReceivedAt()).thenReturn(Optional.of(now.minusSeconds(5)));
+        when(inboxRepository.claimPending(anyInt())).thenReturn(events);
+
+        // when
+        int drained = inboxService.drain(now);
+
+        // then
+        assertThat(drained).isEqualTo(33);
+        var scheduled = scheduledRequests();
+        assertThat(scheduled)
+            .extracting(request -> request.type() + ":" + request.payload())
+            .containsExactlyInAnyOrder(
+                "CUSTOMER_SUBSCRIPTION_SYNC:cus_1",
+                "CUSTOMER_INVOICE_SYNC:cus_1",
+                "CUSTOMER_SUBSCRIPTION_SYNC:cus_2",
+                "CLERK_USER_SYNC:user_1"
+            );
+        verify(inboxRepository).markProcessed(LongStream.rangeClosed(1, 33).boxed().toList());
+        // only the freshest state of each carried object is kept for the sync jobs
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<StripeObjectChange>> changes = ArgumentCaptor.forClass(List.class);
+        verify(stripeSyncRepository).upsertPendingChanges(changes.capture());
+        assertThat(changes.getValue())
+            .extracting(change -> change.resource() + ":" + change.objectId() + ":" + change.eventCreated().getEpochSecond())
+            .containsExactlyInAnyOrder("SUBSCRIPTION:sub_cus_1:29", "INVOICE:in_cus_1:30", "SUBSCRIPTION:sub_cus_2:31");
+    }
+
+    @Test
+    void drain_leavesInboxAlone_untilOldestEventHasWaitedOutTheWindow() {
+        // given
+        when(inboxRepository.selectOldestPendingReceivedAt()).thenReturn(Optional.of(now.minusMillis(500)));
+
+        // when
+        int drained = inboxService.drain(now);
+
+        // then
+        assertThat(drained).isZero();
+        verify(inboxRepository, never()).claimPending(anyInt());
+        verify(jobScheduler, never()).scheduleAll(any());
+    }
+
+    @Test
+    void drain_marksUnreadableEventFailed_andSchedulesTheRest() {
+        // given
+        var unreadable = new InboxEvent(2L, WebhookSource.CLERK, "msg_2", "user.updated", "{\"data\":{}}", now.minusSeconds(5));
+        when(inboxRepository.selectOldestPendingReceivedAt()).thenReturn(Optional.of(now.minusSeconds(5)));
+        when(inboxRepository.claimPending(anyInt())).thenReturn(List.of(clerk(1, "user_1"), unreadable));
+
+        // when
+        inboxService.drain(now);
+
+        // then
+        verify(inboxRepository).markFailed(eq(2L), startsWith("IllegalStateException"));
+        verify(inboxRepository).markProcessed(List.of(1L));
+        assertThat(scheduledRequests()).extracting(EnqueueRequest::type).containsExactly(JobType.CLERK_USER_SYNC);
+    }
+
+    private List<EnqueueRequest> scheduledRequests() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<EnqueueRequest>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jobScheduler).scheduleAll(captor.capture());
+        return captor.getValue();
+    }
+
+    private InboxEvent stripe(long id, String type, String customerId) {
+        var object = type.startsWith("invoice") ? "invoice" : "subscription";
+        var payload = """
+            {"id": "evt_%d", "object": "event", "created": %d, "type": "%s", "data": {"object": {"id": "%s_%s", "object": "%s", "customer": "%s"}}}
+            """.formatted(id, id, type, object.equals("invoice") ? "in" : "sub", customerId, object, customerId);
+        return new InboxEvent(id, WebhookSource.STRIPE, "evt_" + id, type, payload, now.minusSeconds(5));
+    }
+
+    private InboxEvent clerk(long id, String userId) {
+        var payload = """
+            {"type": "user.updated", "data": {"id": "%s"}}
+            """.formatted(userId);
+        return new InboxEvent(id, WebhookSource.CLERK, "msg_" + id, "user.updated", payload, now.minusSeconds(5));
+    }
+}
@@ -0,0 +1,132 @@
+package com.mc_host.api.util;
+
+import com.mc_host.api.metrics.AwaitMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConditionAwaiterTest {
+
+    private static final ConditionAwaiter.Backoff BACKOFF =
+        new ConditionAwaiter.Backoff(Duration.ofMillis(10), Duration.ofMillis(40), 2.0);
+
+    private ScheduledExecutorService scheduler;
+    private ConditionAwaiter conditionAwaiter;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        conditionAwaiter = new ConditionAwaiter(scheduler, new AwaitMetrics(new SimpleMeterRegistry()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        conditionAwaiter.shutdown();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void await_completesWithFirstPresentValue_treatingErrorsAsNotYet() throws Exception {
+        // given
+        var checks = new AtomicInteger();
+
+        // when
+        var result = conditionAwaiter.await("test", BACKOFF, Duration.ofSeconds(5), () -> {
+            var check = checks.incrementAndGet();
+            if (check == 1) {
+                throw new IllegalStateException("not reachable yet");
+            }
+            return check < 4 ? Optional.empty() : Optional.of("ready");
+        });
+
+        // then
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("ready");
+        assertThat(checks.get()).isEqualTo(4);
+    }
+
+    @Test
+    void await_failsWithTimeoutCarryingLastProbeError() {
+        // given
+        var cause = new IllegalStateException("still booting");
+
+        // when
+        var result = conditionAwaiter.await("test", BACKOFF, Duration.ofMillis(100), () -> {
+            throw cause;
+        });
+
+        // then
+        assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .cause()
+            .isInstanceOf(TimeoutException.class)
+            .hasCause(cause);
+    }
+
+    @Test
+    void await_delaysFirstCheckWhenAsked() throws Exception {
+        // given
+        var firstCheckAt = new AtomicLong();
+        var start = System.nanoTime();
+
+        // when
+        var result = conditionAwaiter.await("test", BACKOFF, Duration.ofMillis(200), Duration.ofSeconds(5), () -> {
+            firstCheckAt.compareAndSet(0, System.nanoTime());
+            return Optional.of("ready");
+        });
+
+        // then
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("ready");
+        assertThat(Duration.ofNanos(firstCheckAt.get() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(200));
+    }
+
+    @Test
+    void await_stopsCheckingOnceCancelled() throws Exception {
+        // given
+        var checks = new AtomicInteger();
+        var result = conditionAwaiter.await("test", BACKOFF, Duration.ofSeconds(5), () -> {
+            checks.incrementAndGet();
+            return Optional.empty();
+        });
+        Thread.sleep(50);
+
+        // when
+        result.cancel(false);
+        var checksAtCancel = checks.get();
+        Thread.sleep(150);
+
+        // then
+        assertThat(checks.get()).isLessThanOrEqualTo(checksAtCancel + 1);
+    }
+
+    @Test
+    void backoff_growsToMaxDelay() {
+        // given
+        var delay = Duration.ZERO;
+
+        // when
+        var delays = new ArrayList<Duration>();
+        for (int i = 0; i < 4; i++) {
+            delay = BACKOFF.next(delay);
+            delays.add(delay);
+        }
+
+        // then
+        assertThat(delays).containsExactly(
+            Duration.ofMillis(10), Duration.ofMillis(20), Duration.ofMillis(40), Duration.ofMillis(40));
+    }
+}
@@ -0,0 +1,42 @@
+package com.mc_host.api.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RowDiffTest {
+
+    private record Row(String id, int value) {}
+
+    @Test
+    void of_pairsRowsByKey_andOnlyCountsContentChangesAsUpdates() {
+        // given
+        var stored = List.of(new Row("a", 1), new Row("b", 1), new Row("c", 1));
+        var fetched = List.of(new Row("a", 1), new Row("b", 2), new Row("d", 1));
+
+        // when
+        var diff = RowDiff.of(stored, fetched, Row::id);
+
+        // then
+        assertThat(diff.inserted()).containsExactly(new Row("d", 1));
+        assertThat(diff.updated()).containsExactly(new Row("b", 2));
+        assertThat(diff.deleted()).containsExactly(new Row("c", 1));
+        assertThat(diff.unchanged()).isEqualTo(1);
+        assertThat(diff.changed()).containsExactly(new Row("d", 1), new Row("b", 2));
+    }
+
+    @Test
+    void of_hasNoChanges_whenBothSidesMatch() {
+        // given
+        var rows = List.of(new Row("a", 1), new Row("b", 2));
+
+        // when
+        var diff = RowDiff.of(rows, List.copyOf(rows), Row::id);
+
+        // then
+        assertThat(diff.hasChanges()).isFalse();
+        assertThat(diff.unchanged()).isEqualTo(2);
+    }
+}